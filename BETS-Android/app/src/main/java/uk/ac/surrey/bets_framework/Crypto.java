@@ -35,6 +35,10 @@ import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
+
 /**
  * Encapsulates all cryptographic operations as a singleton.
  *
@@ -82,11 +86,21 @@ public class Crypto {
    */
   private DHParameters dhParameters = null;
 
+  /**
+   * The encoding used to send data to the server.
+   */
+  private Encoding encoding = Encoding.BINARY;
+
   /**
    * Parameters used for encryption and decryption.
    */
   private String encryptionParameters = DEFAULT_ENCRYPTION_PARAMETERS;
 
+  /**
+   * The framing used to hash proof transcripts, as agreed with the server.
+   */
+  private Framing framing = Framing.LIST_DATA;
+
   /**
    * Parameters used for hashing.
    */
@@ -107,6 +121,16 @@ public class Crypto {
    */
   private int outputBlockSize = 0;
 
+  /**
+   * Flag to indicate that curve points are exchanged in compressed form.
+   */
+  private boolean pointCompression = false;
+
+  /**
+   * The number of bytes saved by point compression since they were last taken.
+   */
+  private long pointBytesSaved = 0L;
+
   /**
    * The certainty in selecting a prime number when generating DSA parameters.
    */
@@ -306,6 +330,39 @@ public class Crypto {
     return this.encryptionParameters;
   }
 
+  /**
+   * @return The encoding used to send data to the server.
+   */
+  public Encoding getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * Sets the encoding used to send data, which must be one that the server understands. Received data is always decoded
+   * whatever its encoding.
+   *
+   * @param encoding The new encoding.
+   */
+  public void setEncoding(Encoding encoding) {
+    this.encoding = encoding;
+  }
+
+  /**
+   * @return The framing used to hash proof transcripts.
+   */
+  public Framing getFraming() {
+    return this.framing;
+  }
+
+  /**
+   * Sets the framing used to hash proof transcripts, which must be the one agreed with the server.
+   *
+   * @param framing The new framing.
+   */
+  public void setFraming(Framing framing) {
+    this.framing = framing;
+  }
+
   /**
    * @param encryptionParameters Parameters used for encryption and decryption.
    */
@@ -313,6 +370,38 @@ public class Crypto {
     this.encryptionParameters = encryptionParameters;
   }
 
+  /**
+   * Produces a hash of the canonical encoding of the specified data, which does not depend upon how the data is exchanged.
+   *
+   * @param data The data to hash.
+   * @return The hashed data.
+   */
+  public byte[] getHash(Data data) {
+    return this.getHash(data, this.hashParameters);
+  }
+
+  /**
+   * Produces a hash of the canonical encoding of the specified data, which does not depend upon how the data is exchanged.
+   *
+   * @param data The data to hash.
+   * @param hashParameters the name of the hash algorithm to use
+   * @return The hashed data.
+   */
+  public byte[] getHash(Data data, String hashParameters) {
+    byte[] hash = null;
+
+    try {
+      final MessageDigest digest = MessageDigest.getInstance(hashParameters, BouncyCastleProvider.PROVIDER_NAME);
+      data.digest(digest);
+      hash = digest.digest();
+    }
+    catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+      LOG.error("could not hash", e);
+    }
+
+    return hash;
+  }
+
   /**
    * Produces a hash of the specified data.
    *
@@ -502,6 +591,41 @@ public class Crypto {
     }
   }
 
+  /**
+   * @return True if curve points are exchanged in compressed form.
+   */
+  public boolean isPointCompression() {
+    return this.pointCompression;
+  }
+
+  /**
+   * @param pointCompression Flag to indicate that curve points are exchanged in compressed form.
+   */
+  public void setPointCompression(boolean pointCompression) {
+    this.pointCompression = pointCompression;
+  }
+
+  /**
+   * Records the number of bytes saved by compressing a curve point.
+   *
+   * @param saved The number of bytes saved.
+   */
+  public void addPointBytesSaved(long saved) {
+    this.pointBytesSaved += saved;
+  }
+
+  /**
+   * Returns the number of bytes saved by point compression since the last call, resetting the count.
+   *
+   * @return The number of bytes saved.
+   */
+  public long takePointBytesSaved() {
+    final long saved = this.pointBytesSaved;
+    this.pointBytesSaved = 0L;
+
+    return saved;
+  }
+
   /**
    * Generates a random big integer in the range 1 to maximum - 1. See:
    * http://stackoverflow.com/questions/2290057/how-to-generate-a-random-biginteger-value-in-java
@@ -23,6 +23,8 @@ import java.lang.reflect.Type;
 
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveField;
+import it.unisa.dia.gas.plaf.jpbc.field.gt.GTFiniteElement;
+import it.unisa.dia.gas.plaf.jpbc.field.gt.GTFiniteField;
 import uk.ac.surrey.bets_framework.protocol.data.Data;
 
 /**
@@ -159,6 +161,63 @@ public class GsonUtils {
     }
   }
 
+  /**
+   * Deserializes a GTFiniteElement.
+   */
+  public static class GTFiniteElementDeserializer implements JsonDeserializer<GTFiniteElement> {
+
+    /**
+     * The GT field of the pairing.
+     */
+    private GTFiniteField<?> field = null;
+
+    /**
+     * Constructor.
+     *
+     * @param field The GT field of the pairing.
+     */
+    public GTFiniteElementDeserializer(GTFiniteField<?> field) {
+      super();
+
+      this.field = field;
+    }
+
+    /**
+     * Gson invokes this call-back method during deserialization when it encounters a field of the specified type.
+     *
+     * @param json    The Json data being deserialized.
+     * @param typeOfT The type of the Object to deserialize to.
+     * @return a deserialized object of the specified type typeOfT which is a subclass of {@code T}.
+     * @throws JsonParseException if json is not in the expected format of {@code typeofT}.
+     */
+    @Override
+    public GTFiniteElement deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws
+            JsonParseException {
+      final GTFiniteElement gtElement = this.field.newElement();
+      gtElement.setFromBytes(Base64.decode(json.getAsString().getBytes(Data.UTF8), Base64.NO_WRAP));
+
+      return gtElement.getImmutable();
+    }
+  }
+
+  /**
+   * Serializes a GTFiniteElement.
+   */
+  public static class GTFiniteElementSerializer implements JsonSerializer<GTFiniteElement> {
+
+    /**
+     * Gson invokes this call-back method during serialization when it encounters a field of the specified type.
+     *
+     * @param src       the object that needs to be converted to Json.
+     * @param typeOfSrc the actual type (fully genericized version) of the source object.
+     * @return a JsonPrimitive containing the element bytes.
+     */
+    @Override
+    public JsonElement serialize(GTFiniteElement src, Type typeOfSrc, JsonSerializationContext context) {
+      return new JsonPrimitive(new String(Base64.encode(src.toBytes(), Base64.NO_WRAP), Data.UTF8));
+    }
+  }
+
   /**
    * Logback logger.
    */
@@ -0,0 +1,84 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.math.BigInteger;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.ElementPowPreProcessing;
+
+/**
+ * Caches fixed-base pre-processing tables for curve elements which are repeatedly multiplied by a scalar, such as the public
+ * generators. Building a table costs a few multiplications, so only elements which have been explicitly added use one: any
+ * other element is multiplied directly. Elements of GT can also be added, in which case jPBC's additive notation means that
+ * mul() raises the element to the power of the scalar.
+ *
+ * The tables belong to the generator fields held by the shared memory, which are added when the public parameters are set
+ * and then passed to mul() as they are. Lookups therefore compare the element references, so that a multiplication does not
+ * first have to serialise its base. The tables are replaced rather than changed when an element is added, so that lookups
+ * from concurrent sessions do not need to lock.
+ *
+ * @author Steve Wesemeyer
+ */
+public class ElementPowPreProcessingCache {
+
+  /** The pre-processing for each fixed element, keyed on the element reference. */
+  private volatile Map<Element, ElementPowPreProcessing> preProcessing = new IdentityHashMap<>();
+
+  /**
+   * Adds the pre-processing for a fixed element, if it has not already been added.
+   *
+   * @param fixed The fixed element.
+   */
+  public void add(Element fixed) {
+    this.addAll(fixed);
+  }
+
+  /**
+   * Adds the pre-processing for a number of fixed elements.
+   *
+   * @param fixed The fixed elements.
+   */
+  public synchronized void addAll(Element... fixed) {
+    final Map<Element, ElementPowPreProcessing> tables = new IdentityHashMap<>(this.preProcessing);
+
+    for (final Element element : fixed) {
+      if (!tables.containsKey(element)) {
+        tables.put(element, element.getImmutable().getElementPowPreProcessing());
+      }
+    }
+
+    this.preProcessing = tables;
+  }
+
+  /**
+   * Removes all cached pre-processing.
+   */
+  public synchronized void clear() {
+    this.preProcessing = new IdentityHashMap<>();
+  }
+
+  /**
+   * Computes fixed * scalar, using the cached pre-processing for the fixed element if it has been added.
+   *
+   * @param fixed The fixed element.
+   * @param scalar The scalar to multiply by.
+   * @return The result of the multiplication, which is immutable if the fixed element is, as with {@link Element#mul}.
+   */
+  public Element mul(Element fixed, BigInteger scalar) {
+    final ElementPowPreProcessing table = this.preProcessing.get(fixed);
+
+    if (table == null) {
+      return fixed.mul(scalar);
+    }
+
+    // The table only handles non-negative scalars, so reduce by the group order first. The table returns a new mutable
+    // element, which must not be changed in place by callers which store it.
+    return table.pow(scalar.mod(fixed.getField().getOrder())).getImmutable();
+  }
+}
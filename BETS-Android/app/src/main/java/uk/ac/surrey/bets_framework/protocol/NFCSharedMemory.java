@@ -19,9 +19,15 @@ public class NFCSharedMemory implements SharedMemory {
   /** Arbitrary proprietary AID (starts with "F") for Android app. Hopefully doesn't clash with anything else. */
   public static final byte[] AID = new byte[]{(byte) 0xF0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66};
 
-  /** The maximum size of a response before it needs to be chunked. */
+  /** The maximum size of a response before it needs to be chunked, until a larger size has been negotiated. */
   public static final int APDU_CHUNK_SIZE = 32;
 
+  /**
+   * The largest APDU chunk that the app can handle. Host card emulation passes on extended length APDUs where the NFC controller
+   * supports them, and the server falls back to short APDUs where they are rejected.
+   */
+  public static final int MAX_APDU_CHUNK_SIZE = 65535;
+
   /**
    * Convenience method to create a String from a byte array.
    *
@@ -0,0 +1,155 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Pairing;
+import uk.ac.surrey.bets_framework.Crypto;
+
+/**
+ * Batch verifies a set of signature equations of the form:
+ *
+ * e(Z_i, Y + g_frak * z_i) = e(M_i, g_frak)
+ *
+ * which all share the signer's public key Y and the generator g_frak. Using the small exponent test, each equation i is raised
+ * to a random power d_i and the results multiplied together. Since e(Z_i, Y + g_frak * z_i) = e(Z_i, Y) * e(Z_i * z_i, g_frak),
+ * the whole batch reduces to:
+ *
+ * e(sum(d_i * Z_i), Y) = e(sum(d_i * M_i - z_i * d_i * Z_i), g_frak)
+ *
+ * which needs only 2 pairings instead of 2n. If the batch fails, each equation is checked in turn to find the bad one.
+ *
+ * @author Steve Wesemeyer
+ */
+public class PairingBatchVerifier {
+
+  /** The number of bits in each random exponent, giving a 2^-64 chance of accepting a bad batch. */
+  public static final int SMALL_EXPONENT_BITS = 64;
+
+  /** Logback logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(PairingBatchVerifier.class);
+
+  /** The pairing to use. */
+  private final Pairing pairing;
+
+  /** The signer's public key Y. */
+  private final Element publicKey;
+
+  /** The generator g_frak. */
+  private final Element generator;
+
+  /** The signature elements Z_i. */
+  private final List<Element> signatures = new ArrayList<>();
+
+  /** The signature exponents z_i. */
+  private final List<BigInteger> exponents = new ArrayList<>();
+
+  /** The signed messages M_i. */
+  private final List<Element> messages = new ArrayList<>();
+
+  /**
+   * Constructor.
+   *
+   * @param pairing The pairing to use.
+   * @param publicKey The signer's public key Y, in G2.
+   * @param generator The generator g_frak, in G2.
+   */
+  public PairingBatchVerifier(Pairing pairing, Element publicKey, Element generator) {
+    super();
+
+    this.pairing = pairing;
+    this.publicKey = publicKey.getImmutable();
+    this.generator = generator.getImmutable();
+  }
+
+  /**
+   * Adds an equation to the batch.
+   *
+   * @param signature The signature element Z_i, in G1.
+   * @param exponent The signature exponent z_i.
+   * @param message The signed message M_i, in G1.
+   */
+  public void add(Element signature, BigInteger exponent, Element message) {
+    this.signatures.add(signature.getImmutable());
+    this.exponents.add(exponent);
+    this.messages.add(message.getImmutable());
+  }
+
+  /**
+   * @return The number of equations in the batch.
+   */
+  public int size() {
+    return this.signatures.size();
+  }
+
+  /**
+   * Verifies a single equation in the batch.
+   *
+   * @param index The index of the equation to verify.
+   * @return True if the equation holds.
+   */
+  public boolean verify(int index) {
+    final Element lhs = this.pairing
+        .pairing(this.signatures.get(index), this.publicKey.add(this.generator.mul(this.exponents.get(index))))
+        .getImmutable();
+    final Element rhs = this.pairing.pairing(this.messages.get(index), this.generator).getImmutable();
+
+    return lhs.isEqual(rhs);
+  }
+
+  /**
+   * Verifies all of the equations in the batch. The equations are first checked together, falling back to checking each one
+   * individually only if the batch fails.
+   *
+   * @return The lowest index of an equation which does not hold, or -1 if they all hold.
+   */
+  public int verify() {
+    final int count = this.size();
+
+    if (count <= 1) {
+      return ((count == 0) || this.verify(0)) ? -1 : 0;
+    }
+
+    final Crypto crypto = Crypto.getInstance();
+    final BigInteger order = this.publicKey.getField().getOrder();
+    final BigInteger maximum = BigInteger.ONE.shiftLeft(SMALL_EXPONENT_BITS);
+
+    Element lhsSum = this.signatures.get(0).getField().newZeroElement();
+    Element rhsSum = this.messages.get(0).getField().newZeroElement();
+
+    for (int i = 0; i < count; i++) {
+      final BigInteger d = crypto.secureRandom(maximum);
+      final Element dZ = this.signatures.get(i).mul(d);
+      lhsSum = lhsSum.add(dZ);
+      rhsSum = rhsSum.add(this.messages.get(i).mul(d)).sub(dZ.mul(this.exponents.get(i).mod(order)));
+    }
+
+    final Element lhs = this.pairing.pairing(lhsSum, this.publicKey).getImmutable();
+    final Element rhs = this.pairing.pairing(rhsSum, this.generator).getImmutable();
+
+    if (lhs.isEqual(rhs)) {
+      LOG.debug("passed batch verification of " + count + " pairing equations");
+      return -1;
+    }
+
+    LOG.debug("batch verification of " + count + " pairing equations failed - checking individually");
+
+    for (int i = 0; i < count; i++) {
+      if (!this.verify(i)) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+}
@@ -13,10 +13,12 @@ import java.util.List;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
+import uk.ac.surrey.bets_framework.protocol.PairingBatchVerifier;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOSharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.TicketDetails;
@@ -61,7 +63,7 @@ public class AnonSSOIssuingStates {
       final int numberOfVerifiers = userData.VerifierList.length + 1;
 
       // compute some stuff for the ZKP PI_1_U
-      final Element B_U = g.add(h.mul(userData.r_u)).add(userData.Y_U);
+      final Element B_U = g.add(sharedMemory.mulFixed(h, userData.r_u)).add(userData.Y_U);
       final BigInteger v_1 = crypto.secureRandom(p);
       final BigInteger v_2 = crypto.secureRandom(p);
       final BigInteger z_u = crypto.secureRandom(p);
@@ -82,9 +84,10 @@ public class AnonSSOIssuingStates {
       final BigInteger v = (userData.r_u.subtract(v_2.multiply(v_3))).mod(p);
       final Element sigma_bar_U = userData.sigma_U.mul(v_1).getImmutable();
       final Element sigma_tilde_U = (sigma_bar_U.mul(userData.e_u.negate().mod(p))).add(B_U.mul(v_1)).getImmutable();
-      final Element B_bar_U = B_U.mul(v_1).add(sharedMemory.h.mul(v_2.negate().mod(p))).getImmutable();
-      final Element W_1 = ((sigma_bar_U.mul(e_dash_u.negate().mod(p))).add(h.mul(v_dash_2))).getImmutable();
-      final Element W_2 = (((B_bar_U.mul(v_dash_3.negate().mod(p))).add(xi.mul(x_dash_u))).add(h.mul(v_dash)))
+      final Element B_bar_U = B_U.mul(v_1).add(sharedMemory.mulFixed(sharedMemory.h, v_2.negate().mod(p))).getImmutable();
+      final Element W_1 = ((sigma_bar_U.mul(e_dash_u.negate().mod(p))).add(sharedMemory.mulFixed(h, v_dash_2))).getImmutable();
+      final Element W_2 = (((B_bar_U.mul(v_dash_3.negate().mod(p))).add(sharedMemory.mulFixed(xi, x_dash_u)))
+              .add(sharedMemory.mulFixed(h, v_dash)))
               .getImmutable();
 
       final byte[][] z_v = new byte[numberOfVerifiers][];
@@ -98,22 +101,22 @@ public class AnonSSOIssuingStates {
           LOG.debug("adding verifier: " + i);
           final ListData zvData = new ListData(
                   Arrays.asList(z_u.toByteArray(), userData.VerifierList[i].getBytes()));
-          z_v[i] = crypto.getHash(zvData.toBytes(), sharedMemory.Hash1);
+          z_v[i] = crypto.getHash(zvData, sharedMemory.Hash1);
           final BigInteger z_Vnum = (new BigInteger(1, z_v[i])).mod(sharedMemory.p);
           P_V[i] = userData.Y_U.add(Y_CV.mul(z_Vnum)).getImmutable();
-          P_dash_V[i] = ((xi.mul(x_dash_u)).add(Y_CV.mul(z_dash[i]))).getImmutable();
-          Q_V[i] = xi.mul(z_Vnum).getImmutable();
-          Q_dash_V[i] = xi.mul(z_dash[i]).getImmutable();
+          P_dash_V[i] = ((sharedMemory.mulFixed(xi, x_dash_u)).add(Y_CV.mul(z_dash[i]))).getImmutable();
+          Q_V[i] = sharedMemory.mulFixed(xi, z_Vnum).getImmutable();
+          Q_dash_V[i] = sharedMemory.mulFixed(xi, z_dash[i]).getImmutable();
         } else {
           LOG.debug("adding central verifier!");
           final ListData zvData = new ListData(
                   Arrays.asList(z_u.toByteArray(), Actor.CENTRAL_VERIFIER.getBytes()));
-          z_v[i] = crypto.getHash(zvData.toBytes(), sharedMemory.Hash1);
+          z_v[i] = crypto.getHash(zvData, sharedMemory.Hash1);
           final BigInteger z_Vnum = (new BigInteger(1, z_v[i])).mod(sharedMemory.p);
           P_V[i] = userData.Y_U.add(Y_CV.mul(z_Vnum)).getImmutable();
-          P_dash_V[i] = ((xi.mul(x_dash_u)).add(Y_CV.mul(z_dash[i]))).getImmutable();
-          Q_V[i] = xi.mul(z_Vnum).getImmutable();
-          Q_dash_V[i] = xi.mul(z_dash[i]).getImmutable();
+          P_dash_V[i] = ((sharedMemory.mulFixed(xi, x_dash_u)).add(Y_CV.mul(z_dash[i]))).getImmutable();
+          Q_V[i] = sharedMemory.mulFixed(xi, z_Vnum).getImmutable();
+          Q_dash_V[i] = sharedMemory.mulFixed(xi, z_dash[i]).getImmutable();
         }
       }
       LOG.debug("finished computing ZK_PI_1_U");
@@ -127,7 +130,7 @@ public class AnonSSOIssuingStates {
         c_DataList.add(Q_V[i].toBytes());
         c_DataList.add(Q_dash_V[i].toBytes());
       }
-      final byte[] c_hash = crypto.getHash((new ListData(c_DataList)).toBytes(), sharedMemory.Hash1);
+      final byte[] c_hash = new TranscriptHasher(sharedMemory.Hash1).addAll(c_DataList).digest();
       final BigInteger c_hashNum = (new BigInteger(1, c_hash)).mod(p);
 
       final BigInteger e_hat_U = (e_dash_u.subtract(c_hashNum.multiply(userData.e_u))).mod(p);
@@ -143,8 +146,9 @@ public class AnonSSOIssuingStates {
       }
 
       final List<byte[]> sendDataList = new ArrayList<>();
-      sendDataList.addAll(Arrays.asList(sigma_bar_U.toBytes(), sigma_tilde_U.toBytes(), B_bar_U.toBytes(),
-              W_1.toBytes(), W_2.toBytes()));
+      sendDataList.addAll(Arrays.asList(sharedMemory.curveElementToBytes(sigma_bar_U), sharedMemory.curveElementToBytes
+              (sigma_tilde_U), sharedMemory.curveElementToBytes(B_bar_U), sharedMemory.curveElementToBytes(W_1), sharedMemory
+              .curveElementToBytes(W_2)));
 
       // need to send all the verifier IDs
       sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray());
@@ -158,10 +162,10 @@ public class AnonSSOIssuingStates {
 
       // send the Ps and Qs
       for (int i = 0; i < numberOfVerifiers; i++) {
-        sendDataList.add(P_V[i].toBytes());
-        sendDataList.add(P_dash_V[i].toBytes());
-        sendDataList.add(Q_V[i].toBytes());
-        sendDataList.add(Q_dash_V[i].toBytes());
+        sendDataList.add(sharedMemory.curveElementToBytes(P_V[i]));
+        sendDataList.add(sharedMemory.curveElementToBytes(P_dash_V[i]));
+        sendDataList.add(sharedMemory.curveElementToBytes(Q_V[i]));
+        sendDataList.add(sharedMemory.curveElementToBytes(Q_dash_V[i]));
       }
 
       // add the last few items...
@@ -238,8 +242,8 @@ public class AnonSSOIssuingStates {
       if (sharedMemory.validateVerifiers) {
         for (int i = 0; i < numOfVerifiers; i++) {
           //Element Y_V = sharedMemory.Y_V.get(ticketDetails.VerifierList[i]);
-          final byte[] verifyD_V = crypto.getHash(
-                  (new ListData(Arrays.asList(C_U.toBytes(), ticketDetails.VerifierList[i].getBytes()))).toBytes(), sharedMemory.Hash2);
+          final byte[] verifyD_V = new TranscriptHasher(sharedMemory.Hash2).add(C_U)
+                  .add(ticketDetails.VerifierList[i].getBytes()).digest();
           if (!Arrays.equals(ticketDetails.D_V[i], verifyD_V)) {
             LOG.error("failed to verify D_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
             return false;
@@ -247,11 +251,9 @@ public class AnonSSOIssuingStates {
         }
         LOG.debug("Passed D_V verification!");
         for (int i = 0; i < numOfVerifiers; i++) {
-          final byte[] verifys_V = crypto.getHash(
-                  (new ListData(
-                          Arrays.asList(ticketDetails.P_V[i].toBytes(), ticketDetails.Q_V[i].toBytes(), ticketDetails.E_V[i].toBytes(),
-                                  ticketDetails.F_V[i].toBytes(), ticketDetails.K_V[i].toBytes(), ticketDetails.ticketText.getBytes()))).toBytes(),
-                  sharedMemory.Hash1);
+          final byte[] verifys_V = new TranscriptHasher(sharedMemory.Hash1).add(ticketDetails.P_V[i])
+                  .add(ticketDetails.Q_V[i]).add(ticketDetails.E_V[i]).add(ticketDetails.F_V[i]).add(ticketDetails.K_V[i])
+                  .add(ticketDetails.ticketText.getBytes()).digest();
           if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
             LOG.error("failed to verify s_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
             return false;
@@ -268,35 +270,12 @@ public class AnonSSOIssuingStates {
         final Element h_tilde = sharedMemory.h_tilde.getImmutable();
         final BigInteger p = sharedMemory.p;
 
-        for (int i = 0; i < numOfVerifiers; i++) {
-          LOG.debug("Verifier: " + i + " is being checked.");
-
-          final Element lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_V[i], Y_bar_I.add
-                  (g_frak.mul(ticketDetails.e_v[i]))))
-                  .getImmutable();
-
-          LOG.debug(System.currentTimeMillis() + " computed lhs: " + lhs);
-          final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
-
-          final Element rhs = (sharedMemory.pairing.pairing((g.add(h.mul(ticketDetails.w_v[i])))
-                  .add(h_tilde.mul(s_Vnum)), g_frak))
-                  .getImmutable();
-          LOG.debug(System.currentTimeMillis() + " computed rhs: " + rhs);
-
-          if (!lhs.isEqual(rhs)) {
-            LOG.error("failed to verify pairing check [" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
-            return false;
-          }
-        }
-        LOG.debug("Passed Z_V pairing verification!");
-
         final List<byte[]> verifys_PData = new ArrayList<>();
         for (int i = 0; i < numOfVerifiers; i++) {
           verifys_PData.add(ticketDetails.s_V[i]);
         }
 
-        if (!Arrays.equals(ticketDetails.s_CV, crypto.getHash((new ListData(verifys_PData))
-                .toBytes(), sharedMemory.Hash1))) {
+        if (!Arrays.equals(ticketDetails.s_CV, new TranscriptHasher(sharedMemory.Hash1).addAll(verifys_PData).digest())) {
           LOG.error("failed to verify s_CV hash");
           return false;
         }
@@ -304,22 +283,29 @@ public class AnonSSOIssuingStates {
         LOG.debug("Passed s_CV verification!");
 
         final BigInteger s_PNum = (new BigInteger(1, ticketDetails.s_CV)).mod(p);
-        LOG.debug("Central Verifier is being checked.");
-        final Element lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_CV, Y_bar_I.add
-                (g_frak.mul(ticketDetails.e_CV))))
-                .getImmutable();
-        LOG.debug("Central Verifier is still being checked. Computed lhs" + lhs);
-        final Element rhs = (sharedMemory.pairing.pairing(g.add(h.mul(ticketDetails.w_CV)).add
-                (h_tilde.mul(s_PNum)), g_frak))
-                .getImmutable();
-        LOG.debug("Central Verifier is still being checked. Computed rhs" + rhs);
-
-        if (!lhs.isEqual(rhs)) {
-          LOG.error("failed to verify Z_CV pairing check");
+
+        // All the tags, including Z_CV, are signed by the issuer so their pairing equations can be checked together.
+        final PairingBatchVerifier batch = new PairingBatchVerifier(sharedMemory.pairing, Y_bar_I, g_frak);
+        for (int i = 0; i < numOfVerifiers; i++) {
+          final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
+          batch.add(ticketDetails.Z_V[i], ticketDetails.e_v[i], (g.add(sharedMemory.mulFixed(h, ticketDetails.w_v[i])))
+                  .add(sharedMemory.mulFixed(h_tilde, s_Vnum)));
+        }
+        batch.add(ticketDetails.Z_CV, ticketDetails.e_CV, g.add(sharedMemory.mulFixed(h, ticketDetails.w_CV))
+                .add(sharedMemory.mulFixed(h_tilde, s_PNum)));
+
+        final int failed = batch.verify();
+        if (failed >= 0) {
+          if (failed < numOfVerifiers) {
+            LOG.error("failed to verify pairing check [" + failed + "] for verifier: " + ticketDetails.VerifierList[failed]);
+          }
+          else {
+            LOG.error("failed to verify Z_CV pairing check");
+          }
           return false;
         }
 
-        LOG.debug("Passed Z_CV pairing verification!");
+        LOG.debug("Passed Z_V and Z_CV pairing verification!");
       }
       // store the ticket details
       // note that z_U was stored during the ticket request generation
@@ -43,7 +43,7 @@ public class AnonSSORegistrationStates {
       final UserData userData = (UserData) sharedMemory.getData(Actor.USER);
       // Send ID_U, Y_U
       final ListData sendData = new ListData(Arrays.asList(userData.ID_U.getBytes(),
-              userData.Y_U.toBytes()));
+              sharedMemory.curveElementToBytes(userData.Y_U)));
       LOG.debug("User public key = " + userData.Y_U);
       return sendData.toBytes();
     }
@@ -107,7 +107,7 @@ public class AnonSSORegistrationStates {
               (e_u))).getImmutable();
       LOG.debug("still verifying user credentials - computing rhs");
       final Element rhs = sharedMemory.pairing
-              .pairing(sharedMemory.g.add(sharedMemory.h.mul(r_u)).add(userData.Y_U),
+              .pairing(sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_u)).add(userData.Y_U),
                       sharedMemory.g_frak).getImmutable();
 
       if (!lhs.isEqual(rhs)) {
@@ -32,6 +32,7 @@ import it.unisa.dia.gas.plaf.jpbc.pairing.f.TypeFPairing;
 import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
 import uk.ac.surrey.bets_framework.Crypto;
 import uk.ac.surrey.bets_framework.GsonUtils;
+import uk.ac.surrey.bets_framework.protocol.ElementPowPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralVerifierData;
@@ -99,6 +100,11 @@ public class AnonSSOSharedMemory extends NFCAndroidSharedMemory {
   /** Random element g_frak as a generator of the group G2. */
   public CurveElement<?, ?> g_frak = null;
 
+  /**
+   * Cached fixed-base multiplication tables for the public generators: transient as they are rebuilt from the generators.
+   */
+  private transient ElementPowPreProcessingCache mulCache = null;
+
   /** Value of p */
   public BigInteger p = null;
 
@@ -283,19 +289,60 @@ public class AnonSSOSharedMemory extends NFCAndroidSharedMemory {
   }
 
   /**
-   * Convenience method to create a G1 curve element from a byte array.
+   * Creates a curve element from a byte array, which may hold either a compressed
+   * or an uncompressed point.
    *
+   * @param field
+   *            The curve field the element belongs to.
    * @param bytes
    *            The bytes containing the curve element data.
    * @return The new curve element.
    */
-  public Element curveG1ElementFromBytes(byte[] bytes) {
-    final CurveElement<Element, ?> element = new CurveElement<>((CurveField<?>) this.pairing.getG1());
-    element.setFromBytes(bytes);
+  private Element curveElementFromBytes(CurveField<?> field, byte[] bytes) {
+    final CurveElement<Element, ?> element = new CurveElement<>(field);
+
+    // The two forms always differ in length, so the length tells us which we have.
+    if (bytes.length == element.getLengthInBytesCompressed()) {
+      element.setFromBytesCompressed(bytes);
+    } else {
+      element.setFromBytes(bytes);
+    }
 
     return element.getImmutable();
   }
 
+  /**
+   * Converts a curve element into bytes to be sent, compressing the point if
+   * point compression has been negotiated.
+   *
+   * @param element
+   *            The element to convert.
+   * @return The bytes to send.
+   */
+  public byte[] curveElementToBytes(Element element) {
+    byte[] bytes = element.toBytes();
+    final Crypto crypto = Crypto.getInstance();
+
+    if (crypto.isPointCompression() && (element instanceof CurveElement)) {
+      final byte[] compressed = ((CurveElement<?, ?>) element).toBytesCompressed();
+      crypto.addPointBytesSaved(bytes.length - compressed.length);
+      bytes = compressed;
+    }
+
+    return bytes;
+  }
+
+  /**
+   * Convenience method to create a G1 curve element from a byte array.
+   *
+   * @param bytes
+   *            The bytes containing the curve element data.
+   * @return The new curve element.
+   */
+  public Element curveG1ElementFromBytes(byte[] bytes) {
+    return this.curveElementFromBytes((CurveField<?>) this.pairing.getG1(), bytes);
+  }
+
 
   /**
    * Convenience method to create a G2curve element from a byte array.
@@ -305,10 +352,7 @@ public class AnonSSOSharedMemory extends NFCAndroidSharedMemory {
    * @return The new curve element.
    */
   public Element curveG2ElementFromBytes(byte[] bytes) {
-    final CurveElement<Element, ?> element = new CurveElement<>((CurveField<?>) this.pairing.getG2());
-    element.setFromBytes(bytes);
-
-    return element.getImmutable();
+    return this.curveElementFromBytes((CurveField<?>) this.pairing.getG2(), bytes);
   }
 
   /**
@@ -384,6 +428,31 @@ public class AnonSSOSharedMemory extends NFCAndroidSharedMemory {
     // create some random generator for G2
     this.g_frak = (CurveElement<?, ?>) this.pairing.getG2().newRandomElement().getImmutable();
 
+    // Pre-compute the fixed-base multiplication tables for the generators.
+    this.setMulCache();
+  }
+
+  /**
+   * Multiplies an element by a scalar, using the fixed-base multiplication tables if the element is one of the public generators.
+   *
+   * @param fixed The element to multiply.
+   * @param scalar The scalar to multiply by.
+   * @return The result of the multiplication.
+   */
+  public Element mulFixed(Element fixed, BigInteger scalar) {
+    if (this.mulCache == null) {
+      this.setMulCache();
+    }
+
+    return this.mulCache.mul(fixed, scalar);
+  }
+
+  /**
+   * Builds the fixed-base multiplication tables for the public generators.
+   */
+  private void setMulCache() {
+    this.mulCache = new ElementPowPreProcessingCache();
+    this.mulCache.addAll(this.g, this.h, this.h_tilde, this.xi, this.g_frak);
   }
 
   /**
@@ -11,6 +11,7 @@ import java.util.List;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -55,8 +56,7 @@ public class AnonSSOVerifyingStates {
       final String ID_V = new String(listData.getList().get(0), StandardCharsets.UTF_8);
       LOG.debug("Looking for ID_V = " + ID_V);
 
-      final byte[] D_Vhash = crypto.getHash((new ListData(Arrays.asList(userData.C_U.toBytes(), ID_V.getBytes()))).toBytes(),
-              sharedMemory.Hash2);
+      final byte[] D_Vhash = new TranscriptHasher(sharedMemory.Hash2).add(userData.C_U).add(ID_V.getBytes()).digest();
 
       TicketDetails userTicket = userData.ticketDetails;
       int index = userTicket.getVerifierIndex(D_Vhash);
@@ -71,21 +71,19 @@ public class AnonSSOVerifyingStates {
       final Element xi = sharedMemory.xi.getImmutable();
       final Element Y_CV = sharedMemory.getPublicKey(Actor.CENTRAL_VERIFIER);
 
-      final byte[] z_Vhash = crypto.getHash((new ListData(Arrays.asList(userData.z_u.toByteArray
-                      (), ID_V.getBytes()))).toBytes(),
+      final byte[] z_Vhash = crypto.getHash(new ListData(Arrays.asList(userData.z_u.toByteArray
+                      (), ID_V.getBytes())),
               sharedMemory.Hash1);
       final BigInteger z_Vnum = (new BigInteger(1, z_Vhash)).mod(p);
 
       final BigInteger x_dash_U = crypto.secureRandom(p);
       final BigInteger z_dash_V = crypto.secureRandom(p);
 
-      final Element P_dash_V = ((xi.mul(x_dash_U)).add(Y_CV.mul(z_dash_V))).getImmutable();
-      final Element Q_dash_V = (xi.mul(z_dash_V)).getImmutable();
+      final Element P_dash_V = ((sharedMemory.mulFixed(xi, x_dash_U)).add(Y_CV.mul(z_dash_V))).getImmutable();
+      final Element Q_dash_V = (sharedMemory.mulFixed(xi, z_dash_V)).getImmutable();
 
-      final byte[] c_Vhash = crypto.getHash((new ListData(
-                      Arrays.asList(userTicket.P_V[index].toBytes(), P_dash_V.toBytes(), userTicket.Q_V[index].toBytes(), Q_dash_V.toBytes())))
-                      .toBytes(),
-              sharedMemory.Hash1);
+      final byte[] c_Vhash = new TranscriptHasher(sharedMemory.Hash1).add(userTicket.P_V[index]).add(P_dash_V)
+              .add(userTicket.Q_V[index]).add(Q_dash_V).digest();
 
       final BigInteger c_Vnum = (new BigInteger(1, c_Vhash)).mod(p);
 
@@ -95,16 +93,17 @@ public class AnonSSOVerifyingStates {
 
       //collect everything that needs to be sent
       final List<byte[]> sendDataList = new ArrayList<>();
-      sendDataList.addAll(Arrays.asList(userTicket.P_V[index].toBytes(),P_dash_V.toBytes(),
-              userTicket.Q_V[index].toBytes(), Q_dash_V.toBytes(), c_Vhash, x_hat_U.toByteArray(), z_hat_V.toByteArray(),
-              userTicket.E_V[index].toBytes(), userTicket.F_V[index].toBytes(), userTicket.K_V[index].toBytes(), userTicket.s_V[index],
-              userTicket.w_v[index].toByteArray(), userTicket.e_v[index].toByteArray(),
-              userTicket.Z_V[index].toBytes()));
+      sendDataList.addAll(Arrays.asList(sharedMemory.curveElementToBytes(userTicket.P_V[index]), sharedMemory
+              .curveElementToBytes(P_dash_V), sharedMemory.curveElementToBytes(userTicket.Q_V[index]), sharedMemory
+              .curveElementToBytes(Q_dash_V), c_Vhash, x_hat_U.toByteArray(), z_hat_V.toByteArray(), sharedMemory
+              .curveElementToBytes(userTicket.E_V[index]), sharedMemory.curveElementToBytes(userTicket.F_V[index]), sharedMemory
+              .curveElementToBytes(userTicket.K_V[index]), userTicket.s_V[index], userTicket.w_v[index].toByteArray(), userTicket
+              .e_v[index].toByteArray(), sharedMemory.curveElementToBytes(userTicket.Z_V[index])));
 
       //if it was the central verifier who asked then we need to add the whole ticket, too
       if (ID_V.equalsIgnoreCase(Actor.CENTRAL_VERIFIER)) {
         LOG.debug("it's a trace so add the whole ticket, too!");
-        userData.ticketDetails.getTicketDetails(sendDataList);
+        userData.ticketDetails.getTicketDetails(sharedMemory, sendDataList);
       }
       final ListData sendData=new ListData(sendDataList);
       return sendData.toBytes();
@@ -60,24 +60,24 @@ public class TicketDetails {
 
   }
 
-  public void getTicketDetails(List<byte[]> sendDataList) {
+  public void getTicketDetails(AnonSSOSharedMemory sharedMemory, List<byte[]> sendDataList) {
     for (int i = 0; i < this.numOfVerifiers; i++) {
       sendDataList.add(this.VerifierList[i].getBytes(StandardCharsets.UTF_8));
       sendDataList.add(this.D_V[i]);
-      sendDataList.add(this.P_V[i].toBytes());
-      sendDataList.add(this.Q_V[i].toBytes());
-      sendDataList.add(this.E_V[i].toBytes());
-      sendDataList.add(this.F_V[i].toBytes());
-      sendDataList.add(this.K_V[i].toBytes());
+      sendDataList.add(sharedMemory.curveElementToBytes(this.P_V[i]));
+      sendDataList.add(sharedMemory.curveElementToBytes(this.Q_V[i]));
+      sendDataList.add(sharedMemory.curveElementToBytes(this.E_V[i]));
+      sendDataList.add(sharedMemory.curveElementToBytes(this.F_V[i]));
+      sendDataList.add(sharedMemory.curveElementToBytes(this.K_V[i]));
       sendDataList.add(this.s_V[i]);
       sendDataList.add(this.w_v[i].toByteArray());
       sendDataList.add(this.e_v[i].toByteArray());
-      sendDataList.add(this.Z_V[i].toBytes());
+      sendDataList.add(sharedMemory.curveElementToBytes(this.Z_V[i]));
     }
     sendDataList.add(this.s_CV);
     sendDataList.add(this.w_CV.toByteArray());
     sendDataList.add(this.e_CV.toByteArray());
-    sendDataList.add(this.Z_CV.toBytes());
+    sendDataList.add(sharedMemory.curveElementToBytes(this.Z_CV));
     sendDataList.add(this.ticketText.getBytes(StandardCharsets.UTF_8));
   }
 
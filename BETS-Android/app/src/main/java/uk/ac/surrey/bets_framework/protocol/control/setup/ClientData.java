@@ -5,6 +5,12 @@
  */
 package uk.ac.surrey.bets_framework.protocol.control.setup;
 
+import com.google.gson.JsonObject;
+
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryReader;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
 import uk.ac.surrey.bets_framework.protocol.data.DataException;
 
 /**
@@ -14,6 +20,24 @@ import uk.ac.surrey.bets_framework.protocol.data.DataException;
  */
 public class ClientData extends CommonData {
 
+  /** JSON maximum APDU chunk size key. */
+  private static final String JSON_MAX_APDU_CHUNK_SIZE = "maxApduChunkSize";
+
+  /** JSON point compression key. */
+  private static final String JSON_POINT_COMPRESSION = "pointCompression";
+
+  /** JSON transcript framing key. */
+  private static final String JSON_TRANSCRIPT_FRAMING = "transcriptFraming";
+
+  /** The largest APDU chunk that the client can handle. */
+  private int maxApduChunkSize = NFCSharedMemory.APDU_CHUNK_SIZE;
+
+  /** Flag to indicate that the client accepts the server's offer to exchange curve points in compressed form. */
+  private boolean pointCompression = false;
+
+  /** The framing the client uses to hash proof transcripts. */
+  private Framing transcriptFraming = Framing.LIST_DATA;
+
   /**
    * Private default constructor.
    */
@@ -25,9 +49,16 @@ public class ClientData extends CommonData {
    * Constructor which requires the mandatory fields.
    *
    * @param encodedPublicKey The public key bytes used to encrypt messages.
+   * @param maxApduChunkSize The largest APDU chunk that the client can handle.
+   * @param transcriptFraming The framing the client uses to hash proof transcripts.
+   * @param pointCompression Flag to indicate that the client accepts the server's offer of compressed curve points.
    */
-  public ClientData(byte[] encodedPublicKey) {
+  public ClientData(byte[] encodedPublicKey, int maxApduChunkSize, Framing transcriptFraming, boolean pointCompression) {
     super(encodedPublicKey);
+
+    this.maxApduChunkSize = maxApduChunkSize;
+    this.transcriptFraming = transcriptFraming;
+    this.pointCompression = pointCompression;
   }
 
   /**
@@ -50,4 +81,90 @@ public class ClientData extends CommonData {
 
     return clientData;
   }
+
+  /**
+   * Sets the fields from binary data.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  @Override
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    super.fromBinary(reader);
+
+    this.maxApduChunkSize = reader.hasRemaining() ? (int) reader.readVarLong() : NFCSharedMemory.APDU_CHUNK_SIZE;
+
+    // Older clients do not send a framing, and only hash transcripts as ListData.
+    this.transcriptFraming = toFraming(reader.hasRemaining() ? reader.readString() : null);
+
+    // Older clients do not echo point compression, and only understand uncompressed points.
+    this.pointCompression = reader.hasRemaining() && (reader.readByte() != 0);
+  }
+
+  /**
+   * Sets the fields from JSON data.
+   *
+   * @param json The source JSON data.
+   */
+  @Override
+  protected void fromJson(JsonObject json) {
+    super.fromJson(json);
+
+    this.maxApduChunkSize = json.has(JSON_MAX_APDU_CHUNK_SIZE) ? json.getAsJsonPrimitive(JSON_MAX_APDU_CHUNK_SIZE).getAsNumber()
+        .intValue() : NFCSharedMemory.APDU_CHUNK_SIZE;
+    this.transcriptFraming = toFraming(json.has(JSON_TRANSCRIPT_FRAMING)
+        ? json.getAsJsonPrimitive(JSON_TRANSCRIPT_FRAMING).getAsString() : null);
+    this.pointCompression = json.has(JSON_POINT_COMPRESSION) && json.getAsJsonPrimitive(JSON_POINT_COMPRESSION).getAsBoolean();
+  }
+
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  @Override
+  protected void toBinary(BinaryWriter writer) {
+    super.toBinary(writer);
+
+    writer.writeVarLong(this.maxApduChunkSize);
+    writer.writeString(this.transcriptFraming.name());
+    writer.writeByte(this.pointCompression ? 1 : 0);
+  }
+
+  /**
+   * Creates a JSON object containing the data.
+   *
+   * @return The corresponding JSON object.
+   */
+  @Override
+  protected JsonObject toJson() {
+    final JsonObject json = super.toJson();
+
+    json.addProperty(JSON_MAX_APDU_CHUNK_SIZE, this.maxApduChunkSize);
+    json.addProperty(JSON_TRANSCRIPT_FRAMING, this.transcriptFraming.name());
+    json.addProperty(JSON_POINT_COMPRESSION, this.pointCompression);
+
+    return json;
+  }
+
+  /**
+   * @return The largest APDU chunk that the client can handle.
+   */
+  public int getMaxApduChunkSize() {
+    return this.maxApduChunkSize;
+  }
+
+  /**
+   * @return The framing the client uses to hash proof transcripts.
+   */
+  public Framing getTranscriptFraming() {
+    return this.transcriptFraming;
+  }
+
+  /**
+   * @return True if the client accepts the server's offer to exchange curve points in compressed form.
+   */
+  public boolean isPointCompression() {
+    return this.pointCompression;
+  }
 }
@@ -9,7 +9,11 @@ import android.util.Base64;
 
 import com.google.gson.JsonObject;
 
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryReader;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
 import uk.ac.surrey.bets_framework.protocol.data.Data;
+import uk.ac.surrey.bets_framework.protocol.data.DataException;
 
 /**
  * Encapsulates the common data exchanged between the server and the client.
@@ -35,6 +39,34 @@ public class CommonData extends Data {
     this.encodedPublicKey = encodedPublicKey;
   }
 
+  /**
+   * Converts the name of a transcript framing into the framing. Anything other than a known framing is treated as the framing
+   * understood by older peers.
+   *
+   * @param name The name of the framing, or null if it was not sent.
+   * @return The corresponding framing.
+   */
+  protected static Framing toFraming(String name) {
+    for (final Framing framing : Framing.values()) {
+      if (framing.name().equals(name)) {
+        return framing;
+      }
+    }
+
+    return Framing.LIST_DATA;
+  }
+
+  /**
+   * Sets the fields from binary data.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  @Override
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    this.encodedPublicKey = reader.readBytes();
+  }
+
   /**
    * Sets the fields from JSON data.
    *
@@ -45,6 +77,18 @@ public class CommonData extends Data {
     this.encodedPublicKey = Base64.decode(json.get(JSON_ENCODED_PUBLIC_KEY).getAsString(), Base64.NO_WRAP);
   }
 
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  @Override
+  protected void toBinary(BinaryWriter writer) {
+    super.toBinary(writer);
+
+    writer.writeBytes(this.encodedPublicKey);
+  }
+
   /**
    * Creates a JSON object containing the data.
    *
@@ -0,0 +1,121 @@
+/**
+ * DICE NFC evaluation.
+ * <p>
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.data;
+
+import java.util.Arrays;
+
+/**
+ * Reads the compact binary form written by {@link BinaryWriter}.
+ *
+ * @author Steve Wesemeyer
+ */
+public class BinaryReader {
+
+  /** Maximum number of bytes in a 64-bit varint. */
+  private static final int MAX_VARINT_BYTES = 10;
+
+  /** The bytes being read. */
+  private final byte[] bytes;
+
+  /** The current read position. */
+  private int position;
+
+  /**
+   * Constructor requiring the bytes and where to start reading from.
+   *
+   * @param bytes The bytes to read.
+   * @param offset The offset of the first byte to read.
+   */
+  public BinaryReader(byte[] bytes, int offset) {
+    super();
+
+    this.bytes = bytes;
+    this.position = offset;
+  }
+
+  /**
+   * @return True if there are still bytes to be read.
+   */
+  public boolean hasRemaining() {
+    return this.position < this.bytes.length;
+  }
+
+  /**
+   * Reads a single raw byte.
+   *
+   * @return The byte read, as an unsigned value.
+   * @throws DataException If there are no more bytes.
+   */
+  public int readByte() throws DataException {
+    if (this.position >= this.bytes.length) {
+      throw new DataException("unexpected end of data at " + this.position);
+    }
+
+    return this.bytes[this.position++] & 0xFF;
+  }
+
+  /**
+   * Reads a length prefixed byte array.
+   *
+   * @return The bytes read.
+   * @throws DataException If the length is invalid.
+   */
+  public byte[] readBytes() throws DataException {
+    final int length = this.readLength();
+    final byte[] result = Arrays.copyOfRange(this.bytes, this.position, this.position + length);
+    this.position += length;
+
+    return result;
+  }
+
+  /**
+   * Reads a varint which is used as a length or count, checking that it does not
+   * run beyond the end of the data.
+   *
+   * @return The length read.
+   * @throws DataException If the length is invalid.
+   */
+  public int readLength() throws DataException {
+    final long length = this.readVarLong();
+
+    if ((length < 0L) || (length > (this.bytes.length - this.position))) {
+      throw new DataException("invalid length " + length + " at " + this.position);
+    }
+
+    return (int) length;
+  }
+
+  /**
+   * Reads a length prefixed UTF8 string.
+   *
+   * @return The string read.
+   * @throws DataException If the length is invalid.
+   */
+  public String readString() throws DataException {
+    return new String(this.readBytes(), Data.UTF8);
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint.
+   *
+   * @return The value read.
+   * @throws DataException If the varint is truncated or too long.
+   */
+  public long readVarLong() throws DataException {
+    long value = 0L;
+
+    for (int i = 0; i < MAX_VARINT_BYTES; i++) {
+      final int b = this.readByte();
+      value |= (long) (b & 0x7F) << (7 * i);
+
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new DataException("varint too long at " + this.position);
+  }
+}
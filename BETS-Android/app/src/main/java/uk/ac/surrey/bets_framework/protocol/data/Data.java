@@ -5,11 +5,22 @@
  */
 package uk.ac.surrey.bets_framework.protocol.data;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+
+import uk.ac.surrey.bets_framework.Crypto;
 
 /**
  * Encapsulates the data exchanged between the server and the client.
@@ -18,11 +29,38 @@ import java.nio.charset.StandardCharsets;
  */
 public abstract class Data {
 
+  /**
+   * The encodings available for converting data to bytes.
+   */
+  public enum Encoding {
+    /** UTF8 JSON with Base64 byte arrays, as understood by older peers. */
+    JSON,
+    /** Compact length-prefixed binary with raw byte arrays. */
+    BINARY
+  }
+
+  /**
+   * First byte of binary encoded data. This can never start UTF8 JSON text, so
+   * it allows the encoding to be detected.
+   */
+  public static final byte BINARY_MARKER = (byte) 0xB1;
+
+  /**
+   * The encoding which is hashed, whatever the encoding used to exchange the data. This is the original JSON encoding, so that
+   * hashes and signatures still agree with older servers.
+   */
+  public static final Encoding CANONICAL_ENCODING = Encoding.JSON;
+
   /**
    * Character set used for byte conversion.
    */
   public static final Charset UTF8 = StandardCharsets.UTF_8;
 
+  /**
+   * Writes JSON objects in the same way as {@link JsonElement#toString()}, which gives the JSON encoding.
+   */
+  private static final TypeAdapter<JsonElement> JSON_ADAPTER = new Gson().getAdapter(JsonElement.class);
+
   /**
    * Default constructor.
    */
@@ -30,6 +68,62 @@ public abstract class Data {
     super();
   }
 
+  /**
+   * Determines the encoding of some received bytes.
+   *
+   * @param bytes The received bytes.
+   * @return The encoding used to create the bytes.
+   */
+  public static Encoding detectEncoding(byte[] bytes) {
+    return ((bytes != null) && (bytes.length > 0) && (bytes[0] == BINARY_MARKER)) ? Encoding.BINARY
+        : Encoding.JSON;
+  }
+
+  /**
+   * Updates a digest with the canonical encoding of the data, so that the hash does not depend upon how the data is exchanged.
+   * The JSON is written straight into the digest, without building the byte array first.
+   *
+   * @param digest The digest to update.
+   */
+  public final void digest(MessageDigest digest) {
+    // The bytes are only needed by the digest.
+    final OutputStream discard = new OutputStream() {
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        // Discard the bytes.
+      }
+
+      @Override
+      public void write(int b) {
+        // Discard the byte.
+      }
+    };
+
+    final JsonWriter writer = new JsonWriter(new OutputStreamWriter(new DigestOutputStream(discard, digest), UTF8));
+    writer.setLenient(true);
+
+    try {
+      this.writeJson(writer);
+      writer.flush();
+    }
+    catch (final IOException e) {
+      // Nothing is written anywhere that can fail.
+      throw new IllegalStateException("could not digest the data", e);
+    }
+  }
+
+  /**
+   * Sets the fields from binary data. Subclasses must read their fields in the
+   * same order that they were written by {@link #toBinary(BinaryWriter)}.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    // Nothing to read.
+  }
+
   /**
    * Sets the fields from JSON data.
    *
@@ -44,32 +138,71 @@ public abstract class Data {
    * @throws DataException If the bytes cannot be decoded.
    */
   protected final void setFromBytes(byte[] bytes) throws DataException {
-    // Convert the bytes into a UTF8 JSON string and convert into JSON (hopefully).
-    final String utf8 = new String(bytes, UTF8);
-    final JsonObject json = new JsonParser().parse(utf8).getAsJsonObject();
+    if (detectEncoding(bytes) == Encoding.BINARY) {
+      // Skip the marker and decode the binary fields.
+      final BinaryReader reader = new BinaryReader(bytes, 1);
+      this.fromBinary(reader);
 
-    // Decode the JSON and set the fields.
-    this.fromJson(json);
+      if (reader.hasRemaining()) {
+        throw new DataException("unexpected trailing data");
+      }
+    }
+    else {
+      // Convert the bytes into a UTF8 JSON string and convert into JSON (hopefully).
+      final String utf8 = new String(bytes, UTF8);
+      final JsonObject json = new JsonParser().parse(utf8).getAsJsonObject();
+
+      // Decode the JSON and set the fields.
+      this.fromJson(json);
+    }
   }
 
   /**
-   * Converts the data into a byte array.
+   * Converts the data into a byte array using the encoding agreed with the server, ready to be sent. Use
+   * {@link #digest(MessageDigest)} to hash the data.
    *
    * @return The corresponding byte array.
    */
   public final byte[] toBytes() {
-    byte[] bytes = null;
+    return this.toBytes(Crypto.getInstance().getEncoding());
+  }
 
-    // Convert the data into JSON.
-    final JsonObject json = this.toJson();
+  /**
+   * Converts the data into a byte array using the specified encoding.
+   *
+   * @param encoding The encoding to use.
+   * @return The corresponding byte array.
+   */
+  public final byte[] toBytes(Encoding encoding) {
+    byte[] bytes = null;
 
-    // Convert the JSON object into a UTF8 byte array.
-    bytes = json.toString().getBytes(UTF8);
+    if (encoding == Encoding.BINARY) {
+      // Write the marker followed by the binary fields.
+      final BinaryWriter writer = new BinaryWriter();
+      writer.writeByte(BINARY_MARKER);
+      this.toBinary(writer);
+      bytes = writer.toByteArray();
+    }
+    else {
+      // Convert the data into JSON.
+      final JsonObject json = this.toJson();
 
+      // Convert the JSON object into a UTF8 byte array.
+      bytes = json.toString().getBytes(UTF8);
+    }
 
     return bytes;
   }
 
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  protected void toBinary(BinaryWriter writer) {
+    // Nothing to write.
+  }
+
   /**
    * Creates a JSON object containing the data.
    *
@@ -78,4 +211,15 @@ public abstract class Data {
   protected JsonObject toJson() {
     return new JsonObject();
   }
+
+  /**
+   * Writes the JSON encoding of the data. Subclasses may override this to write the same text as {@link #toJson()} without
+   * first building the JSON object.
+   *
+   * @param writer The destination for the JSON text.
+   * @throws IOException If the JSON cannot be written.
+   */
+  protected void writeJson(JsonWriter writer) throws IOException {
+    JSON_ADAPTER.write(writer, this.toJson());
+  }
 }
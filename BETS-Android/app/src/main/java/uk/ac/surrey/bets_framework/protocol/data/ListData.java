@@ -10,7 +10,9 @@ import android.util.Base64;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -68,6 +70,23 @@ public class ListData extends Data {
     return listData;
   }
 
+  /**
+   * Sets the fields from binary data.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  @Override
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    // The count followed by each length prefixed array.
+    final int size = reader.readLength();
+    this.list.clear();
+
+    for (int i = 0; i < size; i++) {
+      this.list.add(reader.readBytes());
+    }
+  }
+
   /**
    * Sets the fields from JSON data.
    *
@@ -91,6 +110,23 @@ public class ListData extends Data {
     }
   }
 
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  @Override
+  protected void toBinary(BinaryWriter writer) {
+    super.toBinary(writer);
+
+    // Each array is written raw, without any Base64 overhead.
+    writer.writeVarLong(this.list.size());
+
+    for (final byte[] bytes : this.list) {
+      writer.writeBytes(bytes);
+    }
+  }
+
   /**
    * Creates a JSON object containing the data.
    *
@@ -119,4 +155,25 @@ public class ListData extends Data {
   public List<byte[]> getList() {
     return Collections.unmodifiableList(this.list);
   }
+
+  /**
+   * Writes the JSON encoding of the data, giving the same text as {@link #toJson()} without building the JSON object or the
+   * list of Base64 strings.
+   *
+   * @param writer The destination for the JSON text.
+   * @throws IOException If the JSON cannot be written.
+   */
+  @Override
+  protected void writeJson(JsonWriter writer) throws IOException {
+    writer.beginObject();
+    writer.name(JSON_LIST_BYTES_KEY);
+    writer.beginArray();
+
+    for (final byte[] bytes : this.list) {
+      writer.value(Base64.encodeToString(bytes, Base64.NO_WRAP));
+    }
+
+    writer.endArray();
+    writer.endObject();
+  }
 }
@@ -12,6 +12,7 @@ import java.math.BigInteger;
 import java.util.Arrays;
 
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -223,11 +224,8 @@ public class ETicketPurchaseStates {
       byte[] sigIT = TStarData.getList().get(8);
 
       // 1. Verifies signature.
-      final ListData T = new ListData(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU, Tv, Ti, sharedMemory
-          .hrIn, sharedMemory.hrUn, deltaTP));
-      byte[] TData = T.toBytes();
-
-      final byte[] hashT = crypto.getHash(TData);
+      final byte[] hashT = new TranscriptHasher().addAll(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU,
+          Tv, Ti, sharedMemory.hrIn, sharedMemory.hrUn, deltaTP)).digest();
       byte[] hashTCheck = crypto.decrypt(sigIT, crypto.getRemotePublicKey());
 
       boolean result = (sigIT != null) && (hashT != null) && (hashTCheck != null) && (Arrays.equals(hashTCheck, hashT));
@@ -14,6 +14,7 @@ import java.util.List;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -123,10 +124,10 @@ public class PPETSABCIssuingStates {
       final Element M_2_U = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
 
       // Compute C = delta_U * theta^alpha
-      final Element C = userData.delta_U.add(sharedMemory.theta.mul(alpha)).getImmutable();
+      final Element C = userData.delta_U.add(sharedMemory.mulFixed(sharedMemory.theta, alpha)).getImmutable();
 
       // Compute D = g^alpha * theta^beta
-      final Element D = sharedMemory.g.mul(alpha).add(sharedMemory.theta.mul(beta)).getImmutable();
+      final Element D = sharedMemory.mulFixed(sharedMemory.g, alpha).add(sharedMemory.mulFixed(sharedMemory.theta, beta)).getImmutable();
 
       // Compute phi = D^c_u=g^alpha_dash * theta^beta_dash where alpha_dash =
       // alpha*c_u and
@@ -138,7 +139,8 @@ public class PPETSABCIssuingStates {
 
       final Element phi = D.mul(userData.c_u).getImmutable();
       // Compute Y = xi^x_u * g_1^d
-      final Element Y = sharedMemory.xi.mul(userData.x_u).add(sharedMemory.g_n[1].mul(d)).getImmutable();
+      final Element Y = sharedMemory.mulFixed(sharedMemory.xi, userData.x_u).add(sharedMemory.mulFixed(sharedMemory.g_n[1], d))
+              .getImmutable();
 
       // Compute:
       // Z_1-N1 = g^gamma_1-N1 * h^a_1-N1,
@@ -156,19 +158,21 @@ public class PPETSABCIssuingStates {
       //part 2 of range proof
       rangeProofTiming=rangeProofTiming - System.currentTimeMillis();
       for (int i = 0; i < numOfUserRanges; i++) {
-        Z_n[i] = sharedMemory.g.mul(gamma_n[i]).add(sharedMemory.h.mul(userData.A_U_range[i])).getImmutable();
-        Z_dash_n[i] = sharedMemory.g.mul(gamma_bar_n[i]).add(sharedMemory.h.mul(a_bar_n[i]).getImmutable());
+        Z_n[i] = sharedMemory.mulFixed(sharedMemory.g, gamma_n[i]).add(sharedMemory.mulFixed(sharedMemory.h, userData.A_U_range[i]))
+                .getImmutable();
+        Z_dash_n[i] = sharedMemory.mulFixed(sharedMemory.g, gamma_bar_n[i])
+                .add(sharedMemory.mulFixed(sharedMemory.h, a_bar_n[i]).getImmutable());
 
-        Element sum1 = sharedMemory.g.mul(gamma_bar_n[i]).getImmutable();
+        Element sum1 = sharedMemory.mulFixed(sharedMemory.g, gamma_bar_n[i]).getImmutable();
         for (int j = 0; j < sharedMemory.k; j++) {
-          final Element value = sharedMemory.h_bar_n[j].mul(w_bar_n_m[i][j]).getImmutable();
+          final Element value = sharedMemory.mulFixed(sharedMemory.h_bar_n[j], w_bar_n_m[i][j]).getImmutable();
           sum1 = sum1.add(value).getImmutable();
         }
         Z_bar_n[i] = sum1.getImmutable();
 
-        Element sum2 = sharedMemory.g.mul(gamma_bar_n[i]).getImmutable();
+        Element sum2 = sharedMemory.mulFixed(sharedMemory.g, gamma_bar_n[i]).getImmutable();
         for (int j = 0; j < sharedMemory.k; j++) {
-          final Element value = sharedMemory.h_bar_n[j].mul(w_bar_dash_n_m[i][j]).getImmutable();
+          final Element value = sharedMemory.mulFixed(sharedMemory.h_bar_n[j], w_bar_dash_n_m[i][j]).getImmutable();
           sum2 = sum2.add(value).getImmutable();
         }
         Z_bar_dash_n[i] = sum2.getImmutable();
@@ -232,8 +236,8 @@ public class PPETSABCIssuingStates {
           A_n_m[i][j] = sharedMemory.h_n[w_n_m[i][j]].mul(t_n_m[i][j]).getImmutable();
           A_dash_n_m[i][j] = sharedMemory.h_n[w_dash_n_m[i][j]].mul(t_dash_n_m[i][j]).getImmutable();
 
-          V_n_m[i][j] = sharedMemory.pairing.pairing(sharedMemory.h, sharedMemory.h).pow(t_n_m[i][j])
-                  .mul(sharedMemory.pairing.pairing(A_n_m[i][j], sharedMemory.h)
+          V_n_m[i][j] = sharedMemory.e_h_h.pow(t_n_m[i][j])
+                  .mul(sharedMemory.getPairingCache().pairingFixedSecond(A_n_m[i][j], sharedMemory.h)
                           .pow(BigInteger.valueOf(w_n_m[i][j]).negate().mod(sharedMemory.p)))
                   .getImmutable();
           V_bar_n_m[i][j] = sharedMemory.pairing
@@ -241,12 +245,12 @@ public class PPETSABCIssuingStates {
                           .pairing(A_n_m[i][j], sharedMemory.h).pow(w_bar_n_m[i][j].negate().mod(sharedMemory.p)))
                   .getImmutable();
 
-          V_dash_n_m[i][j] = (sharedMemory.pairing.pairing(sharedMemory.h, sharedMemory.h).pow(t_dash_n_m[i][j]))
-                  .mul(sharedMemory.pairing.pairing(A_dash_n_m[i][j], sharedMemory.h)
+          V_dash_n_m[i][j] = (sharedMemory.e_h_h.pow(t_dash_n_m[i][j]))
+                  .mul(sharedMemory.getPairingCache().pairingFixedSecond(A_dash_n_m[i][j], sharedMemory.h)
                           .pow(BigInteger.valueOf(w_dash_n_m[i][j]).negate().mod(sharedMemory.p)))
                   .getImmutable();
-          V_bar_dash_n_m[i][j] = sharedMemory.pairing.pairing(sharedMemory.h, sharedMemory.h)
-                  .pow(t_bar_dash_n_m[i][j]).mul(sharedMemory.pairing.pairing(A_dash_n_m[i][j], sharedMemory.h)
+          V_bar_dash_n_m[i][j] = sharedMemory.e_h_h
+                  .pow(t_bar_dash_n_m[i][j]).mul(sharedMemory.getPairingCache().pairingFixedSecond(A_dash_n_m[i][j], sharedMemory.h)
                           .pow(w_bar_dash_n_m[i][j].negate().mod(sharedMemory.p)))
                   .getImmutable();
         }
@@ -255,13 +259,15 @@ public class PPETSABCIssuingStates {
       rangeProofTiming=System.currentTimeMillis() + rangeProofTiming;
 
       // Compute D_bar = g^alpha_bar * theta^beta_bar
-      final Element D_bar = sharedMemory.g.mul(alpha_bar).add(sharedMemory.theta.mul(beta_bar)).getImmutable();
+      final Element D_bar = sharedMemory.mulFixed(sharedMemory.g, alpha_bar).add(sharedMemory.mulFixed(sharedMemory.theta, beta_bar))
+              .getImmutable();
 
       // Compute phi_bar = D^c_bar
       final Element phi_bar = D.mul(c_bar).getImmutable();
 
       // Compute Y_bar = xi^x_bar_u * g_1^d_bar
-      final Element Y_bar = sharedMemory.xi.mul(x_bar_u).add(sharedMemory.g_n[1].mul(d_bar)).getImmutable();
+      final Element Y_bar = sharedMemory.mulFixed(sharedMemory.xi, x_bar_u).add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_bar))
+              .getImmutable();
 
       // Compute:
       // R = e(C,g_bar) / (e(g_0,g) e(g_1,g)^H(VP_U)
@@ -272,22 +278,22 @@ public class PPETSABCIssuingStates {
       final byte[] vpuHash = crypto.getHash(userData.VP_U.getBytes());
       final BigInteger vpuHashNum = new BigInteger(1, vpuHash).mod(sharedMemory.p);
 
-      final Element R_1 = sharedMemory.pairing.pairing(C, sharedMemory.g_bar).getImmutable();
-      final Element R_2 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.g).getImmutable();
-      final Element R_3 = sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory.g).pow(vpuHashNum)
+      final Element R_1 = sharedMemory.getPairingCache().pairingFixedSecond(C, sharedMemory.g_bar).getImmutable();
+      final Element R_2 = sharedMemory.e_g_n_g[0].getImmutable();
+      final Element R_3 = sharedMemory.e_g_n_g[1].pow(vpuHashNum)
               .getImmutable();
       final Element R = R_1.div(R_2.mul(R_3)).getImmutable();
 
       // part 3 of range proof
       rangeProofTiming=rangeProofTiming - System.currentTimeMillis();
-      final Element R_dash1 = sharedMemory.pairing.pairing(sharedMemory.xi, sharedMemory.g).pow(x_bar_u)
+      final Element R_dash1 = sharedMemory.e_xi_g.pow(x_bar_u)
               .getImmutable();
-      final Element R_dash2 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g).pow(r_bar_u)
+      final Element R_dash2 = sharedMemory.e_g_frak_g.pow(r_bar_u)
               .getImmutable();
 
       Element product1 = sharedMemory.pairing.getGT().newOneElement().getImmutable();
       for (int i = 0; i < numOfUserRanges; i++) {
-        final Element value = sharedMemory.pairing.pairing(sharedMemory.g_hat_n[i], sharedMemory.g).pow(a_bar_n[i]);
+        final Element value = sharedMemory.e_g_hat_n_g[i].pow(a_bar_n[i]);
         product1 = product1.mul(value);
       }
       //end of part 3 of range proof
@@ -298,16 +304,16 @@ public class PPETSABCIssuingStates {
       Element product2 = sharedMemory.pairing.getGT().newOneElement().getImmutable();
 
       for (int i = 0; i < numOfUserSets; i++) {
-        final Element value = sharedMemory.pairing.pairing(sharedMemory.eta_n[i], sharedMemory.g).pow(e_hat_n[i]);
+        final Element value = sharedMemory.e_eta_n_g[i].pow(e_hat_n[i]);
         product2 = product2.mul(value);
       }
       //end of part 3 of set proof
       setProofTiming=setProofTiming+System.currentTimeMillis();
 
-      final Element R_dash3 = sharedMemory.pairing.pairing(C, sharedMemory.g)
+      final Element R_dash3 = sharedMemory.getPairingCache().pairingFixedSecond(C, sharedMemory.g)
               .pow(c_bar_u.negate().mod(sharedMemory.p));
-      final Element R_dash4 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g).pow(alpha_bar_dash);
-      final Element R_dash5 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g_bar).pow(alpha_bar);
+      final Element R_dash4 = sharedMemory.e_theta_g.pow(alpha_bar_dash);
+      final Element R_dash5 = sharedMemory.e_theta_g_bar.pow(alpha_bar);
 
       final Element R_dash = R_dash1.mul(R_dash2).mul(product1).mul(product2).mul(R_dash3).mul(R_dash4).mul(R_dash5).getImmutable();
       //LOG.debug("R_dash = "+R_dash);
@@ -335,10 +341,9 @@ public class PPETSABCIssuingStates {
         for (int j = 0; j < sharedMemory.biggestSetSize; j++) {
           if ((j<currentSetSize) && UserData.A_U_set[i].equalsIgnoreCase(sharedMemory.setPolices[i][j])) {
             B_n_m[i][j] = sharedMemory.eta_n_n[i][j].mul(e_n[i]).getImmutable();
-            W_n_m[i][j] = sharedMemory.pairing.pairing(B_n_m[i][j], sharedMemory.eta_bar_n[i]).getImmutable();
-            Element part1 = sharedMemory.pairing.pairing(sharedMemory.eta, sharedMemory.eta_n[i])
-                    .pow(e_bar_n[i]).getImmutable();
-            Element part2 = sharedMemory.pairing.pairing(B_n_m[i][j], sharedMemory.eta_n[i]).pow(e_hat_n[i])
+            W_n_m[i][j] = sharedMemory.getPairingCache().pairingFixedSecond(B_n_m[i][j], sharedMemory.eta_bar_n[i]).getImmutable();
+            Element part1 = sharedMemory.e_eta_eta_n[i].pow(e_bar_n[i]).getImmutable();
+            Element part2 = sharedMemory.getPairingCache().pairingFixedSecond(B_n_m[i][j], sharedMemory.eta_n[i]).pow(e_hat_n[i])
                     .getImmutable();
             W_bar_n_m[i][j] = part1.mul(part2).getImmutable();
           } else {
@@ -382,8 +387,7 @@ public class PPETSABCIssuingStates {
           c_BARList.add(W_bar_n_m[i][j].toBytes());
         }
       }
-      final ListData c_BARData = new ListData(c_BARList);
-      final byte[] c_BAR = crypto.getHash(c_BARData.toBytes());
+      final byte[] c_BAR = new TranscriptHasher().addAll(c_BARList).digest();
       final BigInteger c_BARNum = new BigInteger(1, c_BAR).mod(sharedMemory.p);
       //LOG.debug("c_BARNum after mod p="+c_BARNum);
 
@@ -458,9 +462,8 @@ public class PPETSABCIssuingStates {
       final BigInteger[] e_BAR_mNum = new BigInteger[numOfUserRanges];
 
       for (int i = 0; i < numOfUserRanges; i++) {
-        final ListData data = new ListData(Arrays.asList(M_2_U.toBytes(), Z_n[i].toBytes(), Z_dash_n[i].toBytes(),
-                Z_bar_n[i].toBytes(), Z_bar_dash_n[i].toBytes()));
-        e_BAR_m[i] = crypto.getHash(data.toBytes());
+        e_BAR_m[i] = new TranscriptHasher().add(M_2_U).add(Z_n[i]).add(Z_dash_n[i]).add(Z_bar_n[i])
+                .add(Z_bar_dash_n[i]).digest();
         e_BAR_mNum[i] = new BigInteger(1, e_BAR_m[i]).mod(sharedMemory.p);
       }
 
@@ -509,10 +512,8 @@ public class PPETSABCIssuingStates {
 
       for (int i = 0; i < numOfUserRanges; i++) {
         for (int j = 0; j < sharedMemory.k; j++) {
-          final ListData data = new ListData(Arrays.asList(M_2_U.toBytes(), A_n_m[i][j].toBytes(),
-                  A_dash_n_m[i][j].toBytes(), V_n_m[i][j].toBytes(), V_dash_n_m[i][j].toBytes(),
-                  V_bar_n_m[i][j].toBytes(), V_bar_dash_n_m[i][j].toBytes()));
-          d_BAR_n_m[i][j] = crypto.getHash(data.toBytes());
+          d_BAR_n_m[i][j] = new TranscriptHasher().add(M_2_U).add(A_n_m[i][j]).add(A_dash_n_m[i][j])
+                  .add(V_n_m[i][j]).add(V_dash_n_m[i][j]).add(V_bar_n_m[i][j]).add(V_bar_dash_n_m[i][j]).digest();
           d_BAR_n_mNum[i][j] = new BigInteger(1, d_BAR_n_m[i][j]).mod(sharedMemory.p);
         }
       }
@@ -728,9 +729,9 @@ public class PPETSABCIssuingStates {
 
       // Verify c_bar_1 = H(M_2_S || Z || g^s_bar_1 * theta^s_bar_2 *
       // Z^c_bar_1)
-      final Element check1 = sharedMemory.g.mul(s_bar_1).add(sharedMemory.theta.mul(s_bar_2)).add(Z.mul(c_bar_1Num));
-      final ListData c_bar_1VerifyData = new ListData(Arrays.asList(M_2_S.toBytes(), Z.toBytes(), check1.toBytes()));
-      final byte[] c_bar_1Verify = crypto.getHash(c_bar_1VerifyData.toBytes());
+      final Element check1 = sharedMemory.mulFixed(sharedMemory.g, s_bar_1).add(sharedMemory.mulFixed(sharedMemory.theta, s_bar_2))
+              .add(Z.mul(c_bar_1Num));
+      final byte[] c_bar_1Verify = new TranscriptHasher().add(M_2_S).add(Z).add(check1).digest();
 
       if (!Arrays.equals(c_bar_1, c_bar_1Verify)) {
         LOG.error("failed to verify PI_2_S: c_bar_1");
@@ -742,11 +743,9 @@ public class PPETSABCIssuingStates {
 
       // Verify c_bar_2 = H(M_2_S || gamma || g^s_hat_1 * theta^s_hat_2 *
       // gamma^c_bar_2)
-      final Element check2 = sharedMemory.g.mul(s_hat_1).add(sharedMemory.theta.mul(s_hat_2))
+      final Element check2 = sharedMemory.mulFixed(sharedMemory.g, s_hat_1).add(sharedMemory.mulFixed(sharedMemory.theta, s_hat_2))
               .add(gamma.mul(c_bar_2Num));
-      final ListData c_bar_2VerifyData = new ListData(
-              Arrays.asList(M_2_S.toBytes(), gamma.toBytes(), check2.toBytes()));
-      final byte[] c_bar_2Verify = crypto.getHash(c_bar_2VerifyData.toBytes());
+      final byte[] c_bar_2Verify = new TranscriptHasher().add(M_2_S).add(gamma).add(check2).digest();
 
       if (!Arrays.equals(c_bar_2, c_bar_2Verify)) {
         LOG.error("failed to verify PI_2_S: c_bar_2");
@@ -758,24 +757,22 @@ public class PPETSABCIssuingStates {
       // Verify c_bar_3 = H(M_2_S || omega || e(rho,g)^r_bar_1 *
       // e(g_frak,g)^r_bar_2 * e(Q,g)^-r_bar_3 * e(theta,g)^r_bar_4 * e
       // (theta,g_bar)^r_bar_5 * omega^c_bar_3)
-      final Element check3_1 = sharedMemory.pairing.pairing(sharedMemory.rho, sharedMemory.g).pow(r_bar_1)
+      final Element check3_1 = sharedMemory.e_rho_g.pow(r_bar_1)
               .getImmutable();
-      final Element check3_2 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g).pow(r_bar_2)
+      final Element check3_2 = sharedMemory.e_g_frak_g.pow(r_bar_2)
               .getImmutable();
-      final Element check3_3 = sharedMemory.pairing.pairing(Q, sharedMemory.g)
+      final Element check3_3 = sharedMemory.getPairingCache().pairingFixedSecond(Q, sharedMemory.g)
               .pow(r_bar_3.negate().mod(sharedMemory.p)).getImmutable();
-      final Element check3_4 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g).pow(r_bar_4)
+      final Element check3_4 = sharedMemory.e_theta_g.pow(r_bar_4)
               .getImmutable();
-      final Element check3_5 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g_bar).pow(r_bar_5)
+      final Element check3_5 = sharedMemory.e_theta_g_bar.pow(r_bar_5)
               .getImmutable();
 
       final Element check3_6 = omega.pow(c_bar_3Num).getImmutable();
       final Element check3 = check3_1.mul(check3_2).mul(check3_3).mul(check3_4).mul(check3_5).mul(check3_6)
               .getImmutable();
 
-      final ListData c_bar_3VerifyData = new ListData(
-              Arrays.asList(M_2_S.toBytes(), omega.toBytes(), check3.toBytes()));
-      final byte[] c_bar_3Verify = crypto.getHash(c_bar_3VerifyData.toBytes());
+      final byte[] c_bar_3Verify = new TranscriptHasher().add(M_2_S).add(omega).add(check3).digest();
 
       if (!Arrays.equals(c_bar_3, c_bar_3Verify)) {
         LOG.error("failed to verify PI_2_S: c_bar_3");
@@ -856,14 +853,13 @@ public class PPETSABCIssuingStates {
 
       // Check that e(T_U, Y_S * rho^omega_u) =? e(g_0,rho) * e(Y,rho) *
       // e(g_1,rho)^d_u * e(g_2,rho)^s_u
-      final Element left = sharedMemory.pairing.pairing(T_U, Y_S.add(sharedMemory.rho.mul(omega_u))).getImmutable();
+      final Element left = sharedMemory.pairing.pairing(T_U, Y_S.add(sharedMemory.mulFixed(sharedMemory.rho, omega_u))).getImmutable();
 
-      final Element right1 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.rho).getImmutable();
-      final Element right2 = sharedMemory.pairing.pairing(userData.Y_U, sharedMemory.rho).getImmutable();
-      final Element right3 = sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory.rho).pow(d_u).getImmutable();
-      final Element right4 = sharedMemory.pairing.pairing(sharedMemory.g_n[2], sharedMemory.rho).pow(s_u).getImmutable();
-      final Element right5= sharedMemory.pairing.pairing(sharedMemory.g_n[3],sharedMemory.rho)
-              .pow(psi_uNum).getImmutable();
+      final Element right1 = sharedMemory.e_g_n_rho[0].getImmutable();
+      final Element right2 = sharedMemory.getPairingCache().pairingFixedSecond(userData.Y_U, sharedMemory.rho).getImmutable();
+      final Element right3 = sharedMemory.e_g_n_rho[1].pow(d_u).getImmutable();
+      final Element right4 = sharedMemory.e_g_n_rho[2].pow(s_u).getImmutable();
+      final Element right5= sharedMemory.e_g_n_rho[3].pow(psi_uNum).getImmutable();
 
       if (!left.isEqual(right1.mul(right2).mul(right3).mul(right4).mul(right5))) {
         LOG.error("failed to verify e(T_U, Y_S * rho^omega_u)");
@@ -874,7 +870,7 @@ public class PPETSABCIssuingStates {
 
       //compute and store the user's pseudonym
       //PS_U=xi^x_u g_1^d_u= Y_U g_1^d_u
-      userData.PS_U=userData.Y_U.add(sharedMemory.g_n[1].mul(d_u)).getImmutable();
+      userData.PS_U=userData.Y_U.add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_u)).getImmutable();
 
       // Keep the  ticket Ticket_U = (d_u, d_dash, s_u, omega_u, T_U,
       // Time, Service, Priice, Valid_Period).
@@ -16,6 +16,7 @@ import java.util.List;
 import it.unisa.dia.gas.jpbc.Element;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -65,8 +66,7 @@ public class PPETSABCRegistrationStates {
       final Element M_1_S = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
 
       final CurveElement<?, ?> T_s = rho.mul(t_s);
-      final ListData cData = new ListData(Arrays.asList(M_1_S.toBytes(), sellerData.Y_S.toBytes(), T_s.toBytes()));
-      final byte[] c = crypto.getHash(cData.toBytes());
+      final byte[] c = new TranscriptHasher().add(M_1_S).add(sellerData.Y_S).add(T_s).digest();
       final BigInteger cNum = (new BigInteger(1, c)).mod(sharedMemory.p);
 
       final BigInteger s = (t_s.subtract(cNum.multiply(sellerData.x_s))).mod(sharedMemory.p);
@@ -139,19 +139,18 @@ public class PPETSABCRegistrationStates {
 
 
       // Verify e(delta_S, g_bar g^c_s) = e(g_0, g) e(Y_S, g) e(g, g_frac)^r_s
-      final Element left = sharedMemory.pairing.pairing(delta_S, sharedMemory.g_bar.add(sharedMemory.g.mul(c_s)));
+      final Element left = sharedMemory.pairing.pairing(delta_S, sharedMemory.g_bar.add(sharedMemory.mulFixed(sharedMemory.g, c_s)));
 
       final byte[] vpsHash = crypto.getHash(sellerData.VP_S.getBytes());
       final BigInteger vpsHashNum = new BigInteger(1, vpsHash).mod(sharedMemory.p);
       LOG.debug("vpsHashNum: "+vpsHashNum);
 
-      final Element right1 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.g).getImmutable();
-      final Element right2 = sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory
+      final Element right1 = sharedMemory.e_g_n_g[0].getImmutable();
+      final Element right2 = sharedMemory.getPairingCache().pairingFixedFirst(sharedMemory.g_n[1], sharedMemory
               .g).pow(vpsHashNum).getImmutable();
-      final Element right3 = sharedMemory.pairing.pairing(sellerData.Y_S, sharedMemory.g)
+      final Element right3 = sharedMemory.getPairingCache().pairingFixedSecond(sellerData.Y_S, sharedMemory.g)
               .getImmutable();
-      final Element right4 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g)
-              .pow(r_s).getImmutable();
+      final Element right4 = sharedMemory.e_g_frak_g.pow(r_s).getImmutable();
 
       final Element RHS = right1.mul(right2).mul(right3).mul(right4).getImmutable();
       if (!left.equals(RHS)) {
@@ -210,12 +209,12 @@ public class PPETSABCRegistrationStates {
 
       // Select random x_u and compute Y_U = xi^x_u
       userData.x_u = crypto.secureRandom(sharedMemory.p);
-      userData.Y_U = sharedMemory.xi.mul(userData.x_u);
+      userData.Y_U = sharedMemory.mulFixed(sharedMemory.xi, userData.x_u).getImmutable();
 
       // Select random r and compute R = g_frak^r
       userData.r = crypto.secureRandom(sharedMemory.p);
       LOG.debug("r: " + userData.r);
-      final Element R = sharedMemory.g_frak.mul(userData.r).getImmutable();
+      final Element R = sharedMemory.mulFixed(sharedMemory.g_frak, userData.r).getImmutable();
 
       // Compute proof PI_1_U = (M_1_U, Y_U, R, Y_dash_U, R_dash, c_1, c_2,
       // s_1, s_2):
@@ -223,16 +222,13 @@ public class PPETSABCRegistrationStates {
       final BigInteger r_bar = crypto.secureRandom(sharedMemory.p);
       final Element M_1_U = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
 
-      final Element Y_dash_U = sharedMemory.xi.mul(x_bar).getImmutable();
-      final Element R_dash = sharedMemory.g_frak.mul(r_bar).getImmutable();
+      final Element Y_dash_U = sharedMemory.mulFixed(sharedMemory.xi, x_bar).getImmutable();
+      final Element R_dash = sharedMemory.mulFixed(sharedMemory.g_frak, r_bar).getImmutable();
 
-      final ListData c_1Data = new ListData(
-              Arrays.asList(M_1_U.toBytes(), userData.Y_U.toBytes(), Y_dash_U.toBytes()));
-      final byte[] c_1 = crypto.getHash(c_1Data.toBytes());
+      final byte[] c_1 = new TranscriptHasher().add(M_1_U).add(userData.Y_U).add(Y_dash_U).digest();
       final BigInteger c_1Num = new BigInteger(1, c_1);
 
-      final ListData c_2Data = new ListData(Arrays.asList(M_1_U.toBytes(), R.toBytes(), R_dash.toBytes()));
-      final byte[] c_2 = crypto.getHash(c_2Data.toBytes());
+      final byte[] c_2 = new TranscriptHasher().add(M_1_U).add(R).add(R_dash).digest();
       final BigInteger c_2Num = new BigInteger(1, c_2);
 
       final BigInteger s_1 = (x_bar.subtract(c_1Num.multiply(userData.x_u))).mod(sharedMemory.p);
@@ -324,20 +320,19 @@ public class PPETSABCRegistrationStates {
 
       // Verify e(delta_U, g_bar g^c_u) = e(g_0, g) e(g_0,g_1)^H(VP_U) e(Y_U, g)
       // e(g_frac, g)^r_u
-      final Element left = sharedMemory.pairing.pairing(delta_U, sharedMemory.g_bar.add(sharedMemory.g.mul(c_u)));
-      final Element right1 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.g).getImmutable();
+      final Element left = sharedMemory.pairing.pairing(delta_U, sharedMemory.g_bar.add(sharedMemory.mulFixed(sharedMemory.g, c_u)));
+      final Element right1 = sharedMemory.e_g_n_g[0].getImmutable();
 
       final byte[] vpuHash = crypto.getHash(userData.VP_U.getBytes());
       final BigInteger vpuHashNum = new BigInteger(1, vpuHash).mod(sharedMemory.p);
-      final Element right2 = sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory.g).pow(vpuHashNum)
+      final Element right2 = sharedMemory.e_g_n_g[1].pow(vpuHashNum)
               .getImmutable();
-      final Element right3 = sharedMemory.pairing.pairing(userData.Y_U, sharedMemory.g).getImmutable();
-      final Element right4 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g).pow(r_u)
+      final Element right3 = sharedMemory.getPairingCache().pairingFixedSecond(userData.Y_U, sharedMemory.g).getImmutable();
+      final Element right4 = sharedMemory.e_g_frak_g.pow(r_u)
               .getImmutable();
       Element product1 = sharedMemory.pairing.getGT().newOneElement().getImmutable();
       for (int i = 0; i < UserData.A_U_range.length; i++) {
-        final Element value = sharedMemory.pairing.pairing(sharedMemory.g_hat_n[i], sharedMemory.g)
-                .pow(UserData.A_U_range[i]).getImmutable();
+        final Element value = sharedMemory.e_g_hat_n_g[i].pow(UserData.A_U_range[i]).getImmutable();
         product1 = product1.mul(value);
       }
       product1 = product1.getImmutable();
@@ -346,7 +341,7 @@ public class PPETSABCRegistrationStates {
       for (int i = 0; i < UserData.A_U_set.length; i++) {
         final byte[] hash = crypto.getHash(UserData.A_U_set[i].getBytes(Data.UTF8));
         final BigInteger hashNum = new BigInteger(1, hash).mod(sharedMemory.p);
-        final Element value = sharedMemory.pairing.pairing(sharedMemory.eta_n[i], sharedMemory.g).pow(hashNum)
+        final Element value = sharedMemory.e_eta_n_g[i].pow(hashNum)
                 .getImmutable();
         product2 = product2.mul(value);
       }
@@ -37,7 +37,9 @@ import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
 import uk.ac.surrey.bets_framework.Crypto;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.GsonUtils;
+import uk.ac.surrey.bets_framework.protocol.ElementPowPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.PairingPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.SellerData;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.UserData;
@@ -178,6 +180,66 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
 
   public Element gt = null;
 
+  /**
+   * Precomputed pairing e(eta, eta_n[i]).
+   */
+  public GTFiniteElement[] e_eta_eta_n = null;
+
+  /**
+   * Precomputed pairing e(eta_n[i], g).
+   */
+  public GTFiniteElement[] e_eta_n_g = null;
+
+  /**
+   * Precomputed pairing e(g_frak, g).
+   */
+  public GTFiniteElement e_g_frak_g = null;
+
+  /**
+   * Precomputed pairing e(g_hat_n[i], g).
+   */
+  public GTFiniteElement[] e_g_hat_n_g = null;
+
+  /**
+   * Precomputed pairing e(g_n[i], g).
+   */
+  public GTFiniteElement[] e_g_n_g = null;
+
+  /**
+   * Precomputed pairing e(g_n[i], rho).
+   */
+  public GTFiniteElement[] e_g_n_rho = null;
+
+  /**
+   * Precomputed pairing e(h, h).
+   */
+  public GTFiniteElement e_h_h = null;
+
+  /**
+   * Precomputed pairing e(rho, g).
+   */
+  public GTFiniteElement e_rho_g = null;
+
+  /**
+   * Precomputed pairing e(theta, g).
+   */
+  public GTFiniteElement e_theta_g = null;
+
+  /**
+   * Precomputed pairing e(theta, g_bar).
+   */
+  public GTFiniteElement e_theta_g_bar = null;
+
+  /**
+   * Precomputed pairing e(theta, rho).
+   */
+  public GTFiniteElement e_theta_rho = null;
+
+  /**
+   * Precomputed pairing e(xi, g).
+   */
+  public GTFiniteElement e_xi_g = null;
+
 
   /**
    * Random element h as a generator of the group G.
@@ -218,6 +280,16 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
    */
   public transient Pairing pairing = null;
 
+  /**
+   * Cached pre-processing for pairings with a fixed argument: transient as it is rebuilt from the pairing.
+   */
+  private transient PairingPreProcessingCache pairingCache = null;
+
+  /**
+   * Cached fixed-base multiplication tables for the public generators: transient as they are rebuilt from the generators.
+   */
+  private transient ElementPowPreProcessingCache mulCache = null;
+
   /**
    * The bilinear group pairing parameters.
    */
@@ -299,6 +371,8 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
     final GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(CurveElement.class, new GsonUtils.CurveElementSerializer());
     gsonBuilder.registerTypeAdapter(CurveElement.class, new GsonUtils.CurveElementDeserializer((CurveField<?>) pairing.getG1()));
+    gsonBuilder.registerTypeAdapter(GTFiniteElement.class, new GsonUtils.GTFiniteElementSerializer());
+    gsonBuilder.registerTypeAdapter(GTFiniteElement.class, new GsonUtils.GTFiniteElementDeserializer((GTFiniteField<?>) pairing.getGT()));
     gson = gsonBuilder.create();
 
     // Deserialize and set the pairing.
@@ -385,6 +459,32 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
     this.setPublicParameters();
   }
 
+  /**
+   * @return The pairing pre-processing cache for the current pairing, creating it if needed.
+   */
+  public PairingPreProcessingCache getPairingCache() {
+    if ((this.pairingCache == null) || (this.pairingCache.getPairing() != this.pairing)) {
+      this.setPairingCache();
+    }
+
+    return this.pairingCache;
+  }
+  /**
+   * Multiplies an element by a scalar, using the fixed-base multiplication tables if the element is one of the public generators.
+   *
+   * @param fixed The element to multiply.
+   * @param scalar The scalar to multiply by.
+   * @return The result of the multiplication.
+   */
+  public Element mulFixed(Element fixed, BigInteger scalar) {
+    if (this.mulCache == null) {
+      this.setMulCache();
+    }
+
+    return this.mulCache.mul(fixed, scalar);
+  }
+
+
   /**
    * Convenience method to create a curve element from a byte array.
    *
@@ -584,7 +684,7 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
     BigInteger powerQ = BigInteger.ONE; // q^0
     final BigInteger bigIntQ = BigInteger.valueOf(this.q);
     for (int i = 0; i < this.h_bar_n.length; i++) {
-      this.h_bar_n[i] = this.h.mul(powerQ);
+      this.h_bar_n[i] = (CurveElement<?, ?>) this.h.mul(powerQ).getImmutable();
       powerQ = powerQ.multiply(bigIntQ);
     }
 
@@ -618,6 +718,79 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
 
     }
     this.gt = this.pairing.getGT().newElementFromBytes("RandomElement".getBytes()).getImmutable();
+
+    // Pre-compute the fixed-base multiplication tables for the generators.
+    this.setMulCache();
+
+    this.setPairingCache();
+    this.setPairingConstants();
+  }
+
+  /**
+   * Builds the fixed-base multiplication tables for the public generators.
+   */
+  private void setMulCache() {
+    this.mulCache = new ElementPowPreProcessingCache();
+    this.mulCache.addAll(this.g, this.g_frak, this.h, this.rho, this.theta, this.xi);
+    this.mulCache.addAll(this.eta_n);
+    this.mulCache.addAll(this.g_hat_n);
+    this.mulCache.addAll(this.g_n);
+    this.mulCache.addAll(this.h_bar_n);
+  }
+
+  /**
+   * Pre-processes the public parameters which are used as fixed pairing arguments.
+   */
+  private void setPairingCache() {
+    this.pairingCache = new PairingPreProcessingCache(this.pairing);
+    this.pairingCache.addAll(this.g, this.g_bar, this.h, this.rho, this.theta);
+    this.pairingCache.addAll(this.eta_bar_n);
+    this.pairingCache.addAll(this.eta_n);
+    this.pairingCache.addAll(this.g_n);
+  }
+
+  /**
+   * Computes the pairings between fixed public parameters once, so that they do not need to be recomputed for every issue
+   * and validation. Note that GTFiniteElement is used instead of Element for serialization with Gson.
+   */
+  private void setPairingConstants() {
+    this.e_g_n_g = new GTFiniteElement[this.g_n.length];
+    this.e_g_n_rho = new GTFiniteElement[this.g_n.length];
+    for (int i = 0; i < this.g_n.length; i++) {
+      this.e_g_n_g[i] = this.pairingConstant(this.g_n[i], this.g);
+      this.e_g_n_rho[i] = this.pairingConstant(this.g_n[i], this.rho);
+    }
+
+    this.e_g_hat_n_g = new GTFiniteElement[this.g_hat_n.length];
+    for (int i = 0; i < this.g_hat_n.length; i++) {
+      this.e_g_hat_n_g[i] = this.pairingConstant(this.g_hat_n[i], this.g);
+    }
+
+    this.e_eta_n_g = new GTFiniteElement[this.eta_n.length];
+    this.e_eta_eta_n = new GTFiniteElement[this.eta_n.length];
+    for (int i = 0; i < this.eta_n.length; i++) {
+      this.e_eta_n_g[i] = this.pairingConstant(this.eta_n[i], this.g);
+      this.e_eta_eta_n[i] = this.pairingConstant(this.eta, this.eta_n[i]);
+    }
+
+    this.e_g_frak_g = this.pairingConstant(this.g_frak, this.g);
+    this.e_h_h = this.pairingConstant(this.h, this.h);
+    this.e_rho_g = this.pairingConstant(this.rho, this.g);
+    this.e_theta_g = this.pairingConstant(this.theta, this.g);
+    this.e_theta_g_bar = this.pairingConstant(this.theta, this.g_bar);
+    this.e_theta_rho = this.pairingConstant(this.theta, this.rho);
+    this.e_xi_g = this.pairingConstant(this.xi, this.g);
+  }
+
+  /**
+   * Computes an immutable pairing between two fixed public parameters.
+   *
+   * @param in1 The first argument.
+   * @param in2 The second (fixed) argument.
+   * @return The pairing result.
+   */
+  private GTFiniteElement pairingConstant(Element in1, Element in2) {
+    return (GTFiniteElement) this.getPairingCache().pairingFixedSecond(in1, in2).getImmutable();
   }
 
 
@@ -627,6 +800,7 @@ public class PPETSABCSharedMemory extends NFCAndroidSharedMemory {
   public String toJson() {
     final GsonBuilder gsonBuilder = new GsonBuilder();
     gsonBuilder.registerTypeAdapter(CurveElement.class, new GsonUtils.CurveElementSerializer());
+    gsonBuilder.registerTypeAdapter(GTFiniteElement.class, new GsonUtils.GTFiniteElementSerializer());
     final Gson gson = gsonBuilder.create();
 
     return gson.toJson(this);
@@ -13,6 +13,7 @@ import java.util.Arrays;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -83,14 +84,15 @@ public class PPETSABCValidationStates {
       // Compute:
       // D = g^s_u
       // D_bar = g^s_bar_u
-      final Element D = sharedMemory.g.mul(userData.s_u).getImmutable();
-      final Element D_bar = sharedMemory.g.mul(s_bar_u).getImmutable();
+      final Element D = sharedMemory.mulFixed(sharedMemory.g, userData.s_u).getImmutable();
+      final Element D_bar = sharedMemory.mulFixed(sharedMemory.g, s_bar_u).getImmutable();
 
       // Compute:
       // Ps_U = Y_U * g_1^d_u
       // Ps_bar_U = xi^x-bar_u*g_1^d_bar_u
-      final Element Ps_U = userData.Y_U.add(sharedMemory.g_n[1].mul(userData.d_u)).getImmutable();
-      final Element Ps_bar_U = (sharedMemory.xi.mul(x_bar_u)).add(sharedMemory.g_n[1].mul(d_bar_u)).getImmutable();
+      final Element Ps_U = userData.Y_U.add(sharedMemory.mulFixed(sharedMemory.g_n[1], userData.d_u)).getImmutable();
+      final Element Ps_bar_U = (sharedMemory.mulFixed(sharedMemory.xi, x_bar_u)).add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_bar_u))
+              .getImmutable();
 
 
       final byte[] hashID_V = crypto.getHash(ID_V);
@@ -101,16 +103,18 @@ public class PPETSABCValidationStates {
       // F = T_U * theta^pi
       final Element E = (userData.Y_U).add(elementFromHashID_V.mul(r.multiply(userData.s_u).mod(sharedMemory.p)))
               .getImmutable();
-      final Element E_bar = sharedMemory.xi.mul(x_bar_u).add(elementFromHashID_V.mul(r.multiply(s_bar_u).mod(sharedMemory.p))).getImmutable();
-      final Element F = userData.T_U.add(sharedMemory.theta.mul(pi)).getImmutable();
+      final Element E_bar = sharedMemory.mulFixed(sharedMemory.xi, x_bar_u)
+              .add(elementFromHashID_V.mul(r.multiply(s_bar_u).mod(sharedMemory.p))).getImmutable();
+      final Element F = userData.T_U.add(sharedMemory.mulFixed(sharedMemory.theta, pi)).getImmutable();
 
       // Compute:
       // J = g^pi * theta^lambda
       // J_bar = g^pi_bar * theta^lambda_bar
       // J_dash = J^omega_u
       // J_bar_dash = J^omega_bar_u
-      final Element J = (sharedMemory.g.mul(pi).add(sharedMemory.theta.mul(lambda))).getImmutable();
-      final Element J_bar = ((sharedMemory.g.mul(pi_bar)).add(sharedMemory.theta.mul(lambda_bar))).getImmutable();
+      final Element J = (sharedMemory.mulFixed(sharedMemory.g, pi).add(sharedMemory.mulFixed(sharedMemory.theta, lambda))).getImmutable();
+      final Element J_bar = ((sharedMemory.mulFixed(sharedMemory.g, pi_bar)).add(sharedMemory.mulFixed(sharedMemory.theta, lambda_bar)))
+              .getImmutable();
       final Element J_dash = J.mul(userData.omega_u).getImmutable();
       final Element J_bar_dash = J.mul(omega_bar_u).getImmutable();
 
@@ -120,32 +124,30 @@ public class PPETSABCValidationStates {
       // e(F,rho)^-omega_bar_u * e(theta,rho)^pi_bar_dash *
       // e(theta,rho)^pi_bar
       final Element R_1 = sharedMemory.pairing.pairing(F, userData.Y_S);
-      final Element R_2 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.rho).getImmutable();
-      final Element R_3 = sharedMemory.pairing.pairing(Ps_U, sharedMemory.rho).getImmutable();
+      final Element R_2 = sharedMemory.e_g_n_rho[0].getImmutable();
+      final Element R_3 = sharedMemory.getPairingCache().pairingFixedSecond(Ps_U, sharedMemory.rho).getImmutable();
 
-      final Element R_4 = sharedMemory.pairing.pairing(sharedMemory.g_n[3], sharedMemory.rho).pow(userData.psi_uNum)
+      final Element R_4 = sharedMemory.e_g_n_rho[3].pow(userData.psi_uNum)
               .getImmutable();
 
       final Element R = R_1.div(R_2.mul(R_3).mul(R_4)).getImmutable();
 
-      final Element R_bar1 = sharedMemory.pairing.pairing(sharedMemory.g_n[2], sharedMemory.rho).pow(s_bar_u)
+      final Element R_bar1 = sharedMemory.e_g_n_rho[2].pow(s_bar_u)
               .getImmutable();
-      final Element R_bar2 = sharedMemory.pairing.pairing(F, sharedMemory.rho)
+      final Element R_bar2 = sharedMemory.getPairingCache().pairingFixedSecond(F, sharedMemory.rho)
               .pow(omega_bar_u.negate().mod(sharedMemory.p)).getImmutable();
-      final Element R_bar3 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.rho).pow(pi_bar_dash)
+      final Element R_bar3 = sharedMemory.e_theta_rho.pow(pi_bar_dash)
               .getImmutable();
 
-      final Element R_bar4 = sharedMemory.pairing.pairing(sharedMemory.theta, userData.Y_S).pow(pi_bar)
+      final Element R_bar4 = sharedMemory.getPairingCache().pairingFixedFirst(sharedMemory.theta, userData.Y_S).pow(pi_bar)
               .getImmutable();
       final Element R_bar = R_bar1.mul(R_bar2).mul(R_bar3).mul(R_bar4).getImmutable();
 
       // Compute c = H(M_3_U || D || Ps_U|| E || J || J_dash || R || D_bar || PS_bar_U
       // ||E_bar
       // || J_bar || J_bar_dash || R_dash)
-      final ListData cData = new ListData(Arrays.asList(M_3_U.toBytes(), D.toBytes(), Ps_U.toBytes(), E.toBytes(),
-              J.toBytes(), J_dash.toBytes(), R.toBytes(), D_bar.toBytes(), Ps_bar_U.toBytes(), E_bar.toBytes(),
-              J_bar.toBytes(), J_bar_dash.toBytes(), R_bar.toBytes()));
-      final byte[] c = crypto.getHash(cData.toBytes());
+      final byte[] c = new TranscriptHasher().add(M_3_U).add(D).add(Ps_U).add(E).add(J).add(J_dash).add(R).add(D_bar)
+              .add(Ps_bar_U).add(E_bar).add(J_bar).add(J_bar_dash).add(R_bar).digest();
       final BigInteger cNum = new BigInteger(1, c).mod(sharedMemory.p);
 
       // Compute:
@@ -13,6 +13,7 @@ import java.util.Arrays;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidState;
@@ -57,11 +58,11 @@ public class PPETSABCLiteValidationStates {
       final Element M_3_U = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
 
       // Compute Y_dash = xi^pi * g_1^lambda
-      final Element Y_dash = sharedMemory.xi.mul(pi).add(sharedMemory.g_n[1].mul(lambda)).getImmutable();
+      final Element Y_dash = sharedMemory.mulFixed(sharedMemory.xi, pi).add(sharedMemory.mulFixed(sharedMemory.g_n[1], lambda))
+              .getImmutable();
 
       // Compute c = H(M_3_U || Y || Y_dash)
-      final ListData cData = new ListData(Arrays.asList(M_3_U.toBytes(), userData.Y.toBytes(), Y_dash.toBytes()));
-      final byte[] c = crypto.getHash(cData.toBytes());
+      final byte[] c = new TranscriptHasher().add(M_3_U).add(userData.Y).add(Y_dash).digest();
       final BigInteger cNum = new BigInteger(1, c).mod(sharedMemory.p);
 
       // Compute:
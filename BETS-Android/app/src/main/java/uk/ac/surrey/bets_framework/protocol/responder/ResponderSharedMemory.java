@@ -1,8 +1,10 @@
 package uk.ac.surrey.bets_framework.protocol.responder;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import uk.ac.surrey.bets_framework.protocol.NFCAndroidSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
 import uk.ac.surrey.bets_framework.state.StateMachine;
 
 /**
@@ -35,15 +37,20 @@ public class ResponderSharedMemory extends NFCAndroidSharedMemory {
    */
   public static final byte[] COMMAND_SELECT_CLA_INS_P1_P2 = new byte[]{0x00, (byte) 0xA4, 0x04, 0x00};
 
+  /**
+   * The maximum size of a response chunk, as negotiated with the server.
+   */
+  public int apduChunkSize = NFCSharedMemory.APDU_CHUNK_SIZE;
+
   /**
    * The list of all classes within the parent package.
    */
   public List<String> classes = null;
 
   /**
-   * The data which is currently being chunked up as a series of requests.
+   * The data received so far from a request which is being chunked up, reused between requests.
    */
-  public byte[] requestChunked = null;
+  public ByteBuffer requestChunked = ByteBuffer.allocate(NFCSharedMemory.APDU_CHUNK_SIZE);
 
   /**
    * The current index into the response chunked data.
@@ -55,6 +62,11 @@ public class ResponderSharedMemory extends NFCAndroidSharedMemory {
    */
   public byte[] responseChunked = null;
 
+  /**
+   * The maximum response data length expected by the current command, or 0 if it did not say.
+   */
+  public int responseLength = 0;
+
   /**
    * The protocol state machine.
    */
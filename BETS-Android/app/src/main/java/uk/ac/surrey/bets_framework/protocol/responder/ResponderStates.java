@@ -8,6 +8,7 @@ package uk.ac.surrey.bets_framework.protocol.responder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
@@ -22,6 +23,7 @@ import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.control.setup.ClientData;
 import uk.ac.surrey.bets_framework.protocol.control.setup.ServerData;
 import uk.ac.surrey.bets_framework.protocol.control.teardown.TimingsData;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.StateMachine;
@@ -84,6 +86,7 @@ public class ResponderStates {
       // Extract the data portion of the APDU command contained in the message data.
       byte[] messageData = message.getData();
       int dataLength = 0;
+      int dataOffset = ResponderSharedMemory.COMMAND_CLA_INS_P1_P2_DATA + 1;
       byte[] data = null;
 
       // Check if the message has any data.
@@ -91,16 +94,102 @@ public class ResponderStates {
         dataLength = messageData[ResponderSharedMemory.COMMAND_CLA_INS_P1_P2_DATA] & 0xFF;
       }
 
+      // A zero length byte followed by two more length bytes marks an extended length APDU.
+      if ((dataLength == 0) && (messageData.length > (dataOffset + 2))) {
+        dataLength = this.getExtendedLength(messageData, dataOffset);
+        dataOffset += 2;
+      }
+
       // Extract the data if there are any bytes to obtain.
-      if ((dataLength > 0) && (messageData.length >= (ResponderSharedMemory.COMMAND_CLA_INS_P1_P2_LENGTH + 1 +
-          dataLength))) {
+      if ((dataLength > 0) && (messageData.length >= (dataOffset + dataLength))) {
         data = new byte[dataLength];
-        System.arraycopy(messageData, ResponderSharedMemory.COMMAND_CLA_INS_P1_P2_DATA + 1, data, 0, dataLength);
+        System.arraycopy(messageData, dataOffset, data, 0, dataLength);
       }
 
       return data;
     }
 
+    /**
+     * Extracts the maximum response data length expected by an APDU command, which may be a short or extended length APDU.
+     *
+     * @param message The received message containing the APDU command as message data.
+     * @return The maximum response data length, or 0 if the command does not say.
+     */
+    protected int getAPDUResponseLength(Message message) {
+      byte[] messageData = message.getData();
+      int offset = ResponderSharedMemory.COMMAND_CLA_INS_P1_P2_DATA;
+      int remaining = messageData.length - offset;
+      int responseLength = 0;
+
+      if (remaining == 1) {
+        // Short with no data: a response length of 0 means 256.
+        responseLength = ((messageData[offset] & 0xFF) == 0) ? 256 : (messageData[offset] & 0xFF);
+      }
+      else if ((remaining == 3) && (messageData[offset] == 0)) {
+        // Extended with no data: a response length of 0 means 65536.
+        responseLength = this.getExtendedLength(messageData, offset + 1);
+        responseLength = (responseLength == 0) ? 65536 : responseLength;
+      }
+      else if ((remaining > 1) && (messageData[offset] != 0) && (remaining == ((messageData[offset] & 0xFF) + 2))) {
+        // Short with data followed by the response length.
+        responseLength = ((messageData[messageData.length - 1] & 0xFF) == 0) ? 256 : (messageData[messageData.length - 1] & 0xFF);
+      }
+      else if ((remaining > 3) && (messageData[offset] == 0) && (remaining == (this.getExtendedLength(messageData, offset + 1) +
+          5))) {
+        // Extended with data followed by the response length.
+        responseLength = this.getExtendedLength(messageData, messageData.length - 2);
+        responseLength = (responseLength == 0) ? 65536 : responseLength;
+      }
+
+      return responseLength;
+    }
+
+    /**
+     * Adds a request chunk to the end of the chunks received so far. The buffer is grown by doubling its capacity, so each byte
+     * is copied a constant number of times however many chunks are received.
+     *
+     * @param sharedMemory The shared memory holding the chunks received so far.
+     * @param data         The chunk to add.
+     * @param length       The number of bytes to add from the start of the chunk.
+     */
+    private void addToChunked(ResponderSharedMemory sharedMemory, byte[] data, int length) {
+      if (sharedMemory.requestChunked.remaining() < length) {
+        int capacity = Math.max(sharedMemory.requestChunked.capacity() * 2, sharedMemory.requestChunked.position() + length);
+        ByteBuffer grown = ByteBuffer.allocate(capacity);
+        ((Buffer) sharedMemory.requestChunked).flip();
+        grown.put(sharedMemory.requestChunked);
+        sharedMemory.requestChunked = grown;
+      }
+
+      sharedMemory.requestChunked.put(data, 0, length);
+    }
+
+    /**
+     * Decodes a two byte extended length.
+     *
+     * @param bytes  The APDU bytes.
+     * @param offset The offset of the length within the bytes.
+     * @return The length.
+     */
+    private int getExtendedLength(byte[] bytes, int offset) {
+      return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    /**
+     * @return The maximum length of the next response chunk, including its response code.
+     */
+    protected int getResponseChunkSize() {
+      ResponderSharedMemory sharedMemory = (ResponderSharedMemory) this.getSharedMemory();
+      int chunkSize = sharedMemory.apduChunkSize;
+
+      // Never send back more than the server asked for, such as when it has fallen back to short APDUs.
+      if (sharedMemory.responseLength > 0) {
+        chunkSize = Math.min(chunkSize, sharedMemory.responseLength + NFCAndroidSharedMemory.RESPONSE_OK.length);
+      }
+
+      return chunkSize;
+    }
+
     /**
      * Determines if the current request is in chunks.  If this is in chunks, and this is not the last chunk, then an appropriate
      * action is formed and the data saved for later.  If this is the last chunk, then the previous data is concatenated.
@@ -123,36 +212,38 @@ public class ResponderStates {
         // Save the data.
         int dataLength = data.length - NFCAndroidSharedMemory.RESPONSE_CONTINUE.length;
 
-        if (dataLength > 0) {
-          if (sharedMemory.requestChunked == null) {
-            sharedMemory.requestChunked = new byte[dataLength];
-            System.arraycopy(data, 0, sharedMemory.requestChunked, 0, dataLength);
-          }
-          else {
-            byte[] chunked = Arrays.copyOf(sharedMemory.requestChunked, dataLength + sharedMemory.requestChunked.length);
-            System.arraycopy(data, 0, chunked, sharedMemory.requestChunked.length, dataLength);
-            sharedMemory.requestChunked = chunked;
-          }
-        }
-
         // If we have a response continue, save the data and send back a response OK, otherwise replace the data with the request
         // data we have accumulated.
         if ((responseCode[0] == NFCAndroidSharedMemory.RESPONSE_CONTINUE[0]) && (responseCode[1] == NFCAndroidSharedMemory
             .RESPONSE_CONTINUE[1])) {
+          if (dataLength > 0) {
+            this.addToChunked(sharedMemory, data, dataLength);
+          }
+
           result.action = new Action<>(Action.Status.END_SUCCESS, Action.NO_STATE_CHANGE, NFCAndroidCommand.RESPONSE,
               NFCAndroidSharedMemory.RESPONSE_OK, 0);
         }
         else if ((responseCode[0] == NFCAndroidSharedMemory.RESPONSE_OK[0]) && (responseCode[1] == NFCAndroidSharedMemory
             .RESPONSE_OK[1])) {
-          if (sharedMemory.requestChunked != null) {
-            result.data = sharedMemory.requestChunked;
-            sharedMemory.requestChunked = null;
+          if (sharedMemory.requestChunked.position() == 0) {
+            // The request was not chunked, so there is no need to go via the buffer.
+            if (dataLength > 0) {
+              result.data = Arrays.copyOf(data, dataLength);
+            }
+          }
+          else {
+            if (dataLength > 0) {
+              this.addToChunked(sharedMemory, data, dataLength);
+            }
+
+            result.data = Arrays.copyOf(sharedMemory.requestChunked.array(), sharedMemory.requestChunked.position());
+            ((Buffer) sharedMemory.requestChunked).clear();
           }
         }
       }
       else {
         // Clear out any chunking.
-        sharedMemory.requestChunked = null;
+        ((Buffer) sharedMemory.requestChunked).clear();
       }
 
       return result;
@@ -174,7 +265,7 @@ public class ResponderStates {
         if (sharedMemory.responseChunked != null) {
           // Get the next chunk of data.
           int bytesLeft = sharedMemory.responseChunked.length - sharedMemory.responseChunkIndex;
-          int chunkLength = Math.min(bytesLeft, NFCSharedMemory.APDU_CHUNK_SIZE);
+          int chunkLength = Math.min(bytesLeft, this.getResponseChunkSize());
 
           // If this is not the last chunk, then we need to add on our own response code for continue.
           int copyLength = chunkLength;
@@ -229,8 +320,8 @@ public class ResponderStates {
       Action<NFCAndroidCommand> result = action;
 
       // See if we need to break up any response data into chunks.
-      if ((action != null) && (action.getCommandData() != null) && (action.getCommandData().length > NFCSharedMemory
-          .APDU_CHUNK_SIZE)) {
+      if ((action != null) && (action.getCommandData() != null) && (action.getCommandData().length > this
+          .getResponseChunkSize())) {
         // The response needs to be chunked.  Save off the response data.
         ResponderSharedMemory sharedMemory = (ResponderSharedMemory) this.getSharedMemory();
 
@@ -275,6 +366,7 @@ public class ResponderStates {
       if (message.getType() == Message.Type.DATA) {
         APDUCommand command = this.getAPDUCommand(message);
         byte[] data = this.getAPDUData(message);
+        ((ResponderSharedMemory) this.getSharedMemory()).responseLength = this.getAPDUResponseLength(message);
         LOG.trace("{}, {}", command, Utils.toHex(data));
 
         // Handle any chunked requests.
@@ -377,14 +469,29 @@ public class ResponderStates {
 
             // Save off the cryptographic information and reset everything else.
             Crypto crypto = Crypto.getInstance();
+
+            // Reply using the same encoding as the server so that older servers still get JSON.
+            crypto.setEncoding(Data.detectEncoding(data));
+            LOG.info("using {} data encoding", crypto.getEncoding());
+
             crypto.setKeyLength(serverData.getKeyLength());
             crypto.setRemotePublicKey(serverData.getEncodedPublicKey());
             crypto.setDhParameters(serverData.getDhParameters());
             crypto.setHashParameters();
             crypto.setEncryptionParameters();
             crypto.setPrimeCertainty();
+            crypto.setPointCompression(serverData.isPointCompression());
+
+            // Hash proof transcripts however the server offers, as the app understands both framings.
+            crypto.setFraming(serverData.getTranscriptFraming());
+            LOG.info("using {} transcript framing", crypto.getFraming());
+
             LOG.info("using key length {}", serverData.getKeyLength());
 
+            // Respond in the largest chunks that both the server and the app can handle.
+            sharedMemory.apduChunkSize = Math.min(serverData.getMaxApduChunkSize(), NFCSharedMemory.MAX_APDU_CHUNK_SIZE);
+            LOG.info("using APDU chunk size {}", sharedMemory.apduChunkSize);
+
             // Set up the required state machine using the list of available classes.
             Class<?> clazz = null;
 
@@ -446,6 +553,7 @@ public class ResponderStates {
       if (message.getType() == Message.Type.DATA) {
         APDUCommand command = this.getAPDUCommand(message);
         byte[] data = this.getAPDUData(message);
+        ((ResponderSharedMemory) this.getSharedMemory()).responseLength = this.getAPDUResponseLength(message);
         LOG.trace("{}, {}", command, Utils.toHex(data));
 
         // Handle any chunked requests.
@@ -543,6 +651,7 @@ public class ResponderStates {
       if (message.getType() == Message.Type.DATA) {
         APDUCommand command = this.getAPDUCommand(message);
         byte[] data = this.getAPDUData(message);
+        ((ResponderSharedMemory) this.getSharedMemory()).responseLength = this.getAPDUResponseLength(message);
         LOG.trace("{}, {}", command, Utils.toHex(data));
 
         // Handle any chunked requests.
@@ -573,7 +682,9 @@ public class ResponderStates {
               LOG.info("setup (client)");
 
               // Send back the client data.
-              ClientData clientData = new ClientData(Crypto.getInstance().getPublicKey().getEncoded());
+              Crypto crypto = Crypto.getInstance();
+              ClientData clientData = new ClientData(crypto.getPublicKey().getEncoded(), NFCSharedMemory.MAX_APDU_CHUNK_SIZE,
+                  crypto.getFraming(), crypto.isPointCompression());
               action = new Action<>(Action.Status.END_SUCCESS, 0, NFCAndroidCommand.RESPONSE, this.addResponseCode(clientData
                   .toBytes(), NFCAndroidSharedMemory.RESPONSE_OK), 0);
               break;
@@ -14,6 +14,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
 import uk.ac.surrey.bets_framework.state.Action.Status;
 import uk.ac.surrey.bets_framework.state.Message.Type;
 
@@ -34,6 +36,9 @@ public abstract class StateMachine<T> {
   /** Suffix to timing block name used for timing commands. */
   private static final String TIMING_COMMAND = "-Command";
 
+  /** Suffix for the data size a command would have had without point compression. */
+  private static final String TIMING_UNCOMPRESSED = "-Uncompressed";
+
   /** The list of states in the state machine. */
   private final List<State<T>> states = new ArrayList<>();
 
@@ -138,6 +143,10 @@ public abstract class StateMachine<T> {
         final Action<T> action = state.getAction(message);
         this.stopTiming(state.getClass().getSimpleName() + TIMING_ACTION);
 
+        // Record how much command data there would have been without point compression so that it can be compared with the
+        // command data size.
+        this.countUncompressed(state, action);
+
         // Move to the next state, if required.
         if (action.getNextState() != Action.NO_STATE_CHANGE) {
           this.currentState = action.getNextState();
@@ -178,6 +187,46 @@ public abstract class StateMachine<T> {
     return result;
   }
 
+  /**
+   * Accumulates a number of bytes against the specified name without timing any block, so that the timing only counts data.
+   *
+   * @param name The name of the timing block.
+   * @param dataSize The number of bytes to add.
+   */
+  protected void addTimingData(String name, long dataSize) {
+    // Find any existing timing for the name, creating one if needed.
+    Timing timing = this.timings.get(name);
+
+    if (timing == null) {
+      timing = new Timing(name);
+      this.timings.put(name, timing);
+    }
+
+    timing.addDataSize(dataSize);
+  }
+
+  /**
+   * Counts the command data that a state would have sent without point compression, if it compressed any points.
+   *
+   * @param state The state which created the action.
+   * @param action The action.
+   */
+  private void countUncompressed(State<T> state, Action<T> action) {
+    final Crypto crypto = Crypto.getInstance();
+    long pointBytesSaved = crypto.takePointBytesSaved();
+
+    if (pointBytesSaved > 0L) {
+      final long commandLength = (action.getCommandData() == null) ? 0L : action.getCommandData().length;
+
+      // JSON sends each item in Base64, so every byte saved would have taken 4/3 of a byte.
+      if (crypto.getEncoding() == Encoding.JSON) {
+        pointBytesSaved = ((pointBytesSaved * 4L) + 2L) / 3L;
+      }
+
+      this.addTimingData(state.getClass().getSimpleName() + TIMING_UNCOMPRESSED, commandLength + pointBytesSaved);
+    }
+  }
+
   /**
    * Starts timing against the specified name. Call this with a relevant name to time any block of execution.
    *
@@ -24,10 +24,13 @@ public class Timing {
   /** The name of the block. */
   private String name         = null;
 
-  /** The last start time of a block. */
+  /** The total time that this block has recorded in nanoseconds. */
+  private long   nanoTime     = 0L;
+
+  /** The last start time of a block in nanoseconds. */
   private long   start        = 0L;
 
-  /** The total time that this block has recorded. */
+  /** The total time that this block has recorded in milliseconds. */
   private long   time         = 0L;
 
   /**
@@ -45,6 +48,25 @@ public class Timing {
     this.start();
   }
 
+  /**
+   * Constructs a timing block from previously recorded values, such as those received from the client.
+   *
+   * @param name The name of the timing block.
+   * @param time The total time that this block has recorded.
+   * @param count The total number of times that a block of time has been recorded.
+   * @param dataSize The number of bytes processed.
+   * @param creationTime The creation time of the timer.
+   */
+  public Timing(String name, long time, long count, long dataSize, long creationTime) {
+    super();
+
+    this.name = name;
+    this.time = time;
+    this.count = count;
+    this.dataSize = dataSize;
+    this.creationTime = creationTime;
+  }
+
   public void addData(byte[] data) {
     if ((data != null) && (data.length > 0)) {
       this.dataSize = this.dataSize + data.length;
@@ -52,6 +74,15 @@ public class Timing {
 
   }
 
+  /**
+   * Adds to the number of bytes processed.
+   *
+   * @param dataSize The number of bytes to add.
+   */
+  public void addDataSize(long dataSize) {
+    this.dataSize += dataSize;
+  }
+
   /**
    * @return The total number of times that a block of time has been recorded.
    */
@@ -83,7 +114,7 @@ public class Timing {
   }
 
   /**
-   * @return The total time that this block has recorded.
+   * @return The total time that this block has recorded in milliseconds.
    */
   public long getTime() {
     return this.time;
@@ -93,16 +124,15 @@ public class Timing {
    * Starts timing.
    */
   public void start() {
-    this.start = System.currentTimeMillis();
+    this.start = System.nanoTime();
   }
 
   /**
    * Stops timing and accumulates the total time and count.
    */
   public void stop() {
-    final long stop = System.currentTimeMillis();
-
-    this.time += stop - this.start;
+    this.nanoTime += System.nanoTime() - this.start;
+    this.time = this.nanoTime / 1000000L;
     this.count++;
   }
 
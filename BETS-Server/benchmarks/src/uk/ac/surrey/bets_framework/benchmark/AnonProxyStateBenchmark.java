@@ -0,0 +1,227 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.icc.ICC;
+import uk.ac.surrey.bets_framework.protocol.ICCCommand;
+import uk.ac.surrey.bets_framework.protocol.ICCStateMachine;
+import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxy;
+import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxyIssuingStates;
+import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory;
+import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxyVerifyingStates;
+import uk.ac.surrey.bets_framework.state.Action;
+import uk.ac.surrey.bets_framework.state.Action.Status;
+import uk.ac.surrey.bets_framework.state.Message;
+import uk.ac.surrey.bets_framework.state.SharedMemory;
+
+/**
+ * Benchmarks the heaviest AnonProxy states, which run entirely on the server over the internal comms channel. The protocol
+ * is run up to the benchmarked state to record the message it receives and the shared memory it works on, and the state
+ * is then run against them repeatedly.
+ *
+ * The states benchmarked are the issuer generating the ticket details (IState24), a verifier checking the ticket tag and
+ * proof (VState31) and the central verifier tracing the ticket (VState34).
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AnonProxyStateBenchmark {
+
+  /**
+   * Runs the protocol until the benchmarked state receives its message.
+   */
+  private static class Recording extends AnonProxy {
+
+    /** The message received by the state. */
+    private Message   message = null;
+
+    /** The index of the state. */
+    private final int target;
+
+    /**
+     * Constructor.
+     *
+     * @param target The index of the state.
+     */
+    Recording(int target) {
+      super();
+
+      this.target = target;
+      this.setICC(new ICC());
+    }
+
+    /**
+     * Performs the action, stopping the protocol once the message for the state has been received.
+     *
+     * @param action The action to perform.
+     * @return The resulting message.
+     */
+    @Override
+    protected Message performAction(Action<ICCCommand> action) {
+      final Message result = super.performAction(action);
+
+      if (action.getNextState() == this.target) {
+        this.message = result;
+        throw new Stop();
+      }
+
+      return result;
+    }
+  }
+
+  /**
+   * Runs a single state against the shared memory of a recording.
+   */
+  private static class Replay extends ICCStateMachine {
+
+    /** The shared memory. */
+    private SharedMemory sharedMemory;
+
+    /**
+     * Constructor.
+     *
+     * @param state The state to run.
+     * @param sharedMemory The shared memory the state works on.
+     */
+    Replay(uk.ac.surrey.bets_framework.state.State<ICCCommand> state, SharedMemory sharedMemory) {
+      super(Collections.singletonList(state));
+
+      this.sharedMemory = sharedMemory;
+    }
+
+    /**
+     * @return The shared memory for the state machine.
+     */
+    @Override
+    public SharedMemory getSharedMemory() {
+      return this.sharedMemory;
+    }
+
+    /**
+     * Sets the shared memory for the state machine.
+     *
+     * @param sharedMemory The shared memory to set.
+     */
+    @Override
+    public void setSharedMemory(SharedMemory sharedMemory) {
+      this.sharedMemory = sharedMemory;
+    }
+  }
+
+  /**
+   * Thrown to stop the protocol once the benchmarked state has received its message.
+   */
+  private static class Stop extends RuntimeException {
+
+    /** Serialisation version. */
+    private static final long serialVersionUID = 1L;
+  }
+
+  /** The number of bits in the group order. */
+  @Param({ "160", "256" })
+  public int            rBits;
+
+  /** The state benchmarked. */
+  @Param({ "IState24", "VState31", "VState34" })
+  public String         state;
+
+  /** The message received by the state. */
+  private Message       message;
+
+  /** The state machine running the state, which states only reference weakly. */
+  private Replay        replay;
+
+  /** The shared memory the state works on. */
+  private SharedMemory  sharedMemory;
+
+  /**
+   * Creates a new instance of the benchmarked state, as states may keep track of their progress.
+   *
+   * @return The state.
+   */
+  private uk.ac.surrey.bets_framework.state.State<ICCCommand> createState() {
+    switch (this.state) {
+      case "IState24":
+        return new AnonProxyIssuingStates.IState24();
+
+      case "VState31":
+        return new AnonProxyVerifyingStates.VState31(AnonProxySharedMemory.J_U, AnonProxySharedMemory.Verifiers_for_J_U);
+
+      case "VState34":
+        return new AnonProxyVerifyingStates.VState34();
+
+      default:
+        throw new IllegalArgumentException("unknown state " + this.state);
+    }
+  }
+
+  /**
+   * Runs the protocol up to the benchmarked state, whose index in the protocol is its number.
+   */
+  @Setup
+  public void setUp() {
+    BenchmarkSupport.setUp();
+
+    final Recording recording = new Recording(Integer.parseInt(this.state.replaceAll("\\D", "")));
+    recording.setParameters(Collections.singletonList(Integer.toString(this.rBits)));
+
+    try {
+      recording.run();
+    }
+    catch (final Stop e) {
+      // The state has received its message.
+    }
+
+    if (recording.message == null) {
+      throw new IllegalStateException("protocol did not reach " + this.state);
+    }
+
+    this.message = recording.message;
+    this.sharedMemory = recording.getSharedMemory();
+    Crypto.getInstance().setContext(recording.getCryptoContext());
+
+    // Check that the state succeeds before timing it.
+    this.getAction();
+  }
+
+  /**
+   * @return The action of the state given its message.
+   */
+  @Benchmark
+  public Action<ICCCommand> getAction() {
+    final uk.ac.surrey.bets_framework.state.State<ICCCommand> state = this.createState();
+    this.replay = new Replay(state, this.sharedMemory);
+
+    final Action<ICCCommand> action = state.getAction(this.message);
+
+    if (action.getStatus() == Status.END_FAILURE) {
+      throw new IllegalStateException(this.state + " failed");
+    }
+
+    return action;
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.benchmark.BenchmarkSupport.NFCReplay;
+import uk.ac.surrey.bets_framework.benchmark.BenchmarkSupport.Stop;
+import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSO;
+import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOIssuingStates;
+import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOVerifyingStates;
+import uk.ac.surrey.bets_framework.state.Action;
+import uk.ac.surrey.bets_framework.state.Action.Status;
+import uk.ac.surrey.bets_framework.state.Message;
+import uk.ac.surrey.bets_framework.state.SharedMemory;
+
+/**
+ * Benchmarks the heaviest AnonSSO states. The protocol is run with the simulated Android client up to the benchmarked
+ * state to record the message the client sends it and the shared memory it works on, and the state is then run against
+ * them repeatedly.
+ *
+ * The states benchmarked are the issuer checking the ticket request and generating the ticket (IState23) and the first
+ * verifier checking the ticket tag and proof (VState27).
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class AnonSSOStateBenchmark {
+
+  /**
+   * Runs the protocol until the benchmarked state receives its message.
+   */
+  private static class Recording extends AnonSSO {
+
+    /** The message received by the state. */
+    private Message   message = null;
+
+    /** The index of the state. */
+    private final int target;
+
+    /**
+     * Constructor.
+     *
+     * @param target The index of the state.
+     */
+    Recording(int target) {
+      super();
+
+      this.target = target;
+    }
+
+    /**
+     * Performs the action, stopping the protocol once the message for the state has been received.
+     *
+     * @param action The action to perform.
+     * @return The resulting message.
+     */
+    @Override
+    protected Message performAction(Action<NFCReaderCommand> action) {
+      final Message result = super.performAction(action);
+
+      if (action.getNextState() == this.target) {
+        this.message = result;
+        throw new Stop();
+      }
+
+      return result;
+    }
+  }
+
+  /** The number of bits in the group order. */
+  @Param({ "160", "256" })
+  public int            rBits;
+
+  /** The state benchmarked. */
+  @Param({ "IState23", "VState27" })
+  public String         state;
+
+  /** The message received by the state. */
+  private Message       message;
+
+  /** The state machine running the state, which states only reference weakly. */
+  private NFCReplay     replay;
+
+  /** The shared memory the state works on. */
+  private SharedMemory  sharedMemory;
+
+  /**
+   * Creates a new instance of the benchmarked state, as states may keep track of their progress.
+   *
+   * @return The state.
+   */
+  private uk.ac.surrey.bets_framework.state.State<NFCReaderCommand> createState() {
+    switch (this.state) {
+      case "IState23":
+        return new AnonSSOIssuingStates.IState23();
+
+      case "VState27":
+        return new AnonSSOVerifyingStates.VState27(AnonSSOSharedMemory.J_U);
+
+      default:
+        throw new IllegalArgumentException("unknown state " + this.state);
+    }
+  }
+
+  /**
+   * Runs the protocol with the simulated client up to the benchmarked state, whose index in the protocol is its number.
+   */
+  @Setup
+  public void setUp() {
+    final Recording recording = new Recording(Integer.parseInt(this.state.replaceAll("\\D", "")));
+    recording.setParameters(Collections.singletonList(Integer.toString(this.rBits)));
+    recording.setCryptoContext(
+        BenchmarkSupport.setUpSimulatedClient(AnonSSO.class.getSimpleName(), recording.getParameters()));
+
+    try {
+      recording.run();
+    }
+    catch (final Stop e) {
+      // The state has received its message.
+    }
+
+    if ((recording.message == null) || (recording.message.getType() != Message.Type.DATA)) {
+      throw new IllegalStateException("protocol did not reach " + this.state);
+    }
+
+    this.message = recording.message;
+    this.sharedMemory = recording.getSharedMemory();
+    Crypto.getInstance().setContext(recording.getCryptoContext());
+
+    // Check that the state succeeds before timing it.
+    this.getAction();
+  }
+
+  /**
+   * @return The action of the state given its message.
+   */
+  @Benchmark
+  public Action<NFCReaderCommand> getAction() {
+    final uk.ac.surrey.bets_framework.state.State<NFCReaderCommand> state = this.createState();
+    this.replay = new NFCReplay(state, this.sharedMemory);
+
+    final Action<NFCReaderCommand> action = state.getAction(this.message);
+
+    if (action.getStatus() == Status.END_FAILURE) {
+      throw new IllegalStateException(this.state + " failed");
+    }
+
+    return action;
+  }
+}
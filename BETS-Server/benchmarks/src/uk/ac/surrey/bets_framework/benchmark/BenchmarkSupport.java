@@ -0,0 +1,183 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.List;
+
+import it.unisa.dia.gas.jpbc.PairingParameters;
+import it.unisa.dia.gas.plaf.jpbc.pairing.a.TypeACurveGenerator;
+import it.unisa.dia.gas.plaf.jpbc.pairing.e.TypeECurveGenerator;
+import it.unisa.dia.gas.plaf.jpbc.pairing.f.TypeFCurveGenerator;
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.CryptoContext;
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.Utils;
+import uk.ac.surrey.bets_framework.command.ProtocolRun;
+import uk.ac.surrey.bets_framework.nfc.NFC;
+import uk.ac.surrey.bets_framework.nfc.SimulatedCard;
+import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.NFCReaderStateMachine;
+import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.control.setup.ServerData;
+import uk.ac.surrey.bets_framework.protocol.control.setup.Setup;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
+import uk.ac.surrey.bets_framework.state.SharedMemory;
+import uk.ac.surrey.bets_framework.state.State;
+
+/**
+ * Common set up for the benchmarks, so that each one runs with the same logging, keys and pairing parameters.
+ *
+ * @author Steve Wesemeyer
+ */
+public final class BenchmarkSupport {
+
+  /**
+   * Runs a single NFC reader state against the shared memory of a recording.
+   */
+  public static class NFCReplay extends NFCReaderStateMachine {
+
+    /** The shared memory. */
+    private SharedMemory sharedMemory;
+
+    /**
+     * Constructor.
+     *
+     * @param state The state to run.
+     * @param sharedMemory The shared memory the state works on.
+     */
+    public NFCReplay(State<NFCReaderCommand> state, SharedMemory sharedMemory) {
+      super(Collections.singletonList(state));
+
+      this.sharedMemory = sharedMemory;
+    }
+
+    /**
+     * @return The shared memory for the state machine.
+     */
+    @Override
+    public SharedMemory getSharedMemory() {
+      return this.sharedMemory;
+    }
+
+    /**
+     * Sets the shared memory for the state machine.
+     *
+     * @param sharedMemory The shared memory to set.
+     */
+    @Override
+    public void setSharedMemory(SharedMemory sharedMemory) {
+      this.sharedMemory = sharedMemory;
+    }
+  }
+
+  /**
+   * Thrown to stop a recording once the benchmarked state has received its message.
+   */
+  public static class Stop extends RuntimeException {
+
+    /** Serialisation version. */
+    private static final long serialVersionUID = 1L;
+  }
+
+  /** The key length used by the benchmarks, which is the server's default. */
+  public static final int     KEY_LENGTH        = 1024;
+
+  /** Log warnings only, as logging at the default level swamps the timings. */
+  public static final int     LOG_LEVEL         = 2;
+
+  /** The number of bits in the field for type A and E curves, which is the PPETSABC default. */
+  public static final int     Q_BITS            = 512;
+
+  /** The simulated Android client, as built by the simulator module and relative to the top of the server repository. */
+  public static final String  SIM_CLIENT        = "simulator/target/DICE-simulator.jar";
+
+  /** Seed for the pairing parameters, so that each fork benchmarks the same curves. */
+  private static final byte[] PARAMETERS_SEED   = BenchmarkSupport.class.getSimpleName().getBytes();
+
+  /**
+   * Private constructor.
+   */
+  private BenchmarkSupport() {
+    super();
+  }
+
+  /**
+   * Generates pairing parameters of a given type.
+   *
+   * @param pairingType The type of pairing: "A", "E" or "F".
+   * @param rBits The number of bits in the group order.
+   * @return The pairing parameters.
+   * @throws IllegalArgumentException if the type is not known.
+   */
+  public static PairingParameters generatePairingParameters(String pairingType, int rBits) {
+    final SecureRandom prng = new Crypto.PRNGSecureRandom(PARAMETERS_SEED);
+
+    switch (pairingType) {
+      case "A":
+        return new TypeACurveGenerator(prng, rBits, Q_BITS, true).generate();
+
+      case "E":
+        return new TypeECurveGenerator(prng, rBits, Q_BITS).generate();
+
+      case "F":
+        return new TypeFCurveGenerator(prng, rBits).generate();
+
+      default:
+        throw new IllegalArgumentException("unknown pairing type " + pairingType);
+    }
+  }
+
+  /**
+   * Sets up logging and the server's keys, returning the cryptographic instance.
+   *
+   * @return The cryptographic instance.
+   */
+  public static Crypto setUp() {
+    Utils.setLogLevel(LOG_LEVEL);
+
+    final Crypto crypto = Crypto.getInstance();
+    crypto.setKeyLength(KEY_LENGTH);
+
+    return crypto;
+  }
+
+  /**
+   * Connects to the simulated Android client and sets it up for a protocol, in the same way as the server does before
+   * each run of a protocol over NFC.
+   *
+   * @param protocol The class name of the protocol.
+   * @param parameters The protocol parameters.
+   * @return The cryptographic context for the session, which the protocol must use.
+   * @throws IllegalStateException if the client cannot be loaded or set up.
+   */
+  public static CryptoContext setUpSimulatedClient(String protocol, List<String> parameters) {
+    final Crypto crypto = setUp();
+
+    try {
+      NFC.getInstance().setSimulator(new SimulatedCard(SIM_CLIENT, 0, 0));
+    }
+    catch (final IOException | ReflectiveOperationException e) {
+      throw new IllegalStateException("could not load simulated client " + SIM_CLIENT, e);
+    }
+
+    // The client is offered length prefixed transcripts, which the session only uses if it agrees during set up.
+    final ServerData serverData = new ServerData(crypto.getPublicKey().getEncoded(), LOG_LEVEL,
+        new ProtocolRun(protocol, 1, parameters), KEY_LENGTH, crypto.getDhParameters(), false,
+        NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE, Framing.LENGTH_PREFIXED);
+    final CryptoContext cryptoContext = new CryptoContext(Encoding.BINARY, Framing.LIST_DATA);
+    final Setup setup = new Setup(serverData);
+    setup.setCryptoContext(cryptoContext);
+
+    if (!setup.run()) {
+      throw new IllegalStateException("could not setup simulated client");
+    }
+
+    return cryptoContext;
+  }
+}
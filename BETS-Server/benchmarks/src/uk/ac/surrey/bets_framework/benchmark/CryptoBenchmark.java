@@ -0,0 +1,141 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.protocol.data.ListData;
+
+/**
+ * Benchmarks the hashing and RSA encryption used by every protocol.
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class CryptoBenchmark {
+
+  /** The number of times data is hashed in a hash chain. */
+  private static final int HASH_CHAIN_LENGTH = 16;
+
+  /** The number of items in the list data hashed. */
+  private static final int LIST_ITEMS        = 8;
+
+  /** The number of bytes hashed or encrypted. */
+  @Param({ "32", "1024" })
+  public int               dataSize;
+
+  /** The cryptographic instance. */
+  private Crypto           crypto;
+
+  /** The data hashed or encrypted. */
+  private byte[]           data;
+
+  /** The data encrypted with the server's public key. */
+  private byte[]           encrypted;
+
+  /** A list of items holding the same number of bytes as the data. */
+  private ListData         listData;
+
+  /**
+   * Sets up the keys and data.
+   */
+  @Setup
+  public void setUp() {
+    this.crypto = BenchmarkSupport.setUp();
+
+    final Random random = new Random(this.dataSize);
+    this.data = new byte[this.dataSize];
+    random.nextBytes(this.data);
+
+    final List<byte[]> list = new ArrayList<>();
+
+    for (int i = 0; i < LIST_ITEMS; i++) {
+      final byte[] item = new byte[this.dataSize / LIST_ITEMS];
+      random.nextBytes(item);
+      list.add(item);
+    }
+
+    this.listData = new ListData(list);
+    this.encrypted = this.crypto.encrypt(this.data, this.crypto.getPublicKey());
+  }
+
+  /**
+   * @return The data decrypted with the server's private key.
+   */
+  @Benchmark
+  public byte[] decrypt() {
+    return this.crypto.decrypt(this.encrypted, this.crypto.getPrivateKey());
+  }
+
+  /**
+   * @return The data encrypted with the server's public key.
+   */
+  @Benchmark
+  public byte[] encrypt() {
+    return this.crypto.encrypt(this.data, this.crypto.getPublicKey());
+  }
+
+  /**
+   * @return The hash of the data using the default algorithm.
+   */
+  @Benchmark
+  public byte[] getHash() {
+    return this.crypto.getHash(this.data);
+  }
+
+  /**
+   * @return The last hash in a hash chain from the data.
+   */
+  @Benchmark
+  public byte[] getHashChain() {
+    return this.crypto.getHash(this.data, HASH_CHAIN_LENGTH);
+  }
+
+  /**
+   * @return The hash of the list data, which is hashed without creating its bytes.
+   */
+  @Benchmark
+  public byte[] getHashListData() {
+    return this.crypto.getHash(this.listData);
+  }
+
+  /**
+   * @return The hash of the data using RIPEMD-256, as used by AnonSSO.
+   */
+  @Benchmark
+  public byte[] getHashRipemd256() {
+    return this.crypto.getHash(this.data, "RIPEMD256");
+  }
+
+  /**
+   * @return The hash of the data using SHA-256.
+   */
+  @Benchmark
+  public byte[] getHashSha256() {
+    return this.crypto.getHash(this.data, "SHA-256");
+  }
+}
@@ -0,0 +1,94 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+import uk.ac.surrey.bets_framework.protocol.data.ListData;
+
+/**
+ * Benchmarks encoding and decoding the list data exchanged by the protocol states, in either encoding. The items are
+ * sized like the compressed curve points which make up most messages.
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class ListDataBenchmark {
+
+  /** The number of bytes in each item. */
+  private static final int ITEM_SIZE = 65;
+
+  /** The encoding used. */
+  @Param({ "BINARY", "JSON" })
+  public Data.Encoding     encoding;
+
+  /** The number of items in the list. */
+  @Param({ "8", "64" })
+  public int               items;
+
+  /** The encoded list. */
+  private byte[]           bytes;
+
+  /** The list. */
+  private ListData         listData;
+
+  /**
+   * Sets up the list and its encoding.
+   */
+  @Setup
+  public void setUp() {
+    BenchmarkSupport.setUp();
+
+    final Random random = new Random(this.items);
+    final List<byte[]> list = new ArrayList<>();
+
+    for (int i = 0; i < this.items; i++) {
+      final byte[] item = new byte[ITEM_SIZE];
+      random.nextBytes(item);
+      list.add(item);
+    }
+
+    this.listData = new ListData(list);
+    this.bytes = this.listData.toBytes(this.encoding);
+  }
+
+  /**
+   * @return The list decoded from its bytes.
+   */
+  @Benchmark
+  public ListData decode() {
+    return ListData.fromBytes(this.bytes);
+  }
+
+  /**
+   * @return The bytes of the list.
+   */
+  @Benchmark
+  public byte[] encode() {
+    return this.listData.toBytes(this.encoding);
+  }
+}
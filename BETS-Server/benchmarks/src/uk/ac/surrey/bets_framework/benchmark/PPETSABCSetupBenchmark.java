@@ -0,0 +1,68 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABCSharedMemory.PairingType;
+
+/**
+ * Benchmarks setting up PPETSABC for each pairing type: generating the bilinear group, the central authority keys, the
+ * public parameters and the pre-computed pairings and tables. The PPETSABC states themselves verify proofs generated on
+ * the Android client and so cannot be run on the server alone. Each setup takes seconds, so it is timed as a single shot.
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class PPETSABCSetupBenchmark {
+
+  /** The type of pairing. */
+  @Param({ "TYPE_A", "TYPE_E" })
+  public PairingType pairingType;
+
+  /** The number of bits in the group order. */
+  @Param({ "160", "256" })
+  public int         rBits;
+
+  /**
+   * Sets up logging and keys.
+   */
+  @Setup
+  public void setUp() {
+    BenchmarkSupport.setUp();
+  }
+
+  /**
+   * @return The shared memory once set up.
+   */
+  @Benchmark
+  public PPETSABCSharedMemory clear() {
+    final PPETSABCSharedMemory sharedMemory = new PPETSABCSharedMemory();
+    sharedMemory.setPairingType(this.pairingType);
+    sharedMemory.rBits = this.rBits;
+    sharedMemory.clear();
+
+    return sharedMemory;
+  }
+}
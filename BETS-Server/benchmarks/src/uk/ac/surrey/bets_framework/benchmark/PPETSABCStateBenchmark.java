@@ -0,0 +1,144 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.benchmark.BenchmarkSupport.NFCReplay;
+import uk.ac.surrey.bets_framework.benchmark.BenchmarkSupport.Stop;
+import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABC;
+import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABCValidationStates;
+import uk.ac.surrey.bets_framework.state.Action;
+import uk.ac.surrey.bets_framework.state.Action.Status;
+import uk.ac.surrey.bets_framework.state.Message;
+import uk.ac.surrey.bets_framework.state.SharedMemory;
+
+/**
+ * Benchmarks the validator checking the ticket proof and detecting double spend in PPETS-ABC (VState13), which is the
+ * heaviest state run by the server. The protocol is run with the simulated Android client up to the state to record the
+ * message the client sends it and the shared memory it works on, and the state is then run against them repeatedly.
+ *
+ * The same ticket is validated each time, so after the first run the double spend store only finds the ticket again.
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PPETSABCStateBenchmark {
+
+  /**
+   * Runs the protocol until the benchmarked state receives its message.
+   */
+  private static class Recording extends PPETSABC {
+
+    /** The index of the state. */
+    private static final int TARGET  = 13;
+
+    /** The message received by the state. */
+    private Message          message = null;
+
+    /**
+     * Performs the action, stopping the protocol once the message for the state has been received.
+     *
+     * @param action The action to perform.
+     * @return The resulting message.
+     */
+    @Override
+    protected Message performAction(Action<NFCReaderCommand> action) {
+      final Message result = super.performAction(action);
+
+      if (action.getNextState() == TARGET) {
+        this.message = result;
+        throw new Stop();
+      }
+
+      return result;
+    }
+  }
+
+  /** The type of pairing: "A" or "E". */
+  @Param({ "A", "E" })
+  public String         pairingType;
+
+  /** The number of bits in the group order. */
+  @Param({ "160", "256" })
+  public int            rBits;
+
+  /** The message received by the state. */
+  private Message       message;
+
+  /** The state machine running the state, which states only reference weakly. */
+  private NFCReplay     replay;
+
+  /** The shared memory the state works on. */
+  private SharedMemory  sharedMemory;
+
+  /**
+   * Runs the protocol with the simulated client up to the state.
+   */
+  @Setup
+  public void setUp() {
+    final Recording recording = new Recording();
+    recording.setParameters(Arrays.asList("false", "1", this.pairingType, Integer.toString(this.rBits)));
+    recording.setCryptoContext(
+        BenchmarkSupport.setUpSimulatedClient(PPETSABC.class.getSimpleName(), recording.getParameters()));
+
+    try {
+      recording.run();
+    }
+    catch (final Stop e) {
+      // The state has received its message.
+    }
+
+    if ((recording.message == null) || (recording.message.getType() != Message.Type.DATA)) {
+      throw new IllegalStateException("protocol did not reach VState13");
+    }
+
+    this.message = recording.message;
+    this.sharedMemory = recording.getSharedMemory();
+    Crypto.getInstance().setContext(recording.getCryptoContext());
+
+    // Check that the state succeeds before timing it.
+    this.getAction();
+  }
+
+  /**
+   * @return The action of the state given its message.
+   */
+  @Benchmark
+  public Action<NFCReaderCommand> getAction() {
+    // A new instance of the state, as states may keep track of their progress.
+    final PPETSABCValidationStates.VState13 state = new PPETSABCValidationStates.VState13();
+    this.replay = new NFCReplay(state, this.sharedMemory);
+
+    final Action<NFCReaderCommand> action = state.getAction(this.message);
+
+    if (action.getStatus() == Status.END_FAILURE) {
+      throw new IllegalStateException("VState13 failed");
+    }
+
+    return action;
+  }
+}
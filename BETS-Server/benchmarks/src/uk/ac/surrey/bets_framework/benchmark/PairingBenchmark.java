@@ -0,0 +1,149 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.benchmark;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.ElementPowPreProcessing;
+import it.unisa.dia.gas.jpbc.Pairing;
+import it.unisa.dia.gas.jpbc.PairingParameters;
+import it.unisa.dia.gas.jpbc.PairingPreProcessing;
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.protocol.PairingBackend;
+
+/**
+ * Benchmarks the group operations and pairings which dominate the protocols, for each pairing type and group size. Each
+ * operation is also benchmarked with the pre-processing the protocols use for fixed arguments.
+ *
+ * @author Steve Wesemeyer
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Thread)
+public class PairingBenchmark {
+
+  /** Seed for the elements and scalar, so that each fork uses the same values. */
+  private static final byte[]    ELEMENTS_SEED = PairingBenchmark.class.getSimpleName().getBytes();
+
+  /** The pairing backend: java, pbc or auto. */
+  @Param({ "java" })
+  public String                  backend;
+
+  /** The type of pairing. */
+  @Param({ "A", "E", "F" })
+  public String                  pairingType;
+
+  /** The number of bits in the group order. */
+  @Param({ "160", "256" })
+  public int                     rBits;
+
+  /** The element of G1 which is multiplied and paired. */
+  private Element                g1;
+
+  /** Pre-processed multiplication by the element of G1. */
+  private ElementPowPreProcessing g1PreProcessing;
+
+  /** The element of G2 which is multiplied and paired. */
+  private Element                g2;
+
+  /** Pre-processed multiplication by the element of G2. */
+  private ElementPowPreProcessing g2PreProcessing;
+
+  /** The pairing. */
+  private Pairing                pairing;
+
+  /** Pre-processed pairing with the element of G1. */
+  private PairingPreProcessing   pairingPreProcessing;
+
+  /** The scalar used for multiplication. */
+  private BigInteger             scalar;
+
+  /**
+   * Sets up the pairing and elements.
+   */
+  @Setup
+  public void setUp() {
+    BenchmarkSupport.setUp();
+
+    final String protocol = this.getClass().getSimpleName();
+    final PairingParameters parameters = BenchmarkSupport.generatePairingParameters(this.pairingType, this.rBits);
+    final Crypto.PRNGSecureRandom prng = new Crypto.PRNGSecureRandom(ELEMENTS_SEED);
+    PairingBackend.configure(protocol + "=" + this.backend);
+
+    this.pairing = PairingBackend.getPairing(PairingBackend.select(protocol, parameters, prng, true), parameters, prng);
+    this.g1 = this.pairing.getG1().newRandomElement().getImmutable();
+    this.g2 = this.pairing.getG2().newRandomElement().getImmutable();
+    this.scalar = this.pairing.getZr().newRandomElement().toBigInteger();
+    this.g1PreProcessing = this.g1.getElementPowPreProcessing();
+    this.g2PreProcessing = this.g2.getElementPowPreProcessing();
+    this.pairingPreProcessing = this.pairing.getPairingPreProcessingFromElement(this.g1);
+  }
+
+  /**
+   * @return The element of G1 multiplied by the scalar.
+   */
+  @Benchmark
+  public Element g1Mul() {
+    return this.g1.mul(this.scalar);
+  }
+
+  /**
+   * @return The element of G1 multiplied by the scalar using pre-processing.
+   */
+  @Benchmark
+  public Element g1MulPreProcessed() {
+    return this.g1PreProcessing.pow(this.scalar);
+  }
+
+  /**
+   * @return The element of G2 multiplied by the scalar.
+   */
+  @Benchmark
+  public Element g2Mul() {
+    return this.g2.mul(this.scalar);
+  }
+
+  /**
+   * @return The element of G2 multiplied by the scalar using pre-processing.
+   */
+  @Benchmark
+  public Element g2MulPreProcessed() {
+    return this.g2PreProcessing.pow(this.scalar);
+  }
+
+  /**
+   * @return The pairing of the elements of G1 and G2.
+   */
+  @Benchmark
+  public Element pairing() {
+    return this.pairing.pairing(this.g1, this.g2);
+  }
+
+  /**
+   * @return The pairing of the elements of G1 and G2 using pre-processing.
+   */
+  @Benchmark
+  public Element pairingPreProcessed() {
+    return this.pairingPreProcessing.pairing(this.g2);
+  }
+}
@@ -0,0 +1,29 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.content;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+/**
+ * Stands in for the Android context when the app's protocol code is run in the simulated client.
+ *
+ * @author Steve Wesemeyer
+ */
+public abstract class Context {
+
+  /**
+   * @return The path of the jar or directory holding the simulated client's classes, in place of the app's package.
+   */
+  public String getPackageCodePath() {
+    try {
+      return new File(this.getClass().getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+    }
+    catch (URISyntaxException e) {
+      throw new IllegalStateException("cannot locate simulated client classes", e);
+    }
+  }
+}
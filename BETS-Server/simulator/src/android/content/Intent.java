@@ -0,0 +1,63 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.content;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stands in for an Android intent when the app's protocol code is run in the simulated client.
+ *
+ * @author Steve Wesemeyer
+ */
+public class Intent {
+
+  /** The action. */
+  private String              action = null;
+
+  /** The extra data. */
+  private Map<String, String> extras = new HashMap<>();
+
+  /**
+   * @return The action.
+   */
+  public String getAction() {
+    return this.action;
+  }
+
+  /**
+   * @param name The name of the extra data.
+   * @return The extra data, or null if there is none.
+   */
+  public String getStringExtra(String name) {
+    return this.extras.get(name);
+  }
+
+  /**
+   * Adds extra data.
+   *
+   * @param name The name of the extra data.
+   * @param value The extra data.
+   * @return This intent.
+   */
+  public Intent putExtra(String name, String value) {
+    this.extras.put(name, value);
+
+    return this;
+  }
+
+  /**
+   * Sets the action.
+   *
+   * @param action The action.
+   * @return This intent.
+   */
+  public Intent setAction(String action) {
+    this.action = action;
+
+    return this;
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.nfc.cardemulation;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+
+/**
+ * Stands in for the Android host card emulation service when the app's protocol code is run in the simulated client. The
+ * simulated card calls the service as the system would on a phone.
+ *
+ * @author Steve Wesemeyer
+ */
+public abstract class HostApduService extends Context {
+
+  /** The NFC link has been lost. */
+  public static final int DEACTIVATION_DESELECTED = 1;
+
+  /** A different AID has been selected. */
+  public static final int DEACTIVATION_LINK_LOSS  = 0;
+
+  /** The service should be restarted if it is killed. */
+  public static final int START_STICKY            = 1;
+
+  /**
+   * Called when the service is first created.
+   */
+  public void onCreate() {
+  }
+
+  /**
+   * Called when the link with the reader is lost or another AID is selected.
+   *
+   * @param reason Either DEACTIVATION_LINK_LOSS or DEACTIVATION_DESELECTED.
+   */
+  public abstract void onDeactivated(int reason);
+
+  /**
+   * Called when the service is no longer used.
+   */
+  public void onDestroy() {
+  }
+
+  /**
+   * Called when the system is running low on memory.
+   */
+  public void onLowMemory() {
+  }
+
+  /**
+   * Called each time the service is started.
+   *
+   * @param intent The intent starting the service.
+   * @param flags Additional data about the start request.
+   * @param startId A unique integer representing the start request.
+   * @return START_STICKY.
+   */
+  public int onStartCommand(Intent intent, int flags, int startId) {
+    return START_STICKY;
+  }
+
+  /**
+   * Called for each command APDU received from the reader.
+   *
+   * @param commandApdu The command APDU.
+   * @param extras Any extras. May be null.
+   * @return The response APDU.
+   */
+  public abstract byte[] processCommandApdu(byte[] commandApdu, Bundle extras);
+}
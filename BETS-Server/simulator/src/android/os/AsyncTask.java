@@ -0,0 +1,15 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.os;
+
+/**
+ * Stands in for the Android asynchronous task, which the app only refers to in documentation, when the app's protocol code
+ * is run in the simulated client.
+ *
+ * @author Steve Wesemeyer
+ */
+public abstract class AsyncTask<Params, Progress, Result> {
+}
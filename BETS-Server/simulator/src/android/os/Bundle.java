@@ -0,0 +1,15 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.os;
+
+/**
+ * Stands in for an Android bundle when the app's protocol code is run in the simulated client. The simulated reader never
+ * passes any extras.
+ *
+ * @author Steve Wesemeyer
+ */
+public class Bundle {
+}
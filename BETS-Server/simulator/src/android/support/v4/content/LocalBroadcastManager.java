@@ -0,0 +1,47 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.support.v4.content;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Stands in for the Android local broadcast manager when the app's protocol code is run in the simulated client. There is no
+ * user interface to update, so broadcasts are only logged.
+ *
+ * @author Steve Wesemeyer
+ */
+public class LocalBroadcastManager {
+
+  /** The singleton instance. */
+  private static final LocalBroadcastManager INSTANCE = new LocalBroadcastManager();
+
+  /** Logback logger. */
+  private static final Logger                LOG      = LoggerFactory.getLogger(LocalBroadcastManager.class);
+
+  /**
+   * @param context The context. Ignored.
+   * @return The singleton instance.
+   */
+  public static LocalBroadcastManager getInstance(Context context) {
+    return INSTANCE;
+  }
+
+  /**
+   * Logs a broadcast.
+   *
+   * @param intent The intent broadcast.
+   * @return True.
+   */
+  public boolean sendBroadcast(Intent intent) {
+    LOG.trace("broadcast {}", intent.getAction());
+
+    return true;
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package android.util;
+
+/**
+ * Stands in for the Android Base64 utility when the app's protocol code is run in the simulated client, supporting the
+ * flags the app uses.
+ *
+ * @author Steve Wesemeyer
+ */
+public class Base64 {
+
+  /** Encoder flag to omit all line terminators. */
+  public static final int NO_WRAP = 2;
+
+  /**
+   * Decodes Base64 data.
+   *
+   * @param input The encoded bytes.
+   * @param flags Ignored, as decoding never needs line terminators.
+   * @return The decoded bytes.
+   */
+  public static byte[] decode(byte[] input, int flags) {
+    return java.util.Base64.getDecoder().decode(input);
+  }
+
+  /**
+   * Decodes Base64 data.
+   *
+   * @param str The encoded string.
+   * @param flags Ignored, as decoding never needs line terminators.
+   * @return The decoded bytes.
+   */
+  public static byte[] decode(String str, int flags) {
+    return java.util.Base64.getDecoder().decode(str);
+  }
+
+  /**
+   * Encodes data as Base64 without line terminators.
+   *
+   * @param input The bytes to encode.
+   * @param flags Only NO_WRAP is supported.
+   * @return The encoded bytes.
+   */
+  public static byte[] encode(byte[] input, int flags) {
+    return java.util.Base64.getEncoder().encode(input);
+  }
+
+  /**
+   * Encodes data as Base64 without line terminators.
+   *
+   * @param input The bytes to encode.
+   * @param flags Only NO_WRAP is supported.
+   * @return The encoded string.
+   */
+  public static String encodeToString(byte[] input, int flags) {
+    return java.util.Base64.getEncoder().encodeToString(input);
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package dalvik.system;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+/**
+ * Stands in for an Android Dex file when the app's protocol code is run in the simulated client, listing the classes in the
+ * jar or directory holding the simulated client.
+ *
+ * @author Steve Wesemeyer
+ */
+public class DexFile {
+
+  /** The suffix of a class file. */
+  private static final String CLASS_SUFFIX = ".class";
+
+  /** The names of the classes. */
+  private final List<String>  classNames   = new ArrayList<>();
+
+  /**
+   * Lists the classes in a jar or directory.
+   *
+   * @param fileName The jar or directory.
+   * @throws IOException if the classes cannot be listed.
+   */
+  public DexFile(String fileName) throws IOException {
+    super();
+
+    final File file = new File(fileName);
+
+    if (file.isDirectory()) {
+      final Path root = file.toPath();
+
+      try (Stream<Path> paths = Files.walk(root)) {
+        final Iterator<Path> iterator = paths.iterator();
+
+        while (iterator.hasNext()) {
+          this.addClassName(root.relativize(iterator.next()).toString().replace(File.separatorChar, '/'));
+        }
+      }
+    }
+    else {
+      try (JarFile jarFile = new JarFile(file)) {
+        final Enumeration<JarEntry> entries = jarFile.entries();
+
+        while (entries.hasMoreElements()) {
+          this.addClassName(entries.nextElement().getName());
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds the name of a class given its path, ignoring anything which is not a class.
+   *
+   * @param path The path of the class file, separated by '/'.
+   */
+  private void addClassName(String path) {
+    if (path.endsWith(CLASS_SUFFIX)) {
+      this.classNames.add(path.substring(0, path.length() - CLASS_SUFFIX.length()).replace('/', '.'));
+    }
+  }
+
+  /**
+   * @return The names of the classes.
+   */
+  public Enumeration<String> entries() {
+    return Collections.enumeration(this.classNames);
+  }
+}
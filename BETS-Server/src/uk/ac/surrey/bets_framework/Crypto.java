@@ -8,7 +8,6 @@ package uk.ac.surrey.bets_framework;
 import java.math.BigInteger;
 import java.security.InvalidKeyException;
 import java.security.Key;
-import java.security.KeyFactory;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
 import java.security.MessageDigest;
@@ -18,12 +17,12 @@ import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.SecureRandom;
 import java.security.Security;
-import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.Base64.Encoder;
 
 import javax.crypto.BadPaddingException;
@@ -41,9 +40,12 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import it.unisa.dia.gas.jpbc.Field;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
 
 /**
- * Encapsulates all cryptographic operations as a singleton.
+ * Encapsulates all cryptographic operations as a singleton. The singleton is shared by all protocol sessions and only holds
+ * the server wide configuration, such as the key pair and DH parameters. Session specific state is held in a
+ * {@link CryptoContext} which is bound to the thread running the session.
  *
  * @author Matthew Casey
  */
@@ -153,6 +155,9 @@ public class Crypto {
   /** Default prime certainty. */
   private static final int    DEFAULT_PRIME_CERTAINTY       = 80;
 
+  /** The number of scalar bits processed in each window of a multi-scalar multiplication. */
+  private static final int    MULTI_SCALAR_MUL_WINDOW_BITS  = 4;
+
   /** The singleton instance. */
   private static Crypto       instance                      = null;
 
@@ -168,38 +173,57 @@ public class Crypto {
    */
   private static byte[]       PAIRING_RANDOM_SEED           = Crypto.class.getSimpleName().getBytes();
 
+  /** Each thread's ciphers, keyed by transformation, which are re-initialised for each use rather than re-created. */
+  private final ThreadLocal<Map<String, Cipher>> ciphers    = new ThreadLocal<Map<String, Cipher>>() {
+
+    @Override
+    protected Map<String, Cipher> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  /** Each thread's message digests, keyed by algorithm, which are reset for each use rather than re-created. */
+  private final ThreadLocal<Map<String, MessageDigest>> digests = new ThreadLocal<Map<String, MessageDigest>>() {
+
+    @Override
+    protected Map<String, MessageDigest> initialValue() {
+      return new HashMap<>();
+    }
+  };
+
+  /** The session context bound to each thread, if any. */
+  private final ThreadLocal<CryptoContext> boundContext     = new ThreadLocal<>();
+
+  /** Prototype message digests, keyed by algorithm, which are cloned to avoid a provider lookup per digest. */
+  private final ConcurrentMap<String, MessageDigest> digestPrototypes = new ConcurrentHashMap<>();
+
+  /** The context used by threads which are not running a session. */
+  private final CryptoContext defaultContext                = new CryptoContext();
+
   /** The current set of DH parameters. May be pre-generated. */
-  private DHParameters        dhParameters                  = null;
+  private volatile DHParameters dhParameters                = null;
 
   /** Parameters used for encryption and decryption. */
-  private String              encryptionParameters          = DEFAULT_ENCRYPTION_PARAMETERS;
+  private volatile String     encryptionParameters          = DEFAULT_ENCRYPTION_PARAMETERS;
 
   /** Parameters used for hashing. */
-  private String              hashParameters                = DEFAULT_HASH_PARAMETERS;
+  private volatile String     hashParameters                = DEFAULT_HASH_PARAMETERS;
 
   /** The key length. */
-  private int                 keyLength                     = 0;
+  private volatile int        keyLength                     = 0;
 
   /** The key pair. */
-  private KeyPair             keyPair                       = null;
+  private volatile KeyPair    keyPair                       = null;
 
   /** The RSA encryption output block size: key length / 8. */
-  private int                 outputBlockSize               = 0;
+  private volatile int        outputBlockSize               = 0;
 
   /** The certainty in selecting a prime number when generating DSA parameters. */
-  private int                 primeCertainty                = DEFAULT_PRIME_CERTAINTY;
-
-  /** The remote requester/responder's public key. */
-  private PublicKey           remotePublicKey               = null;
+  private volatile int        primeCertainty                = DEFAULT_PRIME_CERTAINTY;
 
   /** The internally used random number generator */
   private SecureRandom        secRNG                        = null;
 
-  
-  /** The internal randomOracle hash functions  */
-  
-  private HashMap<String, Map<String, Element>> randomOracles = null;
-  
   /** internal Base64 encoder */
   private Encoder base64 = Base64.getEncoder();
   
@@ -229,13 +253,12 @@ public class Crypto {
       // This RNG is truly random...
       this.secRNG = new SecureRandom(Crypto.PAIRING_RANDOM_SEED);
     }
-    this.randomOracles=new HashMap<>();
   }
 
   /**
    * @return The singleton instance.
    */
-  public static Crypto getInstance() {
+  public static synchronized Crypto getInstance() {
     if (instance == null) {
       instance = new Crypto();
     }
@@ -248,7 +271,7 @@ public class Crypto {
    *          be deterministic across runs, ie it will produce the same sequence of "random" numbers
    * @return The singleton instance.
    */
-  public static Crypto getInstance(boolean debug) {
+  public static synchronized Crypto getInstance(boolean debug) {
     if (debug) {
       Crypto.PAIRING_RANDOM_SEED = null;
     }
@@ -258,6 +281,34 @@ public class Crypto {
     return Crypto.getInstance();
   }
 
+  /**
+   * @return The session context bound to the current thread, or the default context if there is none.
+   */
+  public CryptoContext getContext() {
+    final CryptoContext context = this.boundContext.get();
+
+    return (context == null) ? this.defaultContext : context;
+  }
+
+  /**
+   * Binds a session context to the current thread, replacing any existing binding.
+   *
+   * @param context The context to bind, or null to use the default context.
+   * @return The context which was previously bound, or null if there was none.
+   */
+  public CryptoContext setContext(CryptoContext context) {
+    final CryptoContext previous = this.boundContext.get();
+
+    if (context == null) {
+      this.boundContext.remove();
+    }
+    else {
+      this.boundContext.set(context);
+    }
+
+    return previous;
+  }
+
   /**
    * Performs an XOR on two byte arrays which may be of different sizes.
    *
@@ -299,7 +350,7 @@ public class Crypto {
     byte[] data = null;
 
     try {
-      final Cipher cipher = Cipher.getInstance(this.encryptionParameters, BouncyCastleProvider.PROVIDER_NAME);
+      final Cipher cipher = this.getCipher(this.encryptionParameters);
       cipher.init(Cipher.DECRYPT_MODE, key);
 
       // Decrypt the data in blocks.
@@ -339,7 +390,7 @@ public class Crypto {
     byte[] encrypted = null;
 
     try {
-      final Cipher cipher = Cipher.getInstance(this.encryptionParameters, BouncyCastleProvider.PROVIDER_NAME);
+      final Cipher cipher = this.getCipher(this.encryptionParameters);
       cipher.init(Cipher.ENCRYPT_MODE, key);
 
       // Encrypt the data in blocks.
@@ -386,6 +437,108 @@ public class Crypto {
     return this.encryptionParameters;
   }
 
+  /**
+   * Gets this thread's cipher for a transformation, creating it on first use. The cipher must be initialised before use.
+   *
+   * @param transformation The cipher transformation.
+   * @return The cipher.
+   * @throws NoSuchAlgorithmException if the transformation is not supported.
+   * @throws NoSuchProviderException if BouncyCastle is not installed.
+   * @throws NoSuchPaddingException if the padding is not supported.
+   */
+  private Cipher getCipher(String transformation)
+      throws NoSuchAlgorithmException, NoSuchProviderException, NoSuchPaddingException {
+    final Map<String, Cipher> threadCiphers = this.ciphers.get();
+    Cipher cipher = threadCiphers.get(transformation);
+
+    if (cipher == null) {
+      cipher = Cipher.getInstance(transformation, BouncyCastleProvider.PROVIDER_NAME);
+      threadCiphers.put(transformation, cipher);
+    }
+
+    return cipher;
+  }
+
+  /**
+   * Gets this thread's message digest for an algorithm, creating it on first use, reset ready for use.
+   *
+   * @param algorithm The digest algorithm.
+   * @return The message digest.
+   * @throws NoSuchAlgorithmException if the algorithm is not supported.
+   * @throws NoSuchProviderException if BouncyCastle is not installed.
+   */
+  private MessageDigest getDigest(String algorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+    final Map<String, MessageDigest> threadDigests = this.digests.get();
+    MessageDigest digest = threadDigests.get(algorithm);
+
+    if (digest == null) {
+      digest = MessageDigest.getInstance(algorithm, BouncyCastleProvider.PROVIDER_NAME);
+      threadDigests.put(algorithm, digest);
+    }
+    else {
+      digest.reset();
+    }
+
+    return digest;
+  }
+
+  /**
+   * Creates a new message digest which the caller owns, unlike the pooled digests used by getHash, by cloning a prototype
+   * of the algorithm.
+   *
+   * @param algorithm The digest algorithm.
+   * @return The new message digest.
+   * @throws NoSuchAlgorithmException if the algorithm is not supported.
+   * @throws NoSuchProviderException if BouncyCastle is not installed.
+   */
+  public MessageDigest newDigest(String algorithm) throws NoSuchAlgorithmException, NoSuchProviderException {
+    MessageDigest prototype = this.digestPrototypes.get(algorithm);
+
+    if (prototype == null) {
+      prototype = MessageDigest.getInstance(algorithm, BouncyCastleProvider.PROVIDER_NAME);
+      this.digestPrototypes.putIfAbsent(algorithm, prototype);
+    }
+
+    try {
+      return (MessageDigest) prototype.clone();
+    }
+    catch (final CloneNotSupportedException e) {
+      return MessageDigest.getInstance(algorithm, BouncyCastleProvider.PROVIDER_NAME);
+    }
+  }
+
+  /**
+   * Produces a hash of the canonical encoding of the specified data, which does not depend upon how the data is exchanged.
+   *
+   * @param data The data to hash.
+   * @return The hashed data.
+   */
+  public byte[] getHash(Data data) {
+    return this.getHash(data, this.hashParameters);
+  }
+
+  /**
+   * Produces a hash of the canonical encoding of the specified data, which does not depend upon how the data is exchanged.
+   *
+   * @param data The data to hash.
+   * @param hashParameters the name of the hash algorithm to use
+   * @return The hashed data.
+   */
+  public byte[] getHash(Data data, String hashParameters) {
+    byte[] hash = null;
+
+    try {
+      final MessageDigest digest = this.getDigest(hashParameters);
+      data.digest(digest);
+      hash = digest.digest();
+    }
+    catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+      LOG.error("could not hash", e);
+    }
+
+    return hash;
+  }
+
   /**
    * Produces a hash of the specified data.
    *
@@ -397,9 +550,7 @@ public class Crypto {
     byte[] hash = null;
 
     try {
-      final MessageDigest digest = MessageDigest.getInstance(hashParameters, BouncyCastleProvider.PROVIDER_NAME);
-      digest.update(data);
-      hash = digest.digest();
+      hash = this.getDigest(hashParameters).digest(data);
     }
     catch (NoSuchAlgorithmException | NoSuchProviderException e) {
       LOG.error("could not hash", e);
@@ -413,7 +564,7 @@ public class Crypto {
    */
   
   public void clearRandomOracleHashes() {
-	  this.randomOracles=new HashMap<>();
+	  this.getContext().clearRandomOracleHashes();
   }
   
   
@@ -433,21 +584,18 @@ public class Crypto {
     LOG.debug("computing hash for data:"+key);
     
     if (hashParameters[0].equalsIgnoreCase("randomOracle")) {
-    	if (randomOracles.containsKey(hashName)) {
-    		LOG.debug("Found an existing hashmap for "+hashName);
-    		randomOracleHash=randomOracles.get(hashName);
-    	}else {
-    		LOG.debug("Storing a new hashmap for "+hashName);
-    		randomOracleHash=new HashMap<String,Element>();
-    		randomOracles.put(hashName, randomOracleHash);
-    	}
+    	randomOracleHash=this.getContext().getRandomOracle(hashName);
     	if (randomOracleHash.containsKey(key)) {
     		LOG.debug("match found for data- returning it");
     		return randomOracleHash.get(key);
     	}else {
     		LOG.debug("no match found for data- computing hash");
     		hash=G.newRandomElement().getImmutable();
-    		randomOracleHash.put(key, hash);    	}
+    		final Element existing=randomOracleHash.putIfAbsent(key, hash);
+    		if (existing!=null) {
+    			hash=existing;
+    		}
+    	}
     }
     LOG.debug("returning hash: "+hash);
     return hash;
@@ -511,7 +659,7 @@ public class Crypto {
    *
    * @return The key pair.
    */
-  public KeyPair getKeyPair() {
+  public synchronized KeyPair getKeyPair() {
     if (this.keyPair == null) {
       try {
         final KeyPairGenerator generator = KeyPairGenerator.getInstance(KEY_PAIR_CIPHER, BouncyCastleProvider.PROVIDER_NAME);
@@ -572,7 +720,86 @@ public class Crypto {
    * @return The remote requester/responder's public key.
    */
   public PublicKey getRemotePublicKey() {
-    return this.remotePublicKey;
+    return this.getContext().getRemotePublicKey();
+  }
+
+  /**
+   * @return True if curve points are exchanged in compressed form with the remote requester/responder.
+   */
+  public boolean isPointCompression() {
+    return this.getContext().isPointCompression();
+  }
+
+  /**
+   * Records the number of bytes saved by compressing a curve point.
+   *
+   * @param saved The number of bytes saved.
+   */
+  public void addPointBytesSaved(long saved) {
+    this.getContext().addPointBytesSaved(saved);
+  }
+
+  /**
+   * Returns the number of bytes saved by point compression since the last call, resetting the count.
+   *
+   * @return The number of bytes saved.
+   */
+  public long takePointBytesSaved() {
+    return this.getContext().takePointBytesSaved();
+  }
+
+  /**
+   * Computes the sum of bases[i] * scalars[i] using Straus' interleaved window method. A table of small multiples is built
+   * for each base, after which a single run of doublings is shared between all of the terms, with one addition per term for
+   * each window. This is much cheaper than multiplying each base separately and adding the results.
+   *
+   * The bases must all be in the same additive group, i.e. G1 or G2.
+   *
+   * @param bases The bases to multiply.
+   * @param scalars The scalar for each base, which are reduced by the group order.
+   * @return The sum of the products.
+   */
+  public Element multiScalarMul(Element[] bases, BigInteger[] scalars) {
+    final BigInteger order = bases[0].getField().getOrder();
+    final int windowSize = 1 << MULTI_SCALAR_MUL_WINDOW_BITS;
+    final Element[][] tables = new Element[bases.length][windowSize];
+    final BigInteger[] reduced = new BigInteger[bases.length];
+    int bitLength = 0;
+
+    for (int i = 0; i < bases.length; i++) {
+      reduced[i] = scalars[i].mod(order);
+      bitLength = Math.max(bitLength, reduced[i].bitLength());
+
+      tables[i][1] = bases[i].getImmutable();
+      for (int j = 2; j < windowSize; j++) {
+        tables[i][j] = tables[i][j - 1].add(tables[i][1]);
+      }
+    }
+
+    final Element result = bases[0].getField().newZeroElement();
+
+    for (int window = (bitLength - 1) / MULTI_SCALAR_MUL_WINDOW_BITS; window >= 0; window--) {
+      final int lowestBit = window * MULTI_SCALAR_MUL_WINDOW_BITS;
+
+      if (!result.isZero()) {
+        for (int j = 0; j < MULTI_SCALAR_MUL_WINDOW_BITS; j++) {
+          result.twice();
+        }
+      }
+
+      for (int i = 0; i < bases.length; i++) {
+        int digit = 0;
+        for (int j = MULTI_SCALAR_MUL_WINDOW_BITS - 1; j >= 0; j--) {
+          digit = (digit << 1) | (reduced[i].testBit(lowestBit + j) ? 1 : 0);
+        }
+
+        if (digit != 0) {
+          result.add(tables[i][digit]);
+        }
+      }
+    }
+
+    return result.getImmutable();
   }
 
   /**
@@ -632,7 +859,7 @@ public class Crypto {
    *
    * @param keyLength The key length.
    */
-  public void setKeyLength(int keyLength) {
+  public synchronized void setKeyLength(int keyLength) {
     this.keyLength = keyLength;
     this.outputBlockSize = keyLength / 8; // Always the same.
     this.keyPair = null;
@@ -662,12 +889,6 @@ public class Crypto {
    * @param bytes The encoded public key.
    */
   public void setRemotePublicKey(byte[] bytes) {
-    try {
-      final KeyFactory keyFactory = KeyFactory.getInstance(KEY_PAIR_CIPHER, BouncyCastleProvider.PROVIDER_NAME);
-      this.remotePublicKey = keyFactory.generatePublic(new X509EncodedKeySpec(bytes));
-    }
-    catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeySpecException e) {
-      LOG.error("could not decode remote public key", e);
-    }
+    this.getContext().setRemotePublicKey(bytes);
   }
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unisa.dia.gas.jpbc.Element;
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
+
+/**
+ * The cryptographic state belonging to a single protocol session, i.e. one client talking to the server. Anything which is
+ * shared by all sessions, such as the server's key pair and the DH parameters, is held by {@link Crypto}, which uses the
+ * context bound to the current thread for session specific operations.
+ *
+ * A state machine binds its context while it runs, so states do not need to pass the context around themselves.
+ *
+ * @author Steve Wesemeyer
+ */
+public class CryptoContext {
+
+  /** Key pair cipher. */
+  private static final String                               KEY_PAIR_CIPHER  = "RSA";
+
+  /** Logback logger. */
+  private static final Logger                               LOG              = LoggerFactory.getLogger(CryptoContext.class);
+
+  /** The encoding used to send data to the remote requester/responder. */
+  private volatile Encoding                                 encoding;
+
+  /** The framing used to hash proof transcripts, which the remote requester/responder must also use. */
+  private volatile Framing                                  framing;
+
+  /** The number of bytes saved by point compression since they were last taken. */
+  private final AtomicLong                                  pointBytesSaved  = new AtomicLong();
+
+  /** Flag to indicate that curve points are exchanged in compressed form, which the remote requester/responder must accept. */
+  private volatile boolean                                  pointCompression = false;
+
+  /** The random oracle hash functions, keyed by name, each of which maps the Base64 encoded data to its hash. */
+  private final ConcurrentMap<String, Map<String, Element>> randomOracles    = new ConcurrentHashMap<>();
+
+  /** The remote requester/responder's public key. */
+  private volatile PublicKey                                remotePublicKey  = null;
+
+  /**
+   * Default constructor, which sends data in binary and hashes transcripts as older clients do.
+   */
+  public CryptoContext() {
+    this(Encoding.BINARY, Framing.LIST_DATA);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param encoding The encoding used to send data until the remote requester/responder has been heard from.
+   * @param framing The framing used to hash proof transcripts until one has been agreed with the remote requester/responder.
+   */
+  public CryptoContext(Encoding encoding, Framing framing) {
+    super();
+
+    this.encoding = encoding;
+    this.framing = framing;
+  }
+
+  /**
+   * Records the number of bytes saved by compressing a curve point.
+   *
+   * @param saved The number of bytes saved.
+   */
+  public void addPointBytesSaved(long saved) {
+    this.pointBytesSaved.addAndGet(saved);
+  }
+
+  /**
+   * Removes all of the random oracle hash functions.
+   */
+  public void clearRandomOracleHashes() {
+    this.randomOracles.clear();
+  }
+
+  /**
+   * @return The encoding used to send data to the remote requester/responder.
+   */
+  public Encoding getEncoding() {
+    return this.encoding;
+  }
+
+  /**
+   * @return The framing used to hash proof transcripts.
+   */
+  public Framing getFraming() {
+    return this.framing;
+  }
+
+  /**
+   * Returns the named random oracle hash function, creating it if needed.
+   *
+   * @param hashName The name of the random oracle.
+   * @return The map from Base64 encoded data to its hash.
+   */
+  public Map<String, Element> getRandomOracle(String hashName) {
+    Map<String, Element> randomOracle = this.randomOracles.get(hashName);
+
+    if (randomOracle == null) {
+      LOG.debug("Storing a new hashmap for " + hashName);
+      randomOracle = new ConcurrentHashMap<>();
+      final Map<String, Element> existing = this.randomOracles.putIfAbsent(hashName, randomOracle);
+
+      if (existing != null) {
+        randomOracle = existing;
+      }
+    }
+    else {
+      LOG.debug("Found an existing hashmap for " + hashName);
+    }
+
+    return randomOracle;
+  }
+
+  /**
+   * @return The remote requester/responder's public key.
+   */
+  public PublicKey getRemotePublicKey() {
+    return this.remotePublicKey;
+  }
+
+  /**
+   * @return True if curve points are exchanged in compressed form.
+   */
+  public boolean isPointCompression() {
+    return this.pointCompression;
+  }
+
+  /**
+   * Sets the encoding used to send data, which must be one that the remote requester/responder understands. Received data is
+   * always decoded whatever its encoding.
+   *
+   * @param encoding The new encoding.
+   */
+  public void setEncoding(Encoding encoding) {
+    this.encoding = encoding;
+  }
+
+  /**
+   * Sets the framing used to hash proof transcripts, which must be the one agreed with the remote requester/responder.
+   *
+   * @param framing The new framing.
+   */
+  public void setFraming(Framing framing) {
+    this.framing = framing;
+  }
+
+  /**
+   * Sets whether curve points are exchanged in compressed form, which must have been agreed with the remote
+   * requester/responder. Received points are always decoded whatever their form.
+   *
+   * @param pointCompression Flag to indicate that curve points are exchanged in compressed form.
+   */
+  public void setPointCompression(boolean pointCompression) {
+    this.pointCompression = pointCompression;
+  }
+
+  /**
+   * Sets the remote public key from an encoded byte array.
+   *
+   * @param bytes The encoded public key.
+   */
+  public void setRemotePublicKey(byte[] bytes) {
+    try {
+      final KeyFactory keyFactory = KeyFactory.getInstance(KEY_PAIR_CIPHER, BouncyCastleProvider.PROVIDER_NAME);
+      this.remotePublicKey = keyFactory.generatePublic(new X509EncodedKeySpec(bytes));
+    }
+    catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeySpecException e) {
+      LOG.error("could not decode remote public key", e);
+    }
+  }
+
+  /**
+   * Returns the number of bytes saved by point compression since the last call, resetting the count.
+   *
+   * @return The number of bytes saved.
+   */
+  public long takePointBytesSaved() {
+    return this.pointBytesSaved.getAndSet(0L);
+  }
+}
@@ -23,6 +23,8 @@ import com.google.gson.JsonSerializer;
 
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveField;
+import it.unisa.dia.gas.plaf.jpbc.field.gt.GTFiniteElement;
+import it.unisa.dia.gas.plaf.jpbc.field.gt.GTFiniteField;
 import uk.ac.surrey.bets_framework.protocol.data.Data;
 
 /**
@@ -162,6 +164,73 @@ public class GsonUtils {
 		}
 	}
 
+	/**
+	 * Deserializes a GTFiniteElement.
+	 */
+	public static class GTFiniteElementDeserializer implements JsonDeserializer<GTFiniteElement> {
+
+		/** The GT field of the pairing. */
+		private GTFiniteField<?> field = null;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param field
+		 *            The GT field of the pairing.
+		 */
+		public GTFiniteElementDeserializer(GTFiniteField<?> field) {
+			super();
+
+			this.field = field;
+		}
+
+		/**
+		 * Gson invokes this call-back method during deserialization when it encounters
+		 * a field of the specified type.
+		 *
+		 * @param json
+		 *            The Json data being deserialized.
+		 * @param typeOfT
+		 *            The type of the Object to deserialize to.
+		 * @return a deserialized object of the specified type typeOfT which is a
+		 *         subclass of {@code T}.
+		 * @throws JsonParseException
+		 *             if json is not in the expected format of {@code typeofT}.
+		 */
+		@Override
+		public GTFiniteElement deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+				throws JsonParseException {
+			final Decoder base64 = Base64.getDecoder();
+			final GTFiniteElement gtElement = this.field.newElement();
+			gtElement.setFromBytes(base64.decode(json.getAsString().getBytes(Data.UTF8)));
+
+			return gtElement.getImmutable();
+		}
+	}
+
+	/**
+	 * Serializes a GTFiniteElement.
+	 */
+	public static class GTFiniteElementSerializer implements JsonSerializer<GTFiniteElement> {
+
+		/**
+		 * Gson invokes this call-back method during serialization when it encounters a
+		 * field of the specified type.
+		 *
+		 * @param src
+		 *            the object that needs to be converted to Json.
+		 * @param typeOfSrc
+		 *            the actual type (fully genericized version) of the source object.
+		 * @return a JsonPrimitive containing the element bytes.
+		 */
+		@Override
+		public JsonElement serialize(GTFiniteElement src, Type typeOfSrc, JsonSerializationContext context) {
+			final Encoder base64 = Base64.getEncoder();
+
+			return new JsonPrimitive(new String(base64.encode(src.toBytes()), Data.UTF8));
+		}
+	}
+
 	/** Logback logger. */
 	private static final Logger LOG = LoggerFactory.getLogger(GsonUtils.class);
 }
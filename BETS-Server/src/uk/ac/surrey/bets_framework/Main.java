@@ -18,6 +18,7 @@ import org.bouncycastle.crypto.params.DHParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.supercsv.cellprocessor.constraint.LMinMax;
+import org.supercsv.cellprocessor.constraint.NotNull;
 import org.supercsv.cellprocessor.ift.CellProcessor;
 import org.supercsv.io.CsvListWriter;
 import org.supercsv.io.ICsvListWriter;
@@ -32,9 +33,15 @@ import uk.ac.surrey.bets_framework.command.JCommanderFactory;
 import uk.ac.surrey.bets_framework.command.ProtocolRun;
 import uk.ac.surrey.bets_framework.icc.ICC;
 import uk.ac.surrey.bets_framework.nfc.NFC;
+import uk.ac.surrey.bets_framework.nfc.SimulatedCard;
+import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.PairingBackend;
+import uk.ac.surrey.bets_framework.protocol.ParameterStore;
 import uk.ac.surrey.bets_framework.protocol.control.setup.ServerData;
 import uk.ac.surrey.bets_framework.protocol.control.setup.Setup;
 import uk.ac.surrey.bets_framework.protocol.control.teardown.TearDown;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 import uk.ac.surrey.bets_framework.state.StateMachine;
 import uk.ac.surrey.bets_framework.state.Timing;
 
@@ -45,6 +52,9 @@ import uk.ac.surrey.bets_framework.state.Timing;
  */
 public class Main {
 
+	/** Column holding the pairing backend used for CSV headers. */
+	private static final String CSV_BACKEND = "Backend";
+
 	/** Suffix to timing count used for CSV headers. */
 	private static final String CSV_DATA = "-DataSize";
 
@@ -54,6 +64,21 @@ public class Main {
 	/** Suffix to timing iteration used for CSV headers. */
 	private static final String CSV_ITERATION = "Iteration";
 
+	/** Suffix to timing maximum used for CSV headers. */
+	private static final String CSV_MAX = "-MaxNs";
+
+	/** Suffix to timing time in nanoseconds used for CSV headers. */
+	private static final String CSV_NANO_TIME = "-TimeNs";
+
+	/** Suffix to timing percentiles used for CSV headers, following the percentile. */
+	private static final String CSV_PERCENTILE = "Ns";
+
+	/** Prefix to timing percentiles used for CSV headers, before the percentile. */
+	private static final String CSV_PERCENTILE_PREFIX = "-P";
+
+	/** The timing percentiles output to CSV. */
+	private static final int[] CSV_PERCENTILES = { 50, 90, 99 };
+
 	/** Suffix to timing time used for CSV headers. */
 	private static final String CSV_TIME = "-Time";
 
@@ -69,11 +94,34 @@ public class Main {
 	/** Logback default log level. */
 	private static final int LOG_LEVEL_DEFAULT = 6;
 
+	/** The default simulated Android client jar, as built by the simulator project. */
+	private static final String SIM_CLIENT_DEFAULT = "simulator/target/DICE-simulator.jar";
+
+	/** The largest APDU chunk that the NFC reader can send. */
+	@Parameter(names = {
+			"--apdu-size" }, description = "Largest APDU chunk the NFC reader supports: above 255 uses extended length APDUs")
+	private int apduSize = NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE;
+
 	/** The name of the client timing output file, if any. */
 	@Parameter(names = { "--client-output",
 			"-c" }, description = "Optionally output the client protocol timings to a CSV file")
 	private String clientOutput = null;
 
+	/** Flag to indicate that curve points should be exchanged in compressed form. */
+	@Parameter(names = { "--compress-points",
+			"-p" }, description = "Exchange elliptic curve points in compressed form")
+	private boolean compressPoints = false;
+
+	/** Flag to indicate that data should be exchanged as JSON for older clients. */
+	@Parameter(names = { "--json-compat",
+			"-j" }, description = "Exchange data as JSON instead of binary for compatibility with older clients")
+	private boolean jsonCompat = false;
+
+	/** Flag to indicate that transcripts should be hashed as ListData for older clients. */
+	@Parameter(names = {
+			"--transcript-compat" }, description = "Hash proof transcripts as ListData for compatibility with older clients")
+	private boolean transcriptCompat = false;
+
 	/** Help command line parameter. */
 	@Parameter(names = { "--help", "-h" }, description = "Display usage", help = true)
 	private boolean help = false;
@@ -95,6 +143,16 @@ public class Main {
 	@Parameter(names = { "--output-dh", "-o" }, description = "Save DH parameters to file")
 	private String outputDH = null;
 
+	/** The pairing backends requested for all protocols or for each protocol. */
+	@Parameter(names = {
+			"--pairing-backend" }, description = "Pairing backend: java, pbc or auto, optionally per protocol (auto,PPETSABC=java)")
+	private String pairingBackend = "auto";
+
+	/** The name of the file holding saved protocol parameters, if any. */
+	@Parameter(names = {
+			"--params" }, description = "Load protocol parameters from a file, generating and saving them if needed")
+	private String params = null;
+
 	/** Protocol run command line parameters. */
 	@Parameter(names = { "--run", "-r" }, description = "Run a protocol (:iterations:parameter1:parameter2:...)")
 	private ProtocolRun protocolRun = null;
@@ -104,11 +162,39 @@ public class Main {
 			"-s" }, description = "Optionally output the server protocol timings to a CSV file")
 	private String serverOutput = null;
 
+	/** The number of protocol sessions to run concurrently in each iteration. */
+	@Parameter(names = {
+			"--sessions" }, description = "Optionally run concurrent protocol sessions per iteration (ICC only)")
+	private int sessions = 1;
+
+	/** The number of threads used to run concurrent sessions, or 0 to use virtual threads where available. */
+	@Parameter(names = {
+			"--session-threads" }, description = "Threads for concurrent sessions: 0 uses virtual threads if available")
+	private int sessionThreads = 0;
+
 	/** The name of the server setup timing output file, if any. */
 	@Parameter(names = { "--setup-output",
 			"-u" }, description = "Optionally output the server setup timings to a CSV file")
 	private String setupOutput = null;
 
+	/** The bandwidth of the simulated NFC link in bytes per millisecond, or 0 for unlimited. */
+	@Parameter(names = {
+			"--sim-bandwidth" }, description = "Bandwidth of the simulated NFC link in bytes per ms, 0 for unlimited (SIM only)")
+	private double simBandwidth = 0;
+
+	/** The simulated Android client jar. */
+	@Parameter(names = { "--sim-client" }, description = "The simulated Android client jar (SIM only)")
+	private String simClient = SIM_CLIENT_DEFAULT;
+
+	/** The round trip time of each APDU exchange on the simulated NFC link in milliseconds. */
+	@Parameter(names = { "--sim-rtt" }, description = "Round trip time of each APDU on the simulated NFC link in ms (SIM only)")
+	private double simRtt = 0;
+
+	/** Flag to indicate that states should stream data where they support it. */
+	@Parameter(names = {
+			"--streaming" }, description = "Overlap computation with NFC transfers by streaming data where states support it")
+	private boolean streaming = false;
+
 	/** The name of the server tear down timing output file, if any. */
 	@Parameter(names = { "--tear-down-output",
 			"-d" }, description = "Optionally output the server tear down timings to a CSV file")
@@ -118,8 +204,9 @@ public class Main {
 	@Parameter(names = { "--use-dh", "-e" }, description = "Use DH parameters")
 	private boolean useDH = false;
 
-	/** use ICC state machine instead of NFC */
-	@Parameter(names = { "--use-comms" }, description = "Optionally specify the channel to use - default is NFC")
+	/** use ICC state machine or a simulated Android client instead of NFC */
+	@Parameter(names = {
+			"--use-comms" }, description = "Optionally specify the channel to use: NFC (default), SIM (simulated Android) or ICC")
 	private String commsChannel = "NFC";
 
 	/**
@@ -142,6 +229,17 @@ public class Main {
 		this.inputDH = null;
 		this.outputDH = null;
 		this.useDH = false;
+		this.apduSize = NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE;
+		this.jsonCompat = false;
+		this.transcriptCompat = false;
+		this.compressPoints = false;
+		this.sessions = 1;
+		this.sessionThreads = 0;
+		this.streaming = false;
+		this.params = null;
+		this.simClient = SIM_CLIENT_DEFAULT;
+		this.simRtt = 0;
+		this.simBandwidth = 0;
 	}
 
 	/**
@@ -173,7 +271,7 @@ public class Main {
 			LOG.error("failed to run", e);
 		} finally {
 			// Make sure the comms channel is reset.
-			if (main.commsChannel.equalsIgnoreCase("NFC")) {
+			if (main.isNFC()) {
 				NFC.getInstance().close();
 			} else if (main.commsChannel.equals("ICC")) {
 				ICC.getInstance().close();
@@ -202,6 +300,14 @@ public class Main {
 		return dhParameters;
 	}
 
+	/**
+	 * @return True if the protocol runs over NFC, with either the reader or the
+	 *         simulated Android client.
+	 */
+	private boolean isNFC() {
+		return this.commsChannel.equalsIgnoreCase("NFC") || this.commsChannel.equalsIgnoreCase("SIM");
+	}
+
 	/**
 	 * Outputs the timing CSV file header and returns the associated cell
 	 * processors.
@@ -218,12 +324,17 @@ public class Main {
 		final List<String> header = new ArrayList<>();
 		final List<CellProcessor> processors = new ArrayList<>();
 
-		// Add in the iteration number.
+		// Add in the iteration number and the pairing backend.
 		header.add(CSV_ITERATION);
 		processors.add(new LMinMax(1L, LMinMax.MAX_LONG));
 
-		// Add in three fields per timing: the time, the count and the number of bytes
-		// processed
+		header.add(CSV_BACKEND);
+		processors.add(new NotNull());
+
+		// Add in the fields for each timing: the time in milliseconds, the count, the
+		// number of bytes processed, the time in nanoseconds, the percentiles and the
+		// maximum. Percentiles and maximums are -1 for client timings, which only have
+		// totals.
 		for (final String name : names) {
 			header.add(name + CSV_TIME);
 			processors.add(new LMinMax(LMinMax.MIN_LONG, LMinMax.MAX_LONG));
@@ -233,6 +344,17 @@ public class Main {
 
 			header.add(name + CSV_DATA);
 			processors.add(new LMinMax(LMinMax.MIN_LONG, LMinMax.MAX_LONG));
+
+			header.add(name + CSV_NANO_TIME);
+			processors.add(new LMinMax(LMinMax.MIN_LONG, LMinMax.MAX_LONG));
+
+			for (final int percentile : CSV_PERCENTILES) {
+				header.add(name + CSV_PERCENTILE_PREFIX + percentile + CSV_PERCENTILE);
+				processors.add(new LMinMax(LMinMax.MIN_LONG, LMinMax.MAX_LONG));
+			}
+
+			header.add(name + CSV_MAX);
+			processors.add(new LMinMax(LMinMax.MIN_LONG, LMinMax.MAX_LONG));
 		}
 
 		// Write the header.
@@ -253,26 +375,35 @@ public class Main {
 	 *            The cell processors used to output the CSV fields.
 	 * @param iteration
 	 *            The current iteration number.
+	 * @param backend
+	 *            The pairing backend used.
 	 * @param timings
 	 *            The timings to be output.
 	 * @throws IOException
 	 *             If there was a problem writing the timings.
 	 */
 	private void outputCSVTimings(ICsvListWriter csvWriter, final List<String> names, CellProcessor[] cellProcessors,
-			int iteration, final Map<String, Timing> timings) throws IOException {
-		final List<Long> values = new ArrayList<>();
+			int iteration, String backend, final Map<String, Timing> timings) throws IOException {
+		final List<Object> values = new ArrayList<>();
 
 		// Add one to the iteration number to make it start at one
 		// rather than zero.
 		values.add((long) iteration + 1);
+		values.add(backend);
 
-		// Add in three fields per timing: the time, the count, the amount of data sent
+		// Add in the fields for each timing in the same order as the header.
 		for (final String name : names) {
 			final Timing timing = timings.get(name);
 			values.add(timing.getTime());
 			values.add(timing.getCount());
 			values.add(timing.getDataSize());
+			values.add(timing.getNanoTime());
+
+			for (final int percentile : CSV_PERCENTILES) {
+				values.add(timing.getPercentile(percentile));
+			}
 
+			values.add(timing.getMax());
 		}
 
 		csvWriter.write(values);
@@ -320,8 +451,10 @@ public class Main {
 	 *            The list of timings to be output.
 	 * @param filename
 	 *            The output filename.
+	 * @param backend
+	 *            The pairing backend used.
 	 */
-	private void outputTimings(List<Map<String, Timing>> timings, String filename) {
+	private void outputTimings(List<Map<String, Timing>> timings, String filename, String backend) {
 		ICsvListWriter csvWriter = null;
 
 		if (timings.size() > 0) {
@@ -341,7 +474,7 @@ public class Main {
 
 				// Add each iterations timings to the file.
 				for (int i = 0; i < timings.size(); i++) {
-					this.outputCSVTimings(csvWriter, names, cellProcessors, i, timings.get(i));
+					this.outputCSVTimings(csvWriter, names, cellProcessors, i, backend, timings.get(i));
 				}
 			} catch (final IOException e) {
 				LOG.error("could not open timing output file {}", filename, e);
@@ -357,6 +490,36 @@ public class Main {
 		}
 	}
 
+	/**
+	 * Runs the protocol with a number of concurrent sessions in each iteration,
+	 * reporting the aggregate throughput.
+	 *
+	 * @param clazz
+	 *            The protocol state machine class.
+	 * @param serverTimings
+	 *            The list to add the timings of each session to.
+	 * @param encoding
+	 *            The encoding each session uses to send data.
+	 * @param framing
+	 *            The framing each session uses to hash proof transcripts.
+	 */
+	private void runSessions(Class<?> clazz, List<Map<String, Timing>> serverTimings, Data.Encoding encoding,
+			TranscriptHasher.Framing framing) {
+		LOG.info("running protocol {} with {} concurrent sessions", this.protocolRun, this.sessions);
+		final SessionManager manager = new SessionManager(clazz, this.protocolRun.getParameters(), this.sessionThreads,
+				encoding, framing, this.compressPoints);
+
+		for (int i = 1; i <= this.protocolRun.getIteration(); i++) {
+			LOG.info("{}: {} x {}", i, this.protocolRun.getName(), this.sessions);
+			manager.run(this.sessions);
+		}
+
+		serverTimings.addAll(manager.getTimings());
+		LOG.info("{} of {} sessions succeeded in {} s: {} tickets/s", manager.getSuccesses(),
+				this.sessions * this.protocolRun.getIteration(), String.format("%.3f", manager.getElapsedSeconds()),
+				String.format("%.3f", manager.getThroughput()));
+	}
+
 	/**
 	 * Runs the code.
 	 */
@@ -388,9 +551,57 @@ public class Main {
 			this.outputDHParameters(this.outputDH, crypto.getDhParameters());
 		}
 
+		// Select the pairing backends, which fall back to Java if the native library
+		// cannot be used.
+		try {
+			PairingBackend.configure(this.pairingBackend);
+		} catch (final IllegalArgumentException e) {
+			throw new ParameterException("invalid pairing backend " + this.pairingBackend);
+		}
+
+		LOG.info("native pairing library {}", PairingBackend.isNativeAvailable() ? "available" : "not available");
+
+		// Optionally reuse the pairing and public parameters saved by earlier runs.
+		if (this.params != null) {
+			LOG.info("using protocol parameters from {}", this.params);
+			ParameterStore.setFile(Paths.get(this.params));
+		}
+
+		// Select how data is exchanged. The client replies using whatever encoding the
+		// server data arrives in, which each session then uses.
+		final Data.Encoding encoding = this.jsonCompat ? Data.Encoding.JSON : Data.Encoding.BINARY;
+		LOG.info("using {} data encoding", encoding);
+
+		// Select how proof transcripts are hashed. The in-process client uses the same
+		// framing as the server, whereas a client over NFC is offered it in the server
+		// data and each session only uses it if the client replies that it does too.
+		final TranscriptHasher.Framing framing = this.transcriptCompat ? TranscriptHasher.Framing.LIST_DATA
+				: TranscriptHasher.Framing.LENGTH_PREFIXED;
+		LOG.info("offering {} transcript framing", framing);
+
+		// Optionally stream data between states and the channel, which requires binary
+		// encoding.
+		ListDataStream.setEnabled(this.streaming);
+		LOG.info("streaming {}", ListDataStream.isEnabled() ? "on" : "off");
+
+		// Optionally compress curve points, which the client is offered in the server
+		// data and must accept in its client data.
+		LOG.info("offering point compression {}", this.compressPoints ? "on" : "off");
+
+		// Optionally respond to the reader with a simulated Android client, which
+		// receives exactly the same APDUs as the phone.
+		if (this.commsChannel.equalsIgnoreCase("SIM")) {
+			try {
+				NFC.getInstance().setSimulator(new SimulatedCard(this.simClient, this.simRtt, this.simBandwidth));
+			} catch (final IOException | ReflectiveOperationException e) {
+				LOG.error("could not load simulated client {}", this.simClient, e);
+				return;
+			}
+		}
+
 		// Define the server data for the client.
 		final ServerData serverData = new ServerData(crypto.getPublicKey().getEncoded(), this.logLevel,
-				this.protocolRun, this.keyLength, crypto.getDhParameters());
+				this.protocolRun, this.keyLength, crypto.getDhParameters(), this.compressPoints, this.apduSize, framing);
 
 		// Warm up the encryption so that loading of the encryption provider does not
 		// slow things down.
@@ -403,15 +614,28 @@ public class Main {
 		final List<Map<String, Timing>> setupTimings = new ArrayList<>();
 		final List<Map<String, Timing>> tearDownTimings = new ArrayList<>();
 
-		if (clazz != null) {
+		if ((clazz != null) && (this.sessions > 1)) {
+			if (this.commsChannel.equalsIgnoreCase("ICC")) {
+				this.runSessions(clazz, serverTimings, encoding, framing);
+			} else {
+				LOG.error("concurrent sessions are only supported using the ICC channel");
+			}
+		} else if (clazz != null) {
 			LOG.info("running protocol {}", this.protocolRun);
 
 			try {
 				for (int i = 1; i <= this.protocolRun.getIteration(); i++) {
-					if (this.commsChannel.equalsIgnoreCase("NFC")) {
+					// Each iteration is a separate session with the client, shared by setup, the
+					// protocol and tear down.
+					final CryptoContext cryptoContext = new CryptoContext(encoding,
+							this.isNFC() ? TranscriptHasher.Framing.LIST_DATA : framing);
+					cryptoContext.setPointCompression(!this.isNFC() && this.compressPoints);
+
+					if (this.isNFC()) {
 						// Setup the client.
 						LOG.info("{}: setup", i);
 						final Setup setup = new Setup(serverData);
+						setup.setCryptoContext(cryptoContext);
 
 						// Sometimes setup just fails to get through to the Android device. Try running
 						// for a fixed number of times until success.
@@ -426,6 +650,7 @@ public class Main {
 					LOG.info("{}: {}", i, this.protocolRun.getName());
 					final StateMachine<?> protocol = (StateMachine<?>) clazz.newInstance();
 					protocol.setParameters(this.protocolRun.getParameters());
+					protocol.setCryptoContext(cryptoContext);
 					final boolean result = protocol.run();
 
 					if (result) {
@@ -436,10 +661,11 @@ public class Main {
 
 					// Save off the server timings.
 					serverTimings.add(protocol.getTimings());
-					if (this.commsChannel.equalsIgnoreCase("NFC")) {
+					if (this.isNFC()) {
 						// Tear down the client.
 						LOG.info("{}: tear down", i);
 						final TearDown tearDown = new TearDown();
+						tearDown.setCryptoContext(cryptoContext);
 
 						if (tearDown.run()) {
 							// Save off the client timings.
@@ -452,10 +678,12 @@ public class Main {
 						tearDownTimings.add(tearDown.getTimings());
 					}
 					// Pause a short while as the NFC stuff seems quite erratic.
-					try {
-						Thread.sleep(ITERATION_PAUSE);
-					} catch (final InterruptedException e) {
-						// Ignore.
+					if (this.commsChannel.equalsIgnoreCase("NFC")) {
+						try {
+							Thread.sleep(ITERATION_PAUSE);
+						} catch (final InterruptedException e) {
+							// Ignore.
+						}
 					}
 				}
 			} catch (final InstantiationException | IllegalAccessException | ClassCastException e) {
@@ -467,24 +695,29 @@ public class Main {
 			LOG.error("could not find protocol {}", this.protocolRun.getName());
 		}
 
+		// Report the pairing backend the protocol ran with, if it uses pairings.
+		final PairingBackend.Type selected = (clazz == null) ? null
+				: PairingBackend.getSelected(clazz.getSimpleName());
+		final String backend = (selected == null) ? "none" : selected.toString();
+
 		// Optionally output the server timing data.
 		if (this.serverOutput != null) {
-			this.outputTimings(serverTimings, this.serverOutput);
+			this.outputTimings(serverTimings, this.serverOutput, backend);
 		}
 
 		// Optionally output the client timing data.
 		if (this.clientOutput != null) {
-			this.outputTimings(clientTimings, this.clientOutput);
+			this.outputTimings(clientTimings, this.clientOutput, backend);
 		}
 
 		// Optionally output the server setup timing data.
 		if (this.setupOutput != null) {
-			this.outputTimings(setupTimings, this.setupOutput);
+			this.outputTimings(setupTimings, this.setupOutput, backend);
 		}
 
 		// Optionally output the server tear down timing data.
 		if (this.tearDownOutput != null) {
-			this.outputTimings(tearDownTimings, this.tearDownOutput);
+			this.outputTimings(tearDownTimings, this.tearDownOutput, backend);
 		}
 	}
 }
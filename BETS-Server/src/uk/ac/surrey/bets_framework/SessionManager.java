@@ -0,0 +1,242 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.surrey.bets_framework.icc.ICC;
+import uk.ac.surrey.bets_framework.protocol.ICCStateMachine;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+import uk.ac.surrey.bets_framework.state.StateMachine;
+import uk.ac.surrey.bets_framework.state.Timing;
+
+/**
+ * Runs a number of independent protocol sessions concurrently in order to
+ * measure how many sessions, and hence tickets, a server can sustain. Each
+ * session has its own state machine, and therefore shared memory, together with
+ * its own cryptographic context and internal comms channel.
+ *
+ * @author Steve Wesemeyer
+ */
+public class SessionManager {
+
+	/** Logback logger. */
+	private static final Logger LOG = LoggerFactory.getLogger(SessionManager.class);
+
+	/** Number of nanoseconds in a second. */
+	private static final double NANOS_PER_SECOND = 1e9;
+
+	/** The elapsed time of all runs, in nanoseconds. */
+	private long elapsed = 0L;
+
+	/** The encoding each session uses to send data. */
+	private final Data.Encoding encoding;
+
+	/** The framing each session uses to hash proof transcripts. */
+	private final TranscriptHasher.Framing framing;
+
+	/** The protocol parameters. */
+	private final List<String> parameters;
+
+	/** Flag to indicate that each session exchanges curve points in compressed form. */
+	private final boolean pointCompression;
+
+	/** The protocol state machine class to run. */
+	private final Class<?> protocolClass;
+
+	/** The number of sessions which have run successfully. */
+	private int successes = 0;
+
+	/**
+	 * The number of threads used to run the sessions, or 0 to use virtual threads
+	 * where available.
+	 */
+	private final int threads;
+
+	/** The timings of each session run. */
+	private final List<Map<String, Timing>> timings = Collections
+			.synchronizedList(new ArrayList<Map<String, Timing>>());
+
+	/**
+	 * Constructor.
+	 *
+	 * @param protocolClass
+	 *            The protocol state machine class to run.
+	 * @param parameters
+	 *            The protocol parameters.
+	 * @param threads
+	 *            The number of threads used to run the sessions, or 0 to use
+	 *            virtual threads on JDK 21+ and one thread per processor
+	 *            otherwise.
+	 * @param encoding
+	 *            The encoding each session uses to send data.
+	 * @param framing
+	 *            The framing each session uses to hash proof transcripts.
+	 * @param pointCompression
+	 *            Flag to indicate that each session exchanges curve points in
+	 *            compressed form.
+	 */
+	public SessionManager(Class<?> protocolClass, List<String> parameters, int threads, Data.Encoding encoding,
+			TranscriptHasher.Framing framing, boolean pointCompression) {
+		super();
+
+		this.protocolClass = protocolClass;
+		this.parameters = parameters;
+		this.threads = threads;
+		this.encoding = encoding;
+		this.framing = framing;
+		this.pointCompression = pointCompression;
+	}
+
+	/**
+	 * @return The elapsed time of all runs, in seconds.
+	 */
+	public double getElapsedSeconds() {
+		return this.elapsed / NANOS_PER_SECOND;
+	}
+
+	/**
+	 * @return The number of sessions which have run successfully.
+	 */
+	public int getSuccesses() {
+		return this.successes;
+	}
+
+	/**
+	 * @return The number of successful sessions, each of which issues a ticket,
+	 *         per second over all runs.
+	 */
+	public double getThroughput() {
+		return (this.elapsed == 0L) ? 0.0 : this.successes / this.getElapsedSeconds();
+	}
+
+	/**
+	 * @return The timings of each session run (unmodifiable).
+	 */
+	public List<Map<String, Timing>> getTimings() {
+		synchronized (this.timings) {
+			return Collections.unmodifiableList(new ArrayList<>(this.timings));
+		}
+	}
+
+	/**
+	 * Runs a number of sessions concurrently, waiting for them all to complete.
+	 *
+	 * @param sessions
+	 *            The number of sessions to run.
+	 * @return The number of sessions which ran successfully.
+	 */
+	public int run(int sessions) {
+		final ExecutorService executor = this.createExecutor(sessions);
+		final List<Future<Boolean>> results = new ArrayList<>();
+		int succeeded = 0;
+
+		final long start = System.nanoTime();
+
+		try {
+			for (int i = 0; i < sessions; i++) {
+				results.add(executor.submit(this.createSession(i)));
+			}
+
+			for (int i = 0; i < sessions; i++) {
+				try {
+					if (results.get(i).get()) {
+						succeeded++;
+					} else {
+						LOG.error("session {} failed", i);
+					}
+				} catch (final ExecutionException e) {
+					LOG.error("session {} failed", i, e.getCause());
+				}
+			}
+		} catch (final InterruptedException e) {
+			LOG.error("interrupted waiting for sessions", e);
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final long duration = System.nanoTime() - start;
+		this.elapsed += duration;
+		this.successes += succeeded;
+
+		LOG.info("{} of {} sessions succeeded in {} s: {} tickets/s", succeeded, sessions,
+				String.format("%.3f", duration / NANOS_PER_SECOND),
+				String.format("%.3f", succeeded / (duration / NANOS_PER_SECOND)));
+
+		return succeeded;
+	}
+
+	/**
+	 * Creates the executor used to run the sessions.
+	 *
+	 * @param sessions
+	 *            The number of sessions to run.
+	 * @return The executor.
+	 */
+	private ExecutorService createExecutor(int sessions) {
+		if (this.threads > 0) {
+			return Executors.newFixedThreadPool(this.threads);
+		}
+
+		// Virtual threads are only available from JDK 21, so look them up rather than
+		// linking to them directly.
+		try {
+			final ExecutorService executor = (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+			LOG.debug("running sessions on virtual threads");
+			return executor;
+		} catch (final NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+			final int poolSize = Math.min(sessions, Runtime.getRuntime().availableProcessors());
+			LOG.debug("virtual threads not available - running sessions on {} threads", poolSize);
+			return Executors.newFixedThreadPool(Math.max(poolSize, 1));
+		}
+	}
+
+	/**
+	 * Creates a single independent session.
+	 *
+	 * @param session
+	 *            The session number, used for logging.
+	 * @return The task which runs the session.
+	 */
+	private Callable<Boolean> createSession(final int session) {
+		return new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+				final StateMachine<?> protocol = (StateMachine<?>) SessionManager.this.protocolClass.newInstance();
+				protocol.setParameters(SessionManager.this.parameters);
+				final CryptoContext cryptoContext = new CryptoContext(SessionManager.this.encoding,
+						SessionManager.this.framing);
+				cryptoContext.setPointCompression(SessionManager.this.pointCompression);
+				protocol.setCryptoContext(cryptoContext);
+
+				if (protocol instanceof ICCStateMachine) {
+					((ICCStateMachine) protocol).setICC(new ICC());
+				}
+
+				LOG.debug("starting session {}", session);
+				final boolean result = protocol.run();
+				SessionManager.this.timings.add(protocol.getTimings());
+
+				return result;
+			}
+		};
+	}
+}
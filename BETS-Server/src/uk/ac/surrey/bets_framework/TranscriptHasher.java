@@ -0,0 +1,160 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unisa.dia.gas.jpbc.Element;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
+import uk.ac.surrey.bets_framework.protocol.data.ListData;
+
+/**
+ * Hashes a transcript of elements and byte arrays, such as the inputs to a Fiat-Shamir challenge, one item at a time. Both
+ * parties to a proof must hash their transcripts using the same framing, so it is agreed during setup and held by the session's
+ * {@link CryptoContext}:
+ *
+ * LENGTH_PREFIXED absorbs each item straight into the digest as a varint length followed by its bytes, so nothing is buffered.
+ * LIST_DATA hashes the canonical encoding of a {@link ListData} holding the items, which is what older clients compute.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TranscriptHasher {
+
+  /**
+   * The ways in which a transcript can be framed before it is hashed.
+   */
+  public enum Framing {
+    /** The encoding of a ListData holding the items, as understood by older clients. */
+    LIST_DATA,
+    /** Each item as a varint length followed by its bytes. */
+    LENGTH_PREFIXED
+  }
+
+  /** Logback logger. */
+  private static final Logger       LOG = LoggerFactory.getLogger(TranscriptHasher.class);
+
+  /** The digest which items are absorbed into when length prefixed, or null. */
+  private final MessageDigest       digest;
+
+  /** The hash parameters. */
+  private final String              hashParameters;
+
+  /** The items to hash as ListData, or null if length prefixed. */
+  private final List<byte[]>        items;
+
+  /** Writes length prefixed items into the digest, or null. */
+  private final BinaryWriter        writer;
+
+  /**
+   * Constructor which uses the default hash parameters.
+   */
+  public TranscriptHasher() {
+    this(Crypto.getInstance().getHashParameters());
+  }
+
+  /**
+   * Constructor which uses the framing agreed for the current session.
+   *
+   * @param hashParameters The name of the hash algorithm to use.
+   */
+  public TranscriptHasher(String hashParameters) {
+    super();
+
+    this.hashParameters = hashParameters;
+
+    if (Crypto.getInstance().getContext().getFraming() == Framing.LENGTH_PREFIXED) {
+      MessageDigest newDigest = null;
+
+      try {
+        newDigest = Crypto.getInstance().newDigest(hashParameters);
+      }
+      catch (NoSuchAlgorithmException | NoSuchProviderException e) {
+        LOG.error("could not create digest", e);
+      }
+
+      this.digest = newDigest;
+      this.items = null;
+      this.writer = (newDigest == null) ? null : new BinaryWriter(newDigest);
+    }
+    else {
+      this.digest = null;
+      this.items = new ArrayList<>();
+      this.writer = null;
+    }
+  }
+
+  /**
+   * Adds an integer to the transcript as its two's complement bytes.
+   *
+   * @param number The integer to add.
+   * @return This transcript.
+   */
+  public TranscriptHasher add(BigInteger number) {
+    return this.add(number.toByteArray());
+  }
+
+  /**
+   * Adds a byte array to the transcript.
+   *
+   * @param bytes The bytes to add.
+   * @return This transcript.
+   */
+  public TranscriptHasher add(byte[] bytes) {
+    if (this.items != null) {
+      this.items.add(bytes);
+    }
+    else if (this.writer != null) {
+      this.writer.writeBytes(bytes);
+    }
+
+    return this;
+  }
+
+  /**
+   * Adds an element to the transcript as its bytes.
+   *
+   * @param element The element to add.
+   * @return This transcript.
+   */
+  public TranscriptHasher add(Element element) {
+    return this.add(element.toBytes());
+  }
+
+  /**
+   * Adds a number of byte arrays to the transcript.
+   *
+   * @param list The bytes to add.
+   * @return This transcript.
+   */
+  public TranscriptHasher addAll(List<byte[]> list) {
+    for (final byte[] bytes : list) {
+      this.add(bytes);
+    }
+
+    return this;
+  }
+
+  /**
+   * Completes the transcript and returns its hash. The transcript cannot be used afterwards.
+   *
+   * @return The hash, or null on error.
+   */
+  public byte[] digest() {
+    if (this.items != null) {
+      return Crypto.getInstance().getHash(new ListData(this.items), this.hashParameters);
+    }
+
+    return (this.digest == null) ? null : this.digest.digest();
+  }
+}
@@ -3,8 +3,9 @@ package uk.ac.surrey.bets_framework.icc;
 import java.util.Arrays;
 
 /**
- * Abstracts communication with an Internal Communication Channel as a
- * singleton.
+ * Abstracts communication with an Internal Communication Channel. A shared
+ * singleton channel is available, but each concurrent session must create its
+ * own channel since the channel holds the last data put.
  * 
  * @author Steve Wesemeyer
  */
@@ -34,16 +35,16 @@ public class ICC {
 	private boolean isOpen = false;
 
 	/**
-	 * Default constructor.
+	 * Default constructor, which creates a new independent channel.
 	 */
-	private ICC() {
+	public ICC() {
 		super();
 	}
 
 	/**
 	 * @return The singleton instance.
 	 */
-	public static ICC getInstance() {
+	public static synchronized ICC getInstance() {
 		// Lazy creation.
 		if (instance == null) {
 			instance = new ICC();
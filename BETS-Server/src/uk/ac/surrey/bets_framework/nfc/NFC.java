@@ -5,6 +5,8 @@
  */
 package uk.ac.surrey.bets_framework.nfc;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 import javax.smartcardio.Card;
@@ -22,6 +24,7 @@ import it.unisa.dia.gas.plaf.jpbc.util.Arrays;
 import jnasmartcardio.Smartcardio;
 import uk.ac.surrey.bets_framework.Utils;
 import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 
 /**
  * Abstracts communication with the NFC card as a singleton. This class was built using the following specification and examples:
@@ -91,6 +94,9 @@ public class NFC {
   /** Response OK code as an integer. */
   private static final int    RESPONSE_OK_INT                       = 0x9000;
 
+  /** Response code returned when an APDU has the wrong length, such as an extended length APDU which is not supported. */
+  private static final int    RESPONSE_WRONG_LENGTH_INT             = 0x6700;
+
   /** The protocol to using when communicating with the terminal. */
   private static final String TERMINAL_PROTOCOL                     = "T=1";
 
@@ -121,12 +127,21 @@ public class NFC {
   /** The currently open channel to the card, if any. */
   private CardChannel channel      = null;
 
+  /** The chunks received so far by a get, which is reused between gets. */
+  private ByteBuffer  chunked      = ByteBuffer.allocate(NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE);
+
+  /** The maximum size of an APDU chunk, which is kept between connections once negotiated with the client. */
+  private int         chunkSize    = NFCSharedMemory.APDU_CHUNK_SIZE;
+
   /** The last set of data retrieved from a get command, if any. */
   private byte[]      data         = null;
 
   /** The last response code received (typically evaluated as two bytes). */
   private int         responseCode = 0;
 
+  /** The simulated phone to connect to instead of a card on the reader, if any. */
+  private Card        simulator    = null;
+
   /**
    * Default constructor.
    */
@@ -135,28 +150,21 @@ public class NFC {
   }
 
   /**
-   * Adds the current chunk to the previously chunked buffer.
+   * Adds the current chunk to the end of the chunks received so far. The buffer is grown by doubling its capacity, so each byte
+   * is copied a constant number of times however many chunks are received.
    *
-   * @param previous The previous buffer, if any.
    * @param current The chunk to add.
-   * @return The complete set of chunks.
    */
-  private byte[] addToChunked(byte[] previous, byte[] current) {
-    byte[] chunked = null;
-    int start = 0;
-
-    if (previous == null) {
-      chunked = new byte[current.length];
-    }
-    else {
-      chunked = new byte[previous.length + current.length];
-      System.arraycopy(previous, 0, chunked, 0, previous.length);
-      start = previous.length;
+  private void addToChunked(byte[] current) {
+    if (this.chunked.remaining() < current.length) {
+      final int capacity = Math.max(this.chunked.capacity() * 2, this.chunked.position() + current.length);
+      final ByteBuffer grown = ByteBuffer.allocate(capacity);
+      ((Buffer) this.chunked).flip();
+      grown.put(this.chunked);
+      this.chunked = grown;
     }
 
-    System.arraycopy(current, 0, chunked, start, current.length);
-
-    return chunked;
+    this.chunked.put(current);
   }
 
   /**
@@ -183,6 +191,25 @@ public class NFC {
     return true;
   }
 
+  /**
+   * Falls back to short APDUs if an extended length APDU was rejected by the reader or the client. The chunk size is reduced so
+   * that the failed command can be sent again.
+   *
+   * @param length The length of the data sent or requested by the failed command.
+   * @return True if the chunk size was reduced and the command should be sent again.
+   */
+  private boolean fallBackToShortLength(int length) {
+    boolean result = false;
+
+    if ((length > NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE) && (this.responseCode == RESPONSE_WRONG_LENGTH_INT)) {
+      LOG.warn("extended length APDUs not supported, falling back to chunks of {}", NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE);
+      this.chunkSize = Math.min(this.chunkSize, NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE);
+      result = true;
+    }
+
+    return result;
+  }
+
   /**
    * Forms a command APDU from the corresponding command and data bytes.
    *
@@ -194,6 +221,18 @@ public class NFC {
     return new CommandAPDU(command[0], command[1], command[2], command[3], data);
   }
 
+  /**
+   * Forms a command APDU from the corresponding command and the start of a data buffer.
+   *
+   * @param command The command bytes.
+   * @param data The data buffer.
+   * @param length The number of bytes to send from the start of the buffer.
+   * @return The command APDU.
+   */
+  private CommandAPDU formCommand(int[] command, byte[] data, int length) {
+    return new CommandAPDU(command[0], command[1], command[2], command[3], data, 0, length);
+  }
+
   /**
    * Forms a command APDU from the corresponding command and expected return data length.
    *
@@ -245,6 +284,18 @@ public class NFC {
    * @return True if the data was got, false otherwise. The data can be obtained via {@link #getData()}.
    */
   public boolean get(int length) {
+    return this.get(length, null);
+  }
+
+  /**
+   * Sends the get command to the card as {@link #get(int)}, but writes each chunk to a stream as soon as it arrives rather than
+   * concatenating them. The stream is closed once all of the data has been got, or fails otherwise.
+   *
+   * @param length The maximum data length required. Use USE_MAXIMUM_LENGTH to use the maximum available.
+   * @param stream The stream to write the data to, or null to concatenate the chunks for {@link #getData()}.
+   * @return True if the data was got, false otherwise.
+   */
+  public boolean get(int length, ListDataStream stream) {
     boolean result = false;
 
     try {
@@ -252,43 +303,82 @@ public class NFC {
         int requestLength = length;
 
         if (requestLength == USE_MAXIMUM_LENGTH) {
-          requestLength = NFCSharedMemory.APDU_CHUNK_SIZE;
+          requestLength = this.chunkSize;
         }
 
         LOG.trace("get length {}", requestLength);
         result = this.sendCommand(this.formCommand(COMMAND_GET_CLA_INS_P1_P2, requestLength));
         LOG.trace("get result {}", result);
 
+        // Retry with a short APDU if the extended length was rejected.
+        if (!result && this.fallBackToShortLength(requestLength)) {
+          requestLength = Math.min(requestLength, this.chunkSize);
+          result = this.sendCommand(this.formCommand(COMMAND_GET_CLA_INS_P1_P2, requestLength));
+          LOG.trace("get result {}", result);
+        }
+
         // Handle chunked data.
-        byte[] chunked = null;
+        boolean chunking = false;
+        ((Buffer) this.chunked).clear();
 
         while (result && (this.responseCode == RESPONSE_CONTINUE_INT) && (this.data != null)) {
-          // Save the data to the temporary buffer for appending.
-          chunked = this.addToChunked(chunked, this.data);
+          // Pass the data on to the stream, or save it to the buffer for appending.
+          if (stream != null) {
+            stream.write(this.data);
+          }
+          else {
+            this.addToChunked(this.data);
+          }
 
-          LOG.trace("get chunking another {}, total {}", this.data.length, chunked.length);
-          System.arraycopy(this.data, 0, chunked, chunked.length - this.data.length, this.data.length);
+          chunking = true;
+
+          LOG.trace("get chunking another {}, total {}", this.data.length,
+              (stream != null) ? stream.getLength() : this.chunked.position());
 
           // Send another get to obtain the rest of the chunks.
           LOG.trace("get length {}", requestLength);
           result = this.sendCommand(this.formCommand(COMMAND_GET_CLA_INS_P1_P2, requestLength));
           LOG.trace("get result {}", result);
+
+          if (!result && this.fallBackToShortLength(requestLength)) {
+            requestLength = Math.min(requestLength, this.chunkSize);
+            result = this.sendCommand(this.formCommand(COMMAND_GET_CLA_INS_P1_P2, requestLength));
+            LOG.trace("get result {}", result);
+          }
         }
 
         // If we chunked anything, add in the last bit of data and replace the output data buffer.
-        if (result && (this.responseCode == RESPONSE_OK_INT) && (chunked != null)) {
-          chunked = this.addToChunked(chunked, this.data);
-          this.data = chunked;
+        if (result && (this.responseCode == RESPONSE_OK_INT) && (stream != null)) {
+          stream.write(this.data);
+          stream.close();
+        }
+        else if (result && (this.responseCode == RESPONSE_OK_INT) && chunking) {
+          this.addToChunked(this.data);
+          this.data = new byte[this.chunked.position()];
+          System.arraycopy(this.chunked.array(), 0, this.data, 0, this.data.length);
         }
       }
     }
     catch (final Exception e) {
       LOG.error("could not get data", e);
     }
+    finally {
+      // Anything waiting on a stream which was not closed needs to know that no more data is coming.
+      if (stream != null) {
+        stream.fail("could not get data (response " + Integer.toHexString(this.responseCode) + ")");
+      }
+    }
 
     return result;
   }
 
+  /**
+   * @return The maximum size of an APDU chunk.
+   */
+  public int getChunkSize() {
+    return this.chunkSize;
+  }
+
   /**
    * @return The last set of data retrieved from a get command, if any.
    */
@@ -313,6 +403,7 @@ public class NFC {
   /**
    * Opens communication with the NFC terminal, waits for a card to be present and connects to it before returning. Setup of the
    * terminal is also included.
+   * If a simulated phone has been set, it is connected to instead.
    *
    * @return True if communication was opened, false on exception.
    */
@@ -324,24 +415,33 @@ public class NFC {
 
     // Connect and wait for a card.
     try {
-      // Get the available terminals and connect to the first.
-      final TerminalFactory factory = TerminalFactory.getInstance(TERMINAL_TYPE, null, new Smartcardio());
-      final List<CardTerminal> terminals = factory.terminals().list();
-
-      if (!terminals.isEmpty()) {
-        final CardTerminal terminal = terminals.get(0);
-        LOG.trace("connected to terminal {}", terminal);
-
-        // Wait for a card to be present.
-        terminal.waitForCardPresent(0);
-
-        // Connect to the card and setup the terminal.
-        if (terminal.isCardPresent()) {
-          this.card = terminal.connect(TERMINAL_PROTOCOL);
-          this.channel = this.card.getBasicChannel();
-          result = (this.card != null) && (this.channel != null) && this.setBuzzer(this.card, false)
-              && this.setTimeout(this.card, TIMEOUT_OFF);
-          LOG.trace("connected to card {} ({}, {})", this.card, this.card.getProtocol(), result);
+      if (this.simulator != null) {
+        // The simulated phone is always present, and there is no reader to set up.
+        this.card = this.simulator;
+        this.channel = this.card.getBasicChannel();
+        result = true;
+        LOG.trace("connected to simulated card {}", this.card);
+      }
+      else {
+        // Get the available terminals and connect to the first.
+        final TerminalFactory factory = TerminalFactory.getInstance(TERMINAL_TYPE, null, new Smartcardio());
+        final List<CardTerminal> terminals = factory.terminals().list();
+
+        if (!terminals.isEmpty()) {
+          final CardTerminal terminal = terminals.get(0);
+          LOG.trace("connected to terminal {}", terminal);
+
+          // Wait for a card to be present.
+          terminal.waitForCardPresent(0);
+
+          // Connect to the card and setup the terminal.
+          if (terminal.isCardPresent()) {
+            this.card = terminal.connect(TERMINAL_PROTOCOL);
+            this.channel = this.card.getBasicChannel();
+            result = (this.card != null) && (this.channel != null) && this.setBuzzer(this.card, false)
+                && this.setTimeout(this.card, TIMEOUT_OFF);
+            LOG.trace("connected to card {} ({}, {})", this.card, this.card.getProtocol(), result);
+          }
         }
       }
     }
@@ -368,33 +468,104 @@ public class NFC {
 
     try {
       if (this.channel != null) {
-        // Chunk the data up, if needed.
+        // Chunk the data up, if needed, reusing the same buffer for each chunk as the chunk size can only shrink.
+        final byte[] buffer = new byte[Math.min(data.length, this.chunkSize - RESPONSE_OK.length) + RESPONSE_OK.length];
         boolean finished = false;
         int chunkIndex = 0;
 
         while (!finished && (chunkIndex < data.length)) {
-          final int chunkLength = Math.min(data.length - chunkIndex, NFCSharedMemory.APDU_CHUNK_SIZE - RESPONSE_OK.length);
+          final int chunkLength = Math.min(data.length - chunkIndex, this.chunkSize - RESPONSE_OK.length);
+          final int bufferLength = chunkLength + RESPONSE_OK.length;
+          final boolean last = (chunkIndex + chunkLength) >= data.length;
 
           // Form the data to send.
-          final byte[] buffer = new byte[chunkLength + RESPONSE_OK.length];
           System.arraycopy(data, chunkIndex, buffer, 0, chunkLength);
-          chunkIndex += chunkLength;
 
-          if (chunkIndex >= data.length) {
+          if (last) {
             buffer[chunkLength] = (byte) RESPONSE_OK[0];
             buffer[chunkLength + 1] = (byte) RESPONSE_OK[1];
+          }
+          else {
+            buffer[chunkLength] = (byte) RESPONSE_CONTINUE[0];
+            buffer[chunkLength + 1] = (byte) RESPONSE_CONTINUE[1];
+          }
+
+          LOG.trace("put length {}", bufferLength);
+          result = this.sendPutCommand(this.formCommand(COMMAND_PUT_CLA_INS_P1_P2, buffer, bufferLength));
+          LOG.trace("put result {}", result);
+
+          // Move on to the next chunk, or send the same data again in short chunks if extended length APDUs are not supported.
+          if (result) {
+            chunkIndex += chunkLength;
+            finished = last;
+          }
+          else if (!this.fallBackToShortLength(bufferLength)) {
             finished = true;
           }
+        }
+      }
+    }
+    catch (final Exception e) {
+      LOG.error("could not put data", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Sends the put command to the card with the data read from a stream, sending each chunk as soon as enough of the stream is
+   * available to fill it. This allows the first chunks to be transmitted while the rest of the stream is still being produced.
+   * The stream fails if the data could not be put.
+   *
+   * @param stream The stream to send.
+   * @return True if the data was put, false otherwise.
+   */
+  public boolean put(ListDataStream stream) {
+    boolean result = false;
+
+    try {
+      if (this.channel != null) {
+        // Data read from the stream but not yet sent, which may be more than a chunk if the chunk size falls back.
+        final byte[] pending = new byte[this.chunkSize];
+        final byte[] buffer = new byte[this.chunkSize];
+        int pendingLength = 0;
+        boolean finished = false;
+
+        while (!finished) {
+          final int maxChunkLength = this.chunkSize - RESPONSE_OK.length;
+
+          // Wait until there is a full chunk to send, or the stream has ended.
+          if (pendingLength < maxChunkLength) {
+            pendingLength += stream.read(pending, pendingLength, maxChunkLength - pendingLength);
+          }
+
+          final int chunkLength = Math.min(pendingLength, maxChunkLength);
+          final int bufferLength = chunkLength + RESPONSE_OK.length;
+          final boolean last = (chunkLength == pendingLength) && !stream.hasMore();
+
+          // Form the data to send.
+          System.arraycopy(pending, 0, buffer, 0, chunkLength);
+
+          if (last) {
+            buffer[chunkLength] = (byte) RESPONSE_OK[0];
+            buffer[chunkLength + 1] = (byte) RESPONSE_OK[1];
+          }
           else {
             buffer[chunkLength] = (byte) RESPONSE_CONTINUE[0];
             buffer[chunkLength + 1] = (byte) RESPONSE_CONTINUE[1];
           }
 
-          LOG.trace("put length {} data {}", buffer.length, Utils.toHex(buffer));
-          result = this.sendCommand(this.formCommand(COMMAND_PUT_CLA_INS_P1_P2, buffer));
+          LOG.trace("put stream length {}", bufferLength);
+          result = this.sendPutCommand(this.formCommand(COMMAND_PUT_CLA_INS_P1_P2, buffer, bufferLength));
           LOG.trace("put result {}", result);
 
-          if (!result) {
+          // Move on to the next chunk, or send the same data again in short chunks if extended length APDUs are not supported.
+          if (result) {
+            pendingLength -= chunkLength;
+            System.arraycopy(pending, chunkLength, pending, 0, pendingLength);
+            finished = last;
+          }
+          else if (!this.fallBackToShortLength(bufferLength)) {
             finished = true;
           }
         }
@@ -402,6 +573,12 @@ public class NFC {
     }
     catch (final Exception e) {
       LOG.error("could not put data", e);
+      result = false;
+    }
+
+    // Stop the producer of a stream which could not be sent.
+    if (!result) {
+      stream.fail("could not put data (response " + Integer.toHexString(this.responseCode) + ")");
     }
 
     return result;
@@ -459,9 +636,16 @@ public class NFC {
 
     if (this.channel != null) {
       this.data = null;
-      LOG.trace("transmitting {}: {}", apdu, Utils.toHex(apdu.getBytes()));
+      // Only convert to hex when tracing, as the APDUs may be large.
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("transmitting {}: {}", apdu, Utils.toHex(apdu.getBytes()));
+      }
+
       final ResponseAPDU response = this.channel.transmit(apdu);
-      LOG.trace("response {}", Utils.toHex(response.getBytes()));
+
+      if (LOG.isTraceEnabled()) {
+        LOG.trace("response {}", Utils.toHex(response.getBytes()));
+      }
       result = ((response.getSW1() == RESPONSE_OK[0]) && (response.getSW2() == RESPONSE_OK[1]))
           || ((response.getSW1() == RESPONSE_CONTINUE[0]) && (response.getSW2() == RESPONSE_CONTINUE[1]));
       this.responseCode = response.getSW();
@@ -500,6 +684,32 @@ public class NFC {
     return result;
   }
 
+  /**
+   * Sends a put command to the card. As the client cannot have acted on a put which the reader failed to transmit, a failure to
+   * transmit an extended length put is reported as a wrong length response so that it can be sent again in short chunks.
+   *
+   * @param apdu The command to send.
+   * @return True if the command was sent and executed correctly.
+   * @throws CardException
+   *           if there was an error executing a short command.
+   * @throws IllegalArgumentException
+   *           if the response is incorrect.
+   */
+  private boolean sendPutCommand(CommandAPDU apdu) throws CardException, IllegalArgumentException {
+    try {
+      return this.sendCommand(apdu);
+    }
+    catch (final CardException e) {
+      if (apdu.getNc() <= NFCSharedMemory.MAX_SHORT_APDU_CHUNK_SIZE) {
+        throw e;
+      }
+
+      LOG.debug("could not transmit extended length put", e);
+      this.responseCode = RESPONSE_WRONG_LENGTH_INT;
+      return false;
+    }
+  }
+
   /**
    * Sets the NFC reader's buzzer on or off.
    *
@@ -521,6 +731,26 @@ public class NFC {
     return result;
   }
 
+  /**
+   * Sets the maximum size of an APDU chunk, as negotiated with the client. Sizes above the short APDU limit are sent as extended
+   * length APDUs.
+   *
+   * @param chunkSize The maximum size of a chunk, including the two byte response code added to each put.
+   */
+  public void setChunkSize(int chunkSize) {
+    this.chunkSize = Math.max(RESPONSE_OK.length + 1, Math.min(chunkSize, NFCSharedMemory.MAX_EXTENDED_APDU_CHUNK_SIZE));
+    LOG.debug("APDU chunk size {}", this.chunkSize);
+  }
+
+  /**
+   * Sets a simulated phone to connect to instead of waiting for a card on the reader.
+   *
+   * @param simulator The simulated phone, or null to use the reader.
+   */
+  public void setSimulator(Card simulator) {
+    this.simulator = simulator;
+  }
+
   /**
    * Sets the NFC reader's timeout.
    *
@@ -0,0 +1,362 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.nfc;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.smartcardio.ATR;
+import javax.smartcardio.Card;
+import javax.smartcardio.CardChannel;
+import javax.smartcardio.CardException;
+import javax.smartcardio.CommandAPDU;
+import javax.smartcardio.ResponseAPDU;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Simulates an Android phone held on the NFC reader, so that protocols can be run without a reader or phone. The app's APDU
+ * service is loaded from the simulated client jar, which holds the app's protocol code compiled for the desktop, and is sent
+ * the same APDUs as the phone would receive. As the app shares its package names with the server, the client is loaded in
+ * isolation from the server's own classes, much as it runs in a separate process on the phone.
+ *
+ * The NFC link can optionally be modelled by delaying each APDU exchange by a round trip time plus the time to transfer the
+ * command and response at a given bandwidth, so that the timings project how long a tap would take over a real link with
+ * different APDU chunk sizes.
+ *
+ * @author Steve Wesemeyer
+ */
+@SuppressWarnings("restriction")
+public class SimulatedCard extends Card {
+
+  /**
+   * Loads the client's classes in preference to the server's classes of the same name, leaving everything else, such as the
+   * cryptographic libraries, to be shared with the server.
+   */
+  private static class ClientClassLoader extends URLClassLoader {
+
+    /**
+     * Constructor.
+     *
+     * @param url The jar or directory holding the client's classes.
+     * @param parent The server's class loader.
+     */
+    ClientClassLoader(URL url, ClassLoader parent) {
+      super(new URL[] { url }, parent);
+    }
+
+    /**
+     * Loads a class, looking in the client before the server.
+     *
+     * @param name The name of the class.
+     * @param resolve Resolve the class?
+     * @return The class.
+     * @throws ClassNotFoundException if the class cannot be found.
+     */
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      synchronized (this.getClassLoadingLock(name)) {
+        Class<?> clazz = this.findLoadedClass(name);
+
+        if (clazz == null) {
+          try {
+            clazz = this.findClass(name);
+          }
+          catch (final ClassNotFoundException e) {
+            clazz = super.loadClass(name, false);
+          }
+        }
+
+        if (resolve) {
+          this.resolveClass(clazz);
+        }
+
+        return clazz;
+      }
+    }
+  }
+
+  /**
+   * The single basic channel to the simulated card.
+   */
+  private class SimulatedChannel extends CardChannel {
+
+    /**
+     * Does nothing, as the basic channel cannot be closed.
+     */
+    @Override
+    public void close() {
+      // Do nothing.
+    }
+
+    /**
+     * @return The card.
+     */
+    @Override
+    public Card getCard() {
+      return SimulatedCard.this;
+    }
+
+    /**
+     * @return The basic channel number.
+     */
+    @Override
+    public int getChannelNumber() {
+      return 0;
+    }
+
+    /**
+     * Sends a command APDU to the client and waits for its response.
+     *
+     * @param command The command buffer.
+     * @param response The buffer to receive the response.
+     * @return The length of the response.
+     * @throws CardException if the client failed.
+     */
+    @Override
+    public int transmit(ByteBuffer command, ByteBuffer response) throws CardException {
+      final byte[] bytes = this.transmit(new CommandAPDU(command)).getBytes();
+      response.put(bytes);
+
+      return bytes.length;
+    }
+
+    /**
+     * Sends a command APDU to the client and waits for its response.
+     *
+     * @param command The command APDU.
+     * @return The response APDU.
+     * @throws CardException if the client failed.
+     */
+    @Override
+    public ResponseAPDU transmit(CommandAPDU command) throws CardException {
+      return new ResponseAPDU(SimulatedCard.this.exchange(command.getBytes()));
+    }
+  }
+
+  /** The answer to reset of a phone emulating a contactless card, as reported by the ACR122. */
+  private static final byte[] ATR_BYTES               = new byte[] { 0x3B, (byte) 0x80, (byte) 0x80, 0x01, 0x01 };
+
+  /** The reason given to the client when the card is disconnected. */
+  private static final int    DEACTIVATION_LINK_LOSS  = 0;
+
+  /** Logback logger. */
+  private static final Logger LOG                     = LoggerFactory.getLogger(SimulatedCard.class);
+
+  /** The protocol reported by the card. */
+  private static final String PROTOCOL                = "T=1";
+
+  /** The name of the class of the client's APDU service. */
+  private static final String SERVICE_CLASS           = "uk.ac.surrey.bets_framework.APDUService";
+
+  /** The name of the class of the extras passed to the client's APDU service. */
+  private static final String SERVICE_EXTRAS_CLASS    = "android.os.Bundle";
+
+  /** The number of nanoseconds each byte takes to transfer, or 0 if the bandwidth is unlimited. */
+  private final double        byteNanos;
+
+  /** The channel to the card. */
+  private final CardChannel   channel                 = new SimulatedChannel();
+
+  /** The time taken by the client to process the APDUs since the last disconnect, in nanoseconds. */
+  private long                clientNanos             = 0;
+
+  /** The number of APDUs exchanged since the last disconnect. */
+  private long                exchanged               = 0;
+
+  /** The time the NFC link model has added since the last disconnect, in nanoseconds. */
+  private long                linkNanos               = 0;
+
+  /** The method called when the card is disconnected. */
+  private final Method        onDeactivated;
+
+  /** The method called with each command APDU. */
+  private final Method        processCommandApdu;
+
+  /** The round trip time added to each APDU exchange, in nanoseconds. */
+  private final long          rttNanos;
+
+  /** The client's APDU service. */
+  private final Object        service;
+
+  /** The number of bytes exchanged since the last disconnect. */
+  private long                transferred             = 0;
+
+  /**
+   * Constructor which loads and starts the client.
+   *
+   * @param client The simulated client jar or directory.
+   * @param rtt The round trip time added to each APDU exchange in milliseconds, or 0 for none.
+   * @param bandwidth The bandwidth of the NFC link in bytes per millisecond, or 0 for unlimited.
+   * @throws IOException if the client cannot be found.
+   * @throws ReflectiveOperationException if the client's APDU service cannot be started.
+   */
+  public SimulatedCard(String client, double rtt, double bandwidth) throws IOException, ReflectiveOperationException {
+    super();
+
+    final File file = new File(client);
+
+    if (!file.exists()) {
+      throw new IOException("simulated client " + client + " not found");
+    }
+
+    // The client is never unloaded, as the phone keeps the app running between taps.
+    @SuppressWarnings("resource")
+    final ClassLoader classLoader = new ClientClassLoader(file.toURI().toURL(), SimulatedCard.class.getClassLoader());
+    final Class<?> serviceClass = classLoader.loadClass(SERVICE_CLASS);
+
+    this.service = serviceClass.newInstance();
+    this.processCommandApdu = serviceClass.getMethod("processCommandApdu", byte[].class,
+        classLoader.loadClass(SERVICE_EXTRAS_CLASS));
+    this.onDeactivated = serviceClass.getMethod("onDeactivated", int.class);
+    serviceClass.getMethod("onCreate").invoke(this.service);
+
+    this.rttNanos = (long) (rtt * TimeUnit.MILLISECONDS.toNanos(1));
+    this.byteNanos = (bandwidth > 0) ? TimeUnit.MILLISECONDS.toNanos(1) / bandwidth : 0;
+    LOG.info("simulated client {} with round trip time {} ms and bandwidth {}", client, rtt,
+        (bandwidth > 0) ? bandwidth + " bytes/ms" : "unlimited");
+  }
+
+  /**
+   * Does nothing, as the card is only used by one thread.
+   */
+  @Override
+  public void beginExclusive() {
+    // Do nothing.
+  }
+
+  /**
+   * Tells the client that the link has been lost, as when the phone is removed from the reader, and logs how long the tap
+   * spent in the client and on the link.
+   *
+   * @param reset Ignored.
+   * @throws CardException if the client failed.
+   */
+  @Override
+  public void disconnect(boolean reset) throws CardException {
+    this.invoke(this.onDeactivated, DEACTIVATION_LINK_LOSS);
+
+    LOG.debug("simulated tap: {} APDUs, {} bytes, client {} ms, link {} ms", this.exchanged, this.transferred,
+        TimeUnit.NANOSECONDS.toMillis(this.clientNanos), TimeUnit.NANOSECONDS.toMillis(this.linkNanos));
+    this.exchanged = 0;
+    this.transferred = 0;
+    this.clientNanos = 0;
+    this.linkNanos = 0;
+  }
+
+  /**
+   * Does nothing, as the card is only used by one thread.
+   */
+  @Override
+  public void endExclusive() {
+    // Do nothing.
+  }
+
+  /**
+   * Sends a command APDU to the client, then waits for as long as the exchange would take over the modelled NFC link.
+   *
+   * @param command The command APDU bytes.
+   * @return The response APDU bytes.
+   * @throws CardException if the client failed.
+   */
+  private byte[] exchange(byte[] command) throws CardException {
+    final long start = System.nanoTime();
+    final byte[] response = (byte[]) this.invoke(this.processCommandApdu, command, null);
+    final long end = System.nanoTime();
+    final long delay = this.rttNanos + (long) ((command.length + response.length) * this.byteNanos);
+
+    // Park until the link would have delivered the response, as parking may return early.
+    long remaining = delay;
+
+    while (remaining > 0) {
+      LockSupport.parkNanos(remaining);
+      remaining = (end + delay) - System.nanoTime();
+    }
+
+    this.exchanged++;
+    this.transferred += command.length + response.length;
+    this.clientNanos += end - start;
+    this.linkNanos += delay;
+
+    return response;
+  }
+
+  /**
+   * @return The answer to reset.
+   */
+  @Override
+  public ATR getATR() {
+    return new ATR(ATR_BYTES);
+  }
+
+  /**
+   * @return The basic channel to the card.
+   */
+  @Override
+  public CardChannel getBasicChannel() {
+    return this.channel;
+  }
+
+  /**
+   * @return The protocol used by the card.
+   */
+  @Override
+  public String getProtocol() {
+    return PROTOCOL;
+  }
+
+  /**
+   * Calls a method on the client's APDU service.
+   *
+   * @param method The method.
+   * @param args The arguments.
+   * @return The result of the method.
+   * @throws CardException if the client failed.
+   */
+  private Object invoke(Method method, Object... args) throws CardException {
+    try {
+      return method.invoke(this.service, args);
+    }
+    catch (final InvocationTargetException e) {
+      throw new CardException("simulated client failed", e.getCause());
+    }
+    catch (final IllegalAccessException e) {
+      throw new CardException("simulated client not accessible", e);
+    }
+  }
+
+  /**
+   * Logical channels are not supported.
+   *
+   * @return Never.
+   * @throws CardException always.
+   */
+  @Override
+  public CardChannel openLogicalChannel() throws CardException {
+    throw new CardException("logical channels not supported");
+  }
+
+  /**
+   * Reader control commands are not supported, as there is no reader to set up.
+   *
+   * @param controlCode The control code.
+   * @param command The command.
+   * @return Never.
+   * @throws CardException always.
+   */
+  @Override
+  public byte[] transmitControlCommand(int controlCode, byte[] command) throws CardException {
+    throw new CardException("control commands not supported");
+  }
+}
@@ -0,0 +1,707 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.surrey.bets_framework.protocol.data.BinaryReader;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
+import uk.ac.surrey.bets_framework.protocol.data.DataException;
+
+/**
+ * Records the credentials issued by a central authority to any number of users, issuers and verifiers, so that they can be
+ * found again by ID or by the public key of the holder.
+ *
+ * Each credential is appended to a log as a variable length record, which is memory-mapped from a file so that it survives
+ * restarts, or held in memory if there is no file. Two off-heap open addressing hash tables map the SHA-256 digests of the
+ * holder's ID and of their public key to the latest record for them, and are rebuilt from the log when the registry is opened.
+ * The most recently used credentials are also kept decoded on the heap so that repeated lookups do not touch the log.
+ *
+ * Credentials are registered on behalf of an authority, which is identified by its public key, so that the credentials issued
+ * under one set of authority keys are never returned for another.
+ *
+ * @author Steve Wesemeyer
+ */
+public class CredentialRegistry implements Closeable {
+
+  /**
+   * A registered credential. The fields are in the order in which they were registered and must not be modified.
+   */
+  public static class Credential {
+
+    /** The fields of the credential. */
+    private final List<byte[]> fields;
+
+    /** The ID of the holder. */
+    private final String       id;
+
+    /** The role of the holder. */
+    private final Role         role;
+
+    /**
+     * Constructor.
+     *
+     * @param role The role of the holder.
+     * @param id The ID of the holder.
+     * @param fields The fields of the credential.
+     */
+    private Credential(Role role, String id, List<byte[]> fields) {
+      super();
+
+      this.role = role;
+      this.id = id;
+      this.fields = Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * @return The fields of the credential.
+     */
+    public List<byte[]> getFields() {
+      return this.fields;
+    }
+
+    /**
+     * @return The ID of the holder.
+     */
+    public String getId() {
+      return this.id;
+    }
+
+    /**
+     * @return The role of the holder.
+     */
+    public Role getRole() {
+      return this.role;
+    }
+  }
+
+  /**
+   * The roles for which credentials are registered. The ordinal is stored in the log, so new roles must be added at the end.
+   */
+  public enum Role {
+    /** A user. */
+    USER,
+    /** A ticket issuer. */
+    ISSUER,
+    /** A ticket verifier. */
+    VERIFIER,
+    /** A central verifier. */
+    CENTRAL_VERIFIER
+  }
+
+  /** The default number of credentials kept decoded on the heap. */
+  public static final int     DEFAULT_CACHE_SIZE  = 65536;
+
+  /** The digest algorithm used for IDs and public keys. */
+  private static final String DIGEST_ALGORITHM    = "SHA-256";
+
+  /** The number of bytes in a digest. */
+  private static final int    DIGEST_BYTES        = 32;
+
+  /** The position of the end of the last record in the log header. */
+  private static final int    END_OFFSET          = 16;
+
+  /** Flag set on a record which is indexed by public key. */
+  private static final int    FLAG_FINGERPRINT    = 0x01;
+
+  /** The number of bytes in the log header: magic number, version, record count and end of the last record. */
+  private static final int    HEADER_BYTES        = 24;
+
+  /** The number of bytes in the log for which space is initially allocated. */
+  private static final int    INITIAL_CAPACITY    = 64 * 1024;
+
+  /** The number of hash table slots which are initially allocated. */
+  private static final int    INITIAL_SLOTS       = 1024;
+
+  /** The position of the ID digest in a record, after its length, role and flags. */
+  private static final int    KEY_OFFSET          = 6;
+
+  /** The position of the public key digest in a record, after its ID digest. */
+  private static final int    FINGERPRINT_OFFSET  = KEY_OFFSET + DIGEST_BYTES;
+
+  /** The position of the encoded ID and fields in a record, after its public key digest. */
+  private static final int    BODY_OFFSET         = FINGERPRINT_OFFSET + DIGEST_BYTES;
+
+  /** Logback logger. */
+  private static final Logger LOG                 = LoggerFactory.getLogger(CredentialRegistry.class);
+
+  /** The magic number at the start of the log. */
+  private static final int    MAGIC               = 0x42435231;
+
+  /** The position of the record count in the log header. */
+  private static final int    RECORD_COUNT_OFFSET = 8;
+
+  /** The version of the log format. */
+  private static final int    VERSION             = 1;
+
+  /** The most recently used credentials, keyed by ID digest. */
+  private final Map<ByteBuffer, Credential> cache;
+
+  /** The channel to the log file, or null if the log is held in memory. */
+  private final FileChannel   channel;
+
+  /** The digest used to hash IDs and public keys. */
+  private final MessageDigest digest;
+
+  /** The position of the end of the last record in the log. */
+  private int                 end                 = HEADER_BYTES;
+
+  /** The number of public keys in the public key table. */
+  private int                 fingerprints        = 0;
+
+  /** The public key table slots, each holding the position of the latest record for a public key, or 0 if empty. */
+  private ByteBuffer          fingerprintSlots;
+
+  /** The number of IDs in the ID table. */
+  private int                 keys                = 0;
+
+  /** The ID table slots, each holding the position of the latest record for an ID, or 0 if empty. */
+  private ByteBuffer          keySlots;
+
+  /** The log of records, preceded by the header. */
+  private ByteBuffer          log;
+
+  /** The number of records in the log. */
+  private int                 records             = 0;
+
+  /**
+   * Constructor which holds the log in memory, so that it lasts for the lifetime of the registry.
+   */
+  public CredentialRegistry() {
+    super();
+
+    this.cache = createCache(DEFAULT_CACHE_SIZE);
+    this.channel = null;
+    this.digest = createDigest();
+    this.log = ByteBuffer.allocateDirect(INITIAL_CAPACITY);
+    this.writeHeader();
+    this.rebuildIndex(INITIAL_SLOTS, INITIAL_SLOTS);
+  }
+
+  /**
+   * Constructor which opens the log file, creating it if needed, and indexes the credentials it contains.
+   *
+   * @param file The log file.
+   * @throws IOException if the log file could not be opened or is not a valid log.
+   */
+  public CredentialRegistry(Path file) throws IOException {
+    this(file, DEFAULT_CACHE_SIZE);
+  }
+
+  /**
+   * Constructor which opens the log file, creating it if needed, and indexes the credentials it contains.
+   *
+   * @param file The log file.
+   * @param cacheSize The number of credentials to keep decoded on the heap.
+   * @throws IOException if the log file could not be opened or is not a valid log.
+   */
+  public CredentialRegistry(Path file, int cacheSize) throws IOException {
+    super();
+
+    this.cache = createCache(cacheSize);
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.digest = createDigest();
+
+    try {
+      final long length = this.channel.size();
+
+      if (length == 0L) {
+        this.log = this.map(INITIAL_CAPACITY);
+        this.writeHeader();
+      }
+      else {
+        if ((length < HEADER_BYTES) || (length > Integer.MAX_VALUE)) {
+          throw new IOException("credential log has an invalid length: " + file);
+        }
+
+        this.log = this.channel.map(MapMode.READ_WRITE, 0L, length);
+
+        if ((this.log.getInt(0) != MAGIC) || (this.log.getInt(4) != VERSION)) {
+          throw new IOException("not a credential log: " + file);
+        }
+
+        this.records = (int) this.log.getLong(RECORD_COUNT_OFFSET);
+        this.end = (int) this.log.getLong(END_OFFSET);
+        if ((this.records < 0) || (this.end < HEADER_BYTES) || (this.end > length)) {
+          throw new IOException("credential log has an invalid header: " + file);
+        }
+
+        this.checkRecords(file);
+      }
+    }
+    catch (final IOException e) {
+      this.channel.close();
+      throw e;
+    }
+
+    final int slots = Math.max(INITIAL_SLOTS, this.records * 2);
+    this.rebuildIndex(slots, slots);
+    LOG.debug("loaded " + this.keys + " credentials from " + file);
+  }
+
+  /**
+   * Creates the cache of decoded credentials, which discards the least recently used credential once it is full.
+   *
+   * @param cacheSize The maximum number of credentials in the cache.
+   * @return The cache.
+   */
+  private static Map<ByteBuffer, Credential> createCache(final int cacheSize) {
+    return new LinkedHashMap<ByteBuffer, Credential>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Credential> eldest) {
+        return this.size() > cacheSize;
+      }
+    };
+  }
+
+  /**
+   * @return A new digest for IDs and public keys.
+   */
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("could not create " + DIGEST_ALGORITHM + " digest", e);
+    }
+  }
+
+  /**
+   * Appends a record to the log, growing it if needed.
+   *
+   * @param role The role of the holder.
+   * @param key The ID digest.
+   * @param fingerprint The public key digest, or null.
+   * @param body The encoded ID and fields.
+   * @return The position of the record.
+   * @throws IOException if the log file could not be grown.
+   */
+  private int append(Role role, byte[] key, byte[] fingerprint, byte[] body) throws IOException {
+    final int position = this.end;
+    final long length = (long) BODY_OFFSET + body.length;
+
+    while ((position + length) > this.log.capacity()) {
+      this.growLog();
+    }
+
+    final ByteBuffer buffer = this.log.duplicate();
+    ((Buffer) buffer).position(position);
+    buffer.putInt((int) length);
+    buffer.put((byte) role.ordinal());
+    buffer.put((byte) ((fingerprint == null) ? 0 : FLAG_FINGERPRINT));
+    buffer.put(key);
+    buffer.put((fingerprint == null) ? new byte[DIGEST_BYTES] : fingerprint);
+    buffer.put(body);
+
+    // Only count the record once it has been written, so a partial record is never read back.
+    this.records++;
+    this.end = position + (int) length;
+    this.log.putLong(RECORD_COUNT_OFFSET, this.records);
+    this.log.putLong(END_OFFSET, this.end);
+
+    return position;
+  }
+
+  /**
+   * Checks that the records in an opened log fit within it.
+   *
+   * @param file The log file.
+   * @throws IOException if a record is invalid.
+   */
+  private void checkRecords(Path file) throws IOException {
+    int position = HEADER_BYTES;
+
+    for (int record = 0; record < this.records; record++) {
+      final int length = (position + 4 <= this.end) ? this.log.getInt(position) : -1;
+
+      if ((length < BODY_OFFSET) || (length > (this.end - position))) {
+        throw new IOException("credential log has an invalid record " + record + ": " + file);
+      }
+
+      position += length;
+    }
+
+    if (position != this.end) {
+      throw new IOException("credential log has trailing data: " + file);
+    }
+  }
+
+  /**
+   * Flushes and closes the log.
+   *
+   * @throws IOException if the log file could not be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.channel != null) {
+      ((MappedByteBuffer) this.log).force();
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Reads a record from the log, using the cache if possible.
+   *
+   * @param position The position of the record.
+   * @return The credential.
+   */
+  private Credential decode(int position) {
+    final ByteBuffer key = ByteBuffer.wrap(this.read(position + KEY_OFFSET, DIGEST_BYTES));
+    Credential credential = this.cache.get(key);
+
+    if (credential == null) {
+      final int length = this.log.getInt(position);
+      final Role role = Role.values()[this.log.get(position + 4)];
+      final BinaryReader reader = new BinaryReader(this.read(position + BODY_OFFSET, length - BODY_OFFSET), 0);
+
+      try {
+        final String id = reader.readString();
+        final int count = reader.readLength();
+        final List<byte[]> fields = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+          fields.add(reader.readBytes());
+        }
+
+        credential = new Credential(role, id, fields);
+      }
+      catch (final DataException e) {
+        throw new IllegalStateException("corrupt credential record at " + position, e);
+      }
+
+      this.cache.put(key, credential);
+    }
+
+    return credential;
+  }
+
+  /**
+   * Finds the record for a digest in a hash table.
+   *
+   * @param slots The hash table.
+   * @param digest The digest.
+   * @param offset The position of the digest within a record.
+   * @return The position of the record, or 0 if the digest is not in the table.
+   */
+  private int find(ByteBuffer slots, byte[] digest, int offset) {
+    final int mask = (slots.capacity() / 4) - 1;
+    int slot = slotFor(digest, mask);
+    int entry;
+
+    while ((entry = slots.getInt(slot * 4)) != 0) {
+      if (this.matches(entry + offset, digest)) {
+        return entry;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Gets the credential registered for an ID.
+   *
+   * @param authority The public key of the authority which issued the credential.
+   * @param role The role of the holder.
+   * @param id The ID of the holder.
+   * @return The latest credential registered for the ID, or null if there is none.
+   */
+  public synchronized Credential get(byte[] authority, Role role, String id) {
+    final byte[] key = this.keyDigest(authority, role, id);
+    final Credential credential = this.cache.get(ByteBuffer.wrap(key));
+
+    if (credential != null) {
+      return credential;
+    }
+
+    final int position = this.find(this.keySlots, key, KEY_OFFSET);
+
+    return (position == 0) ? null : this.decode(position);
+  }
+
+  /**
+   * Gets the credential registered for a public key.
+   *
+   * @param authority The public key of the authority which issued the credential.
+   * @param publicKey The public key of the holder.
+   * @return The credential, or null if there is none or the holder has since registered a different public key.
+   */
+  public synchronized Credential getByPublicKey(byte[] authority, byte[] publicKey) {
+    final int position = this.find(this.fingerprintSlots, this.fingerprintDigest(authority, publicKey), FINGERPRINT_OFFSET);
+
+    if (position == 0) {
+      return null;
+    }
+
+    // Only the latest record for the holder's ID is current.
+    final byte[] key = this.read(position + KEY_OFFSET, DIGEST_BYTES);
+
+    return (this.find(this.keySlots, key, KEY_OFFSET) == position) ? this.decode(position) : null;
+  }
+
+  /**
+   * Digests an authority and a holder's public key.
+   *
+   * @param authority The public key of the authority.
+   * @param publicKey The public key of the holder.
+   * @return The digest.
+   */
+  private byte[] fingerprintDigest(byte[] authority, byte[] publicKey) {
+    final BinaryWriter writer = new BinaryWriter(this.digest);
+    writer.writeBytes(authority);
+    writer.writeBytes(publicKey);
+
+    return this.digest.digest();
+  }
+
+  /**
+   * Grows the log to twice its current capacity.
+   *
+   * @throws IOException if the log file could not be grown.
+   */
+  private void growLog() throws IOException {
+    final long capacity = this.log.capacity() * 2L;
+
+    if (capacity > Integer.MAX_VALUE) {
+      throw new IOException("credential log is full");
+    }
+
+    if (this.channel != null) {
+      ((MappedByteBuffer) this.log).force();
+      this.log = this.map((int) capacity);
+    }
+    else {
+      final ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity);
+      final ByteBuffer old = this.log.duplicate();
+      ((Buffer) old).clear();
+      grown.put(old);
+      this.log = grown;
+    }
+  }
+
+  /**
+   * Points a hash table at a record for a digest, replacing any older record for the same digest.
+   *
+   * @param slots The hash table.
+   * @param digest The digest.
+   * @param offset The position of the digest within a record.
+   * @param position The position of the record.
+   * @return True if the digest was not already in the table.
+   */
+  private boolean insert(ByteBuffer slots, byte[] digest, int offset, int position) {
+    final int mask = (slots.capacity() / 4) - 1;
+    int slot = slotFor(digest, mask);
+    int entry;
+
+    while ((entry = slots.getInt(slot * 4)) != 0) {
+      if (this.matches(entry + offset, digest)) {
+        slots.putInt(slot * 4, position);
+        return false;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    slots.putInt(slot * 4, position);
+
+    return true;
+  }
+
+  /**
+   * Adds a record to the hash tables.
+   *
+   * @param position The position of the record.
+   */
+  private void index(int position) {
+    if (this.insert(this.keySlots, this.read(position + KEY_OFFSET, DIGEST_BYTES), KEY_OFFSET, position)) {
+      this.keys++;
+    }
+
+    if (((this.log.get(position + 5) & FLAG_FINGERPRINT) != 0)
+        && this.insert(this.fingerprintSlots, this.read(position + FINGERPRINT_OFFSET, DIGEST_BYTES), FINGERPRINT_OFFSET,
+            position)) {
+      this.fingerprints++;
+    }
+  }
+
+  /**
+   * @return True if the log is held in a file rather than in memory.
+   */
+  public boolean isPersistent() {
+    return this.channel != null;
+  }
+
+  /**
+   * Digests an authority and a holder's role and ID.
+   *
+   * @param authority The public key of the authority.
+   * @param role The role of the holder.
+   * @param id The ID of the holder.
+   * @return The digest.
+   */
+  private byte[] keyDigest(byte[] authority, Role role, String id) {
+    final BinaryWriter writer = new BinaryWriter(this.digest);
+    writer.writeBytes(authority);
+    writer.writeByte(role.ordinal());
+    writer.writeString(id);
+
+    return this.digest.digest();
+  }
+
+  /**
+   * Maps the log file with the given capacity.
+   *
+   * @param capacity The number of bytes.
+   * @return The mapped log.
+   * @throws IOException if the log file could not be mapped.
+   */
+  private MappedByteBuffer map(int capacity) throws IOException {
+    return this.channel.map(MapMode.READ_WRITE, 0L, capacity);
+  }
+
+  /**
+   * Checks whether the log holds a digest at a position.
+   *
+   * @param position The position of the digest.
+   * @param digest The digest.
+   * @return True if the log holds the digest.
+   */
+  private boolean matches(int position, byte[] digest) {
+    for (int i = 0; i < DIGEST_BYTES; i++) {
+      if (this.log.get(position + i) != digest[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Registers a credential, replacing any earlier credential for the same ID.
+   *
+   * @param authority The public key of the authority which issued the credential.
+   * @param role The role of the holder.
+   * @param id The ID of the holder.
+   * @param publicKey The public key of the holder, or null if it has none.
+   * @param fields The fields of the credential.
+   * @return The registered credential.
+   * @throws IOException if the credential could not be recorded.
+   */
+  public synchronized Credential put(byte[] authority, Role role, String id, byte[] publicKey, List<byte[]> fields)
+      throws IOException {
+    final byte[] key = this.keyDigest(authority, role, id);
+    final byte[] fingerprint = (publicKey == null) ? null : this.fingerprintDigest(authority, publicKey);
+
+    final BinaryWriter writer = new BinaryWriter();
+    writer.writeString(id);
+    writer.writeVarLong(fields.size());
+    for (final byte[] field : fields) {
+      writer.writeBytes(field);
+    }
+
+    final int position = this.append(role, key, fingerprint, writer.toByteArray());
+
+    if ((((this.keys + 1) * 2) > (this.keySlots.capacity() / 4))
+        || (((this.fingerprints + 1) * 2) > (this.fingerprintSlots.capacity() / 4))) {
+      this.rebuildIndex(Math.max(this.keys + 1, this.records) * 4, (this.fingerprints + 1) * 4);
+    }
+    else {
+      this.index(position);
+    }
+
+    final Credential credential = new Credential(role, id, new ArrayList<>(fields));
+    this.cache.put(ByteBuffer.wrap(key), credential);
+
+    return credential;
+  }
+
+  /**
+   * Copies bytes out of the log.
+   *
+   * @param position The position of the first byte.
+   * @param length The number of bytes.
+   * @return The bytes.
+   */
+  private byte[] read(int position, int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer buffer = this.log.duplicate();
+    ((Buffer) buffer).position(position);
+    buffer.get(bytes);
+
+    return bytes;
+  }
+
+  /**
+   * Rebuilds the hash tables from the log.
+   *
+   * @param keySlotCount The minimum number of ID table slots.
+   * @param fingerprintSlotCount The minimum number of public key table slots.
+   */
+  private void rebuildIndex(int keySlotCount, int fingerprintSlotCount) {
+    this.keySlots = ByteBuffer.allocateDirect(Integer.highestOneBit(Math.max(INITIAL_SLOTS, keySlotCount) - 1) << 3);
+    this.fingerprintSlots = ByteBuffer
+        .allocateDirect(Integer.highestOneBit(Math.max(INITIAL_SLOTS, fingerprintSlotCount) - 1) << 3);
+    this.keys = 0;
+    this.fingerprints = 0;
+
+    int position = HEADER_BYTES;
+    for (int record = 0; record < this.records; record++) {
+      this.index(position);
+      position += this.log.getInt(position);
+    }
+  }
+
+  /**
+   * @return The number of IDs with a registered credential.
+   */
+  public synchronized int size() {
+    return this.keys;
+  }
+
+  /**
+   * Determines the first hash table slot to probe for a digest. The digest is uniformly distributed, so its leading bytes are
+   * used directly.
+   *
+   * @param digest The digest.
+   * @param mask The mask for the number of slots.
+   * @return The slot.
+   */
+  private static int slotFor(byte[] digest, int mask) {
+    return ByteBuffer.wrap(digest, 0, 4).getInt() & mask;
+  }
+
+  /**
+   * Writes the header to an empty log.
+   */
+  private void writeHeader() {
+    this.log.putInt(0, MAGIC);
+    this.log.putInt(4, VERSION);
+    this.log.putLong(RECORD_COUNT_OFFSET, 0L);
+    this.log.putLong(END_OFFSET, HEADER_BYTES);
+  }
+}
@@ -0,0 +1,414 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records every ticket serial seen by a validator, together with the transcript with which it was first seen, so that a
+ * ticket which is spent again can be detected regardless of how many other tickets have been seen in between.
+ *
+ * Serials and transcripts are stored as SHA-256 digests in an append-only log, which is memory-mapped from a file so that it
+ * survives restarts, or held in memory if there is no file. An off-heap open addressing hash table maps each serial to its
+ * record in the log, and a Bloom filter in front of the table answers the common case of a serial which has never been seen
+ * without probing the table. The table and filter are rebuilt from the log when the store is opened.
+ *
+ * @author Steve Wesemeyer
+ */
+public class DoubleSpendStore implements Closeable {
+
+  /** The number of bits in the Bloom filter per hash table slot. */
+  private static final int     BLOOM_BITS_PER_SLOT  = 16;
+
+  /** The number of Bloom filter bits set for each serial. */
+  private static final int     BLOOM_HASHES         = 4;
+
+  /** The digest algorithm used for serials and transcripts. */
+  private static final String  DIGEST_ALGORITHM     = "SHA-256";
+
+  /** The number of bytes in a digest. */
+  private static final int     DIGEST_BYTES         = 32;
+
+  /** The number of bytes in the log header: magic number, record size and record count. */
+  private static final int     HEADER_BYTES         = 16;
+
+  /** The number of records for which space is initially allocated. */
+  private static final int     INITIAL_CAPACITY     = 1024;
+
+  /** Logback logger. */
+  private static final Logger  LOG                  = LoggerFactory.getLogger(DoubleSpendStore.class);
+
+  /** The magic number at the start of the log. */
+  private static final int     MAGIC                = 0x42445331;
+
+  /** The number of bytes in each record: the serial digest followed by the transcript digest. */
+  private static final int     RECORD_BYTES         = 2 * DIGEST_BYTES;
+
+  /** The position of the record count in the log header. */
+  private static final int     RECORD_COUNT_OFFSET  = 8;
+
+  /** The Bloom filter of serials in the log. */
+  private long[]               bloom;
+
+  /** The channel to the log file, or null if the log is held in memory. */
+  private final FileChannel    channel;
+
+  /** The digest used to hash serials and transcripts. */
+  private final MessageDigest  digest;
+
+  /** The log of records, preceded by the header. */
+  private ByteBuffer           log;
+
+  /** The number of records in the log. */
+  private int                  size                 = 0;
+
+  /** The hash table slots, each holding the record number + 1 of a serial, or 0 if empty. */
+  private ByteBuffer           slots;
+
+  /**
+   * Constructor which holds the log in memory, so that it lasts for the lifetime of the store.
+   */
+  public DoubleSpendStore() {
+    super();
+
+    this.channel = null;
+    this.digest = createDigest();
+    this.log = ByteBuffer.allocateDirect(HEADER_BYTES + (INITIAL_CAPACITY * RECORD_BYTES));
+    this.writeHeader();
+    this.rebuildIndex(INITIAL_CAPACITY);
+  }
+
+  /**
+   * Constructor which opens the log file, creating it if needed, and loads the serials it contains.
+   *
+   * @param file The log file.
+   * @throws IOException if the log file could not be opened or is not a valid log.
+   */
+  public DoubleSpendStore(Path file) throws IOException {
+    super();
+
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    this.digest = createDigest();
+
+    try {
+      final long length = this.channel.size();
+
+      if (length == 0L) {
+        this.log = this.map(INITIAL_CAPACITY);
+        this.writeHeader();
+      }
+      else {
+        if (length < HEADER_BYTES) {
+          throw new IOException("double spend log is truncated: " + file);
+        }
+
+        this.log = this.channel.map(MapMode.READ_WRITE, 0L, length);
+
+        if ((this.log.getInt(0) != MAGIC) || (this.log.getInt(4) != RECORD_BYTES)) {
+          throw new IOException("not a double spend log: " + file);
+        }
+
+        this.size = (int) this.log.getLong(RECORD_COUNT_OFFSET);
+        if ((this.size < 0) || ((HEADER_BYTES + ((long) this.size * RECORD_BYTES)) > length)) {
+          throw new IOException("double spend log has an invalid record count: " + file);
+        }
+      }
+    }
+    catch (final IOException e) {
+      this.channel.close();
+      throw e;
+    }
+
+    this.rebuildIndex(Math.max(INITIAL_CAPACITY, this.size));
+    LOG.debug("loaded " + this.size + " serials from " + file);
+  }
+
+  /**
+   * @return A new digest for serials and transcripts.
+   */
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("could not create " + DIGEST_ALGORITHM + " digest", e);
+    }
+  }
+
+  /**
+   * Adds a serial to the Bloom filter.
+   *
+   * @param serial The serial digest.
+   */
+  private void addToBloom(byte[] serial) {
+    final int mask = (this.bloom.length << 6) - 1;
+
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      final int bit = ByteBuffer.wrap(serial, DIGEST_BYTES - ((i + 1) * 4), 4).getInt() & mask;
+      this.bloom[bit >>> 6] |= 1L << bit;
+    }
+  }
+
+  /**
+   * Appends a record to the log, growing it if needed.
+   *
+   * @param serial The serial digest.
+   * @param transcript The transcript digest.
+   * @return The record number.
+   * @throws IOException if the log file could not be grown.
+   */
+  private int append(byte[] serial, byte[] transcript) throws IOException {
+    final int record = this.size;
+    final long position = HEADER_BYTES + ((long) record * RECORD_BYTES);
+
+    if ((position + RECORD_BYTES) > this.log.capacity()) {
+      this.growLog();
+    }
+
+    final ByteBuffer buffer = this.log.duplicate();
+    ((Buffer) buffer).position((int) position);
+    buffer.put(serial);
+    buffer.put(transcript);
+
+    // Only count the record once it has been written, so a partial record is never read back.
+    this.size++;
+    this.log.putLong(RECORD_COUNT_OFFSET, this.size);
+
+    return record;
+  }
+
+  /**
+   * Checks whether a serial has been seen before with a different transcript, recording it if it has not been seen. A serial
+   * seen again with the same transcript is a replay of the same spend rather than a double spend.
+   *
+   * @param serial The ticket serial.
+   * @param transcript The transcript with which the ticket was spent.
+   * @return True if the ticket has been double spent.
+   * @throws IOException if the serial could not be recorded.
+   */
+  public synchronized boolean checkAndRecord(byte[] serial, byte[] transcript) throws IOException {
+    final byte[] serialDigest = this.digest.digest(serial);
+    final byte[] transcriptDigest = this.digest.digest(transcript);
+
+    if (this.mightContain(serialDigest)) {
+      final int record = this.find(serialDigest);
+
+      if (record >= 0) {
+        final int offset = HEADER_BYTES + (record * RECORD_BYTES) + DIGEST_BYTES;
+
+        for (int i = 0; i < DIGEST_BYTES; i++) {
+          if (this.log.get(offset + i) != transcriptDigest[i]) {
+            return true;
+          }
+        }
+
+        return false;
+      }
+    }
+
+    final int record = this.append(serialDigest, transcriptDigest);
+
+    if ((this.size * 2) > this.slotCount()) {
+      this.rebuildIndex(this.size * 2);
+    }
+    else {
+      this.insert(serialDigest, record);
+    }
+
+    return false;
+  }
+
+  /**
+   * Flushes and closes the log.
+   *
+   * @throws IOException if the log file could not be closed.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (this.channel != null) {
+      ((MappedByteBuffer) this.log).force();
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Finds the record for a serial.
+   *
+   * @param serial The serial digest.
+   * @return The record number, or -1 if the serial is not in the log.
+   */
+  private int find(byte[] serial) {
+    final int mask = this.slotCount() - 1;
+    int slot = this.slotFor(serial, mask);
+    int entry;
+
+    while ((entry = this.slots.getInt(slot * 4)) != 0) {
+      if (this.serialMatches(entry - 1, serial)) {
+        return entry - 1;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Grows the log to twice its current capacity.
+   *
+   * @throws IOException if the log file could not be grown.
+   */
+  private void growLog() throws IOException {
+    final int capacity = (this.log.capacity() - HEADER_BYTES) / RECORD_BYTES;
+
+    if (this.channel != null) {
+      ((MappedByteBuffer) this.log).force();
+      this.log = this.map(capacity * 2);
+    }
+    else {
+      final ByteBuffer grown = ByteBuffer.allocateDirect(HEADER_BYTES + (capacity * 2 * RECORD_BYTES));
+      final ByteBuffer old = this.log.duplicate();
+      ((Buffer) old).clear();
+      grown.put(old);
+      this.log = grown;
+    }
+  }
+
+  /**
+   * Inserts a serial into the hash table and Bloom filter.
+   *
+   * @param serial The serial digest.
+   * @param record The record number of the serial.
+   */
+  private void insert(byte[] serial, int record) {
+    final int mask = this.slotCount() - 1;
+    int slot = this.slotFor(serial, mask);
+
+    while (this.slots.getInt(slot * 4) != 0) {
+      slot = (slot + 1) & mask;
+    }
+
+    this.slots.putInt(slot * 4, record + 1);
+    this.addToBloom(serial);
+  }
+
+  /**
+   * Maps the log file with space for the given number of records.
+   *
+   * @param capacity The number of records.
+   * @return The mapped log.
+   * @throws IOException if the log file could not be mapped.
+   */
+  private MappedByteBuffer map(int capacity) throws IOException {
+    return this.channel.map(MapMode.READ_WRITE, 0L, HEADER_BYTES + ((long) capacity * RECORD_BYTES));
+  }
+
+  /**
+   * Checks the Bloom filter for a serial.
+   *
+   * @param serial The serial digest.
+   * @return False if the serial is definitely not in the log.
+   */
+  private boolean mightContain(byte[] serial) {
+    final int mask = (this.bloom.length << 6) - 1;
+
+    for (int i = 0; i < BLOOM_HASHES; i++) {
+      final int bit = ByteBuffer.wrap(serial, DIGEST_BYTES - ((i + 1) * 4), 4).getInt() & mask;
+
+      if ((this.bloom[bit >>> 6] & (1L << bit)) == 0L) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Rebuilds the hash table and Bloom filter from the log, sized for the given number of records.
+   *
+   * @param records The number of records to size the table for.
+   */
+  private void rebuildIndex(int records) {
+    final int slotCount = Integer.highestOneBit(records) << 2;
+    this.slots = ByteBuffer.allocateDirect(slotCount * 4);
+    this.bloom = new long[(slotCount * BLOOM_BITS_PER_SLOT) >>> 6];
+
+    final byte[] serial = new byte[DIGEST_BYTES];
+    for (int record = 0; record < this.size; record++) {
+      final ByteBuffer buffer = this.log.duplicate();
+      ((Buffer) buffer).position(HEADER_BYTES + (record * RECORD_BYTES));
+      buffer.get(serial);
+      this.insert(serial, record);
+    }
+  }
+
+  /**
+   * Checks whether a record holds a serial.
+   *
+   * @param record The record number.
+   * @param serial The serial digest.
+   * @return True if the record holds the serial.
+   */
+  private boolean serialMatches(int record, byte[] serial) {
+    final int offset = HEADER_BYTES + (record * RECORD_BYTES);
+
+    for (int i = 0; i < DIGEST_BYTES; i++) {
+      if (this.log.get(offset + i) != serial[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return The number of serials recorded.
+   */
+  public synchronized int size() {
+    return this.size;
+  }
+
+  /**
+   * @return The number of hash table slots, which is a power of 2.
+   */
+  private int slotCount() {
+    return this.slots.capacity() / 4;
+  }
+
+  /**
+   * Determines the first hash table slot to probe for a serial. The digest is uniformly distributed, so its leading bytes are
+   * used directly.
+   *
+   * @param serial The serial digest.
+   * @param mask The mask for the number of slots.
+   * @return The slot.
+   */
+  private int slotFor(byte[] serial, int mask) {
+    return ByteBuffer.wrap(serial, 0, 4).getInt() & mask;
+  }
+
+  /**
+   * Writes the header to an empty log.
+   */
+  private void writeHeader() {
+    this.log.putInt(0, MAGIC);
+    this.log.putInt(4, RECORD_BYTES);
+    this.log.putLong(RECORD_COUNT_OFFSET, 0L);
+  }
+}
@@ -7,7 +7,11 @@ package uk.ac.surrey.bets_framework.protocol;
 
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import uk.ac.surrey.bets_framework.icc.ICC;
+import uk.ac.surrey.bets_framework.protocol.data.DataException;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.State;
@@ -20,6 +24,12 @@ import uk.ac.surrey.bets_framework.state.StateMachine;
  */
 public abstract class ICCStateMachine extends StateMachine<ICCCommand> {
 
+  /** Logback logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ICCStateMachine.class);
+
+  /** The channel used by the state machine. */
+  private ICC                 icc = ICC.getInstance();
+
   /**
    * Constructor for the state machine which takes an array of the states. The first state is assumed to be the initial state.
    *
@@ -29,6 +39,22 @@ public abstract class ICCStateMachine extends StateMachine<ICCCommand> {
     super(states);
   }
 
+  /**
+   * @return The channel used by the state machine.
+   */
+  public ICC getICC() {
+    return this.icc;
+  }
+
+  /**
+   * Sets the channel used by the state machine, allowing concurrent sessions to each have their own channel.
+   *
+   * @param icc The channel to use.
+   */
+  public void setICC(ICC icc) {
+    this.icc = icc;
+  }
+
   /**
    * Performs the required action. Use this to execute the action's command with its associated data.
    *
@@ -42,24 +68,44 @@ public abstract class ICCStateMachine extends StateMachine<ICCCommand> {
 
     switch (action.getCommand()) {
       case CLOSE:
-        result = ICC.getInstance().close();
-        message = result ? new Message() : new Message(ICC.getInstance().getResponseCode());
+        result = this.icc.close();
+        message = result ? new Message() : new Message(this.icc.getResponseCode());
         break;
 
       case GET:
-        result = ICC.getInstance().get(action.getCommandResponseLength());
-        message = result ? new Message(ICC.getInstance().getData()) : new Message(ICC.getInstance().getResponseCode());
+        result = this.icc.get(action.getCommandResponseLength());
+        message = result ? new Message(this.icc.getData()) : new Message(this.icc.getResponseCode());
+
+        // The data is already all here, so it is passed on to the stream in one go.
+        if (result && (action.getCommandStream() != null)) {
+          action.getCommandStream().write(this.icc.getData());
+          action.getCommandStream().close();
+          message = new Message(action.getCommandStream());
+        }
         break;
       
 
       case OPEN:
-        result = ICC.getInstance().open();
-        message = result ? new Message() : new Message(ICC.getInstance().getResponseCode());
+        result = this.icc.open();
+        message = result ? new Message() : new Message(this.icc.getResponseCode());
         break;
 
       case PUT:
-        result = ICC.getInstance().put(action.getCommandData());
-        message = result ? new Message() : new Message(ICC.getInstance().getResponseCode());
+        if (action.getCommandStream() != null) {
+          // There is no transfer to overlap with, so wait for the whole stream.
+          try {
+            result = this.icc.put(action.getCommandStream().toByteArray());
+          }
+          catch (final DataException e) {
+            LOG.error("could not put stream", e);
+            result = false;
+          }
+        }
+        else {
+          result = this.icc.put(action.getCommandData());
+        }
+
+        message = result ? new Message() : new Message(this.icc.getResponseCode());
         break;
               
       default:
@@ -6,8 +6,14 @@
 package uk.ac.surrey.bets_framework.protocol;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import uk.ac.surrey.bets_framework.nfc.NFC;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.State;
@@ -20,6 +26,12 @@ import uk.ac.surrey.bets_framework.state.StateMachine;
  */
 public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderCommand> {
 
+  /** Logback logger. */
+  private static final Logger LOG      = LoggerFactory.getLogger(NFCReaderStateMachine.class);
+
+  /** Any streamed get still receiving in the background, which must finish before the next command. */
+  private Future<?>           transfer = null;
+
   /**
    * Constructor for the state machine which takes an array of the states. The first state is assumed to be the initial state.
    *
@@ -29,6 +41,27 @@ public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderComman
     super(states);
   }
 
+  /**
+   * Waits for any streamed get still receiving in the background to finish.
+   */
+  private void awaitTransfer() {
+    if (this.transfer != null) {
+      try {
+        this.transfer.get();
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.error("interrupted waiting for streamed get", e);
+      }
+      catch (final ExecutionException e) {
+        LOG.error("streamed get failed", e);
+      }
+      finally {
+        this.transfer = null;
+      }
+    }
+  }
+
   /**
    * Performs the required action. Use this to execute the action's command with its associated data.
    *
@@ -40,6 +73,9 @@ public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderComman
     Message message = null;
     boolean result = false;
 
+    // The card can only handle one command at a time.
+    this.awaitTransfer();
+
     switch (action.getCommand()) {
       case CLOSE:
         result = NFC.getInstance().close();
@@ -47,6 +83,21 @@ public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderComman
         break;
 
       case GET:
+        if (action.getCommandStream() != null) {
+          // Receive in the background so that the next state can process the data as it arrives.
+          final ListDataStream stream = action.getCommandStream();
+          final int length = action.getCommandResponseLength();
+          this.transfer = StreamingExecutor.getInstance().submit(new Runnable() {
+
+            @Override
+            public void run() {
+              NFC.getInstance().get(length, stream);
+            }
+          });
+          message = new Message(stream);
+          break;
+        }
+
         result = NFC.getInstance().get(action.getCommandResponseLength());
         message = result ? new Message(NFC.getInstance().getData()) : new Message(NFC.getInstance().getResponseCode());
         break;
@@ -62,7 +113,13 @@ public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderComman
         break;
 
       case PUT:
-        result = NFC.getInstance().put(action.getCommandData());
+        if (action.getCommandStream() != null) {
+          result = NFC.getInstance().put(action.getCommandStream());
+        }
+        else {
+          result = NFC.getInstance().put(action.getCommandData());
+        }
+
         message = result ? new Message() : new Message(NFC.getInstance().getResponseCode());
         break;
         
@@ -83,4 +140,19 @@ public abstract class NFCReaderStateMachine extends StateMachine<NFCReaderComman
 
     return message;
   }
+
+  /**
+   * Runs the state machine, making sure that any streamed get has finished before returning.
+   *
+   * @return True if everything went successfully.
+   */
+  @Override
+  public boolean run(Message message) {
+    try {
+      return super.run(message);
+    }
+    finally {
+      this.awaitTransfer();
+    }
+  }
 }
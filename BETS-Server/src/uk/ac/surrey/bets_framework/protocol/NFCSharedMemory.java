@@ -13,11 +13,15 @@ package uk.ac.surrey.bets_framework.protocol;
 public class NFCSharedMemory extends AbstractSharedMemory {
 
   /** Arbitrary proprietary AID (starts with "F") for Android app. Hopefully doesn't clash with anything else. */
-  public static final byte[] AID             = new byte[] { (byte) 0xF0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66 };
+  public static final byte[] AID                          = new byte[] { (byte) 0xF0, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66 };
 
-  /** The maximum size of a response before it needs to be chunked. */
-  public static final int    APDU_CHUNK_SIZE = 50;
-  
-  
+  /** The maximum size of a response before it needs to be chunked, until a larger size has been negotiated. */
+  public static final int    APDU_CHUNK_SIZE              = 50;
+
+  /** The largest chunk that can be sent using extended length APDUs. */
+  public static final int    MAX_EXTENDED_APDU_CHUNK_SIZE = 65535;
+
+  /** The largest chunk that can be sent using short APDUs. */
+  public static final int    MAX_SHORT_APDU_CHUNK_SIZE    = 255;
 
 }
@@ -0,0 +1,290 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Pairing;
+import it.unisa.dia.gas.jpbc.PairingParameters;
+import it.unisa.dia.gas.plaf.jpbc.pairing.PairingFactory;
+import it.unisa.dia.gas.plaf.jpbc.pbc.PBCPairingFactory;
+
+/**
+ * Selects whether the pairings of each protocol are computed by the pure Java jPBC implementation or by the native PBC
+ * library wrapped by jpbc-pbc, which is an order of magnitude faster. A backend can be requested for all protocols or
+ * for each protocol separately, and defaults to automatic selection.
+ *
+ * The native backend is only selected once its library has loaded and it has given the same results as the Java backend
+ * on a known vector for the pairing parameters in use. Otherwise the Java backend is used instead, so that a protocol
+ * always runs. The backend selected for each protocol is recorded so that it can be reported with the timings.
+ *
+ * @author Steve Wesemeyer
+ */
+public class PairingBackend {
+
+  /**
+   * The available backends.
+   */
+  public enum Type {
+    AUTO, JAVA, PBC;
+
+    /**
+     * Gets the backend with a name, ignoring case.
+     *
+     * @param name The name of the backend.
+     * @return The backend.
+     * @throws IllegalArgumentException if there is no backend with the name.
+     */
+    public static Type fromName(String name) {
+      return Type.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * @return The name of the backend as used on the command line and in the timings.
+     */
+    @Override
+    public String toString() {
+      return this.name().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /** Logback logger. */
+  private static final Logger               LOG           = LoggerFactory.getLogger(PairingBackend.class);
+
+  /** Whether the native library has loaded, or null until it has been tried. */
+  private static Boolean                    nativeLoaded  = null;
+
+  /** The result of the parity check for each set of pairing parameters which has been checked. */
+  private static final Map<String, Boolean> parity        = new HashMap<>();
+
+  /** The known vector hashed to the elements used in the parity check. */
+  private static final byte[]               PARITY_VECTOR = "BETS backend parity".getBytes(StandardCharsets.UTF_8);
+
+  /** The backend requested for all protocols without their own request. */
+  private static Type                       requested     = Type.AUTO;
+
+  /** The backend requested for individual protocols. */
+  private static final Map<String, Type>    requests      = new HashMap<>();
+
+  /** The backend selected for each protocol which has created a pairing. */
+  private static final Map<String, Type>    selected      = new HashMap<>();
+
+  /**
+   * Private constructor.
+   */
+  private PairingBackend() {
+    super();
+  }
+
+  /**
+   * Checks that the native backend gives the same results as the Java backend for a set of pairing parameters. Elements
+   * are hashed from a known vector using the Java backend and copied to the native one by their bytes. The pairing, an
+   * exponentiation and bilinearity are then compared.
+   *
+   * @param parameters The pairing parameters.
+   * @param random The source of randomness for the Java pairing.
+   * @return True if the backends agree.
+   */
+  private static boolean checkParity(PairingParameters parameters, SecureRandom random) {
+    final String key = parameters.toString();
+    Boolean result = parity.get(key);
+
+    if (result == null) {
+      result = Boolean.FALSE;
+
+      try {
+        final Pairing javaPairing = PairingFactory.getPairing(parameters, random);
+        final Pairing nativePairing = PBCPairingFactory.getPairing(parameters);
+        final byte[] reversed = reverse(PARITY_VECTOR);
+
+        final Element p = javaPairing.getG1().newElementFromHash(PARITY_VECTOR, 0, PARITY_VECTOR.length).getImmutable();
+        final Element q = javaPairing.getG2().newElementFromHash(reversed, 0, reversed.length).getImmutable();
+        final Element k = javaPairing.getZr().newElementFromHash(PARITY_VECTOR, 0, PARITY_VECTOR.length).getImmutable();
+        final Element nativeP = nativePairing.getG1().newElementFromBytes(p.toBytes()).getImmutable();
+        final Element nativeQ = nativePairing.getG2().newElementFromBytes(q.toBytes()).getImmutable();
+        final Element nativeK = nativePairing.getZr().newElementFromBytes(k.toBytes()).getImmutable();
+
+        final Element e = javaPairing.pairing(p, q);
+        final Element nativeE = nativePairing.pairing(nativeP, nativeQ);
+        final boolean pairings = Arrays.equals(e.toBytes(), nativeE.toBytes());
+        final boolean powers = Arrays.equals(p.powZn(k).toBytes(), nativeP.powZn(nativeK).toBytes());
+        final boolean bilinear = nativePairing.pairing(nativeP.powZn(nativeK), nativeQ).isEqual(nativeE.powZn(nativeK));
+
+        result = pairings && powers && bilinear;
+
+        if (!result) {
+          LOG.warn("native pairing backend disagrees with java for type " + parameters.getString("type")
+              + " parameters: pairing " + pairings + ", power " + powers + ", bilinear " + bilinear);
+        }
+      }
+      catch (final RuntimeException | LinkageError e) {
+        LOG.warn("could not check native pairing backend for type " + parameters.getString("type") + " parameters", e);
+      }
+
+      parity.put(key, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Sets the backends requested from a comma separated list. Each entry is either a backend name, which applies to all
+   * protocols without their own request, or a protocol name and a backend separated by '=', such as
+   * "auto,PPETSABC=java".
+   *
+   * @param value The backends requested.
+   * @throws IllegalArgumentException if an entry is not valid.
+   */
+  public static synchronized void configure(String value) {
+    for (final String entry : value.split(",")) {
+      final int separator = entry.indexOf('=');
+
+      if (separator < 0) {
+        requested = Type.fromName(entry);
+      }
+      else {
+        requests.put(entry.substring(0, separator).trim(), Type.fromName(entry.substring(separator + 1)));
+      }
+    }
+  }
+
+  /**
+   * Creates a pairing using a backend.
+   *
+   * @param backend The backend, which must be either the Java or native backend.
+   * @param parameters The pairing parameters.
+   * @param random The source of randomness for the Java pairing.
+   * @return The pairing.
+   */
+  public static Pairing getPairing(Type backend, PairingParameters parameters, SecureRandom random) {
+    if (backend == Type.PBC) {
+      return PBCPairingFactory.getPairing(parameters);
+    }
+
+    return PairingFactory.getPairing(parameters, random);
+  }
+
+  /**
+   * @param protocol The name of the protocol.
+   * @return The backend requested for the protocol.
+   */
+  public static synchronized Type getRequested(String protocol) {
+    final Type type = requests.get(protocol);
+
+    return (type == null) ? requested : type;
+  }
+
+  /**
+   * @param protocol The name of the protocol.
+   * @return The backend last selected for the protocol, or null if it has not created a pairing.
+   */
+  public static synchronized Type getSelected(String protocol) {
+    return selected.get(protocol);
+  }
+
+  /**
+   * @return True if the native library has loaded.
+   */
+  public static synchronized boolean isNativeAvailable() {
+    if (nativeLoaded == null) {
+      try {
+        nativeLoaded = PBCPairingFactory.isPBCAvailable();
+      }
+      catch (final RuntimeException | LinkageError e) {
+        LOG.debug("could not load native pairing library", e);
+        nativeLoaded = Boolean.FALSE;
+      }
+
+      LOG.debug("native pairing library " + (nativeLoaded ? "loaded" : "not available"));
+    }
+
+    return nativeLoaded;
+  }
+
+  /**
+   * Determines whether a protocol might use the native backend, for example to decide whether its pairing parameters
+   * can be generated natively.
+   *
+   * @param protocol The name of the protocol.
+   * @return True if the native backend has not been ruled out for the protocol and its library has loaded.
+   */
+  public static boolean isNativePossible(String protocol) {
+    return (getRequested(protocol) != Type.JAVA) && isNativeAvailable();
+  }
+
+  /**
+   * Reverses a byte array.
+   *
+   * @param bytes The bytes to reverse.
+   * @return A reversed copy of the bytes.
+   */
+  private static byte[] reverse(byte[] bytes) {
+    final byte[] reversed = new byte[bytes.length];
+
+    for (int i = 0; i < bytes.length; i++) {
+      reversed[i] = bytes[bytes.length - 1 - i];
+    }
+
+    return reversed;
+  }
+
+  /**
+   * Selects the backend used by a protocol for a set of pairing parameters, falling back to the Java backend if the
+   * native one cannot be used.
+   *
+   * @param protocol The name of the protocol.
+   * @param parameters The pairing parameters.
+   * @param random The source of randomness for the Java pairing.
+   * @param nativeElements False if the protocol relies on elements being jPBC curve elements, which rules out the
+   *          native backend.
+   * @return The backend selected, which is either the Java or native backend.
+   */
+  public static synchronized Type select(String protocol, PairingParameters parameters, SecureRandom random,
+      boolean nativeElements) {
+    final Type request = getRequested(protocol);
+    Type backend = Type.JAVA;
+    String reason = null;
+
+    if (request != Type.JAVA) {
+      if (!nativeElements) {
+        reason = "it needs jPBC curve elements";
+      }
+      else if (!isNativeAvailable()) {
+        reason = "the native library is not available";
+      }
+      else if (!checkParity(parameters, random)) {
+        reason = "the native backend failed the parity check";
+      }
+      else {
+        backend = Type.PBC;
+      }
+    }
+
+    // Only report the selection when it changes, as it is made each time the protocol is set up.
+    if (selected.put(protocol, backend) != backend) {
+      if (reason == null) {
+        LOG.info(protocol + " using " + backend + " pairing backend (requested " + request + ")");
+      }
+      else if (request == Type.PBC) {
+        LOG.warn(protocol + " falling back to java pairing backend as " + reason);
+      }
+      else {
+        LOG.info(protocol + " using java pairing backend as " + reason);
+      }
+    }
+
+    return backend;
+  }
+}
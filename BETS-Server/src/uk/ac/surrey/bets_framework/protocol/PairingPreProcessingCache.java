@@ -0,0 +1,119 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Pairing;
+import it.unisa.dia.gas.jpbc.PairingPreProcessing;
+
+/**
+ * Caches the Miller loop pre-processing for pairings where one argument is fixed, such as a public parameter or a public
+ * key. jPBC can only pre-process the first argument of a pairing, so when the fixed argument is the second one it is only
+ * used if the pairing is symmetric. Otherwise the pairing is computed in full.
+ *
+ * Only the arguments added by the shared memory when it sets up the public parameters are pre-processed, and they are
+ * looked up by reference. A fixed argument which has not been added, such as a key received in a message, is paired in full
+ * rather than being added, as its pre-processing would be kept long after the session which used it.
+ *
+ * @author Steve Wesemeyer
+ */
+public class PairingPreProcessingCache {
+
+  /** The pairing to use. */
+  private final Pairing                               pairing;
+
+  /** The pre-processing for each added element, keyed on the element reference and replaced whenever one is added. */
+  private volatile Map<Element, PairingPreProcessing> preProcessing = new IdentityHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param pairing The pairing to use.
+   */
+  public PairingPreProcessingCache(Pairing pairing) {
+    super();
+
+    this.pairing = pairing;
+  }
+
+  /**
+   * Adds the pre-processing for a fixed element, if it has not already been added.
+   *
+   * @param fixed The fixed element, which must be in G1.
+   */
+  public void add(Element fixed) {
+    this.addAll(fixed);
+  }
+
+  /**
+   * Adds the pre-processing for a number of fixed elements.
+   *
+   * @param fixed The fixed elements, which must be in G1.
+   */
+  public synchronized void addAll(Element... fixed) {
+    final Map<Element, PairingPreProcessing> added = new IdentityHashMap<>(this.preProcessing);
+
+    for (final Element element : fixed) {
+      if (!added.containsKey(element)) {
+        added.put(element, this.pairing.getPairingPreProcessingFromElement(element));
+      }
+    }
+
+    this.preProcessing = added;
+  }
+
+  /**
+   * Removes all cached pre-processing.
+   */
+  public synchronized void clear() {
+    this.preProcessing = new IdentityHashMap<>();
+  }
+
+  /**
+   * @return The pairing used by the cache.
+   */
+  public Pairing getPairing() {
+    return this.pairing;
+  }
+
+  /**
+   * Computes e(fixed, in2) using the cached pre-processing for the fixed element if it has been added.
+   *
+   * @param fixed The fixed first argument, in G1.
+   * @param in2 The second argument.
+   * @return The pairing result.
+   */
+  public Element pairingFixedFirst(Element fixed, Element in2) {
+    final PairingPreProcessing added = this.preProcessing.get(fixed);
+
+    if (added == null) {
+      return this.pairing.pairing(fixed, in2);
+    }
+
+    return added.pairing(in2);
+  }
+
+  /**
+   * Computes e(in1, fixed) using the cached pre-processing for the fixed element if it has been added and the pairing is
+   * symmetric.
+   *
+   * @param in1 The first argument.
+   * @param fixed The fixed second argument.
+   * @return The pairing result.
+   */
+  public Element pairingFixedSecond(Element in1, Element fixed) {
+    final PairingPreProcessing added = this.pairing.isSymmetric() ? this.preProcessing.get(fixed) : null;
+
+    if (added == null) {
+      return this.pairing.pairing(in1, fixed);
+    }
+
+    return added.pairing(in1);
+  }
+}
@@ -0,0 +1,186 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.CryptoContext;
+
+/**
+ * Runs a set of independent verification checks, such as the per-verifier tags within a ticket, in parallel on a fork/join pool.
+ * Checks after a known failure are skipped, but all checks before it are always run so that the reported failure is the same
+ * regardless of how the checks are scheduled.
+ *
+ * @author Steve Wesemeyer
+ */
+public class ParallelVerifier {
+
+  /**
+   * A single verification check.
+   */
+  public interface Check {
+
+    /**
+     * Performs the check for the given index. Implementations must be safe to call concurrently for different indices.
+     *
+     * @param index The index of the item to check.
+     * @return True if the check passed.
+     */
+    boolean verify(int index);
+  }
+
+  /**
+   * Fork/join task which checks a range of indices, splitting it until single indices remain.
+   */
+  private static class VerifyTask extends RecursiveAction {
+
+    /** Serialisation version. */
+    private static final long   serialVersionUID = 1L;
+
+    /** The check to perform. */
+    private final Check         check;
+
+    /** The cryptographic context of the session which requested the checks. */
+    private final CryptoContext context;
+
+    /** The lowest index which has failed so far, or the count if none have. */
+    private final AtomicInteger firstFailure;
+
+    /** The first index to check, inclusive. */
+    private final int           from;
+
+    /** The last index to check, exclusive. */
+    private final int           to;
+
+    /**
+     * Constructor.
+     *
+     * @param check The check to perform.
+     * @param context The cryptographic context of the session which requested the checks.
+     * @param firstFailure The lowest index which has failed so far.
+     * @param from The first index to check, inclusive.
+     * @param to The last index to check, exclusive.
+     */
+    private VerifyTask(Check check, CryptoContext context, AtomicInteger firstFailure, int from, int to) {
+      super();
+
+      this.check = check;
+      this.context = context;
+      this.firstFailure = firstFailure;
+      this.from = from;
+      this.to = to;
+    }
+
+    /**
+     * Performs the checks.
+     */
+    @Override
+    protected void compute() {
+      if ((this.to - this.from) > 1) {
+        final int middle = (this.from + this.to) >>> 1;
+        invokeAll(new VerifyTask(this.check, this.context, this.firstFailure, this.from, middle),
+            new VerifyTask(this.check, this.context, this.firstFailure, middle, this.to));
+      }
+      else if (this.from < this.firstFailure.get()) {
+        // Only checks beyond a known failure can be skipped. The check runs in the requesting session's context.
+        final Crypto crypto = Crypto.getInstance();
+        final CryptoContext previousContext = crypto.setContext(this.context);
+        final boolean passed;
+
+        try {
+          passed = verifyIndex(this.check, this.from);
+        }
+        finally {
+          crypto.setContext(previousContext);
+        }
+
+        if (!passed) {
+          int current = this.firstFailure.get();
+
+          while ((this.from < current) && !this.firstFailure.compareAndSet(current, this.from)) {
+            current = this.firstFailure.get();
+          }
+        }
+      }
+    }
+  }
+
+  /** Logback logger. */
+  private static final Logger     LOG      = LoggerFactory.getLogger(ParallelVerifier.class);
+
+  /** The singleton instance. */
+  private static ParallelVerifier instance = null;
+
+  /** The pool used to run the checks. */
+  private final ForkJoinPool      pool;
+
+  /**
+   * Private constructor.
+   */
+  private ParallelVerifier() {
+    super();
+
+    this.pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    LOG.debug("using " + this.pool.getParallelism() + " threads for verification");
+  }
+
+  /**
+   * @return The singleton instance.
+   */
+  public static synchronized ParallelVerifier getInstance() {
+    if (instance == null) {
+      instance = new ParallelVerifier();
+    }
+
+    return instance;
+  }
+
+  /**
+   * Runs a single check, treating any exception as a failure.
+   *
+   * @param check The check to perform.
+   * @param index The index to check.
+   * @return True if the check passed.
+   */
+  private static boolean verifyIndex(Check check, int index) {
+    try {
+      return check.verify(index);
+    }
+    catch (final RuntimeException e) {
+      LOG.error("verification of item " + index + " failed", e);
+      return false;
+    }
+  }
+
+  /**
+   * Runs the check for indices 0 to count - 1, in parallel where there is more than one.
+   *
+   * @param count The number of items to check.
+   * @param check The check to perform on each item.
+   * @return The lowest index which failed the check, or -1 if all passed.
+   */
+  public int verify(int count, Check check) {
+    if (count <= 0) {
+      return -1;
+    }
+
+    if (count == 1) {
+      return verifyIndex(check, 0) ? -1 : 0;
+    }
+
+    final AtomicInteger firstFailure = new AtomicInteger(count);
+    this.pool.invoke(new VerifyTask(check, Crypto.getInstance().getContext(), firstFailure, 0, count));
+
+    final int failed = firstFailure.get();
+    return (failed < count) ? failed : -1;
+  }
+}
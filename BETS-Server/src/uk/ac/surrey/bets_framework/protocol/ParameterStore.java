@@ -0,0 +1,539 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Field;
+import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+
+/**
+ * Saves the pairing parameters, public generators and derived tables of each protocol to a file, so that later runs can
+ * reload them instead of generating new curves and elements, which takes seconds for larger groups.
+ *
+ * The file holds one section per protocol, each tagged with the configuration it was generated for, such as the number of
+ * bits in the group order, so that a section generated for a different configuration is never used. The file ends with a
+ * SHA-256 hash of its contents, and is memory-mapped and checked against the hash when loaded. A file which fails the check
+ * is ignored and replaced once new parameters have been generated.
+ *
+ * @author Steve Wesemeyer
+ */
+public class ParameterStore {
+
+  /**
+   * The parameters saved for one protocol. Values are held as bytes and decoded when they are read.
+   */
+  public static class Section {
+
+    /** The configuration the parameters were generated for. */
+    private final String                  configuration;
+
+    /** The name of the section. */
+    private final String                  name;
+
+    /** The encoded values, in the order in which they were added. */
+    private final Map<String, ByteBuffer> values = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of the section.
+     * @param configuration The configuration the parameters were generated for.
+     */
+    public Section(String name, String configuration) {
+      super();
+
+      this.name = name;
+      this.configuration = configuration;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param key The name of the value.
+     * @return The value.
+     * @throws IllegalStateException if there is no such value.
+     */
+    private ByteBuffer get(String key) {
+      final ByteBuffer value = this.values.get(key);
+
+      if (value == null) {
+        throw new IllegalStateException("no parameter " + key + " in " + this.name);
+      }
+
+      return value.duplicate();
+    }
+
+    /**
+     * Gets an integer.
+     *
+     * @param key The name of the value.
+     * @return The integer.
+     */
+    public BigInteger getBigInteger(String key) {
+      return new BigInteger(this.getBytes(key));
+    }
+
+    /**
+     * Gets an array of integers.
+     *
+     * @param key The name of the value.
+     * @return The integers.
+     */
+    public BigInteger[] getBigIntegers(String key) {
+      final byte[][] items = this.getItems(key);
+      final BigInteger[] numbers = new BigInteger[items.length];
+
+      for (int i = 0; i < items.length; i++) {
+        numbers[i] = new BigInteger(items[i]);
+      }
+
+      return numbers;
+    }
+
+    /**
+     * Gets a value as bytes.
+     *
+     * @param key The name of the value.
+     * @return The bytes.
+     */
+    public byte[] getBytes(String key) {
+      final ByteBuffer value = this.get(key);
+      final byte[] bytes = new byte[value.remaining()];
+      value.get(bytes);
+
+      return bytes;
+    }
+
+    /**
+     * @return The configuration the parameters were generated for.
+     */
+    public String getConfiguration() {
+      return this.configuration;
+    }
+
+    /**
+     * Gets an element.
+     *
+     * @param key The name of the value.
+     * @param field The field of the element.
+     * @return The immutable element.
+     */
+    public Element getElement(String key, Field<?> field) {
+      return field.newElementFromBytes(this.getBytes(key)).getImmutable();
+    }
+
+    /**
+     * Gets an array of elements.
+     *
+     * @param key The name of the value.
+     * @param field The field of the elements.
+     * @return The immutable elements.
+     */
+    public Element[] getElements(String key, Field<?> field) {
+      final byte[][] items = this.getItems(key);
+      final Element[] elements = new Element[items.length];
+
+      for (int i = 0; i < items.length; i++) {
+        elements[i] = field.newElementFromBytes(items[i]).getImmutable();
+      }
+
+      return elements;
+    }
+
+    /**
+     * Gets a value holding a number of items.
+     *
+     * @param key The name of the value.
+     * @return The items.
+     */
+    private byte[][] getItems(String key) {
+      final ByteBuffer value = this.get(key);
+      final byte[][] items = new byte[(int) readVarLong(value)][];
+
+      for (int i = 0; i < items.length; i++) {
+        items[i] = readBytes(value);
+      }
+
+      return items;
+    }
+
+    /**
+     * @return The name of the section.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Gets pairing parameters.
+     *
+     * @param key The name of the value.
+     * @return The pairing parameters.
+     */
+    public PropertiesParameters getPairingParameters(String key) {
+      return new PropertiesParameters().load(new ByteArrayInputStream(this.getBytes(key)));
+    }
+
+    /**
+     * Adds an integer.
+     *
+     * @param key The name of the value.
+     * @param number The integer.
+     * @return This section.
+     */
+    public Section put(String key, BigInteger number) {
+      return this.put(key, number.toByteArray());
+    }
+
+    /**
+     * Adds an array of integers.
+     *
+     * @param key The name of the value.
+     * @param numbers The integers.
+     * @return This section.
+     */
+    public Section put(String key, BigInteger[] numbers) {
+      final BinaryWriter writer = new BinaryWriter();
+      writer.writeVarLong(numbers.length);
+      for (final BigInteger number : numbers) {
+        writer.writeBytes(number.toByteArray());
+      }
+
+      return this.put(key, writer.toByteArray());
+    }
+
+    /**
+     * Adds a value as bytes.
+     *
+     * @param key The name of the value.
+     * @param bytes The bytes.
+     * @return This section.
+     */
+    public Section put(String key, byte[] bytes) {
+      this.values.put(key, ByteBuffer.wrap(bytes.clone()));
+
+      return this;
+    }
+
+    /**
+     * Adds an element. Curve points are saved uncompressed, so they load without solving for a coordinate.
+     *
+     * @param key The name of the value.
+     * @param element The element.
+     * @return This section.
+     */
+    public Section put(String key, Element element) {
+      return this.put(key, element.toBytes());
+    }
+
+    /**
+     * Adds an array of elements.
+     *
+     * @param key The name of the value.
+     * @param elements The elements.
+     * @return This section.
+     */
+    public Section put(String key, Element[] elements) {
+      final BinaryWriter writer = new BinaryWriter();
+      writer.writeVarLong(elements.length);
+      for (final Element element : elements) {
+        writer.writeBytes(element.toBytes());
+      }
+
+      return this.put(key, writer.toByteArray());
+    }
+
+    /**
+     * Adds pairing parameters.
+     *
+     * @param key The name of the value.
+     * @param parameters The pairing parameters.
+     * @return This section.
+     */
+    public Section put(String key, PropertiesParameters parameters) {
+      return this.put(key, parameters.toString().getBytes(Data.UTF8));
+    }
+  }
+
+  /** The digest algorithm used to check the integrity of the file. */
+  private static final String        DIGEST_ALGORITHM = "SHA-256";
+
+  /** The number of bytes in the digest. */
+  private static final int           DIGEST_BYTES     = 32;
+
+  /** The number of bytes in the file header: magic number and version. */
+  private static final int           HEADER_BYTES     = 8;
+
+  /** The singleton instance, or null if no file has been set. */
+  private static ParameterStore      instance         = null;
+
+  /** Logback logger. */
+  private static final Logger        LOG              = LoggerFactory.getLogger(ParameterStore.class);
+
+  /** The magic number at the start of the file. */
+  private static final int           MAGIC            = 0x42505331;
+
+  /** The version of the file format. */
+  private static final int           VERSION          = 1;
+
+  /** The file holding the parameters. */
+  private final Path                 file;
+
+  /** The sections loaded from or saved to the file, keyed by name. */
+  private final Map<String, Section> sections         = new LinkedHashMap<>();
+
+  /**
+   * Constructor which loads any parameters already saved to the file.
+   *
+   * @param file The file holding the parameters.
+   */
+  private ParameterStore(Path file) {
+    super();
+
+    this.file = file;
+
+    if (Files.isRegularFile(file)) {
+      try {
+        this.load();
+        LOG.debug("loaded parameters for " + this.sections.keySet() + " from " + file);
+      }
+      catch (final IOException | RuntimeException e) {
+        this.sections.clear();
+        LOG.warn("ignoring parameter file " + file + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * @return A new digest for checking the file.
+   */
+  private static MessageDigest createDigest() {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new IllegalStateException("could not create " + DIGEST_ALGORITHM + " digest", e);
+    }
+  }
+
+  /**
+   * @return The parameter store for the file set on the command line, or null if there is none.
+   */
+  public static synchronized ParameterStore getInstance() {
+    return instance;
+  }
+
+  /**
+   * Reads a length prefixed byte array.
+   *
+   * @param buffer The buffer to read from.
+   * @return The bytes.
+   */
+  private static byte[] readBytes(ByteBuffer buffer) {
+    final long length = readVarLong(buffer);
+
+    if ((length < 0L) || (length > buffer.remaining())) {
+      throw new IllegalStateException("invalid length " + length);
+    }
+
+    final byte[] bytes = new byte[(int) length];
+    buffer.get(bytes);
+
+    return bytes;
+  }
+
+  /**
+   * Reads a length prefixed byte array without copying it.
+   *
+   * @param buffer The buffer to read from.
+   * @return A buffer holding just the bytes.
+   */
+  private static ByteBuffer readSlice(ByteBuffer buffer) {
+    final long length = readVarLong(buffer);
+
+    if ((length < 0L) || (length > buffer.remaining())) {
+      throw new IllegalStateException("invalid length " + length);
+    }
+
+    final ByteBuffer slice = buffer.slice();
+    ((Buffer) slice).limit((int) length);
+    ((Buffer) buffer).position(buffer.position() + (int) length);
+
+    return slice;
+  }
+
+  /**
+   * Reads an unsigned LEB128 varint.
+   *
+   * @param buffer The buffer to read from.
+   * @return The value.
+   */
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0L;
+
+    for (int i = 0; i < 10; i++) {
+      final int b = buffer.get() & 0xFF;
+      value |= (long) (b & 0x7F) << (7 * i);
+
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+
+    throw new IllegalStateException("varint too long");
+  }
+
+  /**
+   * Sets the file holding the parameters, loading any which have already been saved.
+   *
+   * @param file The file, or null to always generate new parameters.
+   */
+  public static synchronized void setFile(Path file) {
+    instance = (file == null) ? null : new ParameterStore(file);
+  }
+
+  /**
+   * Gets the parameters saved for a protocol.
+   *
+   * @param name The name of the section.
+   * @param configuration The configuration the parameters must have been generated for.
+   * @return The section, or null if there is none for the configuration.
+   */
+  public synchronized Section getSection(String name, String configuration) {
+    final Section section = this.sections.get(name);
+
+    if ((section != null) && !section.getConfiguration().equals(configuration)) {
+      LOG.debug("ignoring " + name + " parameters for " + section.getConfiguration() + " rather than " + configuration);
+      return null;
+    }
+
+    return section;
+  }
+
+  /**
+   * Memory-maps the file, checks its hash and reads its sections.
+   *
+   * @throws IOException if the file could not be read or is not valid.
+   */
+  private void load() throws IOException {
+    try (final FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+      final long length = channel.size();
+
+      if ((length < (HEADER_BYTES + DIGEST_BYTES)) || (length > Integer.MAX_VALUE)) {
+        throw new IOException("invalid length " + length);
+      }
+
+      final ByteBuffer mapped = channel.map(MapMode.READ_ONLY, 0L, length);
+
+      // Check the hash over everything before it.
+      final ByteBuffer contents = mapped.duplicate();
+      ((Buffer) contents).limit((int) length - DIGEST_BYTES);
+      final MessageDigest digest = createDigest();
+      digest.update(contents);
+
+      final byte[] expected = new byte[DIGEST_BYTES];
+      final ByteBuffer hash = mapped.duplicate();
+      ((Buffer) hash).position((int) length - DIGEST_BYTES);
+      hash.get(expected);
+
+      if (!MessageDigest.isEqual(digest.digest(), expected)) {
+        throw new IOException("integrity check failed");
+      }
+
+      final ByteBuffer buffer = mapped.duplicate();
+      ((Buffer) buffer).limit((int) length - DIGEST_BYTES);
+
+      if ((buffer.getInt() != MAGIC) || (buffer.getInt() != VERSION)) {
+        throw new IOException("not a parameter file");
+      }
+
+      final long count = readVarLong(buffer);
+      for (long i = 0; i < count; i++) {
+        final Section section = new Section(new String(readBytes(buffer), Data.UTF8),
+            new String(readBytes(buffer), Data.UTF8));
+        final long values = readVarLong(buffer);
+
+        for (long j = 0; j < values; j++) {
+          section.values.put(new String(readBytes(buffer), Data.UTF8), readSlice(buffer));
+        }
+
+        this.sections.put(section.getName(), section);
+      }
+
+      if (buffer.hasRemaining()) {
+        throw new IOException("unexpected trailing data");
+      }
+    }
+  }
+
+  /**
+   * Saves the parameters for a protocol, replacing any saved for it before, and rewrites the file.
+   *
+   * @param section The section to save.
+   */
+  public synchronized void putSection(Section section) {
+    this.sections.put(section.getName(), section);
+
+    final BinaryWriter writer = new BinaryWriter(4096);
+    writer.writeVarLong(this.sections.size());
+    for (final Section saved : this.sections.values()) {
+      writer.writeString(saved.getName());
+      writer.writeString(saved.getConfiguration());
+      writer.writeVarLong(saved.values.size());
+
+      for (final Map.Entry<String, ByteBuffer> entry : saved.values.entrySet()) {
+        writer.writeString(entry.getKey());
+        final ByteBuffer value = entry.getValue().duplicate();
+        final byte[] bytes = new byte[value.remaining()];
+        value.get(bytes);
+        writer.writeBytes(bytes);
+      }
+    }
+
+    final byte[] body = writer.toByteArray();
+    final ByteBuffer contents = ByteBuffer.allocate(HEADER_BYTES + body.length + DIGEST_BYTES);
+    contents.putInt(MAGIC);
+    contents.putInt(VERSION);
+    contents.put(body);
+    contents.put(createDigest().digest(Arrays.copyOf(contents.array(), HEADER_BYTES + body.length)));
+
+    try {
+      final Path directory = this.file.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+
+      // Write to a temporary file first so that a partial file is never read.
+      final Path temporary = Files.createTempFile(directory, null, ".params");
+      Files.write(temporary, contents.array());
+      Files.move(temporary, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.debug("saved " + section.getName() + " parameters to " + this.file);
+    }
+    catch (final IOException e) {
+      LOG.warn("could not write parameter file " + this.file, e);
+    }
+  }
+}
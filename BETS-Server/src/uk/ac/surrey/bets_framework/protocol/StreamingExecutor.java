@@ -0,0 +1,143 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.CryptoContext;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
+
+/**
+ * Runs the background side of a streamed transfer: either a state producing the items of a {@link ListDataStream} while the
+ * transport sends them, or the transport receiving a stream while a state consumes it. Tasks run in the cryptographic context of
+ * the session which started them.
+ *
+ * @author Steve Wesemeyer
+ */
+public class StreamingExecutor {
+
+  /**
+   * Produces the items of a stream.
+   */
+  public interface Producer {
+
+    /**
+     * Adds all of the items to the stream, but does not close it.
+     *
+     * @param stream The stream to add to.
+     * @return True if all of the items were added, false if the stream should fail.
+     */
+    boolean produce(ListDataStream stream);
+  }
+
+  /** Logback logger. */
+  private static final Logger      LOG      = LoggerFactory.getLogger(StreamingExecutor.class);
+
+  /** The singleton instance. */
+  private static StreamingExecutor instance = null;
+
+  /** The threads used to run the tasks, which are created as needed as each stream occupies a thread for its duration. */
+  private final ExecutorService    executor;
+
+  /**
+   * Private constructor.
+   */
+  private StreamingExecutor() {
+    super();
+
+    final AtomicInteger threads = new AtomicInteger();
+    this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "streaming-" + threads.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * @return The singleton instance.
+   */
+  public static synchronized StreamingExecutor getInstance() {
+    if (instance == null) {
+      instance = new StreamingExecutor();
+    }
+
+    return instance;
+  }
+
+  /**
+   * Starts producing a stream in the background, returning it straight away so that its items can be sent as they are added.
+   * The stream is closed once the producer finishes, or fails if the producer does.
+   *
+   * @param count The number of items which will be produced.
+   * @param producer Produces the items.
+   * @return The stream being produced.
+   */
+  public ListDataStream produce(int count, final Producer producer) {
+    final ListDataStream stream = new ListDataStream(count);
+
+    this.submit(new Runnable() {
+
+      @Override
+      public void run() {
+        boolean result = false;
+
+        try {
+          result = producer.produce(stream);
+        }
+        catch (final RuntimeException e) {
+          LOG.error("could not produce stream", e);
+        }
+
+        if (result) {
+          stream.close();
+        }
+        else {
+          stream.fail("stream producer failed");
+        }
+      }
+    });
+
+    return stream;
+  }
+
+  /**
+   * Runs a task in the background in the cryptographic context of the calling thread.
+   *
+   * @param task The task to run.
+   * @return The pending result of the task.
+   */
+  public Future<?> submit(final Runnable task) {
+    final CryptoContext context = Crypto.getInstance().getContext();
+
+    return this.executor.submit(new Runnable() {
+
+      @Override
+      public void run() {
+        final Crypto crypto = Crypto.getInstance();
+        final CryptoContext previousContext = crypto.setContext(context);
+
+        try {
+          task.run();
+        }
+        finally {
+          crypto.setContext(previousContext);
+        }
+      }
+    });
+  }
+}
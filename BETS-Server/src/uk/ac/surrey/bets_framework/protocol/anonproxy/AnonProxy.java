@@ -5,6 +5,7 @@
  */
 package uk.ac.surrey.bets_framework.protocol.anonproxy;
 
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
@@ -12,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import uk.ac.surrey.bets_framework.icc.ICC;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry;
 import uk.ac.surrey.bets_framework.protocol.ICCCommand;
 import uk.ac.surrey.bets_framework.protocol.ICCStateMachine;
 import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSORegistrationStates;
@@ -137,7 +139,9 @@ public class AnonProxy extends ICCStateMachine {
 	 * Sets the state machine parameters, clearing out any existing parameters.
 	 *
 	 * Parameters are: (int) number of r bits to use in Type A elliptic curve, e.g.
-	 * 256 (default).
+	 * 256 (default), (int) 1 to validate verifiers (default) or 0, (String) the
+	 * file in which the CA registers credentials, otherwise they are held in
+	 * memory.
 	 *
 	 * @param parameters
 	 *            The list of parameters.
@@ -157,6 +161,11 @@ public class AnonProxy extends ICCStateMachine {
 				this.sharedMemory.validateVerifiers = (1 == Integer.parseInt(parameters.get(1)));
 			}
 			LOG.debug("validateVerifiers = " + this.sharedMemory.validateVerifiers);
+
+			if ((parameters.size() > 2) && !parameters.get(2).isEmpty()) {
+				this.sharedMemory.credentialRegistry = new CredentialRegistry(Paths.get(parameters.get(2)));
+				LOG.debug("credential registry = " + parameters.get(2));
+			}
 		}
 
 		catch (final Exception e) {
@@ -11,8 +11,10 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.protocol.ICCCommand;
+import uk.ac.surrey.bets_framework.protocol.PairingBatchVerifier;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.IssuerData;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.TicketDetails;
@@ -62,7 +64,7 @@ public class AnonProxyIssuingStates {
 			final int numberOfVerifiers = userData.VerifierList.length + 1;
 
 			// compute some stuff for the ZKP PI_1_U
-			final Element A_U = g_1.add(g_2.mul(userData.d_u)).add(userData.Y_U);
+			final Element A_U = g_1.add(sharedMemory.mulFixed(g_2, userData.d_u)).add(userData.Y_U);
 			final BigInteger y_1 = crypto.secureRandom(p);
 			final BigInteger y_2 = crypto.secureRandom(p);
 			final BigInteger y_3 = crypto.secureRandom(p);
@@ -85,14 +87,16 @@ public class AnonProxyIssuingStates {
 			final Element sigma_bar_U = userData.sigma_U.mul(y_1).getImmutable();
 			final BigInteger y = (userData.d_u.subtract(y_2.multiply(y_4))).mod(p);
 
-			final Element A_bar_U = A_U.mul(y_1).add(g_2.mul(y_2.negate().mod(p))).getImmutable();
+			final Element A_bar_U = A_U.mul(y_1).add(sharedMemory.mulFixed(g_2, y_2.negate().mod(p))).getImmutable();
 			final Element sigma_tilde_U = (sigma_bar_U.mul(userData.e_u.negate().mod(p))).add(A_U.mul(y_1))
 					.getImmutable();
 
-			final Element W_bar_1 = ((sigma_bar_U.mul(e_dash_u.negate().mod(p))).add(g_2.mul(y_dash_1))).getImmutable();
+			final Element W_bar_1 = ((sigma_bar_U.mul(e_dash_u.negate().mod(p)))
+					.add(sharedMemory.mulFixed(g_2, y_dash_1))).getImmutable();
 			LOG.debug("W_bar_1=" + W_bar_1);
-			final Element W_bar_2 = (((A_bar_U.mul(y_dash_2.negate().mod(p))).add(g_tilde.mul(x_dash_u)))
-					.add(g_2.mul(y_dash))).getImmutable();
+			final Element W_bar_2 = (((A_bar_U.mul(y_dash_2.negate().mod(p)))
+					.add(sharedMemory.mulFixed(g_tilde, x_dash_u)))
+					.add(sharedMemory.mulFixed(g_2, y_dash))).getImmutable();
 
 			final byte[][] k_v = new byte[numberOfVerifiers][];
 			final Element[] P_V = new Element[numberOfVerifiers];
@@ -103,24 +107,24 @@ public class AnonProxyIssuingStates {
 			for (int i = 0; i < numberOfVerifiers; i++) {
 				if (i < numberOfVerifiers - 1) {
 					LOG.debug("adding verifier: " + i);
-					final ListData kvData = new ListData(
-							Arrays.asList(y_3.toByteArray(), userData.VerifierList[i].getBytes()));
-					k_v[i] = crypto.getHash(kvData.toBytes(), AnonProxySharedMemory.Hash1);
+					k_v[i] = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(y_3)
+							.add(userData.VerifierList[i].getBytes()).digest();
 					final BigInteger k_vNum = (new BigInteger(1, k_v[i])).mod(sharedMemory.p);
 					P_V[i] = userData.Y_U.add(Y_CV.mul(k_vNum)).getImmutable();
-					P_dash_V[i] = ((g_tilde.mul(x_dash_u)).add(Y_CV.mul(k_dash_v[i]))).getImmutable();
-					Q_V[i] = g_tilde.mul(k_vNum).getImmutable();
-					Q_dash_V[i] = g_tilde.mul(k_dash_v[i]).getImmutable();
+					P_dash_V[i] = ((sharedMemory.mulFixed(g_tilde, x_dash_u)).add(Y_CV.mul(k_dash_v[i])))
+							.getImmutable();
+					Q_V[i] = sharedMemory.mulFixed(g_tilde, k_vNum).getImmutable();
+					Q_dash_V[i] = sharedMemory.mulFixed(g_tilde, k_dash_v[i]).getImmutable();
 				} else {
 					LOG.debug("adding central verifier!");
-					final ListData kvData = new ListData(
-							Arrays.asList(y_3.toByteArray(), Actor.CENTRAL_VERIFIER.getBytes()));
-					k_v[i] = crypto.getHash(kvData.toBytes(), AnonProxySharedMemory.Hash1);
+					k_v[i] = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(y_3)
+							.add(Actor.CENTRAL_VERIFIER.getBytes()).digest();
 					final BigInteger k_vnum = (new BigInteger(1, k_v[i])).mod(sharedMemory.p);
 					P_V[i] = userData.Y_U.add(Y_CV.mul(k_vnum)).getImmutable();
-					P_dash_V[i] = ((g_tilde.mul(x_dash_u)).add(Y_CV.mul(k_dash_v[i]))).getImmutable();
-					Q_V[i] = g_tilde.mul(k_vnum).getImmutable();
-					Q_dash_V[i] = g_tilde.mul(k_dash_v[i]).getImmutable();
+					P_dash_V[i] = ((sharedMemory.mulFixed(g_tilde, x_dash_u)).add(Y_CV.mul(k_dash_v[i])))
+							.getImmutable();
+					Q_V[i] = sharedMemory.mulFixed(g_tilde, k_vnum).getImmutable();
+					Q_dash_V[i] = sharedMemory.mulFixed(g_tilde, k_dash_v[i]).getImmutable();
 				}
 			}
 			LOG.debug("finished computing ZK_PI_1_U");
@@ -134,7 +138,7 @@ public class AnonProxyIssuingStates {
 				c_DataList.add(Q_V[i].toBytes());
 				c_DataList.add(Q_dash_V[i].toBytes());
 			}
-			final byte[] c_hash = crypto.getHash((new ListData(c_DataList)).toBytes(), AnonProxySharedMemory.Hash1);
+			final byte[] c_hash = new TranscriptHasher(AnonProxySharedMemory.Hash1).addAll(c_DataList).digest();
 			final BigInteger c_hashNum = (new BigInteger(1, c_hash)).mod(p);
 
 			final BigInteger e_hat_U = (e_dash_u.subtract(c_hashNum.multiply(userData.e_u))).mod(p);
@@ -150,8 +154,9 @@ public class AnonProxyIssuingStates {
 			}
 
 			final List<byte[]> sendDataList = new ArrayList<>();
-			sendDataList.addAll(Arrays.asList(sigma_bar_U.toBytes(), sigma_tilde_U.toBytes(), A_bar_U.toBytes(),
-					W_bar_1.toBytes(), W_bar_2.toBytes()));
+			sendDataList.addAll(Arrays.asList(sharedMemory.elementToBytes(sigma_bar_U),
+					sharedMemory.elementToBytes(sigma_tilde_U), sharedMemory.elementToBytes(A_bar_U),
+					sharedMemory.elementToBytes(W_bar_1), sharedMemory.elementToBytes(W_bar_2)));
 
 			// need to send all the verifier IDs
 			sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray());
@@ -165,10 +170,10 @@ public class AnonProxyIssuingStates {
 
 			// send the Ps and Qs
 			for (int i = 0; i < numberOfVerifiers; i++) {
-				sendDataList.add(P_V[i].toBytes());
-				sendDataList.add(P_dash_V[i].toBytes());
-				sendDataList.add(Q_V[i].toBytes());
-				sendDataList.add(Q_dash_V[i].toBytes());
+				sendDataList.add(sharedMemory.elementToBytes(P_V[i]));
+				sendDataList.add(sharedMemory.elementToBytes(P_dash_V[i]));
+				sendDataList.add(sharedMemory.elementToBytes(Q_V[i]));
+				sendDataList.add(sharedMemory.elementToBytes(Q_dash_V[i]));
 			}
 
 			// add the last few items...
@@ -301,7 +306,8 @@ public class AnonProxyIssuingStates {
 			final byte[] c_hash = listData.getList().get(index++);
 
 			// check the hash value is correct
-			final byte[] verifyc_hash = crypto.getHash((new ListData(verifyc_hashData)).toBytes(), AnonProxySharedMemory.Hash1);
+			final byte[] verifyc_hash = new TranscriptHasher(AnonProxySharedMemory.Hash1).addAll(verifyc_hashData)
+					.digest();
 			if (!Arrays.equals(c_hash, verifyc_hash)) {
 				LOG.debug("c_hash verification failed!");
 				return null;
@@ -324,8 +330,10 @@ public class AnonProxyIssuingStates {
 			}
 			LOG.debug("W_bar_1=" + W_bar_1);
 			// check W_bar_1
-			final Element W_1lhs = ((sigma_bar_U.mul(e_hat_u.negate().mod(p))).add(g_2.mul(y_hat_2)))
-					.add((sigma_tilde_U.sub(A_bar_U)).mul(c_hashNum)).getImmutable();
+			final Element W_1lhs = crypto
+					.multiScalarMul(new Element[] { sigma_bar_U, sigma_tilde_U.sub(A_bar_U) },
+							new BigInteger[] { e_hat_u.negate(), c_hashNum })
+					.add(sharedMemory.mulFixed(g_2, y_hat_2)).getImmutable();
 
 			if (!W_bar_1.isEqual(W_1lhs)) {
 				LOG.debug("W_bar_1 verification failed!");
@@ -336,9 +344,9 @@ public class AnonProxyIssuingStates {
 
 			// check W_2
 			Element W_2lhs = (A_bar_U.mul(y_hat_3.negate().mod(p))).getImmutable();
-			W_2lhs = W_2lhs.add(g_tilde.mul(x_hat_u)).getImmutable();
-			W_2lhs = W_2lhs.add(g_2.mul(y_hat_1)).getImmutable();
-			W_2lhs = W_2lhs.add(g_1.mul(c_hashNum.negate().mod(p))).getImmutable();
+			W_2lhs = W_2lhs.add(sharedMemory.mulFixed(g_tilde, x_hat_u)).getImmutable();
+			W_2lhs = W_2lhs.add(sharedMemory.mulFixed(g_2, y_hat_1)).getImmutable();
+			W_2lhs = W_2lhs.add(sharedMemory.mulFixed(g_1, c_hashNum.negate().mod(p))).getImmutable();
 
 			if (!W_bar_2.isEqual(W_2lhs)) {
 				LOG.debug("W_bar_2 verification failed!");
@@ -350,8 +358,10 @@ public class AnonProxyIssuingStates {
 			final Element Y_CV = sharedMemory.getPublicKey(Actor.CENTRAL_VERIFIER)[1];
 
 			for (int i = 0; i < numberOfVerifiers; i++) {
-				final Element P_dash_Vlhs = (g_tilde.mul(x_hat_u)).add(Y_CV.mul(k_hat_v[i]))
-						.add(ticketDetails.P_V[i].mul(c_hashNum)).getImmutable();
+				final Element P_dash_Vlhs = (sharedMemory.mulFixed(g_tilde, x_hat_u))
+						.add(crypto.multiScalarMul(new Element[] { Y_CV, ticketDetails.P_V[i] },
+								new BigInteger[] { k_hat_v[i], c_hashNum }))
+						.getImmutable();
 				if (!P_dash_V[i].isEqual(P_dash_Vlhs)) {
 					LOG.debug("P_dash_V[" + i + "] verification failed!");
 					return null;
@@ -361,7 +371,8 @@ public class AnonProxyIssuingStates {
 			LOG.debug("passed P_dash_V verification!");
 
 			for (int i = 0; i < numberOfVerifiers; i++) {
-				final Element Q_dash_Vlhs = ((g_tilde.mul(k_hat_v[i])).add(ticketDetails.Q_V[i].mul(c_hashNum)))
+				final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(g_tilde, k_hat_v[i]))
+						.add(ticketDetails.Q_V[i].mul(c_hashNum)))
 						.getImmutable();
 				if (!Q_dash_V[i].isEqual(Q_dash_Vlhs)) {
 					LOG.debug("Q_dash_V[" + i + "] verification failed!");
@@ -377,13 +388,13 @@ public class AnonProxyIssuingStates {
 			BigIntEuclidean[] gcd = new BigIntEuclidean[numberOfVerifiers];
 			BigIntEuclidean gcd_cv = null;
 			final BigInteger r_u = crypto.secureRandom(p);
-			final Element R_U = g_bar.mul(r_u);
+			final Element R_U = sharedMemory.mulFixed(g_bar, r_u).getImmutable();
 			
 			ticketDetails.w_cv = crypto.secureRandom(p);
 			ticketDetails.z_cv = crypto.secureRandom(p);
 			//store some values that we can pre-compute
 			final Element[] g1g2_wv=new Element[numberOfVerifiers];
-			final Element g1g2_wcv=g_1.add(g_2.mul(ticketDetails.w_cv));
+			final Element g1g2_wcv=g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_cv));
 			gcd_cv = BigIntEuclidean.calculate(issuerData.x_i.add(ticketDetails.z_cv).mod(p), p);
 			
 			LOG.debug("R_U = " + R_U);
@@ -399,11 +410,10 @@ public class AnonProxyIssuingStates {
 				ticketDetails.w_v[i] = crypto.secureRandom(p);
 				ticketDetails.z_v[i] = crypto.secureRandom(p);
 				//compute some partial elements
-				g1g2_wv[i]=g_1.add(g_2.mul(ticketDetails.w_v[i]));
+				g1g2_wv[i]=g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_v[i]));
 				
-				final ListData D_Vdata = new ListData(
-						Arrays.asList(R_U.toBytes(), ticketDetails.VerifierList[i].getBytes()));
-				final byte[] D_VdataHash = crypto.getHash(D_Vdata.toBytes(), AnonProxySharedMemory.Hash1);
+				final byte[] D_VdataHash = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(R_U)
+						.add(ticketDetails.VerifierList[i].getBytes()).digest();
 				ticketDetails.D_V[i] = sharedMemory.pairing.getG2().newElementFromHash(D_VdataHash, 0,
 						D_VdataHash.length);
 				LOG.debug("Verifier:" + ticketDetails.VerifierList[i]);
@@ -411,19 +421,21 @@ public class AnonProxyIssuingStates {
 				Element ID_Vhash = crypto.getHash(ticketDetails.VerifierList[i].getBytes(), AnonProxySharedMemory.Hash2,
 						sharedMemory.pairing.getG2());
 
-				ticketDetails.E_V_1[i] = sharedMemory.pairing.pairing(Y_tilde_A, ID_Vhash).mul(ticketDetails.t_v[i])
-						.getImmutable();
+				ticketDetails.E_V_1[i] = sharedMemory.getPairingCache().pairingFixedFirst(Y_tilde_A, ID_Vhash)
+						.mul(ticketDetails.t_v[i]).getImmutable();
 				
-				ticketDetails.E_V_2[i] = g_tilde.mul(ticketDetails.t_v[i]);
+				ticketDetails.E_V_2[i] = sharedMemory.mulFixed(g_tilde, ticketDetails.t_v[i]).getImmutable();
 
 				final BigInteger text1_hashNum = (new BigInteger(1,
-						crypto.getHash((new ListData(Arrays.asList(AnonProxySharedMemory.TT.getBytes(),
-								AnonProxySharedMemory.ticket_Text_1.getBytes()))).toBytes(), AnonProxySharedMemory.Hash1))).mod(p);
-				ticketDetails.E_V_3[i] = (theta_1.add(theta_2.mul(text1_hashNum))).mul(ticketDetails.t_v[i]);
+						new TranscriptHasher(AnonProxySharedMemory.Hash1).add(AnonProxySharedMemory.TT.getBytes())
+								.add(AnonProxySharedMemory.ticket_Text_1.getBytes()).digest())).mod(p);
+				ticketDetails.E_V_3[i] = (theta_1.add(sharedMemory.mulFixed(theta_2, text1_hashNum)))
+						.mul(ticketDetails.t_v[i]);
 
 				final BigInteger ID_VhashNum = (new BigInteger(1,
 						crypto.getHash(ticketDetails.VerifierList[i].getBytes(), AnonProxySharedMemory.Hash1))).mod(p);
-				ticketDetails.K_V[i] = (g_tilde.mul(ID_VhashNum)).add(Y_CV.mul(ticketDetails.t_v[i]));
+				ticketDetails.K_V[i] = (sharedMemory.mulFixed(g_tilde, ID_VhashNum))
+						.add(Y_CV.mul(ticketDetails.t_v[i])).getImmutable();
 				
 				gcd[i] = BigIntEuclidean.calculate(issuerData.x_i.add(ticketDetails.z_v[i]).mod(p), p);
 				
@@ -435,17 +447,16 @@ public class AnonProxyIssuingStates {
 			
 			
 			for (int i = 0; i < numberOfVerifiers; i++) {
-				final ListData s_Vdata = new ListData(Arrays.asList(ticketDetails.P_V[i].toBytes(),
-						ticketDetails.Q_V[i].toBytes(), ticketDetails.E_V_1[i].toBytes(),
-						ticketDetails.E_V_2[i].toBytes(), ticketDetails.E_V_3[i].toBytes(),
-						ticketDetails.K_V[i].toBytes(), ticketDetails.ticket_Text_2.getBytes()));
 				
-				ticketDetails.s_V[i] = crypto.getHash(s_Vdata.toBytes(), AnonProxySharedMemory.Hash1);
+				ticketDetails.s_V[i] = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(ticketDetails.P_V[i])
+						.add(ticketDetails.Q_V[i]).add(ticketDetails.E_V_1[i]).add(ticketDetails.E_V_2[i])
+						.add(ticketDetails.E_V_3[i]).add(ticketDetails.K_V[i])
+						.add(ticketDetails.ticket_Text_2.getBytes()).digest();
 				
 				
 				LOG.debug("Issuing s_v[i]"+crypto.base64Encode(ticketDetails.s_V[i]));
 				final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
-				ticketDetails.Z_V[i] = (g1g2_wv[i].add(g_3.mul(s_Vnum))).mul(gcd[i].x.mod(p))
+				ticketDetails.Z_V[i] = (g1g2_wv[i].add(sharedMemory.mulFixed(g_3, s_Vnum))).mul(gcd[i].x.mod(p))
 						.getImmutable();
 
 			}
@@ -459,16 +470,16 @@ public class AnonProxyIssuingStates {
 			for (int i = 0; i < numberOfVerifiers; i++) {
 				s_cvDataList.add(ticketDetails.s_V[i]);
 			}
-			ticketDetails.s_CV = crypto.getHash((new ListData(s_cvDataList)).toBytes(), AnonProxySharedMemory.Hash1);
+			ticketDetails.s_CV = new TranscriptHasher(AnonProxySharedMemory.Hash1).addAll(s_cvDataList).digest();
 			final BigInteger s_cvDataNum = new BigInteger(1, ticketDetails.s_CV).mod(p);
 			
-			ticketDetails.Z_CV = (g1g2_wcv.add(g_3.mul(s_cvDataNum))).mul(gcd_cv.x.mod(p));
+			ticketDetails.Z_CV = (g1g2_wcv.add(sharedMemory.mulFixed(g_3, s_cvDataNum))).mul(gcd_cv.x.mod(p));
 
 			final List<byte[]> sendDataList = new ArrayList<>();
-			sendDataList.add(R_U.toBytes());
+			sendDataList.add(sharedMemory.elementToBytes(R_U));
 			sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray()); // need to keep track of the array
 																					// size
-			ticketDetails.getTicketDetails(sendDataList);
+			ticketDetails.getTicketDetails(sharedMemory, sendDataList);
 			final ListData sendData = new ListData(sendDataList);
 
 			this.stopTiming("ISSUER:compute Ticket");
@@ -534,9 +545,8 @@ public class AnonProxyIssuingStates {
 			if (sharedMemory.validateVerifiers) {
 				for (int i = 0; i < numOfVerifiers; i++) {
 
-					final ListData D_Vdata = new ListData(
-							Arrays.asList(R_U.toBytes(), ticketDetails.VerifierList[i].getBytes()));
-					final byte[] D_VdataHash = crypto.getHash(D_Vdata.toBytes(), AnonProxySharedMemory.Hash1);
+					final byte[] D_VdataHash = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(R_U)
+							.add(ticketDetails.VerifierList[i].getBytes()).digest();
 					final Element verifyD_V = sharedMemory.pairing.getG2().newElementFromHash(D_VdataHash, 0,
 							D_VdataHash.length);
 					if (!ticketDetails.D_V[i].isEqual(verifyD_V)) {
@@ -548,11 +558,10 @@ public class AnonProxyIssuingStates {
 
 				for (int i = 0; i < numOfVerifiers; i++) {
 					LOG.debug("Verifier to be processed: " + ticketDetails.VerifierList[i]);
-					final ListData s_VdataVerify = new ListData(Arrays.asList(ticketDetails.P_V[i].toBytes(),
-							ticketDetails.Q_V[i].toBytes(), ticketDetails.E_V_1[i].toBytes(),
-							ticketDetails.E_V_2[i].toBytes(), ticketDetails.E_V_3[i].toBytes(),
-							ticketDetails.K_V[i].toBytes(), ticketDetails.ticket_Text_2.getBytes()));
-					final byte[] verifys_V = crypto.getHash(s_VdataVerify.toBytes(), AnonProxySharedMemory.Hash1);
+					final byte[] verifys_V = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(ticketDetails.P_V[i])
+							.add(ticketDetails.Q_V[i]).add(ticketDetails.E_V_1[i]).add(ticketDetails.E_V_2[i])
+							.add(ticketDetails.E_V_3[i]).add(ticketDetails.K_V[i])
+							.add(ticketDetails.ticket_Text_2.getBytes()).digest();
 					LOG.debug("verifys_V: "+crypto.base64Encode(verifys_V));
 					LOG.debug("ticket s_v[i]: "+crypto.base64Encode(ticketDetails.s_V[i]));
 					if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
@@ -571,32 +580,13 @@ public class AnonProxyIssuingStates {
 				final Element g_frak = sharedMemory.g_frak.getImmutable();
 				final BigInteger p = sharedMemory.p;
 
-				for (int i = 0; i < numOfVerifiers; i++) {
-					LOG.debug("Verifier: " + i + " is being checked.");
-
-					final Element lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_V[i],
-							Y_tilde_I.add(g_frak.mul(ticketDetails.z_v[i])))).getImmutable();
-					final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
-
-					final Element rhs = (sharedMemory.pairing
-							.pairing((g_1.add(g_2.mul(ticketDetails.w_v[i]))).add(g_3.mul(s_Vnum)), g_frak))
-									.getImmutable();
-
-					if (!lhs.isEqual(rhs)) {
-						LOG.error("failed to verify pairing check [" + i + "] for verifier: "
-								+ ticketDetails.VerifierList[i]);
-						return false;
-					}
-				}
-				LOG.debug("Passed Z_V pairing verification!");
-
 				final List<byte[]> verifys_PData = new ArrayList<>();
 				for (int i = 0; i < numOfVerifiers; i++) {
 					verifys_PData.add(ticketDetails.s_V[i]);
 				}
 
 				if (!Arrays.equals(ticketDetails.s_CV,
-						crypto.getHash((new ListData(verifys_PData)).toBytes(), AnonProxySharedMemory.Hash1))) {
+						new TranscriptHasher(AnonProxySharedMemory.Hash1).addAll(verifys_PData).digest())) {
 					LOG.error("failed to verify s_CV hash");
 					return false;
 				}
@@ -604,20 +594,33 @@ public class AnonProxyIssuingStates {
 				LOG.debug("Passed s_CV verification!");
 
 				final BigInteger s_cvNum = (new BigInteger(1, ticketDetails.s_CV)).mod(p);
-				LOG.debug("Central Verifier is being checked.");
-				final Element lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_CV,
-						Y_tilde_I.add(g_frak.mul(ticketDetails.z_cv)))).getImmutable();
-				LOG.debug("Central Verifier is still being checked. Computed lhs" + lhs);
-				final Element rhs = (sharedMemory.pairing
-						.pairing(g_1.add(g_2.mul(ticketDetails.w_cv)).add(g_3.mul(s_cvNum)), g_frak)).getImmutable();
-				LOG.debug("Central Verifier is still being checked. Computed rhs" + rhs);
-
-				if (!lhs.isEqual(rhs)) {
-					LOG.error("failed to verify Z_CV pairing check");
+
+				// All the tags, including Z_CV, are signed by the issuer so their pairing
+				// equations can be checked together.
+				final PairingBatchVerifier batch = new PairingBatchVerifier(sharedMemory.pairing, Y_tilde_I, g_frak);
+				for (int i = 0; i < numOfVerifiers; i++) {
+					final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
+					batch.add(ticketDetails.Z_V[i], ticketDetails.z_v[i],
+							(g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_v[i])))
+									.add(sharedMemory.mulFixed(g_3, s_Vnum)));
+				}
+				batch.add(ticketDetails.Z_CV, ticketDetails.z_cv,
+						g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_cv))
+								.add(sharedMemory.mulFixed(g_3, s_cvNum)));
+
+				final int failed = batch.verify();
+				if (failed >= 0) {
+					if (failed < numOfVerifiers) {
+						LOG.error("failed to verify pairing check [" + failed + "] for verifier: "
+								+ ticketDetails.VerifierList[failed]);
+					}
+					else {
+						LOG.error("failed to verify Z_CV pairing check");
+					}
 					return false;
 				}
 
-				LOG.debug("Passed Z_CV pairing verification!");
+				LOG.debug("Passed Z_V and Z_CV pairing verification!");
 			}
 			// store the ticket details
 			// note that z_U was stored during the ticket request generation
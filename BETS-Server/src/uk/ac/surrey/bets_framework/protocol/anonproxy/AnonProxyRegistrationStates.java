@@ -5,6 +5,7 @@
  */
 package uk.ac.surrey.bets_framework.protocol.anonproxy;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -16,8 +17,10 @@ import org.slf4j.LoggerFactory;
 import it.unisa.dia.gas.jpbc.Element;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.icc.ICC;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry.Role;
 import uk.ac.surrey.bets_framework.protocol.ICCCommand;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.CentralAuthorityData;
@@ -53,7 +56,8 @@ public class AnonProxyRegistrationStates {
 
 			// Send ID_I, Y_I, Y_tilde_I
 			final ListData sendData = new ListData(
-					Arrays.asList(issuerData.ID_I.getBytes(), issuerData.Y_I.toBytes(), issuerData.Y_tilde_I.toBytes()));
+					Arrays.asList(issuerData.ID_I.getBytes(), sharedMemory.elementToBytes(issuerData.Y_I),
+							sharedMemory.elementToBytes(issuerData.Y_tilde_I)));
 			return sendData.toBytes();
 		}
 
@@ -109,19 +113,27 @@ public class AnonProxyRegistrationStates {
 			final BigInteger e_i = crypto.secureRandom(sharedMemory.p);
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(centralAuthorityData.alpha.add(d_i).mod(sharedMemory.p),
 					sharedMemory.p);
-			final Element sigma_I = (sharedMemory.g_1.add(sharedMemory.g_2.mul(e_i)).add(Y_I))
+			final Element sigma_I = (sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, e_i)).add(Y_I))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
-			centralAuthorityData.ID_I = ID_I;
-			centralAuthorityData.Y_I = Y_I;
-			centralAuthorityData.Y_tilde_I = Y_tilde_I;
-			centralAuthorityData.e_i = e_i;
-			centralAuthorityData.d_i = d_i;
-			centralAuthorityData.sigma_I = sigma_I;
+			final CentralAuthorityData.Credentials issuerDetails = centralAuthorityData.new Credentials();
+			issuerDetails.ID = ID_I;
+			issuerDetails.Y = Y_I;
+			issuerDetails.Y_tilde = Y_tilde_I;
+			issuerDetails.e = e_i;
+			issuerDetails.d = d_i;
+			issuerDetails.sigma = sigma_I;
+
+			try {
+				centralAuthorityData.putCredentials(Role.ISSUER, issuerDetails);
+			} catch (final IOException e) {
+				LOG.error("could not register issuer " + ID_I, e);
+				return null;
+			}
 
 			// Send sigma_I, d_i, e_i
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_I.toBytes(), d_i.toByteArray(), e_i.toByteArray()));
+					Arrays.asList(sharedMemory.elementToBytes(sigma_I), d_i.toByteArray(), e_i.toByteArray()));
 			return sendData.toBytes();
 		}
 
@@ -170,10 +182,12 @@ public class AnonProxyRegistrationStates {
 			// verify the credentials
 			// get the public key of the CA
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[0];
-			final Element lhs = sharedMemory.pairing.pairing(sigma_I, Y_A.add(sharedMemory.g_frak.mul(d_i)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_I, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, d_i)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g_1.add(sharedMemory.g_2.mul(e_i)).add(issuerData.Y_I), sharedMemory.g_frak)
+					.pairing(sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, e_i)).add(issuerData.Y_I),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
@@ -221,7 +235,7 @@ public class AnonProxyRegistrationStates {
 
 			// Send ID_U, Y_U
 			final ListData sendData = new ListData(
-					Arrays.asList(userData.ID_U.getBytes(), userData.Y_U.toBytes()));
+					Arrays.asList(userData.ID_U.getBytes(), sharedMemory.elementToBytes(userData.Y_U)));
 			return sendData.toBytes();
 		}
 
@@ -277,16 +291,24 @@ public class AnonProxyRegistrationStates {
 			final BigInteger d_u = crypto.secureRandom(sharedMemory.p);
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(
 					centralAuthorityData.alpha.add(e_u).mod(sharedMemory.p),sharedMemory.p);
-			final Element sigma_U = (sharedMemory.g_1.add(sharedMemory.g_2.mul(d_u)).add(Y_U))
+			final Element sigma_U = (sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_u)).add(Y_U))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
-			centralAuthorityData.ID_U = ID_U;
-			centralAuthorityData.Y_U = Y_U;
-			centralAuthorityData.d_u = d_u;
-			centralAuthorityData.e_u = e_u;
-			centralAuthorityData.sigma_U = sigma_U;
+			final CentralAuthorityData.Credentials userDetails = centralAuthorityData.new Credentials();
+			userDetails.ID = ID_U;
+			userDetails.Y = Y_U;
+			userDetails.d = d_u;
+			userDetails.e = e_u;
+			userDetails.sigma = sigma_U;
+
+			try {
+				centralAuthorityData.putCredentials(Role.USER, userDetails);
+			} catch (final IOException e) {
+				LOG.error("could not register user " + ID_U, e);
+				return null;
+			}
 			// Send sigma_U, e_u, d_u
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_U.toBytes(), d_u.toByteArray(), e_u.toByteArray()));
+					Arrays.asList(sharedMemory.elementToBytes(sigma_U), d_u.toByteArray(), e_u.toByteArray()));
 			return sendData.toBytes();
 		}
 
@@ -338,10 +360,12 @@ public class AnonProxyRegistrationStates {
 			// verify the credentials
 			// get the public key of the CA
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[0];
-			final Element lhs = sharedMemory.pairing.pairing(sigma_U, Y_A.add(sharedMemory.g_frak.mul(e_u)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_U, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_u)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g_1.add(sharedMemory.g_2.mul(d_u)).add(userData.Y_U), sharedMemory.g_frak)
+					.pairing(sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_u)).add(userData.Y_U),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
@@ -456,9 +480,10 @@ public class AnonProxyRegistrationStates {
 			Element SK_V;
 			
 			//check if we already computed the details for this verifier
-			if (centralAuthorityData.verifiers.containsKey(ID_V)) {
+			CentralAuthorityData.VerifierCredentials verifierDetails = centralAuthorityData
+					.getVerifierCredentials(sharedMemory, ID_V);
+			if (verifierDetails != null) {
 				// we can simply retrieve its details
-				CentralAuthorityData.VerifierCredentials verifierDetails=centralAuthorityData.verifiers.get(ID_V);
 				d_v=verifierDetails.d_v;
 				e_v=verifierDetails.e_v;
 				sigma_V=verifierDetails.sigma_V;
@@ -469,7 +494,8 @@ public class AnonProxyRegistrationStates {
 				final byte[] ID_V_bytes=sharedMemory.stringToBytes(ID_V);
 				hash_IDvData.add(ID_V_bytes);
 				
-				final BigInteger hash_IDvNum = (new BigInteger(1, crypto.getHash((new ListData(hash_IDvData)).toBytes(), sharedMemory.Hash1))).mod(sharedMemory.p);
+				final BigInteger hash_IDvNum = (new BigInteger(1, new TranscriptHasher(sharedMemory.Hash1)
+						.addAll(hash_IDvData).digest())).mod(sharedMemory.p);
 
 				// compute sigma_v
 				e_v = crypto.secureRandom(sharedMemory.p);
@@ -477,25 +503,31 @@ public class AnonProxyRegistrationStates {
 				final BigIntEuclidean gcd = BigIntEuclidean
 						.calculate(centralAuthorityData.alpha.add(e_v).mod(sharedMemory.p), sharedMemory.p);
 
-				sigma_V = (sharedMemory.g_1.add(sharedMemory.g_2.mul(d_v)).add(sharedMemory.g_tilde.mul(hash_IDvNum)))
+				sigma_V = (sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_v))
+						.add(sharedMemory.mulFixed(sharedMemory.g_tilde, hash_IDvNum)))
 						.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 				
 				SK_V=crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()).mul(centralAuthorityData.beta).getImmutable();
 
 				
-				CentralAuthorityData.VerifierCredentials verifierDetails = centralAuthorityData
-						.getVerifierCredentialsInstance();
+				verifierDetails = centralAuthorityData.getVerifierCredentialsInstance();
 				verifierDetails.ID_V = ID_V;
 				verifierDetails.d_v = d_v;
 				verifierDetails.e_v = e_v;
 				verifierDetails.sigma_V = sigma_V;
 				verifierDetails.SK_V=SK_V;
 
-				centralAuthorityData.verifiers.put(ID_V, verifierDetails);
+				try {
+					centralAuthorityData.putVerifierCredentials(verifierDetails);
+				} catch (final IOException e) {
+					LOG.error("could not register verifier " + ID_V, e);
+					return null;
+				}
 			}
 			// Send sigma_V, d_V, e_V, SK_V back
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_V.toBytes(), d_v.toByteArray(), e_v.toByteArray(), SK_V.toBytes()));
+					Arrays.asList(sharedMemory.elementToBytes(sigma_V), d_v.toByteArray(), e_v.toByteArray(),
+							sharedMemory.elementToBytes(SK_V)));
 			return sendData.toBytes();
 
 		}
@@ -562,7 +594,8 @@ public class AnonProxyRegistrationStates {
 			final List<byte[]> hash_IDvData = new ArrayList<>();
 			final byte[] ID_V_bytes=sharedMemory.stringToBytes(verifierData.ID_V);
 			hash_IDvData.add(ID_V_bytes);
-			final BigInteger hash_IDvNum = (new BigInteger(1, crypto.getHash((new ListData(hash_IDvData)).toBytes(), sharedMemory.Hash1))).mod(sharedMemory.p);
+			final BigInteger hash_IDvNum = (new BigInteger(1, new TranscriptHasher(sharedMemory.Hash1)
+					.addAll(hash_IDvData).digest())).mod(sharedMemory.p);
 
 
 			// verify the credentials
@@ -571,10 +604,12 @@ public class AnonProxyRegistrationStates {
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[0];
 			final Element Y_tilde_A=sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[1];
 
-			final Element lhs1 = sharedMemory.pairing.pairing(sigma_V, Y_A.add(sharedMemory.g_frak.mul(e_v)))
+			final Element lhs1 = sharedMemory.pairing
+					.pairing(sigma_V, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_v)))
 					.getImmutable();
 			final Element rhs1 = sharedMemory.pairing
-					.pairing(sharedMemory.g_1.add(sharedMemory.g_2.mul(d_v)).add(sharedMemory.g_tilde.mul(hash_IDvNum)), sharedMemory.g_frak)
+					.pairing(sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_v))
+							.add(sharedMemory.mulFixed(sharedMemory.g_tilde, hash_IDvNum)), sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs1.isEqual(rhs1)) {
@@ -583,8 +618,8 @@ public class AnonProxyRegistrationStates {
 			}
 			LOG.debug("passed the first verification check");
 			//check SK_V
-			final Element lhs2=sharedMemory.pairing.pairing(sharedMemory.g_tilde,SK_V);
-			final Element rhs2=sharedMemory.pairing.pairing(Y_tilde_A,crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()));
+			final Element lhs2=sharedMemory.getPairingCache().pairingFixedFirst(sharedMemory.g_tilde,SK_V);
+			final Element rhs2=sharedMemory.getPairingCache().pairingFixedFirst(Y_tilde_A,crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()));
 			
 			if (!lhs2.isEqual(rhs2)) {
 				LOG.debug("failed the second verification check");
@@ -645,7 +680,8 @@ public class AnonProxyRegistrationStates {
 			final CentralVerifierData cenVerData = (CentralVerifierData) sharedMemory.getData(Actor.CENTRAL_VERIFIER);
 
 			// Send ID_CV, Y_CV
-			final ListData sendData = new ListData(Arrays.asList(cenVerData.ID_V.getBytes(), cenVerData.Y_CV.toBytes()));
+			final ListData sendData = new ListData(
+					Arrays.asList(cenVerData.ID_V.getBytes(), sharedMemory.elementToBytes(cenVerData.Y_CV)));
 			return sendData.toBytes();
 		}
 
@@ -707,9 +743,10 @@ public class AnonProxyRegistrationStates {
 			Element SK_V;
 			
 			//check if we already computed the details for this verifier
-			if (centralAuthorityData.verifiers.containsKey(ID_CV)) {
+			CentralAuthorityData.VerifierCredentials verifierDetails = centralAuthorityData
+					.getVerifierCredentials(sharedMemory, ID_CV);
+			if (verifierDetails != null) {
 				// we can simply retrieve its details
-				CentralAuthorityData.VerifierCredentials verifierDetails=centralAuthorityData.verifiers.get(ID_CV);
 				d_v=verifierDetails.d_v;
 				e_v=verifierDetails.e_v;
 				sigma_V=verifierDetails.sigma_V;
@@ -720,7 +757,8 @@ public class AnonProxyRegistrationStates {
 				final byte[] ID_V_bytes=sharedMemory.stringToBytes(ID_CV);
 				hash_IDvData.add(ID_V_bytes);
 				
-				final BigInteger hash_IDvNum = (new BigInteger(1, crypto.getHash((new ListData(hash_IDvData)).toBytes(), sharedMemory.Hash1))).mod(sharedMemory.p);
+				final BigInteger hash_IDvNum = (new BigInteger(1, new TranscriptHasher(sharedMemory.Hash1)
+						.addAll(hash_IDvData).digest())).mod(sharedMemory.p);
 
 				// compute sigma_CV
 				e_v = crypto.secureRandom(sharedMemory.p);
@@ -728,20 +766,25 @@ public class AnonProxyRegistrationStates {
 				final BigIntEuclidean gcd = BigIntEuclidean
 						.calculate(centralAuthorityData.alpha.add(e_v).mod(sharedMemory.p), sharedMemory.p);
 
-				sigma_V = (sharedMemory.g_1.add(sharedMemory.g_2.mul(d_v)).add(sharedMemory.g_tilde.mul(hash_IDvNum)))
+				sigma_V = (sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_v))
+						.add(sharedMemory.mulFixed(sharedMemory.g_tilde, hash_IDvNum)))
 						.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 				
 				SK_V=crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()).mul(centralAuthorityData.beta).getImmutable();
 
-				CentralAuthorityData.VerifierCredentials verifierDetails = centralAuthorityData
-						.getVerifierCredentialsInstance();
+				verifierDetails = centralAuthorityData.getVerifierCredentialsInstance();
 				verifierDetails.ID_V = ID_CV;
 				verifierDetails.d_v = d_v;
 				verifierDetails.e_v = e_v;
 				verifierDetails.sigma_V = sigma_V;
 				verifierDetails.SK_V=SK_V;
 
-				centralAuthorityData.verifiers.put(ID_CV, verifierDetails);
+				try {
+					centralAuthorityData.putVerifierCredentials(verifierDetails);
+				} catch (final IOException e) {
+					LOG.error("could not register verifier " + ID_CV, e);
+					return null;
+				}
 			}
 			
 			//now compute the specific CV keys
@@ -752,21 +795,29 @@ public class AnonProxyRegistrationStates {
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(centralAuthorityData.alpha.add(e_cv).mod(sharedMemory.p),
 					sharedMemory.p);
 
-			final Element sigma_CV = (sharedMemory.g_1.add(sharedMemory.g_2.mul(d_cv)).add(Y_CV))
+			final Element sigma_CV = (sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_cv)).add(Y_CV))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
-			centralAuthorityData.ID_CV = ID_CV;
-			centralAuthorityData.Y_CV = Y_CV;
-			centralAuthorityData.d_cv = d_cv;
-			centralAuthorityData.e_cv = e_cv;
-			centralAuthorityData.sigma_CV = sigma_CV;
+			final CentralAuthorityData.Credentials cvDetails = centralAuthorityData.new Credentials();
+			cvDetails.ID = ID_CV;
+			cvDetails.Y = Y_CV;
+			cvDetails.d = d_cv;
+			cvDetails.e = e_cv;
+			cvDetails.sigma = sigma_CV;
+
+			try {
+				centralAuthorityData.putCredentials(Role.CENTRAL_VERIFIER, cvDetails);
+			} catch (final IOException e) {
+				LOG.error("could not register central verifier " + ID_CV, e);
+				return null;
+			}
 
 			
 			
 			// Send sigma_V, d_v, e_v, SK_V, sigma_CV, d_cv, e_cv back
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_V.toBytes(), d_v.toByteArray(), e_v.toByteArray(), SK_V.toBytes(),
-							sigma_CV.toBytes(), d_cv.toByteArray(), e_cv.toByteArray()));
+					Arrays.asList(sharedMemory.elementToBytes(sigma_V), d_v.toByteArray(), e_v.toByteArray(),
+							sharedMemory.elementToBytes(SK_V), sharedMemory.elementToBytes(sigma_CV), d_cv.toByteArray(), e_cv.toByteArray()));
 		
 			return sendData.toBytes();
 		}
@@ -828,7 +879,8 @@ public class AnonProxyRegistrationStates {
 			final List<byte[]> hash_IDvData = new ArrayList<>();
 			final byte[] ID_V_bytes=sharedMemory.stringToBytes(cenVerData.ID_V);
 			hash_IDvData.add(ID_V_bytes);
-			final BigInteger hash_IDvNum = (new BigInteger(1, crypto.getHash((new ListData(hash_IDvData)).toBytes(), sharedMemory.Hash1))).mod(sharedMemory.p);
+			final BigInteger hash_IDvNum = (new BigInteger(1, new TranscriptHasher(sharedMemory.Hash1)
+					.addAll(hash_IDvData).digest())).mod(sharedMemory.p);
 
 
 			// verify the credentials
@@ -837,10 +889,12 @@ public class AnonProxyRegistrationStates {
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[0];
 			final Element Y_tilde_A=sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY)[1];
 
-			final Element lhs1 = sharedMemory.pairing.pairing(sigma_V, Y_A.add(sharedMemory.g_frak.mul(e_v)))
+			final Element lhs1 = sharedMemory.pairing
+					.pairing(sigma_V, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_v)))
 					.getImmutable();
 			final Element rhs1 = sharedMemory.pairing
-					.pairing(sharedMemory.g_1.add(sharedMemory.g_2.mul(d_v)).add(sharedMemory.g_tilde.mul(hash_IDvNum)), sharedMemory.g_frak)
+					.pairing(sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_v))
+							.add(sharedMemory.mulFixed(sharedMemory.g_tilde, hash_IDvNum)), sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs1.isEqual(rhs1)) {
@@ -849,8 +903,8 @@ public class AnonProxyRegistrationStates {
 			}
 			LOG.debug("passed the first CV as V verification check");
 			//check SK_V
-			final Element lhs2=sharedMemory.pairing.pairing(sharedMemory.g_tilde,SK_V);
-			final Element rhs2=sharedMemory.pairing.pairing(Y_tilde_A,crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()));
+			final Element lhs2=sharedMemory.getPairingCache().pairingFixedFirst(sharedMemory.g_tilde,SK_V);
+			final Element rhs2=sharedMemory.getPairingCache().pairingFixedFirst(Y_tilde_A,crypto.getHash(ID_V_bytes, sharedMemory.Hash2,sharedMemory.pairing.getG2()));
 			
 			if (!lhs2.isEqual(rhs2)) {
 				LOG.debug("failed the second CV as V verification check");
@@ -865,10 +919,12 @@ public class AnonProxyRegistrationStates {
 			// verify the credentials
 
 
-			final Element lhs = sharedMemory.pairing.pairing(sigma_CV, Y_A.add(sharedMemory.g_frak.mul(e_cv)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_CV, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_cv)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g_1.add(sharedMemory.g_2.mul(d_cv)).add(cenVerData.Y_CV), sharedMemory.g_frak)
+					.pairing(sharedMemory.g_1.add(sharedMemory.mulFixed(sharedMemory.g_2, d_cv)).add(cenVerData.Y_CV),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
@@ -9,13 +9,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Field;
 import it.unisa.dia.gas.jpbc.Pairing;
 import it.unisa.dia.gas.jpbc.PairingParametersGenerator;
-import it.unisa.dia.gas.plaf.jpbc.pairing.PairingFactory;
+import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
+import it.unisa.dia.gas.plaf.jpbc.pairing.f.TypeFCurveGenerator;
 import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
 import it.unisa.dia.gas.plaf.jpbc.pbc.curve.PBCTypeFCurveGenerator;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry;
+import uk.ac.surrey.bets_framework.protocol.ElementPowPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.ICCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.PairingBackend;
+import uk.ac.surrey.bets_framework.protocol.PairingPreProcessingCache;
+import uk.ac.surrey.bets_framework.protocol.ParameterStore;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.CentralVerifierData;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.IssuerData;
@@ -66,6 +73,9 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 	 */
 	public static final byte[] PAIRING_RANDOM_SEED = AnonProxySharedMemory.class.getSimpleName().getBytes();
 
+	/** The name of the parameter store section holding the public parameters. */
+	private static final String PARAMETER_SECTION = "AnonProxy";
+
 	/** Mapping of actor ID to their data. */
 	private transient final Map<String, ActorData> actorData = new HashMap<>();
 
@@ -81,6 +91,12 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 
 	boolean validateVerifiers = true; // this can be quite time consuming, esp if done on Android!
 
+	/**
+	 * The credentials issued by the CA to users, issuers and verifiers. Held in
+	 * memory unless a log file is set as a parameter.
+	 */
+	public transient CredentialRegistry credentialRegistry = new CredentialRegistry();
+
 
 	/** Random generator of the group G1. */
 	public Element g_tilde = null;
@@ -116,6 +132,15 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 	 */
 	public transient Pairing pairing = null;
 
+	/** Cached pre-processing for pairings with a fixed argument. */
+	private transient PairingPreProcessingCache pairingCache = null;
+
+	/** Cached fixed-base multiplication tables for the public generators. */
+	private transient ElementPowPreProcessingCache mulCache = null;
+
+	/** The saved parameters currently in use, or null if they were generated. */
+	private transient ParameterStore.Section parameters = null;
+
 	/** The bilinear group pairing parameters. */
 	public PropertiesParameters pairingParameters = null;
 
@@ -188,16 +213,27 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 		// across protocol runs.
 		Crypto.getInstance().clearRandomOracleHashes();
 		this.actor = Actor.CENTRAL_AUTHORITY;
-		this.setBilinearGroup();
 
-		// Set up the public parameters, which need the bilinear group
-		this.setPublicParameters();
+		// Reload the bilinear group and public parameters if they have been saved,
+		// otherwise generate them.
+		if (!this.loadParameters()) {
+			this.setBilinearGroup();
+
+			// Set up the public parameters, which need the bilinear group
+			this.setPublicParameters();
+			this.saveParameters();
+		}
 
 		// Create all the entities needed for a protocol run
 
 		// The Central Authority
+		// A new CA cannot use the credentials registered in memory by the previous
+		// one, so only a registry in a file is kept.
+		if (!this.credentialRegistry.isPersistent()) {
+			this.credentialRegistry = new CredentialRegistry();
+		}
 		CentralAuthorityData caData = new CentralAuthorityData(Actor.CENTRAL_AUTHORITY, this.p, this.g_frak,
-				this.g_tilde);
+				this.g_tilde, this.credentialRegistry);
 		this.actorData.put(Actor.CENTRAL_AUTHORITY, caData);
 
 		// The CA's public keys
@@ -232,6 +268,113 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 		// we can only store the public key of the CV when it acts as the CV
 		this.Y_CV = cvData.Y_CV;
 
+		this.setPairingCache();
+	}
+
+	/**
+	 * @return The pairing pre-processing cache for the current pairing, creating
+	 *         it if needed.
+	 */
+	public PairingPreProcessingCache getPairingCache() {
+		if ((this.pairingCache == null) || (this.pairingCache.getPairing() != this.pairing)) {
+			this.setPairingCache();
+		}
+
+		return this.pairingCache;
+	}
+
+	/**
+	 * Multiplies an element by a scalar, using the fixed-base multiplication
+	 * tables if the element is one of the public generators.
+	 *
+	 * @param fixed
+	 *            The element to multiply.
+	 * @param scalar
+	 *            The scalar to multiply by.
+	 * @return The result of the multiplication.
+	 */
+	public Element mulFixed(Element fixed, BigInteger scalar) {
+		if (this.mulCache == null) {
+			this.setMulCache();
+		}
+
+		return this.mulCache.mul(fixed, scalar);
+	}
+
+	/**
+	 * @return The configuration which the saved parameters must have been
+	 *         generated for.
+	 */
+	private String getParameterConfiguration() {
+		return "rBits=" + this.rBits;
+	}
+
+	/**
+	 * Loads the bilinear group and public parameters from the parameter store, if
+	 * they have been saved for the current number of r bits. Parameters which have
+	 * already been loaded are kept as they are.
+	 *
+	 * @return True if the parameters were loaded.
+	 */
+	private boolean loadParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+		final ParameterStore.Section section = (store == null) ? null
+				: store.getSection(PARAMETER_SECTION, this.getParameterConfiguration());
+
+		if (section == null) {
+			return false;
+		}
+
+		if (section != this.parameters) {
+			try {
+				final SecureRandom prng = new Crypto.PRNGSecureRandom(PAIRING_RANDOM_SEED);
+				this.pairingParameters = section.getPairingParameters("pairingParameters");
+				this.pairing = PairingBackend.getPairing(
+						PairingBackend.select(AnonProxy.class.getSimpleName(), this.pairingParameters, prng, true),
+						this.pairingParameters, prng);
+				this.p = this.pairingParameters.getBigInteger("r");
+
+				final Field<?> G1 = this.pairing.getG1();
+				this.g_tilde = section.getElement("g_tilde", G1);
+				this.g_bar = section.getElement("g_bar", G1);
+				this.g_1 = section.getElement("g_1", G1);
+				this.g_2 = section.getElement("g_2", G1);
+				this.g_3 = section.getElement("g_3", G1);
+
+				final Field<?> G2 = this.pairing.getG2();
+				this.g_frak = section.getElement("g_frak", G2);
+				this.theta1 = section.getElement("theta1", G2);
+				this.theta2 = section.getElement("theta2", G2);
+			} catch (final RuntimeException e) {
+				LOG.warn("could not load saved parameters", e);
+				return false;
+			}
+
+			this.setMulCache();
+			this.parameters = section;
+			LOG.debug("loaded bilinear group with r = " + this.rBits);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Saves the bilinear group and public parameters to the parameter store, if
+	 * there is one.
+	 */
+	private void saveParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+
+		if (store != null) {
+			final ParameterStore.Section section = new ParameterStore.Section(PARAMETER_SECTION,
+					this.getParameterConfiguration());
+			section.put("pairingParameters", this.pairingParameters);
+			section.put("g_tilde", this.g_tilde).put("g_bar", this.g_bar).put("g_1", this.g_1).put("g_2", this.g_2)
+					.put("g_3", this.g_3);
+			section.put("g_frak", this.g_frak).put("theta1", this.theta1).put("theta2", this.theta2);
+			store.putSection(section);
+			this.parameters = section;
+		}
 	}
 
 	private void setPublicParameters() {
@@ -249,6 +392,29 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 		this.g_frak = this.pairing.getG2().newRandomElement().getImmutable();
 		this.theta1 = this.pairing.getG2().newRandomElement().getImmutable();
 		this.theta2 = this.pairing.getG2().newRandomElement().getImmutable();
+
+		// Pre-compute the fixed-base multiplication tables for the generators.
+		this.setMulCache();
+	}
+
+	/**
+	 * Pre-processes the generator and central authority key which are used as
+	 * fixed G1 pairing arguments.
+	 */
+	private void setPairingCache() {
+		// The pairing is asymmetric, so fixed arguments in G2 cannot be
+		// pre-processed.
+		this.pairingCache = new PairingPreProcessingCache(this.pairing);
+		this.pairingCache.addAll(this.g_tilde, this.Y_tilde_A);
+	}
+
+	/**
+	 * Builds the fixed-base multiplication tables for the public generators.
+	 */
+	private void setMulCache() {
+		this.mulCache = new ElementPowPreProcessingCache();
+		this.mulCache.addAll(this.g_tilde, this.g_bar, this.g_1, this.g_2, this.g_3);
+		this.mulCache.addAll(this.g_frak, this.theta1, this.theta2);
 	}
 
 	private void setBilinearGroup() {
@@ -256,16 +422,17 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 		// generator), and subsequently our bilinear group
 		// pairing.
 		final SecureRandom prng = new Crypto.PRNGSecureRandom(PAIRING_RANDOM_SEED);
+		final String protocol = AnonProxy.class.getSimpleName();
 		
+		// Generate the curve natively if the native pairing backend might be used.
+		final PairingParametersGenerator<?> generator = PairingBackend.isNativePossible(protocol)
+				? new PBCTypeFCurveGenerator(this.rBits) : new TypeFCurveGenerator(prng, this.rBits);
 		
-		final PairingParametersGenerator<?> generator = new PBCTypeFCurveGenerator(this.rBits);
-		PairingFactory.getInstance().setUsePBCWhenPossible(true);
-		
-		//PairingParametersGenerator<?> generator = new  TypeFCurveGenerator(prng, this.rBits);
 		//PairingParametersGenerator<?> generator = new  TypeACurveGenerator(this.rBits, 2*this.rBits);
 		
 		this.pairingParameters = (PropertiesParameters) generator.generate();
-		this.pairing = PairingFactory.getPairing(this.pairingParameters, prng);
+		this.pairing = PairingBackend.getPairing(PairingBackend.select(protocol, this.pairingParameters, prng, true),
+				this.pairingParameters, prng);
 		this.p = this.pairingParameters.getBigInteger("r");
 		if (!Crypto.getInstance().isPrime(p)) {
 			throw new IllegalStateException("p is not prime: " + this.p);
@@ -303,6 +470,51 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 		return data;
 	}
 
+	/**
+	 * Creates an element from a byte array. Curve points may be either compressed
+	 * or uncompressed.
+	 *
+	 * @param field
+	 *            The field the element belongs to.
+	 * @param bytes
+	 *            The bytes containing the element data.
+	 * @return The restored element.
+	 */
+	private Element elementFromBytes(Field<?> field, byte[] bytes) {
+		final Element element = field.newElement();
+
+		// The two forms always differ in length, so the length tells us which we have.
+		if ((element instanceof CurveElement)
+				&& (bytes.length == ((CurveElement<?, ?>) element).getLengthInBytesCompressed())) {
+			((CurveElement<?, ?>) element).setFromBytesCompressed(bytes);
+		} else {
+			element.setFromBytes(bytes);
+		}
+
+		return element.getImmutable();
+	}
+
+	/**
+	 * Converts an element into bytes to be sent, compressing curve points if point
+	 * compression has been negotiated.
+	 *
+	 * @param element
+	 *            The element to convert.
+	 * @return The bytes to send.
+	 */
+	public byte[] elementToBytes(Element element) {
+		byte[] bytes = element.toBytes();
+		final Crypto crypto = Crypto.getInstance();
+
+		if (crypto.isPointCompression() && (element instanceof CurveElement)) {
+			final byte[] compressed = ((CurveElement<?, ?>) element).toBytesCompressed();
+			crypto.addPointBytesSaved(bytes.length - compressed.length);
+			bytes = compressed;
+		}
+
+		return bytes;
+	}
+
 	/**
 	 * Convenience method to create a G1 finite element from a byte array.
 	 *
@@ -311,8 +523,7 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 	 * @return The restored G1 finite element.
 	 */
 	public Element G1ElementFromBytes(byte[] bytes) {
-		final Element element = this.pairing.getG1().newElementFromBytes(bytes);
-		return element.getImmutable();
+		return this.elementFromBytes(this.pairing.getG1(), bytes);
 	}
 
 	/**
@@ -323,8 +534,7 @@ public class AnonProxySharedMemory extends ICCSharedMemory {
 	 * @return The restored G2 finite element.
 	 */
 	public Element G2ElementFromBytes(byte[] bytes) {
-		final Element element = this.pairing.getG2().newElementFromBytes(bytes);
-		return element.getImmutable();
+		return this.elementFromBytes(this.pairing.getG2(), bytes);
 	}
 
 	/**
@@ -12,9 +12,12 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.ICCCommand;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.PairingBatchVerifier;
+import uk.ac.surrey.bets_framework.protocol.ParallelVerifier;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.data.CentralVerifierData;
@@ -156,9 +159,8 @@ public class AnonProxyVerifyingStates {
 			}
 			LOG.debug("If we have a tag for ID_V = " + ID_V + " then send that...");
 
-			byte[] D_VdataHash = crypto.getHash(
-					(new ListData(Arrays.asList(userData.R_U.toBytes(), ID_V.getBytes()))).toBytes(),
-					sharedMemory.Hash1);
+			byte[] D_VdataHash = new TranscriptHasher(sharedMemory.Hash1).add(userData.R_U).add(ID_V.getBytes())
+					.digest();
 			Element D_Vhash = sharedMemory.pairing.getG2().newElementFromHash(D_VdataHash, 0, D_VdataHash.length);
 
 			TicketDetails userTicket = userData.ticketDetails;
@@ -166,9 +168,8 @@ public class AnonProxyVerifyingStates {
 			if (index == -1) {
 				LOG.debug("Did not find a tag for ID_V: " + ID_V);
 				LOG.debug("Now looking for ID_proxy: " + ID_proxy);
-				D_VdataHash = crypto.getHash(
-						(new ListData(Arrays.asList(userData.R_U.toBytes(), ID_proxy.getBytes()))).toBytes(),
-						sharedMemory.Hash1);
+				D_VdataHash = new TranscriptHasher(sharedMemory.Hash1).add(userData.R_U).add(ID_proxy.getBytes())
+						.digest();
 				D_Vhash = sharedMemory.pairing.getG2().newElementFromHash(D_VdataHash, 0, D_VdataHash.length);
 				index = userTicket.getVerifierIndex(D_Vhash);
 				if (index == -1) {
@@ -187,22 +188,19 @@ public class AnonProxyVerifyingStates {
 			String hashIDV = (inProxyMode ? ID_proxy : ID_V);
 			LOG.debug("Using hasIDV=" + hashIDV);
 
-			final byte[] k_vHash = crypto.getHash(
-					(new ListData(Arrays.asList(userData.y_3.toByteArray(), hashIDV.getBytes()))).toBytes(),
-					sharedMemory.Hash1);
+			final byte[] k_vHash = new TranscriptHasher(sharedMemory.Hash1).add(userData.y_3).add(hashIDV.getBytes())
+					.digest();
 			final BigInteger k_vNum = (new BigInteger(1, k_vHash)).mod(p);
 
 			final BigInteger x_dash_u = crypto.secureRandom(p);
 			final BigInteger k_dash_v = crypto.secureRandom(p);
 
-			final Element P_dash_V = ((g_tilde.mul(x_dash_u)).add(Y_CV.mul(k_dash_v))).getImmutable();
-			final Element Q_dash_V = (g_tilde.mul(k_dash_v)).getImmutable();
+			final Element P_dash_V = ((sharedMemory.mulFixed(g_tilde, x_dash_u)).add(Y_CV.mul(k_dash_v)))
+					.getImmutable();
+			final Element Q_dash_V = (sharedMemory.mulFixed(g_tilde, k_dash_v)).getImmutable();
 
-			final byte[] c_vHash = crypto
-					.getHash(
-							(new ListData(Arrays.asList(userTicket.P_V[index].toBytes(), P_dash_V.toBytes(),
-									userTicket.Q_V[index].toBytes(), Q_dash_V.toBytes()))).toBytes(),
-							sharedMemory.Hash1);
+			final byte[] c_vHash = new TranscriptHasher(sharedMemory.Hash1).add(userTicket.P_V[index]).add(P_dash_V)
+					.add(userTicket.Q_V[index]).add(Q_dash_V).digest();
 
 			final BigInteger c_vNum = (new BigInteger(1, c_vHash)).mod(p);
 
@@ -214,20 +212,23 @@ public class AnonProxyVerifyingStates {
 			final List<byte[]> sendDataList = new ArrayList<>();
 			sendDataList.add(sharedMemory.stringToBytes(hashIDV));
 
-			sendDataList.addAll(Arrays.asList(userTicket.P_V[index].toBytes(), P_dash_V.toBytes(),
-					userTicket.Q_V[index].toBytes(), Q_dash_V.toBytes(), c_vHash, x_hat_u.toByteArray(),
-					k_hat_v.toByteArray(), userTicket.E_V_1[index].toBytes(), userTicket.E_V_2[index].toBytes(),
-					userTicket.E_V_3[index].toBytes(), userTicket.K_V[index].toBytes(),
+			sendDataList.addAll(Arrays.asList(sharedMemory.elementToBytes(userTicket.P_V[index]),
+					sharedMemory.elementToBytes(P_dash_V), sharedMemory.elementToBytes(userTicket.Q_V[index]),
+					sharedMemory.elementToBytes(Q_dash_V), c_vHash, x_hat_u.toByteArray(), k_hat_v.toByteArray(),
+					sharedMemory.elementToBytes(userTicket.E_V_1[index]),
+					sharedMemory.elementToBytes(userTicket.E_V_2[index]),
+					sharedMemory.elementToBytes(userTicket.E_V_3[index]),
+					sharedMemory.elementToBytes(userTicket.K_V[index]),
 					sharedMemory.stringToBytes(userTicket.ticket_Text_2), userTicket.s_V[index],
 					userTicket.w_v[index].toByteArray(), userTicket.z_v[index].toByteArray(),
-					userTicket.Z_V[index].toBytes()));
+					sharedMemory.elementToBytes(userTicket.Z_V[index])));
 
 			// if it was the central verifier who asked then we need to add the whole
 			// ticket, too
 			if (ID_V.equalsIgnoreCase(Actor.CENTRAL_VERIFIER)) {
 				this.isTicketTrace = true;
 				LOG.debug("it's a trace so add the whole ticket, too!");
-				userData.ticketDetails.getTicketDetails(sendDataList);
+				userData.ticketDetails.getTicketDetails(sharedMemory, sendDataList);
 			}
 			final ListData sendData = new ListData(sendDataList);
 			return sendData.toBytes();
@@ -330,10 +331,8 @@ public class AnonProxyVerifyingStates {
 			final BigInteger x_hat_u = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 			final BigInteger k_hat_v = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 
-			final byte[] verifyc_Vhash = crypto.getHash(
-					(new ListData(Arrays.asList(P_V.toBytes(), P_dash_V.toBytes(), Q_V.toBytes(), Q_dash_V.toBytes())))
-							.toBytes(),
-					sharedMemory.Hash1);
+			final byte[] verifyc_Vhash = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(P_dash_V).add(Q_V)
+					.add(Q_dash_V).digest();
 			if (!Arrays.equals(c_vHash, verifyc_Vhash)) {
 				LOG.debug("c_vHash verification failed");
 				return false;
@@ -341,7 +340,8 @@ public class AnonProxyVerifyingStates {
 
 			LOG.debug("passed c_vHash verification");
 
-			final Element P_dash_Vlhs = (((g_tilde.mul(x_hat_u)).add(Y_CV.mul(k_hat_v))).add(P_V.mul(c_vNum)))
+			final Element P_dash_Vlhs = (sharedMemory.mulFixed(g_tilde, x_hat_u))
+					.add(crypto.multiScalarMul(new Element[] { Y_CV, P_V }, new BigInteger[] { k_hat_v, c_vNum }))
 					.getImmutable();
 			LOG.debug("P_dash_Vlhs = " + P_dash_Vlhs);
 			if (!P_dash_V.isEqual(P_dash_Vlhs)) {
@@ -350,7 +350,7 @@ public class AnonProxyVerifyingStates {
 			}
 			LOG.debug("passed P_dash_V verification");
 
-			final Element Q_dash_Vlhs = ((g_tilde.mul(k_hat_v)).add(Q_V.mul(c_vNum))).getImmutable();
+			final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(g_tilde, k_hat_v)).add(Q_V.mul(c_vNum))).getImmutable();
 			if (!Q_dash_V.isEqual(Q_dash_Vlhs)) {
 				LOG.debug("Q_dash_V verification failed");
 				return false;
@@ -371,17 +371,18 @@ public class AnonProxyVerifyingStates {
 			final BigInteger z_v = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 			final Element Z_V = sharedMemory.G1ElementFromBytes(listData.getList().get(index++));
 
-			final ListData s_Vdata = new ListData(Arrays.asList(P_V.toBytes(), Q_V.toBytes(), E_V_1.toBytes(),
-					E_V_2.toBytes(), E_V_3.toBytes(), T_V.toBytes(), ticket_Text_2.getBytes()));
-			final byte[] s_Vrhs = crypto.getHash(s_Vdata.toBytes(), sharedMemory.Hash1);
+			final byte[] s_Vrhs = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(Q_V).add(E_V_1).add(E_V_2)
+					.add(E_V_3).add(T_V).add(ticket_Text_2.getBytes()).digest();
 			if (!Arrays.equals(s_Vhash, s_Vrhs)) {
 				LOG.debug("s_V hash verification failed!");
 				return false;
 			}
 			LOG.debug("passed s_V hash verification!");
 
-			final Element lhs = sharedMemory.pairing.pairing(Z_V, Y_tilde_I.add(g_frak.mul(z_v))).getImmutable();
-			final Element rhs = sharedMemory.pairing.pairing(g_1.add(g_2.mul(w_v)).add(g_3.mul(s_Vnum)), g_frak)
+			final Element lhs = sharedMemory.pairing.pairing(Z_V, Y_tilde_I.add(sharedMemory.mulFixed(g_frak, z_v)))
+					.getImmutable();
+			final Element rhs = sharedMemory.pairing
+					.pairing(g_1.add(sharedMemory.mulFixed(g_2, w_v)).add(sharedMemory.mulFixed(g_3, s_Vnum)), g_frak)
 					.getImmutable();
 			if (!lhs.isEqual(rhs)) {
 				LOG.debug("pairing verification failed!");
@@ -529,10 +530,8 @@ public class AnonProxyVerifyingStates {
 			final BigInteger x_hat_u = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 			final BigInteger k_hat_v = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 
-			final byte[] verifyc_Vhash = crypto.getHash(
-					(new ListData(Arrays.asList(P_V.toBytes(), P_dash_V.toBytes(), Q_V.toBytes(), Q_dash_V.toBytes())))
-							.toBytes(),
-					sharedMemory.Hash1);
+			final byte[] verifyc_Vhash = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(P_dash_V).add(Q_V)
+					.add(Q_dash_V).digest();
 			if (!Arrays.equals(c_vHash, verifyc_Vhash)) {
 				LOG.debug("c_vHash verification failed");
 				return null;
@@ -540,7 +539,8 @@ public class AnonProxyVerifyingStates {
 
 			LOG.debug("passed c_vHash verification");
 
-			final Element P_dash_Vlhs = (((g_tilde.mul(x_hat_u)).add(Y_CV.mul(k_hat_v))).add(P_V.mul(c_vNum)))
+			final Element P_dash_Vlhs = (sharedMemory.mulFixed(g_tilde, x_hat_u))
+					.add(crypto.multiScalarMul(new Element[] { Y_CV, P_V }, new BigInteger[] { k_hat_v, c_vNum }))
 					.getImmutable();
 			LOG.debug("P_dash_Vlhs = " + P_dash_Vlhs);
 			if (!P_dash_V.isEqual(P_dash_Vlhs)) {
@@ -549,7 +549,7 @@ public class AnonProxyVerifyingStates {
 			}
 			LOG.debug("passed P_dash_V verification");
 
-			final Element Q_dash_Vlhs = ((g_tilde.mul(k_hat_v)).add(Q_V.mul(c_vNum))).getImmutable();
+			final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(g_tilde, k_hat_v)).add(Q_V.mul(c_vNum))).getImmutable();
 			if (!Q_dash_V.isEqual(Q_dash_Vlhs)) {
 				LOG.debug("Q_dash_V verification failed");
 				return null;
@@ -570,9 +570,8 @@ public class AnonProxyVerifyingStates {
 			final BigInteger z_v = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 			final Element Z_V = sharedMemory.G1ElementFromBytes(listData.getList().get(index++));
 
-			final ListData s_Vdata = new ListData(Arrays.asList(P_V.toBytes(), Q_V.toBytes(), E_V_1.toBytes(),
-					E_V_2.toBytes(), E_V_3.toBytes(), T_V.toBytes(), ticket_Text_2.getBytes()));
-			final byte[] s_Vrhs = crypto.getHash(s_Vdata.toBytes(), sharedMemory.Hash1);
+			final byte[] s_Vrhs = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(Q_V).add(E_V_1).add(E_V_2)
+					.add(E_V_3).add(T_V).add(ticket_Text_2.getBytes()).digest();
 			if (!Arrays.equals(s_Vhash, s_Vrhs)) {
 				LOG.debug("s_V hash verification failed!");
 				return null;
@@ -586,8 +585,10 @@ public class AnonProxyVerifyingStates {
 			}
 			LOG.debug("passed E_V_1 verification!");
 
-			Element lhs = sharedMemory.pairing.pairing(Z_V, Y_tilde_I.add(g_frak.mul(z_v))).getImmutable();
-			Element rhs = sharedMemory.pairing.pairing(g_1.add(g_2.mul(w_v)).add(g_3.mul(s_Vnum)), g_frak)
+			final Element lhs = sharedMemory.pairing.pairing(Z_V, Y_tilde_I.add(sharedMemory.mulFixed(g_frak, z_v)))
+					.getImmutable();
+			final Element rhs = sharedMemory.pairing
+					.pairing(g_1.add(sharedMemory.mulFixed(g_2, w_v)).add(sharedMemory.mulFixed(g_3, s_Vnum)), g_frak)
 					.getImmutable();
 			if (!lhs.isEqual(rhs)) {
 				LOG.debug("pairing verification failed!");
@@ -597,71 +598,63 @@ public class AnonProxyVerifyingStates {
 
 			int numOfVerifiers = (listData.getList().size() - 23) / 12;
 			LOG.debug("We should have " + numOfVerifiers + " verifiers");
-			TicketDetails ticketDetails = new TicketDetails(numOfVerifiers);
+			final TicketDetails ticketDetails = new TicketDetails(numOfVerifiers);
 			ticketDetails.populateTicketDetails(sharedMemory, listData, index);
 
-			Element Y_U_1 = null;
-			Element Y_U_2 = null;
-			Element verifierPK = null;
-
 			boolean ZKPTagPresent = false;
-
-			Y_U_1 = ticketDetails.P_V[0].div(ticketDetails.Q_V[0].mul(cenVerData.x_cv)).getImmutable();
-			LOG.debug("Ticket details for: " + ticketDetails.VerifierList[0]);
-			LOG.debug("Public key of user from tag[0]: " + Y_U_1);
-			LOG.debug("Public key of user from sharedMemory: " + sharedMemory.Y_U);
-
-			verifierPK = ticketDetails.K_V[0].div(ticketDetails.E_V_2[0].mul(cenVerData.x_cv));
-			if ((P_V.equals(ticketDetails.P_V[0]) && (Q_V.equals(ticketDetails.Q_V[0])))) {
-				ZKPTagPresent = true;
-			}
-			LOG.debug("Verifier[0] has public key: " + verifierPK);
-			for (int i = 1; i < numOfVerifiers; i++) {
-				Y_U_2 = ticketDetails.P_V[i].div(ticketDetails.Q_V[i].mul(cenVerData.x_cv)).getImmutable();
-				LOG.debug("Ticket details for: " + ticketDetails.VerifierList[i]);
-				LOG.debug("Public key of user from tag[" + i + "]: " + Y_U_2);
-				verifierPK = ticketDetails.K_V[i].div(ticketDetails.E_V_2[i].mul(cenVerData.x_cv));
+			for (int i = 0; i < numOfVerifiers; i++) {
 				if ((P_V.equals(ticketDetails.P_V[i]) && (Q_V.equals(ticketDetails.Q_V[i])))) {
 					ZKPTagPresent = true;
-				}
-				LOG.debug("Verifier[" + i + "] has public key: " + verifierPK);
-				if (!Y_U_1.equals(Y_U_2)) {
-					LOG.debug("ticket verification of Y_U failed");
-					return null;
-				} else {
-					Y_U_1 = Y_U_2;
+					break;
 				}
 			}
 
-			LOG.debug("The user has public key: " + Y_U_1);
-
 			if (!ZKPTagPresent) {
 				LOG.debug("the tag used for the ZKP was not present - ticket is wrong!");
 				return null;
 			}
 			LOG.debug("the tag used for the ZKP was present - ticket is linked to user");
 
-			for (int i = 0; i < numOfVerifiers; i++) {
-				final byte[] verifys_V = crypto.getHash((new ListData(Arrays.asList(ticketDetails.P_V[i].toBytes(),
-						ticketDetails.Q_V[i].toBytes(), ticketDetails.E_V_1[i].toBytes(),
-						ticketDetails.E_V_2[i].toBytes(), ticketDetails.E_V_3[i].toBytes(),
-						ticketDetails.K_V[i].toBytes(), ticketDetails.ticket_Text_2.getBytes()))).toBytes(),
-						sharedMemory.Hash1);
-				if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
-					LOG.error("failed to verify s_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
-					return null;
-				}
-				s_Vnum = (new BigInteger(1, verifys_V)).mod(p);
-				lhs = sharedMemory.pairing
-						.pairing(ticketDetails.Z_V[i], Y_tilde_I.add(g_frak.mul(ticketDetails.z_v[i]))).getImmutable();
-				rhs = sharedMemory.pairing.pairing(g_1.add(g_2.mul(ticketDetails.w_v[i])).add(g_3.mul(s_Vnum)), g_frak);
-				if (!lhs.isEqual(rhs)) {
-					LOG.debug("first pairing check failed for ID_V[" + i + "]: " + ticketDetails.VerifierList[i]);
+			// The user's public key is recovered once from the first tag, and every tag
+			// must then satisfy P_V = Y_U + x_cv * Q_V.
+			final BigInteger x_cv = cenVerData.x_cv;
+			final Element Y_U = ticketDetails.P_V[0].div(ticketDetails.Q_V[0].mul(x_cv)).getImmutable();
+			LOG.debug("The user has public key: " + Y_U);
+
+			// Each verifier's tag is independent, so check them all in parallel, keeping
+			// the signed message for the batch pairing check below.
+			final Element[] M_V = new Element[numOfVerifiers];
+			final int failed = ParallelVerifier.getInstance().verify(numOfVerifiers, new ParallelVerifier.Check() {
+
+				@Override
+				public boolean verify(int i) {
+					if (!ticketDetails.P_V[i].isEqual(Y_U.add(ticketDetails.Q_V[i].mul(x_cv)))) {
+						LOG.debug("ticket verification of Y_U failed for verifier: " + ticketDetails.VerifierList[i]);
+						return false;
+					}
+
+					final byte[] verifys_V = new TranscriptHasher(sharedMemory.Hash1).add(ticketDetails.P_V[i])
+							.add(ticketDetails.Q_V[i]).add(ticketDetails.E_V_1[i]).add(ticketDetails.E_V_2[i])
+							.add(ticketDetails.E_V_3[i]).add(ticketDetails.K_V[i])
+							.add(ticketDetails.ticket_Text_2.getBytes()).digest();
+					if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
+						LOG.error("failed to verify s_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
+						return false;
+					}
+
+					final BigInteger s_Vnum = (new BigInteger(1, verifys_V)).mod(p);
+					M_V[i] = g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_v[i]))
+							.add(sharedMemory.mulFixed(g_3, s_Vnum)).getImmutable();
+					LOG.debug("passed s_V hash verification for verifier: " + ticketDetails.VerifierList[i]);
+					return true;
 				}
-				LOG.debug("passed tag verification for verifier: " + ticketDetails.VerifierList[i]);
-				LOG.debug("PK of the verifier is: " + sharedMemory.getPublicKey(ticketDetails.VerifierList[i]));
+			});
+
+			if (failed >= 0) {
+				LOG.error("failed to verify tag " + failed + " for verifier: " + ticketDetails.VerifierList[failed]);
+				return null;
 			}
-			LOG.debug("passed s_V hash and corresponding pairing checks!");
+			LOG.debug("passed s_V hash checks!");
 
 			final List<byte[]> verifys_PData = new ArrayList<>();
 			for (int i = 0; i < numOfVerifiers; i++) {
@@ -669,7 +662,7 @@ public class AnonProxyVerifyingStates {
 			}
 
 			if (!Arrays.equals(ticketDetails.s_CV,
-					crypto.getHash((new ListData(verifys_PData)).toBytes(), sharedMemory.Hash1))) {
+					new TranscriptHasher(sharedMemory.Hash1).addAll(verifys_PData).digest())) {
 				LOG.error("failed to verify s_CV hash");
 				return null;
 			}
@@ -677,17 +670,28 @@ public class AnonProxyVerifyingStates {
 
 			final BigInteger s_cvNum = (new BigInteger(1, ticketDetails.s_CV)).mod(p);
 
-			lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_CV, Y_tilde_I.add(g_frak.mul(ticketDetails.z_cv))))
-					.getImmutable();
-			rhs = (sharedMemory.pairing.pairing(g_1.add(g_2.mul(ticketDetails.w_cv)).add(g_3.mul(s_cvNum)), g_frak))
-					.getImmutable();
+			// All the tags, including Z_CV, are signed by the issuer so their pairing
+			// equations can be checked together.
+			final PairingBatchVerifier batch = new PairingBatchVerifier(sharedMemory.pairing, Y_tilde_I, g_frak);
+			for (int i = 0; i < numOfVerifiers; i++) {
+				batch.add(ticketDetails.Z_V[i], ticketDetails.z_v[i], M_V[i]);
+			}
+			batch.add(ticketDetails.Z_CV, ticketDetails.z_cv,
+					g_1.add(sharedMemory.mulFixed(g_2, ticketDetails.w_cv)).add(sharedMemory.mulFixed(g_3, s_cvNum)));
 
-			if (!lhs.isEqual(rhs)) {
-				LOG.error("failed to verify Z_CV pairing check");
+			final int failedPairing = batch.verify();
+			if (failedPairing >= 0) {
+				if (failedPairing < numOfVerifiers) {
+					LOG.error("pairing check failed for ID_V[" + failedPairing + "]: "
+							+ ticketDetails.VerifierList[failedPairing]);
+				}
+				else {
+					LOG.error("failed to verify Z_CV pairing check");
+				}
 				return null;
 			}
 
-			LOG.debug("Passed Z_CV pairing verification!");
+			LOG.debug("Passed Z_V and Z_CV pairing verification!");
 
 			return "Success".getBytes();
 		}
@@ -752,9 +756,10 @@ public class AnonProxyVerifyingStates {
 			}
 
 			// find ID_V details
-			CentralAuthorityData.VerifierCredentials verCred_IDV = cenAuthData.verifiers.get(ID_V);
+			CentralAuthorityData.VerifierCredentials verCred_IDV = cenAuthData.getVerifierCredentials(sharedMemory, ID_V);
 			// find the ID_Proxy details
-			CentralAuthorityData.VerifierCredentials verCred_IDProxy = cenAuthData.verifiers.get(ID_Proxy);
+			CentralAuthorityData.VerifierCredentials verCred_IDProxy = cenAuthData.getVerifierCredentials(sharedMemory,
+					ID_Proxy);
 			if (verCred_IDProxy == null || verCred_IDV == null) {
 				LOG.error("ID_V or ID_Proxy does not exist. This should not happen!");
 				return null;
@@ -769,20 +774,19 @@ public class AnonProxyVerifyingStates {
 			final BigInteger beta_v = crypto.secureRandom(p);
 
 			// compute the rekeys
-			final Element RK_1 = g_tilde.mul(beta_v);
+			final Element RK_1 = sharedMemory.mulFixed(g_tilde, beta_v).getImmutable();
 
-			byte[] hashText = crypto.getHash((new ListData(
-					Arrays.asList(AnonProxySharedMemory.TT.getBytes(), AnonProxySharedMemory.ticket_Text_1.getBytes())))
-							.toBytes(),
-					AnonProxySharedMemory.Hash1);
+			byte[] hashText = new TranscriptHasher(AnonProxySharedMemory.Hash1).add(AnonProxySharedMemory.TT.getBytes())
+					.add(AnonProxySharedMemory.ticket_Text_1.getBytes()).digest();
 
 			final BigInteger hashTextNum = new BigInteger(1, hashText).mod(p);
 			final Element tmp =verCred_IDProxy.SK_V.sub(verCred_IDV.SK_V);
-			final Element RK_2 = (theta_1.add(theta_2.mul(hashTextNum))).mul(beta_v).add(tmp);
+			final Element RK_2 = (theta_1.add(sharedMemory.mulFixed(theta_2, hashTextNum))).mul(beta_v).add(tmp);
 
 			// send the rekey back.
 			final ListData sendData = new ListData(
-					Arrays.asList(sharedMemory.stringToBytes(ID_V), RK_1.toBytes(), RK_2.toBytes()));
+					Arrays.asList(sharedMemory.stringToBytes(ID_V), sharedMemory.elementToBytes(RK_1),
+							sharedMemory.elementToBytes(RK_2)));
 			return sendData.toBytes();
 
 		}
@@ -5,13 +5,17 @@
  */
 package uk.ac.surrey.bets_framework.protocol.anonproxy.data;
 
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.List;
 
 import it.unisa.dia.gas.jpbc.Element;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry.Credential;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry.Role;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralAuthorityData.VerifierCredentials;
 
@@ -24,6 +28,25 @@ import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralAuthorityData.Ve
  */
 public class CentralAuthorityData implements AnonProxySharedMemory.ActorData {
 
+	/**
+	 * The credentials of a user, issuer or central verifier, each of whom has a
+	 * public key.
+	 */
+	public class Credentials {
+		public String ID = null;
+		public Element Y = null;
+		/** the second public key, which only the issuer has */
+		public Element Y_tilde = null;
+		public BigInteger d = null;
+		public BigInteger e = null;
+		public Element sigma = null;
+
+		public Credentials() {
+			/* default constructor */
+		}
+
+	}
+
 	public class VerifierCredentials {
 		public String ID_V = null;
 		public BigInteger d_v = null;
@@ -52,39 +75,32 @@ public class CentralAuthorityData implements AnonProxySharedMemory.ActorData {
 	public Element Y_tilde_A = null;
 	
 	
-	/** the issuer's credentials */
-	public String ID_I = null;
-	public Element Y_I = null;
-	public Element Y_tilde_I = null;
-	public BigInteger e_i = null;
-	public BigInteger d_i = null;
-	public Element sigma_I = null;
-
-
-	/** the user's credentials */
-	public String ID_U = null;
-	public Element Y_U = null;
-	public BigInteger d_u = null;
-	public BigInteger e_u = null;
-	public Element sigma_U = null;
-
-	/** the central verifier's credentials */
-	public String ID_CV = null;
-	public Element Y_CV = null;
-	public BigInteger d_cv = null;
-	public BigInteger e_cv = null;
-	public Element sigma_CV = null;
-	
-	/** the verifier's credentials */
-	public Map<String, VerifierCredentials> verifiers = new HashMap<String, VerifierCredentials>();
+	/** the credentials issued to all users, issuers and verifiers */
+	private final CredentialRegistry registry;
+
+	/** the first public key as bytes, under which the credentials are registered */
+	private final byte[] authority;
 
 	/**
-	 * Constructor.
+	 * Constructor which registers credentials in memory.
 	 *
 	 * @param p
 	 *            The order of the bilinear group.
 	 */
 	public CentralAuthorityData(String ID_CA, BigInteger p, Element g_frak, Element g_tilde) {
+		this(ID_CA, p, g_frak, g_tilde, new CredentialRegistry());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param p
+	 *            The order of the bilinear group.
+	 * @param registry
+	 *            The registry in which to record the credentials issued.
+	 */
+	public CentralAuthorityData(String ID_CA, BigInteger p, Element g_frak, Element g_tilde,
+			CredentialRegistry registry) {
 		super();
 
 		this.ID_CA = ID_CA;
@@ -101,6 +117,62 @@ public class CentralAuthorityData implements AnonProxySharedMemory.ActorData {
 		this.Y_A = g_frak.mul(this.alpha).getImmutable();
 		// compute the second public key
 		this.Y_tilde_A = g_tilde.mul(this.beta).getImmutable();
+
+		this.registry = registry;
+		this.authority = this.Y_A.toBytes();
+	}
+
+	/**
+	 * Restores credentials from the registry.
+	 *
+	 * @param sharedMemory
+	 *            The shared memory holding the bilinear group.
+	 * @param credential
+	 *            The registered credential.
+	 * @return The credentials.
+	 */
+	private Credentials fromCredential(AnonProxySharedMemory sharedMemory, Credential credential) {
+		final List<byte[]> fields = credential.getFields();
+		final Credentials credentials = new Credentials();
+		credentials.ID = credential.getId();
+		credentials.Y = sharedMemory.G1ElementFromBytes(fields.get(0));
+		credentials.Y_tilde = (fields.get(1).length == 0) ? null : sharedMemory.G2ElementFromBytes(fields.get(1));
+		credentials.d = new BigInteger(fields.get(2));
+		credentials.e = new BigInteger(fields.get(3));
+		credentials.sigma = sharedMemory.G1ElementFromBytes(fields.get(4));
+
+		return credentials;
+	}
+
+	/**
+	 * Gets the credentials of a user, issuer or central verifier by ID.
+	 *
+	 * @param sharedMemory
+	 *            The shared memory holding the bilinear group.
+	 * @param role
+	 *            The role of the holder.
+	 * @param ID
+	 *            The ID of the holder.
+	 * @return The credentials, or null if none have been registered.
+	 */
+	public Credentials getCredentials(AnonProxySharedMemory sharedMemory, Role role, String ID) {
+		final Credential credential = this.registry.get(this.authority, role, ID);
+		return (credential == null) ? null : this.fromCredential(sharedMemory, credential);
+	}
+
+	/**
+	 * Gets the credentials of a user, issuer or central verifier by public key.
+	 *
+	 * @param sharedMemory
+	 *            The shared memory holding the bilinear group.
+	 * @param Y
+	 *            The public key of the holder.
+	 * @return The credentials, or null if none have been registered.
+	 */
+	public Credentials getCredentials(AnonProxySharedMemory sharedMemory, Element Y) {
+		final Credential credential = this.registry.getByPublicKey(this.authority, Y.toBytes());
+		return ((credential == null) || (credential.getRole() == Role.VERIFIER)) ? null
+				: this.fromCredential(sharedMemory, credential);
 	}
 
 	@Override
@@ -117,4 +189,65 @@ public class CentralAuthorityData implements AnonProxySharedMemory.ActorData {
 	public VerifierCredentials getVerifierCredentialsInstance() {
 		return new VerifierCredentials();
 	}
+
+	/**
+	 * Gets the credentials of a verifier.
+	 *
+	 * @param sharedMemory
+	 *            The shared memory holding the bilinear group.
+	 * @param ID_V
+	 *            The ID of the verifier.
+	 * @return The credentials, or null if none have been registered.
+	 */
+	public VerifierCredentials getVerifierCredentials(AnonProxySharedMemory sharedMemory, String ID_V) {
+		final Credential credential = this.registry.get(this.authority, Role.VERIFIER, ID_V);
+
+		if (credential == null) {
+			return null;
+		}
+
+		final List<byte[]> fields = credential.getFields();
+		final VerifierCredentials verifierCredentials = new VerifierCredentials();
+		verifierCredentials.ID_V = ID_V;
+		verifierCredentials.d_v = new BigInteger(fields.get(0));
+		verifierCredentials.e_v = new BigInteger(fields.get(1));
+		verifierCredentials.sigma_V = sharedMemory.G1ElementFromBytes(fields.get(2));
+		verifierCredentials.SK_V = sharedMemory.G2ElementFromBytes(fields.get(3));
+
+		return verifierCredentials;
+	}
+
+	/**
+	 * Registers the credentials of a user, issuer or central verifier, replacing
+	 * any earlier ones for the same ID.
+	 *
+	 * @param role
+	 *            The role of the holder.
+	 * @param credentials
+	 *            The credentials to register.
+	 * @throws IOException
+	 *             If the credentials could not be recorded.
+	 */
+	public void putCredentials(Role role, Credentials credentials) throws IOException {
+		final byte[] Y_tilde = (credentials.Y_tilde == null) ? new byte[0] : credentials.Y_tilde.toBytes();
+		this.registry.put(this.authority, role, credentials.ID, credentials.Y.toBytes(),
+				Arrays.asList(credentials.Y.toBytes(), Y_tilde, credentials.d.toByteArray(), credentials.e.toByteArray(),
+						credentials.sigma.toBytes()));
+	}
+
+	/**
+	 * Registers the credentials of a verifier, replacing any earlier ones for the
+	 * same ID. Verifiers have no public key of their own, so they can only be found
+	 * by ID.
+	 *
+	 * @param verifierCredentials
+	 *            The credentials to register.
+	 * @throws IOException
+	 *             If the credentials could not be recorded.
+	 */
+	public void putVerifierCredentials(VerifierCredentials verifierCredentials) throws IOException {
+		this.registry.put(this.authority, Role.VERIFIER, verifierCredentials.ID_V, null,
+				Arrays.asList(verifierCredentials.d_v.toByteArray(), verifierCredentials.e_v.toByteArray(),
+						verifierCredentials.sigma_V.toBytes(), verifierCredentials.SK_V.toBytes()));
+	}
 }
@@ -73,25 +73,25 @@ public class TicketDetails {
 
 	}
 
-	public void getTicketDetails(List<byte[]> sendDataList) {
+	public void getTicketDetails(AnonProxySharedMemory sharedMemory, List<byte[]> sendDataList) {
 		for (int i = 0; i < this.numOfVerifiers; i++) {
 			sendDataList.add(this.VerifierList[i].getBytes(StandardCharsets.UTF_8));
-			sendDataList.add(this.D_V[i].toBytes());
-			sendDataList.add(this.P_V[i].toBytes());
-			sendDataList.add(this.Q_V[i].toBytes());
-			sendDataList.add(this.E_V_1[i].toBytes());
-			sendDataList.add(this.E_V_2[i].toBytes());
-			sendDataList.add(this.E_V_3[i].toBytes());
-			sendDataList.add(this.K_V[i].toBytes());
+			sendDataList.add(sharedMemory.elementToBytes(this.D_V[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.P_V[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.Q_V[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.E_V_1[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.E_V_2[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.E_V_3[i]));
+			sendDataList.add(sharedMemory.elementToBytes(this.K_V[i]));
 			sendDataList.add(this.s_V[i]);
 			sendDataList.add(this.z_v[i].toByteArray());
 			sendDataList.add(this.w_v[i].toByteArray());
-			sendDataList.add(this.Z_V[i].toBytes());
+			sendDataList.add(sharedMemory.elementToBytes(this.Z_V[i]));
 		}
 		sendDataList.add(this.s_CV);
 		sendDataList.add(this.w_cv.toByteArray());
 		sendDataList.add(this.z_cv.toByteArray());
-		sendDataList.add(this.Z_CV.toBytes());
+		sendDataList.add(sharedMemory.elementToBytes(this.Z_CV));
 		sendDataList.add(this.ticket_Text_1.getBytes(StandardCharsets.UTF_8));
 		sendDataList.add(this.ticket_Text_2.getBytes(StandardCharsets.UTF_8));
 	}
@@ -11,13 +11,16 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.StreamingExecutor;
 import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOSharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.IssuerData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.TicketDetails;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.State;
@@ -63,9 +66,8 @@ public class AnonSSOIssuingStates {
    */
   public static class IState23 extends State<NFCReaderCommand> {
 
-    private byte[] generateTicketDetails(byte[] data) {
+    private TicketDetails verifyTicketRequest(byte[] data) {
       final AnonSSOSharedMemory sharedMemory = (AnonSSOSharedMemory) this.getSharedMemory();
-      final IssuerData issuerData = (IssuerData) sharedMemory.getData(Actor.ISSUER);
       final Crypto crypto = Crypto.getInstance();
 
       // Decode the received data.
@@ -142,7 +144,7 @@ public class AnonSSOIssuingStates {
       final byte[] c_hash = listData.getList().get(index++);
 
       // check the hash value is correct
-      final byte[] verifyc_hash = crypto.getHash((new ListData(verifyc_hashData)).toBytes(), sharedMemory.Hash1);
+      final byte[] verifyc_hash = new TranscriptHasher(sharedMemory.Hash1).addAll(verifyc_hashData).digest();
       if (!Arrays.equals(c_hash, verifyc_hash)) {
         LOG.debug("c_hash verification failed!");
         return null;
@@ -163,8 +165,10 @@ public class AnonSSOIssuingStates {
       }
 
       // check W_1
-      final Element W_1lhs = ((sigma_bar_U.mul(e_hat_u.negate().mod(p))).add(h.mul(v_hat_2)))
-          .add((sigma_tilde_U.sub(B_bar_U)).mul(c_hashNum)).getImmutable();
+      final Element W_1lhs = crypto
+          .multiScalarMul(new Element[] { sigma_bar_U, sigma_tilde_U.sub(B_bar_U) },
+              new BigInteger[] { e_hat_u.negate(), c_hashNum })
+          .add(sharedMemory.mulFixed(h, v_hat_2)).getImmutable();
 
       if (!W_1.isEqual(W_1lhs)) {
         LOG.debug("W_1 verification failed!");
@@ -175,9 +179,9 @@ public class AnonSSOIssuingStates {
 
       // check W_2
       Element W_2lhs = (B_bar_U.mul(v_hat_3.negate().mod(p))).getImmutable();
-      W_2lhs = W_2lhs.add(xi.mul(x_hat_u)).getImmutable();
-      W_2lhs = W_2lhs.add(h.mul(v_hat)).getImmutable();
-      W_2lhs = W_2lhs.add(g.mul(c_hashNum.negate().mod(p))).getImmutable();
+      W_2lhs = W_2lhs.add(sharedMemory.mulFixed(xi, x_hat_u)).getImmutable();
+      W_2lhs = W_2lhs.add(sharedMemory.mulFixed(h, v_hat)).getImmutable();
+      W_2lhs = W_2lhs.add(sharedMemory.mulFixed(g, c_hashNum.negate().mod(p))).getImmutable();
 
       if (!W_2.isEqual(W_2lhs)) {
         LOG.debug("W_2 verification failed!");
@@ -189,7 +193,9 @@ public class AnonSSOIssuingStates {
       final Element Y_P = sharedMemory.getPublicKey(Actor.CENTRAL_VERIFIER);
 
       for (int i = 0; i < numberOfVerifiers; i++) {
-        final Element P_dash_Vlhs = (xi.mul(x_hat_u)).add(Y_P.mul(z_hat_v[i])).add(ticketDetails.P_V[i].mul(c_hashNum))
+        final Element P_dash_Vlhs = (sharedMemory.mulFixed(xi, x_hat_u))
+            .add(crypto.multiScalarMul(new Element[] { Y_P, ticketDetails.P_V[i] },
+                new BigInteger[] { z_hat_v[i], c_hashNum }))
             .getImmutable();
         if (!P_dash_V[i].isEqual(P_dash_Vlhs)) {
           LOG.debug("P_dash_V[" + i + "] verification failed!");
@@ -200,53 +206,92 @@ public class AnonSSOIssuingStates {
       LOG.debug("passed P_dash_V verification!");
 
       for (int i = 0; i < numberOfVerifiers; i++) {
-        final Element Q_dash_Vlhs = ((xi.mul(z_hat_v[i])).add(ticketDetails.Q_V[i].mul(c_hashNum))).getImmutable();
+        final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(xi, z_hat_v[i])).add(ticketDetails.Q_V[i].mul(c_hashNum)))
+        		.getImmutable();
         if (!Q_dash_V[i].isEqual(Q_dash_Vlhs)) {
           LOG.debug("Q_dash_V[" + i + "] verification failed!");
           return null;
         }
       }
       LOG.debug("passed Q_dash_V verification!");
-      
+
+      boolean hasCV=false;
+
+      for (int i = 0; i < numberOfVerifiers; i++) {
+    	if (ticketDetails.VerifierList[i].equalsIgnoreCase(Actor.CENTRAL_VERIFIER)) {
+    		hasCV=true;
+    	}
+      }
+
+      if (!hasCV) {
+          LOG.debug("Central Verifier was not included: verification failed!");
+          return null;
+      }
+
+      return ticketDetails;
+    }
+
+    /**
+     * Creates the ticket for a verified request. If a stream is given, the details of each verifier are added to it as soon as
+     * they have been computed so that they can be sent while the remaining verifiers are computed.
+     *
+     * @param ticketDetails The verified ticket request details.
+     * @param stream The stream to add the ticket details to as they are computed, or null.
+     * @return The ticket details which have not been added to the stream.
+     */
+    private List<byte[]> issueTicket(TicketDetails ticketDetails, ListDataStream stream) {
+      final AnonSSOSharedMemory sharedMemory = (AnonSSOSharedMemory) this.getSharedMemory();
+      final IssuerData issuerData = (IssuerData) sharedMemory.getData(Actor.ISSUER);
+      final Crypto crypto = Crypto.getInstance();
+      final int numberOfVerifiers = ticketDetails.numOfVerifiers;
+
+      // some constants from sharedMemory
+      final BigInteger p = sharedMemory.p;
+      final Element xi = sharedMemory.xi.getImmutable();
+      final Element g = sharedMemory.g.getImmutable();
+      final Element h = sharedMemory.h.getImmutable();
+      final Element h_tilde = sharedMemory.h_tilde.getImmutable();
+      final Element Y_P = sharedMemory.getPublicKey(Actor.CENTRAL_VERIFIER);
+
       //Creating the ticket now
 
       final BigInteger t_u = crypto.secureRandom(p);
-      final Element C_U = xi.mul(t_u);
+      final Element C_U = sharedMemory.mulFixed(xi, t_u).getImmutable();
       LOG.debug("C_U = " + C_U);
 
+      final List<byte[]> sendDataList = new ArrayList<>();
+      sendDataList.add(sharedMemory.curveElementToBytes(C_U));
+      sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray()); // need to keep track of the array size
+
       BigIntEuclidean gcd = null;
-      boolean hasCV=false;
 
       for (int i = 0; i < numberOfVerifiers; i++) {
-    	if (ticketDetails.VerifierList[i].equalsIgnoreCase(Actor.CENTRAL_VERIFIER)) {
-    		hasCV=true;
-    	}
         ticketDetails.d_v[i] = crypto.secureRandom(p);
-        ticketDetails.E_V[i] = xi.mul(ticketDetails.d_v[i]).getImmutable();
+        ticketDetails.E_V[i] = sharedMemory.mulFixed(xi, ticketDetails.d_v[i]).getImmutable();
 
         ticketDetails.w_v[i] = crypto.secureRandom(p);
         ticketDetails.e_v[i] = crypto.secureRandom(p);
-        final ListData D_Vdata = new ListData(Arrays.asList(C_U.toBytes(), ticketDetails.VerifierList[i].getBytes()));
-        ticketDetails.D_V[i] = crypto.getHash(D_Vdata.toBytes(), sharedMemory.Hash2);
+        ticketDetails.D_V[i] = new TranscriptHasher(sharedMemory.Hash2).add(C_U)
+            .add(ticketDetails.VerifierList[i].getBytes()).digest();
         final Element Y_V = sharedMemory.getPublicKey(ticketDetails.VerifierList[i]);
         ticketDetails.F_V[i] = Y_V.mul(ticketDetails.d_v[i]).getImmutable();
         ticketDetails.K_V[i] = Y_V.add(Y_P.mul(ticketDetails.d_v[i])).getImmutable();
-        final ListData s_Vdata = new ListData(
-            Arrays.asList(ticketDetails.P_V[i].toBytes(), ticketDetails.Q_V[i].toBytes(), ticketDetails.E_V[i].toBytes(),
-                ticketDetails.F_V[i].toBytes(), ticketDetails.K_V[i].toBytes(), IssuerData.TICKET_TEXT.getBytes()));
-        ticketDetails.s_V[i] = crypto.getHash(s_Vdata.toBytes(), sharedMemory.Hash1);
+        ticketDetails.s_V[i] = new TranscriptHasher(sharedMemory.Hash1).add(ticketDetails.P_V[i])
+            .add(ticketDetails.Q_V[i]).add(ticketDetails.E_V[i]).add(ticketDetails.F_V[i]).add(ticketDetails.K_V[i])
+            .add(IssuerData.TICKET_TEXT.getBytes()).digest();
         final BigInteger s_Vnum = (new BigInteger(1, ticketDetails.s_V[i])).mod(p);
         gcd = BigIntEuclidean.calculate(issuerData.x_I.add(ticketDetails.e_v[i]).mod(p), p);
         final BigInteger xs_plus_ev_inverse = gcd.x.mod(p);
-        ticketDetails.Z_V[i] = (g.add(h.mul(ticketDetails.w_v[i])).add(h_tilde.mul(s_Vnum))).mul(xs_plus_ev_inverse)
+        ticketDetails.Z_V[i] = (g.add(sharedMemory.mulFixed(h, ticketDetails.w_v[i]))
+        		.add(sharedMemory.mulFixed(h_tilde, s_Vnum))).mul(xs_plus_ev_inverse)
             .getImmutable();
         ticketDetails.ticketText = IssuerData.TICKET_TEXT;
 
-      }
-      
-      if (!hasCV) {
-          LOG.debug("Central Verifier was not included: verification failed!");
-          return null;
+        ticketDetails.getVerifierDetails(sharedMemory, i, sendDataList);
+        if (stream != null) {
+          stream.addAll(sendDataList);
+          sendDataList.clear();
+        }
       }
 /** remove dummy verifier for now 
 
@@ -259,28 +304,27 @@ public class AnonSSOIssuingStates {
         final BigInteger w_dash = crypto.secureRandom(p);
         final BigInteger e_dash = crypto.secureRandom(p);
         // final Element D_du = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
-        final ListData D_duData = new ListData(Arrays.asList(C_U.toBytes(), ID_du.getBytes()));
-        final byte[] D_du = crypto.getHash(D_duData.toBytes(), sharedMemory.Hash2);
+        final byte[] D_du = new TranscriptHasher(sharedMemory.Hash2).add(C_U).add(ID_du.getBytes()).digest();
         // TODO: Discuss with Jinguang
         final BigInteger z_Vdu = crypto.secureRandom(p);
         // final Element P_du = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
         final Element P_du = sharedMemory.getPublicKey(Actor.USER).add(Y_CV.mul(z_Vdu));
-        final Element Q_du = xi.mul(z_Vdu).getImmutable();
+        final Element Q_du = sharedMemory.mulFixed(xi, z_Vdu).getImmutable();
         final Element F_du = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
         // compute the equivalent values as above but for this dummy verifier
 
-        final Element E_du = xi.mul(d_dash).getImmutable();
-        final ListData hashDataList = new ListData(Arrays.asList(ticketDetails.VerifierList[numberOfVerifiers].getBytes()));
-        final byte[] hashData = crypto.getHash(hashDataList.toBytes(), sharedMemory.Hash3);
+        final Element E_du = sharedMemory.mulFixed(xi, d_dash).getImmutable();
+        final byte[] hashData = new TranscriptHasher(sharedMemory.Hash3)
+            .add(ticketDetails.VerifierList[numberOfVerifiers].getBytes()).digest();
         final BigInteger hashNum = (new BigInteger(1, hashData)).mod(p);
         final Element K_du = Y_CV.mul(d_dash).add(sharedMemory.pairing.getG1().newOneElement().mul(hashNum)).getImmutable();
-        final ListData s_dashList = new ListData(Arrays.asList(P_du.toBytes(), Q_du.toBytes(), E_du.toBytes(), F_du.toBytes(),
-            K_du.toBytes(), IssuerData.TICKET_TEXT.getBytes()));
-        final byte[] s_dash = crypto.getHash(s_dashList.toBytes(), sharedMemory.Hash1);
+        final byte[] s_dash = new TranscriptHasher(sharedMemory.Hash1).add(P_du).add(Q_du).add(E_du).add(F_du).add(K_du)
+            .add(IssuerData.TICKET_TEXT.getBytes()).digest();
         final BigInteger s_dashNum = new BigInteger(1, s_dash).mod(p);
         gcd = BigIntEuclidean.calculate(issuerData.x_S.add(e_dash).mod(p), p);
 
-        final Element sigma_du = ((g.add(h.mul(w_dash))).add(h_tilde.mul(s_dashNum))).mul(gcd.x.mod(p));
+        final Element sigma_du = ((g.add(sharedMemory.mulFixed(h, w_dash)))
+        		.add(sharedMemory.mulFixed(h_tilde, s_dashNum))).mul(gcd.x.mod(p));
 
         ticketDetails.D_V[numberOfVerifiers] = D_du;
         ticketDetails.E_V[numberOfVerifiers] = E_du;
@@ -302,19 +346,15 @@ public class AnonSSOIssuingStates {
       for (int i = 0; i < numberOfVerifiers; i++) {
         s_pDataList.add(ticketDetails.s_V[i]);
       }
-      ticketDetails.s_CV = crypto.getHash((new ListData(s_pDataList)).toBytes(), sharedMemory.Hash1);
+      ticketDetails.s_CV = new TranscriptHasher(sharedMemory.Hash1).addAll(s_pDataList).digest();
       final BigInteger s_pDataNum = new BigInteger(1, ticketDetails.s_CV).mod(p);
       gcd = BigIntEuclidean.calculate(issuerData.x_I.add(ticketDetails.e_CV).mod(p), p);
-      ticketDetails.Z_CV = ((g.add(h.mul(ticketDetails.w_CV))).add(h_tilde.mul(s_pDataNum))).mul(gcd.x.mod(p));
-
-      final List<byte[]> sendDataList = new ArrayList<>();
-      sendDataList.add(C_U.toBytes());
-      sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray()); // need to keep track of the array size
-      ticketDetails.getTicketDetails(sendDataList);
-      final ListData sendData = new ListData(sendDataList);
+      ticketDetails.Z_CV = ((g.add(sharedMemory.mulFixed(h, ticketDetails.w_CV)))
+      		.add(sharedMemory.mulFixed(h_tilde, s_pDataNum))).mul(gcd.x.mod(p));
 
-      return sendData.toBytes();
+      ticketDetails.getCentralVerifierDetails(sharedMemory, sendDataList);
 
+      return sendDataList;
     }
 
     /**
@@ -329,9 +369,25 @@ public class AnonSSOIssuingStates {
       sharedMemory.actAs(Actor.ISSUER);
       if (message.getType() == Type.DATA) {
         // Send the setup data.
-        final byte[] data = this.generateTicketDetails(message.getData());
+        final TicketDetails ticketDetails = this.verifyTicketRequest(message.getData());
+
+        if ((ticketDetails != null) && ListDataStream.isEnabled()) {
+          // Start sending the ticket while the details of the later verifiers are still being computed.
+          LOG.debug("streaming ticket details to the client");
+          final ListDataStream ticketStream = StreamingExecutor.getInstance().produce(2 + ticketDetails.getNumberOfItems(),
+              new StreamingExecutor.Producer() {
+
+                @Override
+                public boolean produce(ListDataStream stream) {
+                  stream.addAll(IState23.this.issueTicket(ticketDetails, stream));
+                  return true;
+                }
+              });
+          return new Action<>(Status.CONTINUE, 24, NFCReaderCommand.PUT, 0, ticketStream);
+        }
 
-        if (data != null) {
+        if (ticketDetails != null) {
+           final byte[] data = new ListData(this.issueTicket(ticketDetails, null)).toBytes();
            LOG.debug("sending ticket details to the client");
            return new Action<>(Status.CONTINUE, 24, NFCReaderCommand.PUT, data, 0);
         }
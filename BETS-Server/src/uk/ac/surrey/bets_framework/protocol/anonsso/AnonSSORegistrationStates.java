@@ -50,7 +50,8 @@ public class AnonSSORegistrationStates {
 
 			// Send ID_I, Y_bar_I, Y_S_bar
 			final ListData sendData = new ListData(
-					Arrays.asList(issuerData.ID_I.getBytes(), issuerData.Y_I.toBytes(), issuerData.Y_bar_I.toBytes()));
+					Arrays.asList(issuerData.ID_I.getBytes(), sharedMemory.curveElementToBytes(issuerData.Y_I),
+							sharedMemory.curveElementToBytes(issuerData.Y_bar_I)));
 			return sendData.toBytes();
 		}
 
@@ -128,7 +129,7 @@ public class AnonSSORegistrationStates {
 			final BigInteger r_S = crypto.secureRandom(sharedMemory.p);
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(centralAuthorityData.x_a.add(e_S).mod(sharedMemory.p),
 					sharedMemory.p);
-			final Element sigma_S = (sharedMemory.g.add(sharedMemory.h.mul(r_S)).add(Y_S))
+			final Element sigma_S = (sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_S)).add(Y_S))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
 			centralAuthorityData.ID_I = ID_S;
@@ -140,7 +141,7 @@ public class AnonSSORegistrationStates {
 
 			// Send sigma_s, e_s, r_s
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_S.toBytes(), r_S.toByteArray(), e_S.toByteArray()));
+					Arrays.asList(sharedMemory.curveElementToBytes(sigma_S), r_S.toByteArray(), e_S.toByteArray()));
 			return sendData.toBytes();
 		}
 
@@ -209,10 +210,12 @@ public class AnonSSORegistrationStates {
 			// verify the credentials
 			// get the public key of the CA
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY);
-			final Element lhs = sharedMemory.pairing.pairing(sigma_S, Y_A.add(sharedMemory.g_frak.mul(e_S)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_S, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_S)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g.add(sharedMemory.h.mul(r_S)).add(issuerData.Y_I), sharedMemory.g_frak)
+					.pairing(sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_S)).add(issuerData.Y_I),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
@@ -297,7 +300,7 @@ public class AnonSSORegistrationStates {
 			final BigInteger r_u = crypto.secureRandom(sharedMemory.p);
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(
 					centralAuthorityData.x_a.add(e_u).mod(sharedMemory.p),sharedMemory.p);
-			final Element sigma_U = (sharedMemory.g.add(sharedMemory.h.mul(r_u)).add(Y_U))
+			final Element sigma_U = (sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_u)).add(Y_U))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 			centralAuthorityData.ID_U = ID_U;
 			centralAuthorityData.Y_U = Y_U;
@@ -306,7 +309,7 @@ public class AnonSSORegistrationStates {
 			centralAuthorityData.sigma_U = sigma_U;
 			// Send sigma_s, e_s, r_s
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_U.toBytes(), r_u.toByteArray(), e_u.toByteArray()));
+					Arrays.asList(sharedMemory.curveElementToBytes(sigma_U), r_u.toByteArray(), e_u.toByteArray()));
 			return sendData.toBytes();
 		}
 
@@ -368,7 +371,8 @@ public class AnonSSORegistrationStates {
 			final CentralVerifierData cenVerData = (CentralVerifierData) sharedMemory.getData(Actor.CENTRAL_VERIFIER);
 
 			// Send ID_U, Y_U
-			final ListData sendData = new ListData(Arrays.asList(cenVerData.ID_V.getBytes(), cenVerData.Y_V.toBytes()));
+			final ListData sendData = new ListData(
+					Arrays.asList(cenVerData.ID_V.getBytes(), sharedMemory.curveElementToBytes(cenVerData.Y_V)));
 			return sendData.toBytes();
 		}
 
@@ -447,7 +451,7 @@ public class AnonSSORegistrationStates {
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(centralAuthorityData.x_a.add(e_CV).mod(sharedMemory.p),
 					sharedMemory.p);
 
-			final Element sigma_P = (sharedMemory.g.add(sharedMemory.h.mul(r_CV)).add(Y_P))
+			final Element sigma_P = (sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_CV)).add(Y_P))
 					.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
 			centralAuthorityData.ID_CV = ID_P;
@@ -458,7 +462,7 @@ public class AnonSSORegistrationStates {
 
 			// Send sigma_s, e_s, r_s
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_P.toBytes(), r_CV.toByteArray(), e_CV.toByteArray()));
+					Arrays.asList(sharedMemory.curveElementToBytes(sigma_P), r_CV.toByteArray(), e_CV.toByteArray()));
 
 			return sendData.toBytes();
 		}
@@ -535,10 +539,12 @@ public class AnonSSORegistrationStates {
 			// get the public key of the CA
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY);
 
-			final Element lhs = sharedMemory.pairing.pairing(sigma_CV, Y_A.add(sharedMemory.g_frak.mul(e_CV)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_CV, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_CV)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g.add(sharedMemory.h.mul(r_CV)).add(cenVerData.Y_V), sharedMemory.g_frak)
+					.pairing(sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_CV)).add(cenVerData.Y_V),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
@@ -594,7 +600,7 @@ public class AnonSSORegistrationStates {
 			final VerifierData verifierData = (VerifierData) sharedMemory.getData(this.verifiers[this.index]);
 			// Send ID_V, Y_V
 			final ListData sendData = new ListData(
-					Arrays.asList(verifierData.ID_V.getBytes(), verifierData.Y_V.toBytes()));
+					Arrays.asList(verifierData.ID_V.getBytes(), sharedMemory.curveElementToBytes(verifierData.Y_V)));
 			return sendData.toBytes();
 		}
 
@@ -686,7 +692,7 @@ public class AnonSSORegistrationStates {
 				final BigIntEuclidean gcd = BigIntEuclidean
 						.calculate(centralAuthorityData.x_a.add(e_V).mod(sharedMemory.p), sharedMemory.p);
 
-				sigma_V = (sharedMemory.g.add(sharedMemory.h.mul(r_V)).add(Y_V))
+				sigma_V = (sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_V)).add(Y_V))
 						.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
 				CentralAuthorityData.VerifierCredentials veriferDetails = centralAuthorityData
@@ -701,7 +707,7 @@ public class AnonSSORegistrationStates {
 			}
 			// Send Z_V, e_V, r_V back
 			final ListData sendData = new ListData(
-					Arrays.asList(sigma_V.toBytes(), r_V.toByteArray(), e_V.toByteArray()));
+					Arrays.asList(sharedMemory.curveElementToBytes(sigma_V), r_V.toByteArray(), e_V.toByteArray()));
 
 			return sendData.toBytes();
 
@@ -787,10 +793,12 @@ public class AnonSSORegistrationStates {
 			// get the public key of the CA
 			final Element Y_A = sharedMemory.getPublicKey(Actor.CENTRAL_AUTHORITY);
 
-			final Element lhs = sharedMemory.pairing.pairing(sigma_V, Y_A.add(sharedMemory.g_frak.mul(e_V)))
+			final Element lhs = sharedMemory.pairing
+					.pairing(sigma_V, Y_A.add(sharedMemory.mulFixed(sharedMemory.g_frak, e_V)))
 					.getImmutable();
 			final Element rhs = sharedMemory.pairing
-					.pairing(sharedMemory.g.add(sharedMemory.h.mul(r_V)).add(verifierData.Y_V), sharedMemory.g_frak)
+					.pairing(sharedMemory.g.add(sharedMemory.mulFixed(sharedMemory.h, r_V)).add(verifierData.Y_V),
+							sharedMemory.g_frak)
 					.getImmutable();
 
 			if (!lhs.isEqual(rhs)) {
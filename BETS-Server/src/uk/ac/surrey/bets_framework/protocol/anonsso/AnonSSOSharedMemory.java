@@ -19,6 +19,7 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Field;
 import it.unisa.dia.gas.jpbc.Pairing;
 import it.unisa.dia.gas.jpbc.PairingParameters;
 import it.unisa.dia.gas.jpbc.PairingParametersGenerator;
@@ -32,7 +33,10 @@ import it.unisa.dia.gas.plaf.jpbc.pairing.f.TypeFPairing;
 import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
 import uk.ac.surrey.bets_framework.Crypto;
 import uk.ac.surrey.bets_framework.GsonUtils;
+import uk.ac.surrey.bets_framework.protocol.ElementPowPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.PairingBackend;
+import uk.ac.surrey.bets_framework.protocol.ParameterStore;
 import uk.ac.surrey.bets_framework.protocol.anonproxy.AnonProxySharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralVerifierData;
@@ -75,6 +79,9 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 	 */
 	public static final byte[] PAIRING_RANDOM_SEED = AnonSSOSharedMemory.class.getSimpleName().getBytes();
 
+	/** The name of the parameter store section holding the public parameters. */
+	private static final String PARAMETER_SECTION = "AnonSSO";
+
 	/** The current actor so that access to shared memory can be checked. */
 	private transient String actor = Actor.CENTRAL_AUTHORITY;
 
@@ -96,6 +103,15 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 	/** Random element g_frak as a generator of the group G2. */
 	public CurveElement<?, ?> g_frak = null;
 
+	/**
+	 * Cached fixed-base multiplication tables for the public generators:
+	 * transient as they are rebuilt from the generators.
+	 */
+	private transient ElementPowPreProcessingCache mulCache = null;
+
+	/** The saved parameters currently in use, or null if they were generated. */
+	private transient ParameterStore.Section parameters = null;
+
 	/** Value of p */
 	public BigInteger p = null;
 
@@ -198,10 +214,16 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 		// Reset the shared parameters. Other parameters are kept as they are required
 		// across protocol runs.
 		this.actor = Actor.CENTRAL_AUTHORITY;
-		this.setBilinearGroup();
 
-		// Set up the public parameters, which need the bilinear group
-		this.setPublicParameters();
+		// Reload the bilinear group and public parameters if they have been saved,
+		// otherwise generate them.
+		if (!this.loadParameters()) {
+			this.setBilinearGroup();
+
+			// Set up the public parameters, which need the bilinear group
+			this.setPublicParameters();
+			this.saveParameters();
+		}
 
 		// On the server, we only act as the central authority, issuer, verifier and the
 		// police.
@@ -277,19 +299,75 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 	}
 
 	/**
-	 * Convenience method to create a G1 curve element from a byte array.
+	 * Creates the pairing for the pairing parameters using the selected backend.
+	 * The public parameters are serialised to the client as jPBC curve elements,
+	 * so the native backend is never selected.
+	 *
+	 * @param prng
+	 *            The source of randomness for the pairing.
+	 * @return The pairing.
+	 */
+	private Pairing createPairing(SecureRandom prng) {
+		return PairingBackend.getPairing(
+				PairingBackend.select(AnonSSO.class.getSimpleName(), this.pairingParameters, prng, false),
+				this.pairingParameters, prng);
+	}
+
+	/**
+	 * Creates a curve element from a byte array, which may hold either a compressed
+	 * or an uncompressed point.
 	 *
+	 * @param field
+	 *            The curve field the element belongs to.
 	 * @param bytes
 	 *            The bytes containing the curve element data.
 	 * @return The new curve element.
 	 */
-	public Element curveG1ElementFromBytes(byte[] bytes) {
-		final CurveElement<Element, ?> element = new CurveElement<>((CurveField<?>) this.pairing.getG1());
-		element.setFromBytes(bytes);
+	private Element curveElementFromBytes(CurveField<?> field, byte[] bytes) {
+		final CurveElement<Element, ?> element = new CurveElement<>(field);
+
+		// The two forms always differ in length, so the length tells us which we have.
+		if (bytes.length == element.getLengthInBytesCompressed()) {
+			element.setFromBytesCompressed(bytes);
+		} else {
+			element.setFromBytes(bytes);
+		}
 
 		return element.getImmutable();
 	}
 
+	/**
+	 * Converts a curve element into bytes to be sent, compressing the point if
+	 * point compression has been negotiated.
+	 *
+	 * @param element
+	 *            The element to convert.
+	 * @return The bytes to send.
+	 */
+	public byte[] curveElementToBytes(Element element) {
+		byte[] bytes = element.toBytes();
+		final Crypto crypto = Crypto.getInstance();
+
+		if (crypto.isPointCompression() && (element instanceof CurveElement)) {
+			final byte[] compressed = ((CurveElement<?, ?>) element).toBytesCompressed();
+			crypto.addPointBytesSaved(bytes.length - compressed.length);
+			bytes = compressed;
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Convenience method to create a G1 curve element from a byte array.
+	 *
+	 * @param bytes
+	 *            The bytes containing the curve element data.
+	 * @return The new curve element.
+	 */
+	public Element curveG1ElementFromBytes(byte[] bytes) {
+		return this.curveElementFromBytes((CurveField<?>) this.pairing.getG1(), bytes);
+	}
+
 	/**
 	 * Convenience method to create a G2curve element from a byte array.
 	 *
@@ -298,10 +376,7 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 	 * @return The new curve element.
 	 */
 	public Element curveG2ElementFromBytes(byte[] bytes) {
-		final CurveElement<Element, ?> element = new CurveElement<>((CurveField<?>) this.pairing.getG2());
-		element.setFromBytes(bytes);
-
-		return element.getImmutable();
+		return this.curveElementFromBytes((CurveField<?>) this.pairing.getG2(), bytes);
 	}
 
 	/**
@@ -337,6 +412,74 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 		return element.getImmutable();
 	}
 
+	/**
+	 * @return The configuration which the saved parameters must have been
+	 *         generated for.
+	 */
+	private String getParameterConfiguration() {
+		return "rBits=" + this.rBits;
+	}
+
+	/**
+	 * Loads the bilinear group and public parameters from the parameter store, if
+	 * they have been saved for the current number of r bits. Parameters which have
+	 * already been loaded are kept as they are.
+	 *
+	 * @return True if the parameters were loaded.
+	 */
+	private boolean loadParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+		final ParameterStore.Section section = (store == null) ? null
+				: store.getSection(PARAMETER_SECTION, this.getParameterConfiguration());
+
+		if (section == null) {
+			return false;
+		}
+
+		if (section != this.parameters) {
+			try {
+				final SecureRandom prng = new Crypto.PRNGSecureRandom(PAIRING_RANDOM_SEED);
+				this.pairingParameters = section.getPairingParameters("pairingParameters");
+				this.pairing = this.createPairing(prng);
+				this.p = this.pairingParameters.getBigInteger("r");
+
+				final Field<?> G1 = this.pairing.getG1();
+				this.g = (CurveElement<?, ?>) section.getElement("g", G1);
+				this.h = (CurveElement<?, ?>) section.getElement("h", G1);
+				this.h_tilde = (CurveElement<?, ?>) section.getElement("h_tilde", G1);
+				this.xi = (CurveElement<?, ?>) section.getElement("xi", G1);
+				this.g_frak = (CurveElement<?, ?>) section.getElement("g_frak", this.pairing.getG2());
+			} catch (final RuntimeException e) {
+				LOG.warn("could not load saved parameters", e);
+				return false;
+			}
+
+			this.setMulCache();
+			this.parameters = section;
+			LOG.debug("loaded bilinear group with r = " + this.rBits);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Saves the bilinear group and public parameters to the parameter store, if
+	 * there is one.
+	 */
+	private void saveParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+
+		if (store != null) {
+			final ParameterStore.Section section = new ParameterStore.Section(PARAMETER_SECTION,
+					this.getParameterConfiguration());
+			section.put("pairingParameters", this.pairingParameters);
+			section.put("g", this.g).put("h", this.h).put("h_tilde", this.h_tilde).put("xi", this.xi);
+			section.put("g_frak", this.g_frak);
+			store.putSection(section);
+			this.parameters = section;
+		}
+	}
+
 	/**
 	 * Sets the bilinear group, which must be done before the central authority can
 	 * be initialised.
@@ -348,11 +491,8 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 		// pairing.
 		final SecureRandom prng = new Crypto.PRNGSecureRandom(PAIRING_RANDOM_SEED);
 		final PairingParametersGenerator<?> generator = new TypeFCurveGenerator(prng, this.rBits);
-		// final PairingParametersGenerator<?> generator = new
-		// PBCTypeFCurveGenerator(this.rBits);
-		// PairingFactory.getInstance().setUsePBCWhenPossible(true);
 		this.pairingParameters = (PropertiesParameters) generator.generate();
-		this.pairing = PairingFactory.getPairing(this.pairingParameters, prng);
+		this.pairing = this.createPairing(prng);
 		this.p = this.pairingParameters.getBigInteger("r");
 		if (!Crypto.getInstance().isPrime(p)) {
 			throw new IllegalStateException("p is not prime: " + this.p);
@@ -380,6 +520,34 @@ public class AnonSSOSharedMemory extends NFCSharedMemory {
 		// create some random generator for G2
 		this.g_frak = (CurveElement<?, ?>) this.pairing.getG2().newRandomElement().getImmutable();
 
+		// Pre-compute the fixed-base multiplication tables for the generators.
+		this.setMulCache();
+	}
+
+	/**
+	 * Multiplies an element by a scalar, using the fixed-base multiplication
+	 * tables if the element is one of the public generators.
+	 *
+	 * @param fixed
+	 *            The element to multiply.
+	 * @param scalar
+	 *            The scalar to multiply by.
+	 * @return The result of the multiplication.
+	 */
+	public Element mulFixed(Element fixed, BigInteger scalar) {
+		if (this.mulCache == null) {
+			this.setMulCache();
+		}
+
+		return this.mulCache.mul(fixed, scalar);
+	}
+
+	/**
+	 * Builds the fixed-base multiplication tables for the public generators.
+	 */
+	private void setMulCache() {
+		this.mulCache = new ElementPowPreProcessingCache();
+		this.mulCache.addAll(this.g, this.h, this.h_tilde, this.xi, this.g_frak);
 	}
 
 	/**
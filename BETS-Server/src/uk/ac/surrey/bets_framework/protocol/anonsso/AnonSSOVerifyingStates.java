@@ -11,14 +11,19 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.PairingBatchVerifier;
+import uk.ac.surrey.bets_framework.protocol.ParallelVerifier;
 import uk.ac.surrey.bets_framework.protocol.anonsso.AnonSSOSharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.CentralVerifierData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.IssuerData;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.TicketDetails;
 import uk.ac.surrey.bets_framework.protocol.anonsso.data.VerifierData;
+import uk.ac.surrey.bets_framework.protocol.data.DataException;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.State;
@@ -97,7 +102,11 @@ public class AnonSSOVerifyingStates {
     @Override
     public Action<NFCReaderCommand> getAction(Message message) {
       if (message.getType() == Type.SUCCESS) {
-        // Get the user's tag & proof data.
+        // Get the user's tag & proof data, optionally streaming it so that the proof can be checked as it arrives.
+        if (ListDataStream.isEnabled()) {
+          return new Action<>(Status.CONTINUE, 27, NFCReaderCommand.GET, NFC.USE_MAXIMUM_LENGTH, new ListDataStream());
+        }
+
         return new Action<>(Status.CONTINUE, 27, NFCReaderCommand.GET, null, NFC.USE_MAXIMUM_LENGTH);
       }
 
@@ -119,14 +128,13 @@ public class AnonSSOVerifyingStates {
       this.index = 0;
     }
 
-    private boolean verifyTagProof(byte[] data, String verifierID) {
+    private boolean verifyTagProof(ListDataStream items, String verifierID) throws DataException {
       final AnonSSOSharedMemory sharedMemory = (AnonSSOSharedMemory) this.getSharedMemory();
       final VerifierData verifierData = (VerifierData) sharedMemory.getData(verifierID);
       final Crypto crypto = Crypto.getInstance();
-      // Decode the received data.
-      final ListData listData = ListData.fromBytes(data);
-      if (listData.getList().size() != 14) {
-        LOG.error("wrong number of data elements: " + listData.getList().size());
+      // Decode the received data, which may still be arriving.
+      if (items.getCount() != 14) {
+        LOG.error("wrong number of data elements: " + items.getCount());
         return false;
       }
       // some constants from shared Memory
@@ -139,20 +147,18 @@ public class AnonSSOVerifyingStates {
       final Element Y_P = sharedMemory.getPublicKey(Actor.CENTRAL_VERIFIER).getImmutable();
       final Element Y_S = sharedMemory.getPublicKey(Actor.ISSUER).getImmutable();
 
-      // get the elements needed for the ZKP
-      int index = 0;
-      final Element P_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final Element P_dash_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final Element Q_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final Element Q_dash_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final byte[] c_Vhash = listData.getList().get(index++);
+      // get the elements needed for the ZKP, which can be checked while the remaining elements arrive
+      final Element P_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final Element P_dash_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final Element Q_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final Element Q_dash_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final byte[] c_Vhash = items.next();
       final BigInteger c_Vnum = (new BigInteger(1, c_Vhash)).mod(p);
-      final BigInteger x_hat_U = (new BigInteger(1, listData.getList().get(index++))).mod(p);
-      final BigInteger z_hat_V = (new BigInteger(1, listData.getList().get(index++))).mod(p);
+      final BigInteger x_hat_U = (new BigInteger(1, items.next())).mod(p);
+      final BigInteger z_hat_V = (new BigInteger(1, items.next())).mod(p);
 
-      final byte[] verifyc_Vhash = crypto.getHash(
-          (new ListData(Arrays.asList(P_V.toBytes(), P_dash_V.toBytes(), Q_V.toBytes(), Q_dash_V.toBytes()))).toBytes(),
-          sharedMemory.Hash1);
+      final byte[] verifyc_Vhash = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(P_dash_V).add(Q_V)
+          .add(Q_dash_V).digest();
       if (!Arrays.equals(c_Vhash, verifyc_Vhash)) {
         LOG.debug("c_Vhash verification failed");
         return false;
@@ -160,7 +166,8 @@ public class AnonSSOVerifyingStates {
 
       LOG.debug("passed c_Vhash verification");
 
-      final Element P_dash_Vlhs = (((xi.mul(x_hat_U)).add(Y_P.mul(z_hat_V))).add(P_V.mul(c_Vnum))).getImmutable();
+      final Element P_dash_Vlhs = (sharedMemory.mulFixed(xi, x_hat_U))
+          .add(crypto.multiScalarMul(new Element[] { Y_P, P_V }, new BigInteger[] { z_hat_V, c_Vnum })).getImmutable();
       LOG.debug("P_dash_Vlhs = " + P_dash_Vlhs);
       if (!P_dash_V.isEqual(P_dash_Vlhs)) {
         LOG.debug("P_dash_V verification failed");
@@ -168,7 +175,7 @@ public class AnonSSOVerifyingStates {
       }
       LOG.debug("passed P_dash_V verification");
 
-      final Element Q_dash_Vlhs = ((xi.mul(z_hat_V)).add(Q_V.mul(c_Vnum))).getImmutable();
+      final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(xi, z_hat_V)).add(Q_V.mul(c_Vnum))).getImmutable();
       if (!Q_dash_V.isEqual(Q_dash_Vlhs)) {
         LOG.debug("Q_dash_V verification failed");
         return false;
@@ -178,18 +185,17 @@ public class AnonSSOVerifyingStates {
 
       // get the elements for the remaining checks
 
-      final Element E_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final Element F_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final Element K_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
-      final byte[] s_Vhash = listData.getList().get(index++);
+      final Element E_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final Element F_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final Element K_V = sharedMemory.curveG1ElementFromBytes(items.next());
+      final byte[] s_Vhash = items.next();
       final BigInteger s_Vnum = (new BigInteger(1, s_Vhash)).mod(p);
-      final BigInteger w_V = (new BigInteger(1, listData.getList().get(index++))).mod(p);
-      final BigInteger e_V = (new BigInteger(1, listData.getList().get(index++))).mod(p);
-      final Element sigma_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
+      final BigInteger w_V = (new BigInteger(1, items.next())).mod(p);
+      final BigInteger e_V = (new BigInteger(1, items.next())).mod(p);
+      final Element sigma_V = sharedMemory.curveG1ElementFromBytes(items.next());
 
-      final ListData s_Vdata = new ListData(Arrays.asList(P_V.toBytes(), Q_V.toBytes(), E_V.toBytes(), F_V.toBytes(), K_V.toBytes(),
-          IssuerData.TICKET_TEXT.getBytes()));
-      final byte[] s_Vrhs = crypto.getHash(s_Vdata.toBytes(), sharedMemory.Hash1);
+      final byte[] s_Vrhs = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(Q_V).add(E_V).add(F_V).add(K_V)
+          .add(IssuerData.TICKET_TEXT.getBytes()).digest();
       if (!Arrays.equals(s_Vhash, s_Vrhs)) {
         LOG.debug("s_V hash verification failed!");
         return false;
@@ -203,8 +209,10 @@ public class AnonSSOVerifyingStates {
       }
       LOG.debug("passed F_V verification!");
 
-      final Element lhs = sharedMemory.pairing.pairing(sigma_V, Y_S.add(g_frak.mul(e_V))).getImmutable();
-      final Element rhs = sharedMemory.pairing.pairing(g.add(h.mul(w_V)).add(h_tilde.mul(s_Vnum)), g_frak);
+      final Element lhs = sharedMemory.pairing.pairing(sigma_V, Y_S.add(sharedMemory.mulFixed(g_frak, e_V)))
+      		.getImmutable();
+      final Element rhs = sharedMemory.pairing
+      		.pairing(g.add(sharedMemory.mulFixed(h, w_V)).add(sharedMemory.mulFixed(h_tilde, s_Vnum)), g_frak);
       if (!lhs.isEqual(rhs)) {
         LOG.debug("pairing verification failed!");
         return false;
@@ -228,7 +236,24 @@ public class AnonSSOVerifyingStates {
       sharedMemory.actAs(currentVerifier);
       if (message.getType() == Type.DATA) {
         // check the tag &  proof
-        if (this.verifyTagProof(message.getData(), currentVerifier)) {
+        boolean verified = false;
+
+        try {
+          ListDataStream items = message.getStream();
+
+          if (items == null) {
+            items = new ListDataStream();
+            items.write(message.getData());
+            items.close();
+          }
+
+          verified = this.verifyTagProof(items, currentVerifier);
+        }
+        catch (final DataException e) {
+          LOG.error("could not decode the data", e);
+        }
+
+        if (verified) {
           this.index++;
           if (this.index < this.verifiers.length) {
             // keep checking with a different identifier
@@ -352,10 +377,8 @@ public class AnonSSOVerifyingStates {
 		final BigInteger x_hat_U = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 		final BigInteger z_hat_V = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 
-		final byte[] verifyc_Vhash = crypto.getHash(
-				(new ListData(Arrays.asList(P_V.toBytes(), P_dash_V.toBytes(), Q_V.toBytes(), Q_dash_V.toBytes())))
-						.toBytes(),
-				sharedMemory.Hash1);
+		final byte[] verifyc_Vhash = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(P_dash_V).add(Q_V)
+				.add(Q_dash_V).digest();
 		if (!Arrays.equals(c_Vhash, verifyc_Vhash)) {
 			LOG.debug("c_Vhash verification failed");
 			return null;
@@ -363,7 +386,9 @@ public class AnonSSOVerifyingStates {
 
 		LOG.debug("passed c_Vhash verification");
 
-		final Element P_dash_Vlhs = (((xi.mul(x_hat_U)).add(Y_P.mul(z_hat_V))).add(P_V.mul(c_Vnum))).getImmutable();
+		final Element P_dash_Vlhs = (sharedMemory.mulFixed(xi, x_hat_U))
+				.add(crypto.multiScalarMul(new Element[] { Y_P, P_V }, new BigInteger[] { z_hat_V, c_Vnum }))
+				.getImmutable();
 		LOG.debug("P_dash_Vlhs = " + P_dash_Vlhs);
 		if (!P_dash_V.isEqual(P_dash_Vlhs)) {
 			LOG.debug("P_dash_V verification failed");
@@ -371,7 +396,7 @@ public class AnonSSOVerifyingStates {
 		}
 		LOG.debug("passed P_dash_V verification");
 
-		final Element Q_dash_Vlhs = ((xi.mul(z_hat_V)).add(Q_V.mul(c_Vnum))).getImmutable();
+		final Element Q_dash_Vlhs = ((sharedMemory.mulFixed(xi, z_hat_V)).add(Q_V.mul(c_Vnum))).getImmutable();
 		if (!Q_dash_V.isEqual(Q_dash_Vlhs)) {
 			LOG.debug("Q_dash_V verification failed");
 			return null;
@@ -390,9 +415,8 @@ public class AnonSSOVerifyingStates {
 		final BigInteger e_V = (new BigInteger(1, listData.getList().get(index++))).mod(p);
 		final Element sigma_V = sharedMemory.curveG1ElementFromBytes(listData.getList().get(index++));
 
-		final ListData s_Vdata = new ListData(Arrays.asList(P_V.toBytes(), Q_V.toBytes(), E_V.toBytes(), F_V.toBytes(),
-				K_V.toBytes(), IssuerData.TICKET_TEXT.getBytes()));
-		final byte[] s_Vrhs = crypto.getHash(s_Vdata.toBytes(), sharedMemory.Hash1);
+		final byte[] s_Vrhs = new TranscriptHasher(sharedMemory.Hash1).add(P_V).add(Q_V).add(E_V).add(F_V).add(K_V)
+				.add(IssuerData.TICKET_TEXT.getBytes()).digest();
 		if (!Arrays.equals(s_Vhash, s_Vrhs)) {
 			LOG.debug("s_V hash verification failed!");
 			return null;
@@ -406,8 +430,10 @@ public class AnonSSOVerifyingStates {
 		}
 		LOG.debug("passed F_V verification!");
 
-		Element lhs = sharedMemory.pairing.pairing(sigma_V, Y_bar_I.add(g_frak.mul(e_V))).getImmutable();
-		Element rhs = sharedMemory.pairing.pairing(g.add(h.mul(w_V)).add(h_tilde.mul(s_Vnum)), g_frak);
+		final Element lhs = sharedMemory.pairing.pairing(sigma_V, Y_bar_I.add(sharedMemory.mulFixed(g_frak, e_V)))
+				.getImmutable();
+		final Element rhs = sharedMemory.pairing
+				.pairing(g.add(sharedMemory.mulFixed(h, w_V)).add(sharedMemory.mulFixed(h_tilde, s_Vnum)), g_frak);
 		if (!lhs.isEqual(rhs)) {
 			LOG.debug("pairing verification failed!");
 			return null;
@@ -416,66 +442,62 @@ public class AnonSSOVerifyingStates {
 		
 		int numOfVerifiers = (listData.getList().size() - 19) / 11;
 		LOG.debug("We should have "+numOfVerifiers+" verifiers");
-		TicketDetails ticketDetails = new TicketDetails(numOfVerifiers);
+		final TicketDetails ticketDetails = new TicketDetails(numOfVerifiers);
 		ticketDetails.populateTicketDetails(sharedMemory, listData, 14);
 
-		Element Y_U_1 = null;
-		Element Y_U_2 = null;
-		Element verifierPK=null;
-
 		boolean ZKPTagPresent=false;
-		
-		Y_U_1 = ticketDetails.P_V[0].div(ticketDetails.Q_V[0].mul(cenVerData.x_V)).getImmutable();
-		verifierPK=ticketDetails.K_V[0].div(ticketDetails.E_V[0].mul(cenVerData.x_V));
-		if ((P_V.equals(ticketDetails.P_V[0]) && (Q_V.equals(ticketDetails.Q_V[0])))){
-			ZKPTagPresent=true;
-		}
-		LOG.debug("Verifier[0] has public key: "+verifierPK);
-		for (int i = 1; i < numOfVerifiers; i++) {
-			Y_U_2 = ticketDetails.P_V[i].div(ticketDetails.Q_V[i].mul(cenVerData.x_V)).getImmutable();
-			verifierPK=ticketDetails.K_V[i].div(ticketDetails.E_V[i].mul(cenVerData.x_V));
+		for (int i = 0; i < numOfVerifiers; i++) {
 			if ((P_V.equals(ticketDetails.P_V[i]) && (Q_V.equals(ticketDetails.Q_V[i])))){
 				ZKPTagPresent=true;
-			}
-			LOG.debug("Verifier["+i+"] has public key: "+verifierPK);
-			if (!Y_U_1.equals(Y_U_2)) {
-				LOG.debug("ticket verification of Y_U failed");
-				return null;
-			} else {
-				Y_U_1 = Y_U_2;
+				break;
 			}
 		}
 
-		LOG.debug("The user has public key: " + Y_U_1);
-		
 		if (!ZKPTagPresent) {
 			LOG.debug("the tag used for the ZKP was not present - ticket is wrong!");
 			return null;
 		}
 		LOG.debug("the tag used for the ZKP was present - ticket is linked to user");
 
-		for (int i = 0; i < numOfVerifiers; i++) {
-			final byte[] verifys_V = crypto.getHash(
-					(new ListData(Arrays.asList(ticketDetails.P_V[i].toBytes(), ticketDetails.Q_V[i].toBytes(),
-							ticketDetails.E_V[i].toBytes(), ticketDetails.F_V[i].toBytes(),
-							ticketDetails.K_V[i].toBytes(), ticketDetails.ticketText.getBytes()))).toBytes(),
-					sharedMemory.Hash1);
-			if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
-				LOG.error("failed to verify s_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
-				return null;
+		// The user's public key is recovered once from the first tag, and every tag
+		// must then satisfy P_V = Y_U + x_V * Q_V.
+		final BigInteger x_V = cenVerData.x_V;
+		final Element Y_U = ticketDetails.P_V[0].div(ticketDetails.Q_V[0].mul(x_V)).getImmutable();
+		LOG.debug("The user has public key: " + Y_U);
+
+		// Each verifier's tag is independent, so check them all in parallel, keeping the
+		// signed message for the batch pairing check below.
+		final Element[] M_V = new Element[numOfVerifiers];
+		final int failed = ParallelVerifier.getInstance().verify(numOfVerifiers, new ParallelVerifier.Check() {
+
+			@Override
+			public boolean verify(int i) {
+				if (!ticketDetails.P_V[i].isEqual(Y_U.add(ticketDetails.Q_V[i].mul(x_V)))) {
+					LOG.debug("ticket verification of Y_U failed for verifier: " + ticketDetails.VerifierList[i]);
+					return false;
+				}
+
+				final byte[] verifys_V = new TranscriptHasher(sharedMemory.Hash1).add(ticketDetails.P_V[i])
+						.add(ticketDetails.Q_V[i]).add(ticketDetails.E_V[i]).add(ticketDetails.F_V[i])
+						.add(ticketDetails.K_V[i]).add(ticketDetails.ticketText.getBytes()).digest();
+				if (!Arrays.equals(ticketDetails.s_V[i], verifys_V)) {
+					LOG.error("failed to verify s_V[" + i + "] for verifier: " + ticketDetails.VerifierList[i]);
+					return false;
+				}
+
+				final BigInteger s_Vnum = (new BigInteger(1, verifys_V)).mod(p);
+				M_V[i] = g.add(sharedMemory.mulFixed(h, ticketDetails.w_v[i]))
+						.add(sharedMemory.mulFixed(h_tilde, s_Vnum)).getImmutable();
+				LOG.debug("passed s_V hash verification for verifier: " + ticketDetails.VerifierList[i]);
+				return true;
 			}
-			s_Vnum = (new BigInteger(1, verifys_V)).mod(p);
-			lhs = sharedMemory.pairing
-					.pairing(ticketDetails.Z_V[i], Y_bar_I.add(g_frak.mul(ticketDetails.e_v[i]))).getImmutable();
-			rhs = sharedMemory.pairing
-					.pairing(g.add(h.mul(ticketDetails.w_v[i])).add(h_tilde.mul(s_Vnum)), g_frak);
-			if (!lhs.isEqual(rhs)) {
-				LOG.debug("first pairing check failed for ID_V[" + i + "]: " + ticketDetails.VerifierList[i]);
-			}
-			LOG.debug("passed tag verification for verifier: " + ticketDetails.VerifierList[i]);
-			LOG.debug("PK of the verifier is: "+sharedMemory.getPublicKey(ticketDetails.VerifierList[i]));
+		});
+
+		if (failed >= 0) {
+			LOG.error("failed to verify tag " + failed + " for verifier: " + ticketDetails.VerifierList[failed]);
+			return null;
 		}
-		LOG.debug("passed s_V hash and corresponding pairing checks!");
+		LOG.debug("passed s_V hash checks!");
 
 		final List<byte[]> verifys_PData = new ArrayList<>();
 		for (int i = 0; i < numOfVerifiers; i++) {
@@ -483,7 +505,7 @@ public class AnonSSOVerifyingStates {
 		}
 
 		if (!Arrays.equals(ticketDetails.s_CV,
-				crypto.getHash((new ListData(verifys_PData)).toBytes(), sharedMemory.Hash1))) {
+				new TranscriptHasher(sharedMemory.Hash1).addAll(verifys_PData).digest())) {
 			LOG.error("failed to verify s_CV hash");
 			return null;
 		}
@@ -491,17 +513,28 @@ public class AnonSSOVerifyingStates {
 
 		final BigInteger s_PNum = (new BigInteger(1, ticketDetails.s_CV)).mod(p);
 
-		lhs = (sharedMemory.pairing.pairing(ticketDetails.Z_CV,
-				Y_bar_I.add(g_frak.mul(ticketDetails.e_CV)))).getImmutable();
-		rhs = (sharedMemory.pairing.pairing(g.add(h.mul(ticketDetails.w_CV)).add(h_tilde.mul(s_PNum)),
-				g_frak)).getImmutable();
-
-		if (!lhs.isEqual(rhs)) {
-			LOG.error("failed to verify Z_CV pairing check");
+		// All the tags, including Z_CV, are signed by the issuer so their pairing
+		// equations can be checked together.
+		final PairingBatchVerifier batch = new PairingBatchVerifier(sharedMemory.pairing, Y_bar_I, g_frak);
+		for (int i = 0; i < numOfVerifiers; i++) {
+			batch.add(ticketDetails.Z_V[i], ticketDetails.e_v[i], M_V[i]);
+		}
+		batch.add(ticketDetails.Z_CV, ticketDetails.e_CV, g.add(sharedMemory.mulFixed(h, ticketDetails.w_CV))
+				.add(sharedMemory.mulFixed(h_tilde, s_PNum)));
+
+		final int failedPairing = batch.verify();
+		if (failedPairing >= 0) {
+			if (failedPairing < numOfVerifiers) {
+				LOG.error("pairing check failed for ID_V[" + failedPairing + "]: "
+						+ ticketDetails.VerifierList[failedPairing]);
+			}
+			else {
+				LOG.error("failed to verify Z_CV pairing check");
+			}
 			return null;
 		}
 
-		LOG.debug("Passed Z_CV pairing verification!");
+		LOG.debug("Passed Z_V and Z_CV pairing verification!");
 
 		return "Success".getBytes();
     }
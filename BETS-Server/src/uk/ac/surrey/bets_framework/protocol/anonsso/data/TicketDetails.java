@@ -60,27 +60,55 @@ public class TicketDetails {
 
   }
 
-  public void getTicketDetails(List<byte[]> sendDataList) {
+  public void getTicketDetails(AnonSSOSharedMemory sharedMemory, List<byte[]> sendDataList) {
     for (int i = 0; i < this.numOfVerifiers; i++) {
-      sendDataList.add(this.VerifierList[i].getBytes(StandardCharsets.UTF_8));
-      sendDataList.add(this.D_V[i]);
-      sendDataList.add(this.P_V[i].toBytes());
-      sendDataList.add(this.Q_V[i].toBytes());
-      sendDataList.add(this.E_V[i].toBytes());
-      sendDataList.add(this.F_V[i].toBytes());
-      sendDataList.add(this.K_V[i].toBytes());
-      sendDataList.add(this.s_V[i]);
-      sendDataList.add(this.w_v[i].toByteArray());
-      sendDataList.add(this.e_v[i].toByteArray());
-      sendDataList.add(this.Z_V[i].toBytes());
+      this.getVerifierDetails(sharedMemory, i, sendDataList);
     }
+    this.getCentralVerifierDetails(sharedMemory, sendDataList);
+  }
+
+  /**
+   * Adds the details for a single verifier, in the order used by {@link #getTicketDetails}.
+   *
+   * @param sharedMemory The shared memory.
+   * @param i The index of the verifier.
+   * @param sendDataList The list to add to.
+   */
+  public void getVerifierDetails(AnonSSOSharedMemory sharedMemory, int i, List<byte[]> sendDataList) {
+    sendDataList.add(this.VerifierList[i].getBytes(StandardCharsets.UTF_8));
+    sendDataList.add(this.D_V[i]);
+    sendDataList.add(sharedMemory.curveElementToBytes(this.P_V[i]));
+    sendDataList.add(sharedMemory.curveElementToBytes(this.Q_V[i]));
+    sendDataList.add(sharedMemory.curveElementToBytes(this.E_V[i]));
+    sendDataList.add(sharedMemory.curveElementToBytes(this.F_V[i]));
+    sendDataList.add(sharedMemory.curveElementToBytes(this.K_V[i]));
+    sendDataList.add(this.s_V[i]);
+    sendDataList.add(this.w_v[i].toByteArray());
+    sendDataList.add(this.e_v[i].toByteArray());
+    sendDataList.add(sharedMemory.curveElementToBytes(this.Z_V[i]));
+  }
+
+  /**
+   * Adds the details for the central verifier and the ticket text, which follow those of the verifiers.
+   *
+   * @param sharedMemory The shared memory.
+   * @param sendDataList The list to add to.
+   */
+  public void getCentralVerifierDetails(AnonSSOSharedMemory sharedMemory, List<byte[]> sendDataList) {
     sendDataList.add(this.s_CV);
     sendDataList.add(this.w_CV.toByteArray());
     sendDataList.add(this.e_CV.toByteArray());
-    sendDataList.add(this.Z_CV.toBytes());
+    sendDataList.add(sharedMemory.curveElementToBytes(this.Z_CV));
     sendDataList.add(this.ticketText.getBytes(StandardCharsets.UTF_8));
   }
 
+  /**
+   * @return The number of items added by {@link #getTicketDetails}.
+   */
+  public int getNumberOfItems() {
+    return (11 * this.numOfVerifiers) + 5;
+  }
+
   public int populateTicketDetails(AnonSSOSharedMemory sharedMemory, ListData listData, int indx) {
 
     for (int i = 0; i < numOfVerifiers; i++) {
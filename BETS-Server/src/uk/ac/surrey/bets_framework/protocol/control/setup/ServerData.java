@@ -5,12 +5,19 @@
  */
 package uk.ac.surrey.bets_framework.protocol.control.setup;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.bouncycastle.crypto.params.DHParameters;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
 import uk.ac.surrey.bets_framework.command.ProtocolRun;
+import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryReader;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
 import uk.ac.surrey.bets_framework.protocol.data.DataException;
 
 /**
@@ -21,28 +28,46 @@ import uk.ac.surrey.bets_framework.protocol.data.DataException;
 public class ServerData extends CommonData {
 
   /** JSON DH parameters key. */
-  private static final String JSON_DH_PARAMETERS_KEY = "dhParameters";
+  private static final String JSON_DH_PARAMETERS_KEY   = "dhParameters";
 
   /** JSON key length key. */
-  private static final String JSON_KEY_LENGTH        = "keyLength";
+  private static final String JSON_KEY_LENGTH          = "keyLength";
 
   /** JSON log level key. */
-  private static final String JSON_LOG_LEVEL         = "logLevel";
+  private static final String JSON_LOG_LEVEL           = "logLevel";
+
+  /** JSON maximum APDU chunk size key. */
+  private static final String JSON_MAX_APDU_CHUNK_SIZE = "maxApduChunkSize";
+
+  /** JSON point compression key. */
+  private static final String JSON_POINT_COMPRESSION   = "pointCompression";
 
   /** JSON protocol run key. */
-  private static final String JSON_PROTOCOL_RUN      = "protocolRun";
+  private static final String JSON_PROTOCOL_RUN        = "protocolRun";
+
+  /** JSON transcript framing key. */
+  private static final String JSON_TRANSCRIPT_FRAMING  = "transcriptFraming";
 
   /** The DH parameters. */
-  private DHParameters        dhParameters           = null;
+  private DHParameters        dhParameters             = null;
 
   /** The key length for generating key pairs. */
-  private int                 keyLength              = 0;
+  private int                 keyLength                = 0;
 
   /** Level of logging. */
-  private int                 logLevel               = 0;
+  private int                 logLevel                 = 0;
+
+  /** The largest APDU chunk that the server can send. */
+  private int                 maxApduChunkSize         = NFCSharedMemory.APDU_CHUNK_SIZE;
+
+  /** Flag to indicate that curve points are exchanged in compressed form. */
+  private boolean             pointCompression         = false;
 
   /** The protocol being run. */
-  private ProtocolRun         protocolRun            = null;
+  private ProtocolRun         protocolRun              = null;
+
+  /** The framing offered for hashing proof transcripts. */
+  private Framing             transcriptFraming        = Framing.LIST_DATA;
 
   /**
    * Private default constructor.
@@ -59,14 +84,21 @@ public class ServerData extends CommonData {
    * @param protocolRun The protocol being run.
    * @param keyLength The key length for generating key pairs.
    * @param dhParameters The DH parameters.
+   * @param pointCompression Flag to indicate that curve points are exchanged in compressed form.
+   * @param maxApduChunkSize The largest APDU chunk that the server can send.
+   * @param transcriptFraming The framing offered for hashing proof transcripts.
    */
-  public ServerData(byte[] encodedPublicKey, int logLevel, ProtocolRun protocolRun, int keyLength, DHParameters dhParameters) {
+  public ServerData(byte[] encodedPublicKey, int logLevel, ProtocolRun protocolRun, int keyLength, DHParameters dhParameters,
+      boolean pointCompression, int maxApduChunkSize, Framing transcriptFraming) {
     super(encodedPublicKey);
 
     this.logLevel = logLevel;
     this.protocolRun = protocolRun;
     this.keyLength = keyLength;
     this.dhParameters = dhParameters;
+    this.pointCompression = pointCompression;
+    this.maxApduChunkSize = maxApduChunkSize;
+    this.transcriptFraming = transcriptFraming;
   }
 
   /**
@@ -90,6 +122,41 @@ public class ServerData extends CommonData {
     return serverData;
   }
 
+  /**
+   * Sets the fields from binary data.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  @Override
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    super.fromBinary(reader);
+
+    this.logLevel = (int) reader.readVarLong();
+
+    final String name = reader.readString();
+    final int iteration = (int) reader.readVarLong();
+    final int size = reader.readLength();
+    final List<String> parameters = new ArrayList<>(size);
+
+    for (int i = 0; i < size; i++) {
+      parameters.add(reader.readString());
+    }
+
+    this.protocolRun = new ProtocolRun(name, iteration, parameters);
+    this.keyLength = (int) reader.readVarLong();
+
+    // The DH parameters are rarely used, so they are kept as embedded JSON.
+    this.dhParameters = new Gson().fromJson(reader.readString(), DHParameters.class);
+    this.pointCompression = reader.readByte() != 0;
+
+    // Older servers do not send their maximum chunk size.
+    this.maxApduChunkSize = reader.hasRemaining() ? (int) reader.readVarLong() : NFCSharedMemory.APDU_CHUNK_SIZE;
+
+    // Older servers do not offer a framing, and only hash transcripts as ListData.
+    this.transcriptFraming = toFraming(reader.hasRemaining() ? reader.readString() : null);
+  }
+
   /**
    * Sets the fields from JSON data.
    *
@@ -104,6 +171,13 @@ public class ServerData extends CommonData {
     this.protocolRun = gson.fromJson(json.get(JSON_PROTOCOL_RUN), ProtocolRun.class);
     this.keyLength = json.getAsJsonPrimitive(JSON_KEY_LENGTH).getAsNumber().intValue();
     this.dhParameters = gson.fromJson(json.get(JSON_DH_PARAMETERS_KEY), DHParameters.class);
+
+    // Older servers do not send the point compression flag.
+    this.pointCompression = json.has(JSON_POINT_COMPRESSION) && json.getAsJsonPrimitive(JSON_POINT_COMPRESSION).getAsBoolean();
+    this.maxApduChunkSize = json.has(JSON_MAX_APDU_CHUNK_SIZE)
+        ? json.getAsJsonPrimitive(JSON_MAX_APDU_CHUNK_SIZE).getAsNumber().intValue() : NFCSharedMemory.APDU_CHUNK_SIZE;
+    this.transcriptFraming = toFraming(json.has(JSON_TRANSCRIPT_FRAMING)
+        ? json.getAsJsonPrimitive(JSON_TRANSCRIPT_FRAMING).getAsString() : null);
   }
 
   /**
@@ -127,6 +201,20 @@ public class ServerData extends CommonData {
     return this.logLevel;
   }
 
+  /**
+   * @return The largest APDU chunk that the server can send.
+   */
+  public int getMaxApduChunkSize() {
+    return this.maxApduChunkSize;
+  }
+
+  /**
+   * @return True if curve points are exchanged in compressed form.
+   */
+  public boolean isPointCompression() {
+    return this.pointCompression;
+  }
+
   /**
    * @return The protocol being run.
    */
@@ -134,6 +222,38 @@ public class ServerData extends CommonData {
     return this.protocolRun;
   }
 
+  /**
+   * @return The framing offered for hashing proof transcripts.
+   */
+  public Framing getTranscriptFraming() {
+    return this.transcriptFraming;
+  }
+
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  @Override
+  protected void toBinary(BinaryWriter writer) {
+    super.toBinary(writer);
+
+    writer.writeVarLong(this.logLevel);
+    writer.writeString(this.protocolRun.getName());
+    writer.writeVarLong(this.protocolRun.getIteration());
+    writer.writeVarLong(this.protocolRun.getParameters().size());
+
+    for (final String parameter : this.protocolRun.getParameters()) {
+      writer.writeString(parameter);
+    }
+
+    writer.writeVarLong(this.keyLength);
+    writer.writeString(new Gson().toJson(this.dhParameters));
+    writer.writeByte(this.pointCompression ? 1 : 0);
+    writer.writeVarLong(this.maxApduChunkSize);
+    writer.writeString(this.transcriptFraming.name());
+  }
+
   /**
    * Creates a JSON object containing the data.
    *
@@ -148,6 +268,9 @@ public class ServerData extends CommonData {
     json.add(JSON_PROTOCOL_RUN, gson.toJsonTree(this.protocolRun));
     json.addProperty(JSON_KEY_LENGTH, this.keyLength);
     json.add(JSON_DH_PARAMETERS_KEY, gson.toJsonTree(this.dhParameters));
+    json.addProperty(JSON_POINT_COMPRESSION, this.pointCompression);
+    json.addProperty(JSON_MAX_APDU_CHUNK_SIZE, this.maxApduChunkSize);
+    json.addProperty(JSON_TRANSCRIPT_FRAMING, this.transcriptFraming.name());
 
     return json;
   }
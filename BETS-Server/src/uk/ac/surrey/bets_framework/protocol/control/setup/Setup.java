@@ -7,6 +7,7 @@ package uk.ac.surrey.bets_framework.protocol.control.setup;
 
 import java.util.Arrays;
 
+import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderStateMachine;
 import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
 import uk.ac.surrey.bets_framework.protocol.control.ControlStates;
@@ -19,6 +20,9 @@ import uk.ac.surrey.bets_framework.state.SharedMemory;
  */
 public class Setup extends NFCReaderStateMachine {
 
+  /** Timing block name used to record the negotiated APDU chunk size as its data size. */
+  private static final String TIMING_APDU_CHUNK_SIZE = "APDU-ChunkSize";
+
   /**
    * The implementation of the state machine's shared memory.
    */
@@ -52,6 +56,21 @@ public class Setup extends NFCReaderStateMachine {
     return this.sharedMemory;
   }
 
+  /**
+   * Runs the state machine from the start. The setup data is exchanged using the default APDU chunk size, after which the
+   * negotiated chunk size is used for the rest of the session and recorded in the timings.
+   *
+   * @return True if everything went successfully.
+   */
+  @Override
+  public boolean run() {
+    NFC.getInstance().setChunkSize(NFCSharedMemory.APDU_CHUNK_SIZE);
+    final boolean result = super.run();
+    this.addTimingData(TIMING_APDU_CHUNK_SIZE, NFC.getInstance().getChunkSize());
+
+    return result;
+  }
+
   /**
    * Sets the shared memory for the state machine.
    *
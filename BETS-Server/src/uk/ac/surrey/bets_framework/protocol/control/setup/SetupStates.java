@@ -6,9 +6,11 @@
 package uk.ac.surrey.bets_framework.protocol.control.setup;
 
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
 import uk.ac.surrey.bets_framework.protocol.control.setup.Setup.SetupSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
 import uk.ac.surrey.bets_framework.state.Action;
 import uk.ac.surrey.bets_framework.state.Message;
 import uk.ac.surrey.bets_framework.state.State;
@@ -85,7 +87,22 @@ public class SetupStates {
         final ClientData clientData = ClientData.fromBytes(message.getData());
 
         if (clientData != null) {
-          Crypto.getInstance().setRemotePublicKey(clientData.getEncodedPublicKey());
+          // Send data in the encoding the client replied in, as older clients only understand JSON.
+          final Crypto crypto = Crypto.getInstance();
+          crypto.getContext().setEncoding(Data.detectEncoding(message.getData()));
+          crypto.setRemotePublicKey(clientData.getEncodedPublicKey());
+
+          // Use the largest APDU chunks that both the server and the client can handle.
+          final ServerData serverData = ((SetupSharedMemory) this.getSharedMemory()).serverData;
+          NFC.getInstance().setChunkSize(Math.min(serverData.getMaxApduChunkSize(), clientData.getMaxApduChunkSize()));
+
+          // Hash transcripts as the client does, which is the offered framing unless the client is too old to know it.
+          final TranscriptHasher.Framing framing = (clientData.getTranscriptFraming() == serverData.getTranscriptFraming())
+              ? serverData.getTranscriptFraming() : TranscriptHasher.Framing.LIST_DATA;
+          crypto.getContext().setFraming(framing);
+
+          // Only compress points if the client accepted the offer, as older clients cannot decode them.
+          crypto.getContext().setPointCompression(serverData.isPointCompression() && clientData.isPointCompression());
           return new Action<>(0, NFCReaderCommand.CLOSE);
         }
       }
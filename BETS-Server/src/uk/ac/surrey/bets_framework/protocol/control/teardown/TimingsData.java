@@ -8,6 +8,7 @@ package uk.ac.surrey.bets_framework.protocol.control.teardown;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -15,6 +16,8 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
 
+import uk.ac.surrey.bets_framework.protocol.data.BinaryReader;
+import uk.ac.surrey.bets_framework.protocol.data.BinaryWriter;
 import uk.ac.surrey.bets_framework.protocol.data.Data;
 import uk.ac.surrey.bets_framework.protocol.data.DataException;
 import uk.ac.surrey.bets_framework.state.Timing;
@@ -71,6 +74,34 @@ public class TimingsData extends Data {
     return timingsData;
   }
 
+  /**
+   * Sets the fields from binary data.
+   *
+   * @param reader The source binary data.
+   * @throws DataException If the data cannot be decoded.
+   */
+  @Override
+  protected void fromBinary(BinaryReader reader) throws DataException {
+    this.timings.clear();
+    final int size = reader.readLength();
+
+    for (int i = 0; i < size; i++) {
+      final int entries = reader.readLength();
+      final Map<String, Timing> map = new HashMap<>();
+
+      for (int j = 0; j < entries; j++) {
+        final String name = reader.readString();
+        final long time = reader.readVarLong();
+        final long count = reader.readVarLong();
+        final long dataSize = reader.readVarLong();
+        final long creationTime = reader.readVarLong();
+        map.put(name, new Timing(name, time, count, dataSize, creationTime));
+      }
+
+      this.timings.add(map);
+    }
+  }
+
   /**
    * Sets the fields from JSON data.
    *
@@ -93,6 +124,31 @@ public class TimingsData extends Data {
     return Collections.unmodifiableList(this.timings);
   }
 
+  /**
+   * Writes the data in binary form.
+   *
+   * @param writer The destination for the binary data.
+   */
+  @Override
+  protected void toBinary(BinaryWriter writer) {
+    super.toBinary(writer);
+
+    writer.writeVarLong(this.timings.size());
+
+    for (final Map<String, Timing> map : this.timings) {
+      writer.writeVarLong(map.size());
+
+      for (final Map.Entry<String, Timing> entry : map.entrySet()) {
+        final Timing timing = entry.getValue();
+        writer.writeString(entry.getKey());
+        writer.writeVarLong(timing.getTime());
+        writer.writeVarLong(timing.getCount());
+        writer.writeVarLong(timing.getDataSize());
+        writer.writeVarLong(timing.getCreationTime());
+      }
+    }
+  }
+
   /**
    * Creates a JSON object containing the data.
    *
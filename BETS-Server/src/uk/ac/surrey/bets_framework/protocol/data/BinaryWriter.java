@@ -0,0 +1,154 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.data;
+
+import java.io.ByteArrayOutputStream;
+import java.security.MessageDigest;
+
+/**
+ * Writes the compact binary form of data exchanged between the server and the
+ * client. Every field is written as a varint length followed by the raw bytes,
+ * or as a varint on its own for numbers. The bytes can either be buffered or
+ * streamed straight into a message digest.
+ *
+ * @author Steve Wesemeyer
+ */
+public class BinaryWriter {
+
+	/** The buffer being written to, or null if writing to a digest. */
+	private final ByteArrayOutputStream buffer;
+
+	/** The digest being written to, or null if writing to a buffer. */
+	private final MessageDigest digest;
+
+	/**
+	 * Default constructor.
+	 */
+	public BinaryWriter() {
+		this(64);
+	}
+
+	/**
+	 * Constructor with an initial buffer size.
+	 *
+	 * @param size
+	 *            The initial buffer size in bytes.
+	 */
+	public BinaryWriter(int size) {
+		super();
+
+		this.buffer = new ByteArrayOutputStream(size);
+		this.digest = null;
+	}
+
+	/**
+	 * Constructor which writes into a message digest instead of a buffer, so that
+	 * data can be hashed without creating its byte array.
+	 *
+	 * @param digest
+	 *            The digest to update.
+	 */
+	public BinaryWriter(MessageDigest digest) {
+		super();
+
+		this.buffer = null;
+		this.digest = digest;
+	}
+
+	/**
+	 * @return The bytes written so far.
+	 */
+	public byte[] toByteArray() {
+		if (this.buffer == null) {
+			throw new IllegalStateException("writing to a digest");
+		}
+
+		return this.buffer.toByteArray();
+	}
+
+	/**
+	 * Writes a single raw byte to the buffer or digest.
+	 *
+	 * @param value
+	 *            The byte to write.
+	 */
+	private void write(int value) {
+		if (this.buffer != null) {
+			this.buffer.write(value);
+		} else {
+			this.digest.update((byte) value);
+		}
+	}
+
+	/**
+	 * Writes raw bytes to the buffer or digest.
+	 *
+	 * @param bytes
+	 *            The bytes to write.
+	 */
+	private void write(byte[] bytes) {
+		if (this.buffer != null) {
+			this.buffer.write(bytes, 0, bytes.length);
+		} else {
+			this.digest.update(bytes);
+		}
+	}
+
+	/**
+	 * Writes a single raw byte.
+	 *
+	 * @param value
+	 *            The byte to write.
+	 */
+	public void writeByte(int value) {
+		this.write(value);
+	}
+
+	/**
+	 * Writes a length prefixed byte array. A null array is written as an empty
+	 * one.
+	 *
+	 * @param bytes
+	 *            The bytes to write.
+	 */
+	public void writeBytes(byte[] bytes) {
+		if (bytes == null) {
+			this.writeVarLong(0L);
+		} else {
+			this.writeVarLong(bytes.length);
+			this.write(bytes);
+		}
+	}
+
+	/**
+	 * Writes a length prefixed UTF8 string. A null string is written as an empty
+	 * one.
+	 *
+	 * @param string
+	 *            The string to write.
+	 */
+	public void writeString(String string) {
+		this.writeBytes((string == null) ? null : string.getBytes(Data.UTF8));
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint, using 7 bits per byte with the top bit set
+	 * on all but the last byte.
+	 *
+	 * @param value
+	 *            The value to write.
+	 */
+	public void writeVarLong(long value) {
+		long remaining = value;
+
+		while ((remaining & ~0x7FL) != 0L) {
+			this.write((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+
+		this.write((int) remaining);
+	}
+}
@@ -0,0 +1,494 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.data;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import uk.ac.surrey.bets_framework.Crypto;
+
+/**
+ * Streams the items of a {@link ListData} between threads so that they can be
+ * sent or processed as soon as each one is available, rather than once the
+ * whole list has been built or received. The bytes read from or written to the
+ * stream are exactly those of the binary encoding of the equivalent ListData.
+ *
+ * A stream is used in one direction only. When sending, a producer adds items
+ * while the transport reads their encoding. When receiving, the transport
+ * writes the bytes as they arrive while a consumer takes each decoded item. If
+ * the received bytes turn out to be JSON, the items become available once all
+ * of the data has arrived.
+ *
+ * @author Steve Wesemeyer
+ */
+public class ListDataStream {
+
+	/** Flag to indicate that streaming has been requested. */
+	private static volatile boolean enabled = false;
+
+	/** The number of items in the list, or -1 until it is known. */
+	private int count;
+
+	/** The reason the stream failed, or null. */
+	private String failure = null;
+
+	/** True once all of the items have been added or received. */
+	private boolean finished = false;
+
+	/** True if the received data is JSON and can only be decoded once complete. */
+	private boolean json = false;
+
+	/** The number of bytes read from or written to the stream so far. */
+	private long length = 0L;
+
+	/** The offset into the first pending segment which has been read so far. */
+	private int offset = 0;
+
+	/**
+	 * Encoded segments waiting to be read when sending, or decoded items waiting
+	 * to be taken when receiving.
+	 */
+	private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+
+	/** True if the stream is being received rather than sent. */
+	private final boolean receiving;
+
+	/** The number of items added or decoded so far. */
+	private int total = 0;
+
+	/** Received bytes which have not yet been decoded, or null when sending. */
+	private ByteBuffer undecoded = null;
+
+	/**
+	 * Default constructor for a stream which is received. The number of items is
+	 * read from the data as it arrives.
+	 */
+	public ListDataStream() {
+		super();
+
+		this.count = -1;
+		this.receiving = true;
+		this.undecoded = ByteBuffer.allocate(64);
+	}
+
+	/**
+	 * Constructor for a stream which is sent. The number of items must be known
+	 * up front as it is the first thing encoded.
+	 *
+	 * @param count
+	 *            The number of items which will be added.
+	 */
+	public ListDataStream(int count) {
+		super();
+
+		this.count = count;
+		this.receiving = false;
+
+		final BinaryWriter writer = new BinaryWriter(16);
+		writer.writeByte(Data.BINARY_MARKER);
+		writer.writeVarLong(count);
+		this.pending.add(writer.toByteArray());
+	}
+
+	/**
+	 * @return True if streaming has been requested and the current session
+	 *         exchanges data in binary, which is the only encoding that can be
+	 *         streamed.
+	 */
+	public static boolean isEnabled() {
+		return enabled && (Crypto.getInstance().getContext().getEncoding() == Data.Encoding.BINARY);
+	}
+
+	/**
+	 * Sets whether streaming has been requested.
+	 *
+	 * @param enabled
+	 *            True to stream data where states support it.
+	 */
+	public static void setEnabled(boolean enabled) {
+		ListDataStream.enabled = enabled;
+	}
+
+	/**
+	 * Decodes a varint from the start of the buffer.
+	 *
+	 * @param buffer
+	 *            The buffer to read from, which is left after the varint.
+	 * @return The value, or -1 if the buffer does not yet hold all of it.
+	 * @throws DataException
+	 *             If the varint is too long.
+	 */
+	private static long readVarLong(ByteBuffer buffer) throws DataException {
+		long value = 0L;
+
+		for (int i = 0; buffer.hasRemaining(); i++) {
+			if (i >= 10) {
+				throw new DataException("varint too long");
+			}
+
+			final int b = buffer.get() & 0xFF;
+			value |= (long) (b & 0x7F) << (7 * i);
+
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+
+		return -1L;
+	}
+
+	/**
+	 * Adds an item to be sent. Items added after the stream has failed are
+	 * ignored.
+	 *
+	 * @param bytes
+	 *            The item to add.
+	 */
+	public synchronized void add(byte[] bytes) {
+		if (this.receiving || (this.finished && (this.failure == null))) {
+			throw new IllegalStateException("stream cannot be added to");
+		}
+
+		// Nothing more is sent once the stream has failed.
+		if (this.failure != null) {
+			return;
+		}
+
+		final BinaryWriter writer = new BinaryWriter(bytes.length + 5);
+		writer.writeBytes(bytes);
+		this.pending.add(writer.toByteArray());
+		this.total++;
+		this.notifyAll();
+	}
+
+	/**
+	 * Adds a number of items to be sent.
+	 *
+	 * @param list
+	 *            The items to add.
+	 */
+	public void addAll(List<byte[]> list) {
+		for (final byte[] bytes : list) {
+			this.add(bytes);
+		}
+	}
+
+	/**
+	 * Waits for the stream to change.
+	 *
+	 * @throws DataException
+	 *             If the thread was interrupted.
+	 */
+	private void await() throws DataException {
+		try {
+			this.wait();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DataException("interrupted waiting for stream", e);
+		}
+	}
+
+	/**
+	 * Throws an exception if the stream has failed.
+	 *
+	 * @throws DataException
+	 *             If the stream has failed.
+	 */
+	private void checkFailure() throws DataException {
+		if (this.failure != null) {
+			throw new DataException(this.failure);
+		}
+	}
+
+	/**
+	 * Marks the end of the stream once all of the items have been added or
+	 * received. The stream fails if the number of items does not match.
+	 */
+	public synchronized void close() {
+		if (this.finished) {
+			return;
+		}
+
+		if (this.receiving && (this.failure == null)) {
+			try {
+				if (this.json) {
+					this.decodeJson();
+				} else if ((this.count < 0) || (this.total != this.count) || (this.undecoded.position() > 0)) {
+					this.failure = "truncated data after " + this.total + " items";
+				}
+			} catch (final DataException e) {
+				this.failure = e.getMessage();
+			}
+		} else if (!this.receiving && (this.failure == null) && (this.total != this.count)) {
+			this.failure = "expected " + this.count + " items but " + this.total + " were added";
+		}
+
+		this.finished = true;
+		this.undecoded = null;
+		this.notifyAll();
+	}
+
+	/**
+	 * Decodes as many items as possible from the undecoded bytes.
+	 *
+	 * @throws DataException
+	 *             If the data cannot be decoded.
+	 */
+	private void decode() throws DataException {
+		((Buffer) this.undecoded).flip();
+
+		try {
+			if (this.count < 0) {
+				((Buffer) this.undecoded).mark();
+				final long size = readVarLong(this.undecoded);
+
+				if (size < 0L) {
+					((Buffer) this.undecoded).reset();
+					return;
+				}
+
+				if (size > Integer.MAX_VALUE) {
+					throw new DataException("invalid count " + size);
+				}
+
+				this.count = (int) size;
+			}
+
+			while ((this.total < this.count) && this.undecoded.hasRemaining()) {
+				((Buffer) this.undecoded).mark();
+				final long size = readVarLong(this.undecoded);
+
+				if ((size < 0L) || (size > this.undecoded.remaining())) {
+					((Buffer) this.undecoded).reset();
+					break;
+				}
+
+				final byte[] bytes = new byte[(int) size];
+				this.undecoded.get(bytes);
+				this.pending.add(bytes);
+				this.total++;
+			}
+
+			if ((this.total == this.count) && this.undecoded.hasRemaining()) {
+				throw new DataException("unexpected trailing data");
+			}
+		} finally {
+			this.undecoded.compact();
+		}
+	}
+
+	/**
+	 * Decodes all of the received JSON data.
+	 *
+	 * @throws DataException
+	 *             If the data cannot be decoded.
+	 */
+	private void decodeJson() throws DataException {
+		final byte[] bytes = new byte[this.undecoded.position()];
+		System.arraycopy(this.undecoded.array(), 0, bytes, 0, bytes.length);
+		final ListData listData = ListData.fromBytes(bytes);
+
+		if (listData == null) {
+			throw new DataException("could not decode the data");
+		}
+
+		this.pending.addAll(listData.getList());
+		this.count = listData.getList().size();
+		this.total = this.count;
+	}
+
+	/**
+	 * Marks the stream as failed, waking up anything waiting for it. A stream
+	 * which has already finished is left as it is.
+	 *
+	 * @param reason
+	 *            Why the stream failed.
+	 */
+	public synchronized void fail(String reason) {
+		if (this.finished) {
+			return;
+		}
+
+		this.failure = reason;
+
+		this.finished = true;
+		this.notifyAll();
+	}
+
+	/**
+	 * Gets the number of items in the list, waiting until it has been received
+	 * if needed.
+	 *
+	 * @return The number of items.
+	 * @throws DataException
+	 *             If the stream failed before the number was known.
+	 */
+	public synchronized int getCount() throws DataException {
+		while ((this.count < 0) && !this.finished) {
+			this.await();
+		}
+
+		this.checkFailure();
+
+		return this.count;
+	}
+
+	/**
+	 * @return The number of bytes read from or written to the stream so far.
+	 */
+	public synchronized long getLength() {
+		return this.length;
+	}
+
+	/**
+	 * Waits until there is more data to read or the stream has finished.
+	 *
+	 * @return True if there is more data to read.
+	 * @throws DataException
+	 *             If the stream failed.
+	 */
+	public synchronized boolean hasMore() throws DataException {
+		while (this.pending.isEmpty() && !this.finished) {
+			this.await();
+		}
+
+		this.checkFailure();
+
+		return !this.pending.isEmpty();
+	}
+
+	/**
+	 * Takes the next received item, waiting for it to arrive if needed.
+	 *
+	 * @return The next item.
+	 * @throws DataException
+	 *             If the stream failed or there are no more items.
+	 */
+	public synchronized byte[] next() throws DataException {
+		if (!this.receiving) {
+			throw new IllegalStateException("stream is not being received");
+		}
+
+		if (!this.hasMore()) {
+			throw new DataException("no more items");
+		}
+
+		return this.pending.remove();
+	}
+
+	/**
+	 * Reads the encoded items being sent, waiting until the requested number of
+	 * bytes are available or the stream has finished.
+	 *
+	 * @param buffer
+	 *            The buffer to read into.
+	 * @param offset
+	 *            The offset into the buffer to start at.
+	 * @param length
+	 *            The maximum number of bytes to read.
+	 * @return The number of bytes read, which is less than requested only at the
+	 *         end of the stream.
+	 * @throws DataException
+	 *             If the stream failed.
+	 */
+	public synchronized int read(byte[] buffer, int offset, int length) throws DataException {
+		if (this.receiving) {
+			throw new IllegalStateException("stream is being received");
+		}
+
+		int read = 0;
+
+		while ((read < length) && this.hasMore()) {
+			final byte[] segment = this.pending.peek();
+			final int size = Math.min(length - read, segment.length - this.offset);
+			System.arraycopy(segment, this.offset, buffer, offset + read, size);
+			read += size;
+			this.offset += size;
+
+			if (this.offset == segment.length) {
+				this.pending.remove();
+				this.offset = 0;
+			}
+		}
+
+		this.length += read;
+
+		return read;
+	}
+
+	/**
+	 * Reads all of the encoded items being sent, waiting for the stream to
+	 * finish.
+	 *
+	 * @return The binary encoding of the list.
+	 * @throws DataException
+	 *             If the stream failed.
+	 */
+	public byte[] toByteArray() throws DataException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[1024];
+		int read;
+
+		while ((read = this.read(buffer, 0, buffer.length)) > 0) {
+			bytes.write(buffer, 0, read);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Writes received bytes to the stream, decoding any items which are now
+	 * complete. Bytes written after the stream has failed are ignored.
+	 *
+	 * @param bytes
+	 *            The bytes received.
+	 */
+	public synchronized void write(byte[] bytes) {
+		if (!this.receiving || (this.finished && (this.failure == null))) {
+			throw new IllegalStateException("stream cannot be written to");
+		}
+
+		if ((this.failure != null) || (bytes.length == 0)) {
+			return;
+		}
+
+		if (this.length == 0L) {
+			this.json = Data.detectEncoding(bytes) == Data.Encoding.JSON;
+		}
+
+		if (this.undecoded.remaining() < bytes.length) {
+			final int capacity = Math.max(this.undecoded.capacity() * 2, this.undecoded.position() + bytes.length);
+			final ByteBuffer grown = ByteBuffer.allocate(capacity);
+			((Buffer) this.undecoded).flip();
+			grown.put(this.undecoded);
+			this.undecoded = grown;
+		}
+
+		int start = 0;
+
+		// Skip the binary marker before decoding.
+		if ((this.length == 0L) && !this.json) {
+			start = 1;
+		}
+
+		this.undecoded.put(bytes, start, bytes.length - start);
+		this.length += bytes.length;
+
+		if (!this.json) {
+			try {
+				this.decode();
+			} catch (final DataException e) {
+				this.failure = e.getMessage();
+				this.finished = true;
+			}
+		}
+
+		this.notifyAll();
+	}
+}
@@ -60,6 +60,7 @@ public class ETicket extends NFCReaderStateMachine {
    * (String) encryption parameters, e.g. "RSA" (default) or "RSA/ECB/OAEPWithSHA1AndMGF1Padding"
    * (String) hash parameters, e.g. "SHA256" (default)
    * (int) prime certainty, e.g. 80% (default) or above.
+   * (int) number of hash chain links between stored checkpoints, e.g. 0 for sqrt(n) (default).
    *
    * @param parameters The list of parameters.
    */
@@ -90,6 +91,10 @@ public class ETicket extends NFCReaderStateMachine {
       if (parameters.size() > 4) {
         crypto.setPrimeCertainty(Integer.parseInt(parameters.get(4)));
       }
+
+      if (parameters.size() > 5) {
+        this.sharedMemory.chainSpacing = Integer.parseInt(parameters.get(5));
+      }
     }
     catch (final Exception e) {
       LOG.error("could not set parameters", e);
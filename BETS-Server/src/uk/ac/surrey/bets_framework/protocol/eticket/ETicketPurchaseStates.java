@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
@@ -223,7 +224,7 @@ public class ETicketPurchaseStates {
       sharedMemory.rI = crypto.secureRandom(crypto.getDhParameters().getP());
 
       // 8. Compute hash chain of rI for n.
-      sharedMemory.hrIn = crypto.getHash(sharedMemory.rI.toByteArray(), sharedMemory.n);
+      sharedMemory.hrIn = sharedMemory.getRIChain().getEnd();
 
       // 9. Composes kappa and signs it kappaStar.
       final ListData kappaData = new ListData(Arrays.asList(sharedMemory.K, sharedMemory.rI.toByteArray()));
@@ -242,12 +243,9 @@ public class ETicketPurchaseStates {
       final byte[] Tv = new byte[] { 1, 1, 1, 1 }; // Arbitrary ticket validity time.
       final byte[] Ti = new byte[] { 2, 2, 2, 2 }; // Arbitrary date of issue.
 
-      final ListData T = new ListData(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU, Tv, Ti,
-          sharedMemory.hrIn, sharedMemory.hrUn, deltaTP));
-      final byte[] TData = T.toBytes();
-
       // 12. Sign the ticket T.
-      final byte[] hashT = crypto.getHash(TData);
+      final byte[] hashT = new TranscriptHasher().addAll(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU,
+          Tv, Ti, sharedMemory.hrIn, sharedMemory.hrUn, deltaTP)).digest();
       final byte[] sigIT = crypto.encrypt(hashT, crypto.getPrivateKey());
 
       // 13. Send TStar.
@@ -27,6 +27,9 @@ public class ETicketSharedMemory extends NFCSharedMemory {
   /** Get challenge, 1) c: random value power mod thing. */
   public BigInteger c               = null;
 
+  /** Number of links between the checkpoints stored in the hash chain of rI, or 0 for sqrt(n). */
+  public int        chainSpacing    = 0;
+
   /** The response to a PUT which must wait for a GET. */
   byte[]            delayedResponse = null;
 
@@ -66,6 +69,9 @@ public class ETicketSharedMemory extends NFCSharedMemory {
   /** Get ticket, 7) rI: random value. */
   public BigInteger rI              = null;
 
+  /** The checkpointed hash chain of rI, which is kept across runs as a cache. */
+  private HashChain rIChain         = null;
+
   /** Verify Proof, 7) RStar: signed verification response. */
   public byte[]     RStar           = null;
 
@@ -99,6 +105,22 @@ public class ETicketSharedMemory extends NFCSharedMemory {
   /** Get challenge, 2) yUc: challenge. */
   public BigInteger yUc             = null;
 
+  /**
+   * Gets the hash chain of rI with length n, building it if the current chain is for a different rI or n. The chain is kept
+   * when the shared memory is cleared so that each use of the same ticket only hashes forward from the nearest checkpoint.
+   *
+   * @return The hash chain of rI.
+   */
+  public HashChain getRIChain() {
+    final byte[] seed = this.rI.toByteArray();
+
+    if ((this.rIChain == null) || !this.rIChain.matches(seed, this.n)) {
+      this.rIChain = new HashChain(seed, this.n, this.chainSpacing);
+    }
+
+    return this.rIChain;
+  }
+
   /**
    * Clears out the shared memory except for those parameters set for the state machine.
    */
@@ -109,6 +131,7 @@ public class ETicketSharedMemory extends NFCSharedMemory {
     this.A2 = null;
     this.APi = null;
     this.c = null;
+    // Not chainSpacing
     this.hrIn = null;
     this.hrUn = null;
     this.hrUnCurrent = null;
@@ -121,6 +144,7 @@ public class ETicketSharedMemory extends NFCSharedMemory {
     // Not n
     this.PseuU = null;
     this.rI = null;
+    // Not rIChain
     this.RStar = null;
     this.rU = null;
     // Not s
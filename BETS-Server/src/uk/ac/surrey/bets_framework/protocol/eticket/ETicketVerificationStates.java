@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
@@ -115,11 +116,8 @@ public class ETicketVerificationStates {
       final byte[] sigIT = listTStarData.getList().get(8);
 
       // 1. Verifies the ticket signature, T.Sv, T.Ti and T.Tv (these latter not checked as they are arbitrary).
-      final ListData T = new ListData(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU, Tv, Ti,
-          sharedMemory.hrIn, sharedMemory.hrUn, deltaTP));
-      final byte[] TData = T.toBytes();
-
-      final byte[] hashT = crypto.getHash(TData);
+      final byte[] hashT = new TranscriptHasher().addAll(Arrays.asList(sharedMemory.Sn, sharedMemory.Sv, sharedMemory.PseuU,
+          Tv, Ti, sharedMemory.hrIn, sharedMemory.hrUn, deltaTP)).digest();
       final byte[] hashTCheck = crypto.decrypt(sigIT, crypto.getPublicKey());
 
       final boolean result = (sigIT != null) && (hashT != null) && (hashTCheck != null) && (Arrays.equals(hashTCheck, hashT));
@@ -156,7 +154,7 @@ public class ETicketVerificationStates {
       if ((sharedMemory.i > sharedMemory.j) && (sharedMemory.i <= sharedMemory.n)) { // Check for i <= n added.
         // 3ai. Compute APi.
         final byte[] hK = crypto.getHash(sharedMemory.K);
-        final byte[] hrIni = crypto.getHash(sharedMemory.rI.toByteArray(), sharedMemory.n - sharedMemory.i);
+        final byte[] hrIni = sharedMemory.getRIChain().get(sharedMemory.n - sharedMemory.i);
         sharedMemory.APi = Crypto.xor(crypto.getPRNGRandom(hK, hrIni.length), hrIni);
 
         // 3aii. Encrypt APi.
@@ -0,0 +1,121 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.eticket;
+
+import java.util.Arrays;
+
+import uk.ac.surrey.bets_framework.Crypto;
+
+/**
+ * A hash chain H^0(seed), H^1(seed), ..., H^length(seed) with checkpoints stored at fixed intervals, so that any link can be
+ * found by hashing forward from the nearest checkpoint below it rather than from the seed. With the default spacing of
+ * sqrt(length), the chain costs length hashes to build and stores sqrt(length) checkpoints, after which each link costs at most
+ * sqrt(length) hashes.
+ *
+ * @author Steve Wesemeyer
+ */
+public class HashChain {
+
+  /** The checkpoints, where checkpoints[k] = H^(k * spacing)(seed). */
+  private final byte[][] checkpoints;
+
+  /** The end of the chain, H^length(seed). */
+  private final byte[]   end;
+
+  /** The hash parameters used to build the chain. */
+  private final String   hashParameters;
+
+  /** The number of times the seed is hashed to reach the end of the chain. */
+  private final int      length;
+
+  /** The seed of the chain. */
+  private final byte[]   seed;
+
+  /** The number of links between checkpoints. */
+  private final int      spacing;
+
+  /**
+   * Constructor.
+   *
+   * @param seed The seed of the chain.
+   * @param length The number of times the seed is hashed to reach the end of the chain >= 0.
+   * @param spacing The number of links between checkpoints, or 0 to use sqrt(length).
+   */
+  public HashChain(byte[] seed, int length, int spacing) {
+    super();
+
+    if (length < 0) {
+      throw new IllegalArgumentException("invalid hash chain length: " + length);
+    }
+
+    final Crypto crypto = Crypto.getInstance();
+    this.hashParameters = crypto.getHashParameters();
+    this.length = length;
+    this.seed = seed.clone();
+    this.spacing = (spacing > 0) ? spacing : Math.max(1, (int) Math.ceil(Math.sqrt(length)));
+    this.checkpoints = new byte[(length / this.spacing) + 1][];
+
+    byte[] hash = this.seed;
+    for (int i = 0; i < length; i++) {
+      if ((i % this.spacing) == 0) {
+        this.checkpoints[i / this.spacing] = hash;
+      }
+
+      hash = crypto.getHash(hash, this.hashParameters);
+    }
+
+    if ((length % this.spacing) == 0) {
+      this.checkpoints[length / this.spacing] = hash;
+    }
+
+    this.end = hash;
+  }
+
+  /**
+   * Gets a link in the chain.
+   *
+   * @param iteration The number of times the seed is hashed, 0 <= iteration <= length.
+   * @return H^iteration(seed).
+   */
+  public byte[] get(int iteration) {
+    if ((iteration < 0) || (iteration > this.length)) {
+      throw new IllegalArgumentException("hash chain iteration " + iteration + " outside [0, " + this.length + "]");
+    }
+
+    if (iteration == this.length) {
+      return this.end.clone();
+    }
+
+    final Crypto crypto = Crypto.getInstance();
+    byte[] hash = this.checkpoints[iteration / this.spacing];
+
+    for (int i = 0; i < (iteration % this.spacing); i++) {
+      hash = crypto.getHash(hash, this.hashParameters);
+    }
+
+    return hash.clone();
+  }
+
+  /**
+   * @return The end of the chain, H^length(seed).
+   */
+  public byte[] getEnd() {
+    return this.end.clone();
+  }
+
+  /**
+   * Determines whether this chain is the one that would be built for the given seed and length with the current hash
+   * parameters.
+   *
+   * @param seed The seed of the chain.
+   * @param length The number of times the seed is hashed to reach the end of the chain.
+   * @return True if the chain matches.
+   */
+  public boolean matches(byte[] seed, int length) {
+    return (this.length == length) && Arrays.equals(this.seed, seed)
+        && this.hashParameters.equals(Crypto.getInstance().getHashParameters());
+  }
+}
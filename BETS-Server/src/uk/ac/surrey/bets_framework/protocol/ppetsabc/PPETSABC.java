@@ -4,12 +4,14 @@
  * (c) University of Surrey and Pervasive Intelligence Ltd 2017-2018.
  */
 package uk.ac.surrey.bets_framework.protocol.ppetsabc;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.surrey.bets_framework.protocol.DoubleSpendStore;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderStateMachine;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABCSharedMemory.PairingType;
 import uk.ac.surrey.bets_framework.state.SharedMemory;
@@ -59,6 +61,10 @@ public class PPETSABC extends NFCReaderStateMachine {
    * (int) the number of times that a ticket should be validated to provoke double spend, e.g. 2 (default).
    * (int) number of r bits to use in Type A elliptic curve, e.g. 256 (default).
    * (int) number of q bits to use in Type A elliptic curve, e.g. 512 (default).
+   * (String) file containing the set policies, or empty to use the built-in policies (default).
+   * (String) directory in which to cache eta_n_n between runs, or empty for no caching (default).
+   * (String) file in which the validator logs ticket serials for double spend detection, or empty to hold them in memory
+   * (default).
    *
    * @param parameters The list of parameters.
    */
@@ -107,6 +113,18 @@ public class PPETSABC extends NFCReaderStateMachine {
     	  //for type A1 pairings this represents the size of the primes
         this.sharedMemory.qBits = Integer.parseInt(parameters.get(4));
       }
+
+      if ((parameters.size() > 5) && !parameters.get(5).isEmpty()) {
+        this.sharedMemory.setSetPolicies(SetPolicies.load(parameters.get(5)));
+      }
+
+      if ((parameters.size() > 6) && !parameters.get(6).isEmpty()) {
+        this.sharedMemory.etaCacheDirectory = parameters.get(6);
+      }
+
+      if ((parameters.size() > 7) && !parameters.get(7).isEmpty()) {
+        this.sharedMemory.doubleSpendStore = new DoubleSpendStore(Paths.get(parameters.get(7)));
+      }
       LOG.debug("ignore verfication failures:" + (this.sharedMemory.skipVerification));
       LOG.debug("bilinear group parameters (" + this.sharedMemory.rBits + ", " + this.sharedMemory.qBits + ")");
     }
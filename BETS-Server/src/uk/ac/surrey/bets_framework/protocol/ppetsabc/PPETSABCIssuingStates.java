@@ -16,9 +16,11 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
+import uk.ac.surrey.bets_framework.protocol.ParallelVerifier;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.PPETSABCSharedMemory.Actor;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.SellerData;
@@ -56,17 +58,19 @@ public class PPETSABCIssuingStates {
 			// Select random z and v.
 			final BigInteger z = crypto.secureRandom(sharedMemory.p);
 			final BigInteger v = crypto.secureRandom(sharedMemory.p);
-			final Element Q = sellerData.delta_S.add(sharedMemory.theta.mul(z)).getImmutable();
+			final Element Q = sellerData.delta_S.add(sharedMemory.mulFixed(sharedMemory.theta, z)).getImmutable();
 
 			// Compute Z = g^z * theta^v
-			final Element Z = sharedMemory.g.mul(z).add(sharedMemory.theta.mul(v)).getImmutable();
+			final Element Z = sharedMemory.mulFixed(sharedMemory.g, z).add(sharedMemory.mulFixed(sharedMemory.theta, v))
+					.getImmutable();
 
 			// Compute gamma = g^z_dash * theta^v_dash where z_dash = z*c_s and
 			// v_dash = v*c_s (duplicate label of gamma and Z_c_s in
 			// paper).
 			final BigInteger z_dash = z.multiply(sellerData.c_s);
 			final BigInteger v_dash = v.multiply(sellerData.c_s);
-			final Element gamma = sharedMemory.g.mul(z_dash).add(sharedMemory.theta.mul(v_dash));
+			final Element gamma = sharedMemory.mulFixed(sharedMemory.g, z_dash)
+					.add(sharedMemory.mulFixed(sharedMemory.theta, v_dash));
 
 			// Compute the proof PI_2_S = (M_2_S, Q, Z, gamma, Z_dash, gamma_dash,
 			// omega, omega_dash, c_bar_1-3, s_bar_1-2, s_hat_1-2,
@@ -81,56 +85,50 @@ public class PPETSABCIssuingStates {
 			final Element M_2_S = sharedMemory.pairing.getG1().newRandomElement().getImmutable();
 
 			// Z_dash = g^z_bar * theta^v_bar
-			final Element Z_dash = sharedMemory.g.mul(z_bar).add(sharedMemory.theta.mul(v_bar));
+			final Element Z_dash = sharedMemory.mulFixed(sharedMemory.g, z_bar)
+					.add(sharedMemory.mulFixed(sharedMemory.theta, v_bar));
 
 			// gamma_dash = g^z_hat * theta^v_hat
-			final Element gamma_dash = sharedMemory.g.mul(z_hat).add(sharedMemory.theta.mul(v_hat));
+			final Element gamma_dash = sharedMemory.mulFixed(sharedMemory.g, z_hat)
+					.add(sharedMemory.mulFixed(sharedMemory.theta, v_hat));
 
 			// omega = e(Q, g_bar) / e(g_0, g) e(g_1,g)^H(VP_S)
-			final Element omega_1 = sharedMemory.pairing.pairing(Q, sharedMemory.g_bar).getImmutable();
-			final Element omega_2 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.g).getImmutable();
+			final Element omega_1 = sharedMemory.getPairingCache().pairingFixedSecond(Q, sharedMemory.g_bar)
+					.getImmutable();
+			final Element omega_2 = sharedMemory.e_g_n_g[0].getImmutable();
 
 			final byte[] vpsHash = crypto.getHash(sellerData.VP_S.getBytes());
 			final BigInteger vpsHashNum = new BigInteger(1, vpsHash).mod(sharedMemory.p);
 			LOG.debug("vpsHashNum: " + vpsHashNum);
 
-			final Element omega_3 = sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory.g).pow(vpsHashNum);
+			final Element omega_3 = sharedMemory.e_g_n_g[1].pow(vpsHashNum);
 
 			final Element omega = omega_1.div((omega_2.mul(omega_3))).getImmutable();
 
 			// omega_dash = e(rho, g)^x_bar_s * e(g_frak, g)^v_bar_s * e(Q,
 			// g)^-c_bar_s * e(theta, g)^z_bar * e(theta, g_bar)^z_bar
-			final Element omega_dash_1 = sharedMemory.pairing.pairing(sharedMemory.rho, sharedMemory.g).pow(x_bar_s)
-					.getImmutable();
+			final Element omega_dash_1 = sharedMemory.e_rho_g.pow(x_bar_s).getImmutable();
 
-			final Element omega_dash_2 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g).pow(v_bar_s)
-					.getImmutable();
+			final Element omega_dash_2 = sharedMemory.e_g_frak_g.pow(v_bar_s).getImmutable();
 
-			final Element omega_dash_3 = sharedMemory.pairing.pairing(Q, sharedMemory.g)
+			final Element omega_dash_3 = sharedMemory.getPairingCache().pairingFixedSecond(Q, sharedMemory.g)
 					.pow(c_bar_s.negate().mod(sharedMemory.p)).getImmutable();
 
-			final Element omega_dash_4 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g).pow(z_hat)
-					.getImmutable();
+			final Element omega_dash_4 = sharedMemory.e_theta_g.pow(z_hat).getImmutable();
 
-			final Element omega_dash_5 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g_bar).pow(z_bar)
-					.getImmutable();
+			final Element omega_dash_5 = sharedMemory.e_theta_g_bar.pow(z_bar).getImmutable();
 
 			final Element omega_dash = omega_dash_1.mul(omega_dash_2).mul(omega_dash_3).mul(omega_dash_4).mul(omega_dash_5)
 					.getImmutable();
 
 			// Calculate hashes.
-			final ListData c_bar_1Data = new ListData(Arrays.asList(M_2_S.toBytes(), Z.toBytes(), Z_dash.toBytes()));
-			final byte[] c_bar_1 = crypto.getHash(c_bar_1Data.toBytes());
+			final byte[] c_bar_1 = new TranscriptHasher().add(M_2_S).add(Z).add(Z_dash).digest();
 			final BigInteger c_bar_1Num = new BigInteger(1, c_bar_1).mod(sharedMemory.p);
 
-			final ListData c_bar_2Data = new ListData(
-					Arrays.asList(M_2_S.toBytes(), gamma.toBytes(), gamma_dash.toBytes()));
-			final byte[] c_bar_2 = crypto.getHash(c_bar_2Data.toBytes());
+			final byte[] c_bar_2 = new TranscriptHasher().add(M_2_S).add(gamma).add(gamma_dash).digest();
 			final BigInteger c_bar_2Num = new BigInteger(1, c_bar_2).mod(sharedMemory.p);
 
-			final ListData c_bar_3Data = new ListData(
-					Arrays.asList(M_2_S.toBytes(), omega.toBytes(), omega_dash.toBytes()));
-			final byte[] c_bar_3 = crypto.getHash(c_bar_3Data.toBytes());
+			final byte[] c_bar_3 = new TranscriptHasher().add(M_2_S).add(omega).add(omega_dash).digest();
 			final BigInteger c_bar_3Num = new BigInteger(1, c_bar_3).mod(sharedMemory.p);
 
 			// Calculate remaining numbers.
@@ -231,17 +229,20 @@ public class PPETSABCIssuingStates {
 			final BigInteger s_u = crypto.secureRandom(sharedMemory.p);
 
 			//Compute psi_u = H(P_U || Price || Service || Ticket Valid_Period)
-			final ListData psi_uData = new ListData(Arrays.asList(sharedMemory.stringToBytes(sellerData.U_membershipDetails),
-					SellerData.TICKET_PRICE, SellerData.TICKET_SERVICE, sharedMemory.stringToBytes(sellerData.VP_T)));
-			final byte[] psi_u = crypto.getHash(psi_uData.toBytes());
+			final byte[] psi_u = new TranscriptHasher().add(sharedMemory.stringToBytes(sellerData.U_membershipDetails))
+					.add(SellerData.TICKET_PRICE).add(SellerData.TICKET_SERVICE)
+					.add(sharedMemory.stringToBytes(sellerData.VP_T)).digest();
 			final BigInteger psi_uNum = new BigInteger(1, psi_u).mod(sharedMemory.p);
 
 			// Compute T_U = (g_0 * Y * g_1^d_dash * g_2^s_u)^(1/x_s+omega_u) using
 			// the GCD approach.
 			final BigIntEuclidean gcd = BigIntEuclidean.calculate(sellerData.x_s.add(omega_u).mod(sharedMemory.p),
 					sharedMemory.p);
-			final Element T_U = (sharedMemory.g_n[0].add(sellerData.Y).add(sharedMemory.g_n[1].mul(d_dash))
-					.add(sharedMemory.g_n[2].mul(s_u)).add(sharedMemory.g_n[3].mul(psi_uNum))).mul(gcd.x.mod(sharedMemory.p)).getImmutable();
+			final Element T_U = (sharedMemory.g_n[0].add(sellerData.Y)
+					.add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_dash))
+					.add(sharedMemory.mulFixed(sharedMemory.g_n[2], s_u))
+							.add(sharedMemory.mulFixed(sharedMemory.g_n[3], psi_uNum))).mul(gcd.x.mod(sharedMemory.p))
+							.getImmutable();
 
 			/// Send T_U, d_dash, s_u, omega_u, psi_uNum, Y_S, Service, Price, Valid_Period.
 			final ListData sendData = new ListData(Arrays.asList(T_U.toBytes(), d_dash.toByteArray(),
@@ -432,10 +433,8 @@ public class PPETSABCIssuingStates {
 			final byte[] vpuHash = crypto.getHash(VP_U.getBytes());
 			final BigInteger vpuHashNum = new BigInteger(1, vpuHash).mod(sharedMemory.p);
 
-			final Element checkR = sharedMemory.pairing.pairing(C, sharedMemory.g_bar)
-					.div(sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.g)
-							.mul(sharedMemory.pairing.pairing(sharedMemory.g_n[1], sharedMemory.g).pow(vpuHashNum)))
-					.getImmutable();
+			final Element checkR = sharedMemory.getPairingCache().pairingFixedSecond(C, sharedMemory.g_bar)
+					.div(sharedMemory.e_g_n_g[0].mul(sharedMemory.e_g_n_g[1].pow(vpuHashNum))).getImmutable();
 
 			if (!R.isEqual(checkR)) {
 				LOG.error("failed to verify VP_U usage in computing R");
@@ -455,7 +454,8 @@ public class PPETSABCIssuingStates {
 			c_BARVerifyList.addAll(Arrays.asList(M_2_U.toBytes(), Y.toBytes()));
 
 			// check Y_bar
-			final Element c_BARCheck1 = (sharedMemory.xi.mul(x_BAR_u)).add(sharedMemory.g_n[1].mul(d_BAR))
+			final Element c_BARCheck1 = (sharedMemory.mulFixed(sharedMemory.xi, x_BAR_u))
+					.add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_BAR))
 					.add(Y.mul(c_BARNum)).getImmutable();
 			//LOG.debug("c_BARCheck1=Y_bar= "+c_BARCheck1);
 
@@ -464,14 +464,16 @@ public class PPETSABCIssuingStates {
 			c_BARVerifyList.add(D.toBytes());
 
 			// check D_bar
-			final Element c_BARCheck2 = sharedMemory.g.mul(alpha_BAR).add(sharedMemory.theta.mul(beta_BAR))
+			final Element c_BARCheck2 = sharedMemory.mulFixed(sharedMemory.g, alpha_BAR)
+					.add(sharedMemory.mulFixed(sharedMemory.theta, beta_BAR))
 					.add(D.mul(c_BARNum)).getImmutable();
 			c_BARVerifyList.add(c_BARCheck2.toBytes());
 			//LOG.debug("c_Barcheck2=D_bar="+c_BARCheck2);
 			
 			c_BARVerifyList.add(phi.toBytes());
 
-			final Element c_BARCheck3 = sharedMemory.g.mul(alpha_BAR_dash).add(sharedMemory.theta.mul(beta_BAR_dash))
+			final Element c_BARCheck3 = sharedMemory.mulFixed(sharedMemory.g, alpha_BAR_dash)
+					.add(sharedMemory.mulFixed(sharedMemory.theta, beta_BAR_dash))
 					.add(phi.mul(c_BARNum));
 			c_BARVerifyList.add(c_BARCheck3.toBytes());
 			//LOG.debug("c_Barcheck3=phi_bar="+c_BARCheck3);
@@ -480,16 +482,15 @@ public class PPETSABCIssuingStates {
 			c_BARVerifyList.add(R.toBytes());
 
 			// the following computations should produce R_dash
-			Element R_dash1 = sharedMemory.pairing.pairing(sharedMemory.xi, sharedMemory.g).pow(x_BAR_u).getImmutable();
-			Element R_dash2 = sharedMemory.pairing.pairing(sharedMemory.g_frak, sharedMemory.g).pow(r_BAR_u).getImmutable();
+			Element R_dash1 = sharedMemory.e_xi_g.pow(x_BAR_u).getImmutable();
+			Element R_dash2 = sharedMemory.e_g_frak_g.pow(r_BAR_u).getImmutable();
 			Element R_dash3 = sharedMemory.pairing.getGT().newOneElement();
 			//part 1 of range verification
 			long rangeVerificationTiming=Instant.now().toEpochMilli(); 
 			LOG.debug("rangeVerification (part 1 start) so far: "+ rangeVerificationTiming);
 			
 			for (int i = 0; i < numOfUserRanges; i++) {
-				Element value = sharedMemory.pairing.pairing(sharedMemory.g_hat_n[i], sharedMemory.g).pow(ac_BAR_n[i])
-						.getImmutable();
+				Element value = sharedMemory.e_g_hat_n_g[i].pow(ac_BAR_n[i]).getImmutable();
 				R_dash3 = R_dash3.mul(value);
 			}
 			//end of part 1 of range verification
@@ -501,20 +502,17 @@ public class PPETSABCIssuingStates {
 			LOG.debug("setVerification (part 1 start) so far: "+ setVerificationTiming);
 			Element R_dash4 = sharedMemory.pairing.getGT().newOneElement();
 			for (int i = 0; i < numOfUserSets; i++) {
-				Element value = sharedMemory.pairing.pairing(sharedMemory.eta_n[i], sharedMemory.g).pow(e_BAR_dash_n[i])
-						.getImmutable();
+				Element value = sharedMemory.e_eta_n_g[i].pow(e_BAR_dash_n[i]).getImmutable();
 				R_dash4 = R_dash4.mul(value);
 			}
 			//end of part 1 of set verification
 			setVerificationTiming=Instant.now().toEpochMilli()-setVerificationTiming; 
 			LOG.debug("setVerification (part 1 end) so far: "+ setVerificationTiming);
 
-			Element R_dash5 = sharedMemory.pairing.pairing(C, sharedMemory.g).pow(c_BAR_u.negate().mod(sharedMemory.p))
-					.getImmutable();
-			Element R_dash6 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g).pow(alpha_BAR_dash)
-					.getImmutable();
-			Element R_dash7 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.g_bar).pow(alpha_BAR)
-					.getImmutable();
+			Element R_dash5 = sharedMemory.getPairingCache().pairingFixedSecond(C, sharedMemory.g)
+					.pow(c_BAR_u.negate().mod(sharedMemory.p)).getImmutable();
+			Element R_dash6 = sharedMemory.e_theta_g.pow(alpha_BAR_dash).getImmutable();
+			Element R_dash7 = sharedMemory.e_theta_g_bar.pow(alpha_BAR).getImmutable();
 			Element R_dash8 = R.pow(c_BARNum).getImmutable();
 			Element R_dash = R_dash1.mul(R_dash2).mul(R_dash3).mul(R_dash4).mul(R_dash5).mul(R_dash6).mul(R_dash7)
 					.mul(R_dash8).getImmutable();
@@ -532,7 +530,8 @@ public class PPETSABCIssuingStates {
 			}
 
 			for (int i = 0; i < numOfUserRanges; i++) {
-				final Element c_BARCheck4 = sharedMemory.g.mul(gammac_BAR_n[i]).add(sharedMemory.h.mul(ac_BAR_n[i]))
+				final Element c_BARCheck4 = sharedMemory.mulFixed(sharedMemory.g, gammac_BAR_n[i])
+						.add(sharedMemory.mulFixed(sharedMemory.h, ac_BAR_n[i]))
 						.add(Z_n[i].mul(c_BARNum));
 				//LOG.debug("verify Z_dash_n["+i+"]= "+ c_BARCheck4);
 				c_BARVerifyList.add(c_BARCheck4.toBytes());
@@ -556,29 +555,49 @@ public class PPETSABCIssuingStates {
 					c_BARVerifyList.add(W_n_m[i][j].toBytes());
 				}
 			}
+			// The first term of each set's product only depends on the set policy, so compute it
+			// once per set rather than once per set member.
+			final Element[] product2a = new Element[numOfUserSets];
 			for (int i = 0; i < numOfUserSets; i++) {
-				final int currentSetSize=sharedMemory.zeta(i);
-				for (int j = 0; j < sharedMemory.biggestSetSize; j++) {
-					if ((j<currentSetSize) && UserData.A_U_set[i].equalsIgnoreCase(sharedMemory.setPolices[i][j])) {
-						Element product2 = sharedMemory.pairing.pairing(sharedMemory.eta, sharedMemory.eta_n[i])
-								.pow(e_BAR_n[i]).getImmutable();
-						product2 = product2.mul(
-								sharedMemory.pairing.pairing(B_n_m[i][j], sharedMemory.eta_n[i]).pow(e_BAR_dash_dash_n[i]))
-								.getImmutable();
+				product2a[i] = sharedMemory.powFixed(sharedMemory.e_eta_eta_n[i], e_BAR_n[i]).getImmutable();
+			}
+
+			// The remaining pairings for each set member are independent, so compute them in
+			// parallel before adding them to the hash in order.
+			final int biggestSetSize = sharedMemory.biggestSetSize;
+			final int[] userMemberIndex = new int[numOfUserSets];
+			for (int i = 0; i < numOfUserSets; i++) {
+				userMemberIndex[i] = sharedMemory.setMemberIndex(i, UserData.A_U_set[i]);
+			}
+			final byte[][] product2Bytes = new byte[numOfUserSets * biggestSetSize][];
+			final ParallelVerifier verifier = ParallelVerifier.getInstance();
+			verifier.verify(product2Bytes.length, new ParallelVerifier.Check() {
+
+				@Override
+				public boolean verify(int index) {
+					final int i = index / biggestSetSize;
+					final int j = index % biggestSetSize;
+
+					if (j == userMemberIndex[i]) {
+						Element product2 = product2a[i].mul(
+								sharedMemory.getPairingCache().pairingFixedSecond(B_n_m[i][j], sharedMemory.eta_n[i])
+										.pow(e_BAR_dash_dash_n[i])).getImmutable();
 						product2 = product2.mul(W_n_m[i][j].pow(c_BARNum)).getImmutable();
-						c_BARVerifyList.add(product2.toBytes());
+						product2Bytes[index] = product2.toBytes();
 					} else {
 						// just stick some random but fixed element from G_T here as it is not used...
-						c_BARVerifyList.add(sharedMemory.gt.toBytes());
+						product2Bytes[index] = sharedMemory.gt.toBytes();
 					}
+
+					return true;
 				}
-			}
+			});
+			c_BARVerifyList.addAll(Arrays.asList(product2Bytes));
 			//end of part 2 of set verification
 			setVerificationTiming=setVerificationTiming+Instant.now().toEpochMilli();
 			LOG.debug("setVerification (part 2 end) so far: "+ setVerificationTiming);
 
-			final ListData c_BARVerifyData = new ListData(c_BARVerifyList);
-			final byte[] c_BARVerify = crypto.getHash(c_BARVerifyData.toBytes());
+			final byte[] c_BARVerify = new TranscriptHasher().addAll(c_BARVerifyList).digest();
 
 			if (!Arrays.equals(c_BAR, c_BARVerify)) {
 				LOG.error("failed to verify PI_2_U: c_BAR");
@@ -597,57 +616,55 @@ public class PPETSABCIssuingStates {
 
 			//timing e_BAR_m
 			timing=Instant.now().toEpochMilli();
-			// Verify e_BAR_m.
-			for (int i = 0; i < numOfUserRanges; i++) {
-				final BigInteger lower = BigInteger.valueOf(sharedMemory.rangePolicies[i][0]);
-				final BigInteger upper = BigInteger.valueOf(sharedMemory.rangePolicies[i][1]);
-
-				final List<byte[]> e_BAR_mVerifyList = new ArrayList<>();
-				e_BAR_mVerifyList.addAll(Arrays.asList(M_2_U.toBytes(), Z_n[i].toBytes()));
-				Element e_BAR_mVerifyCheck1a = sharedMemory.g.mul(gammae_BAR_n[i]).getImmutable();
-				Element e_BAR_mVerifyCheck1b = sharedMemory.h.mul(ae_BAR_n[i]).getImmutable();
-				Element e_BAR_mVerifyCheck1c = (Z_n[i].add(sharedMemory.h.mul(lower.negate().mod(sharedMemory.p))))
-						.mul(e_BAR_mNum[i]).getImmutable();
-				Element e_BAR_mVerifyCheck1 = e_BAR_mVerifyCheck1a.add(e_BAR_mVerifyCheck1b).add(e_BAR_mVerifyCheck1c)
-						.getImmutable();
-				e_BAR_mVerifyList.add(e_BAR_mVerifyCheck1.toBytes());
-
-				Element e_BAR_mVerifyCheck2a = sharedMemory.g.mul(gammae_BAR_n[i]).getImmutable();
-				Element e_BAR_mVerifyCheck2b = sharedMemory.pairing.getG1().newZeroElement();
-				for (int j = 0; j < sharedMemory.k; j++) {
-					final Element e_BAR_mVerifyCheck2b_j = sharedMemory.h_bar_n[j].mul(we_BAR_n_m[i][j]).getImmutable();
-					e_BAR_mVerifyCheck2b.add(e_BAR_mVerifyCheck2b_j);
-				}
-				final Element e_BAR_mVerifyCheck2c = (Z_n[i].add(sharedMemory.h.mul(lower.negate().mod(sharedMemory.p))))
-						.mul(e_BAR_mNum[i]).getImmutable();
-				final Element e_BAR_mVerifyCheck2 = e_BAR_mVerifyCheck2a.add(e_BAR_mVerifyCheck2b)
-						.add(e_BAR_mVerifyCheck2c);
-				e_BAR_mVerifyList.add(e_BAR_mVerifyCheck2.toBytes());
+			// Verify e_BAR_m. Each range is independent, so they are verified in parallel.
+			final BigInteger limit = BigInteger.valueOf((long) Math.pow(sharedMemory.q, sharedMemory.k));
+			final int failedRange = verifier.verify(numOfUserRanges, new ParallelVerifier.Check() {
+
+				@Override
+				public boolean verify(int i) {
+					final BigInteger lower = BigInteger.valueOf(sharedMemory.rangePolicies[i][0]);
+					final BigInteger upper = BigInteger.valueOf(sharedMemory.rangePolicies[i][1]);
+
+					// These terms are shared by all of the checks for the range.
+					final Element g_gammae = sharedMemory.mulFixed(sharedMemory.g, gammae_BAR_n[i]).getImmutable();
+					final Element Z_lower = (Z_n[i]
+							.add(sharedMemory.mulFixed(sharedMemory.h, lower.negate().mod(sharedMemory.p))))
+							.mul(e_BAR_mNum[i]).getImmutable();
+
+					final List<byte[]> e_BAR_mVerifyList = new ArrayList<>();
+					e_BAR_mVerifyList.addAll(Arrays.asList(M_2_U.toBytes(), Z_n[i].toBytes()));
+					final Element e_BAR_mVerifyCheck1b = sharedMemory.mulFixed(sharedMemory.h, ae_BAR_n[i])
+							.getImmutable();
+					final Element e_BAR_mVerifyCheck1 = g_gammae.add(e_BAR_mVerifyCheck1b).add(Z_lower).getImmutable();
+					e_BAR_mVerifyList.add(e_BAR_mVerifyCheck1.toBytes());
 
-				final BigInteger limit = BigInteger.valueOf((long) Math.pow(sharedMemory.q, sharedMemory.k));
-				final Element e_BAR_mVerifyCheck3a = sharedMemory.g.mul(gammae_BAR_n[i]).getImmutable();
+					final Element e_BAR_mVerifyCheck2b = sharedMemory.pairing.getG1().newZeroElement();
+					for (int j = 0; j < sharedMemory.k; j++) {
+						e_BAR_mVerifyCheck2b.add(sharedMemory.mulFixed(sharedMemory.h_bar_n[j], we_BAR_n_m[i][j]));
+					}
+					final Element e_BAR_mVerifyCheck2 = g_gammae.add(e_BAR_mVerifyCheck2b).add(Z_lower);
+					e_BAR_mVerifyList.add(e_BAR_mVerifyCheck2.toBytes());
 
-				Element e_BAR_mVerifyCheck3b = sharedMemory.pairing.getG1().newZeroElement().getImmutable();
-				for (int j = 0; j < sharedMemory.k; j++) {
-					e_BAR_mVerifyCheck3b = e_BAR_mVerifyCheck3b.add(sharedMemory.h_bar_n[j].mul(we_BAR_dash_n_m[i][j]))
-							.getImmutable();
-				}
-				Element e_BAR_mVerifyCheck3c = sharedMemory.h.mul(limit.subtract(upper)).getImmutable();
-				e_BAR_mVerifyCheck3c = e_BAR_mVerifyCheck3c.add(Z_n[i]).mul(e_BAR_mNum[i]);
+					final Element e_BAR_mVerifyCheck3b = sharedMemory.pairing.getG1().newZeroElement();
+					for (int j = 0; j < sharedMemory.k; j++) {
+						e_BAR_mVerifyCheck3b.add(sharedMemory.mulFixed(sharedMemory.h_bar_n[j], we_BAR_dash_n_m[i][j]));
+					}
+					final Element e_BAR_mVerifyCheck3c = sharedMemory.mulFixed(sharedMemory.h, limit.subtract(upper))
+							.add(Z_n[i]).mul(e_BAR_mNum[i]);
 
-				final Element e_BAR_mVerifyCheck3 = e_BAR_mVerifyCheck3a.add(e_BAR_mVerifyCheck3b)
-						.add(e_BAR_mVerifyCheck3c);
+					final Element e_BAR_mVerifyCheck3 = g_gammae.add(e_BAR_mVerifyCheck3b).add(e_BAR_mVerifyCheck3c);
+					e_BAR_mVerifyList.add(e_BAR_mVerifyCheck3.toBytes());
 
-				e_BAR_mVerifyList.add(e_BAR_mVerifyCheck3.toBytes());
+					final byte[] e_BAR_mVerify = new TranscriptHasher().addAll(e_BAR_mVerifyList).digest();
 
-				final ListData e_BAR_mVerifyData = new ListData(e_BAR_mVerifyList);
-				final byte[] e_BAR_mVerify = crypto.getHash(e_BAR_mVerifyData.toBytes());
+					return Arrays.equals(e_BAR_m[i], e_BAR_mVerify);
+				}
+			});
 
-				if (!Arrays.equals(e_BAR_m[i], e_BAR_mVerify)) {
-					LOG.error("failed to verify PI_2_U: e_BAR_n: " + i);
-					if (!sharedMemory.skipVerification) {
-						return false;
-					}
+			if (failedRange >= 0) {
+				LOG.error("failed to verify PI_2_U: e_BAR_n: " + failedRange);
+				if (!sharedMemory.skipVerification) {
+					return false;
 				}
 			}
 			LOG.debug("SUCCESS: verified PI_2_U: e_BAR_n");
@@ -655,16 +672,23 @@ public class PPETSABCIssuingStates {
 			LOG.debug("checking e_BAR_m took (ms): "+timing);
 
 			timing=Instant.now().toEpochMilli();
-			// Verify d_BAR_n_m
-			for (int i = 0; i < numOfUserRanges; i++) {
-				for (int j = 0; j < sharedMemory.k; j++) {
+			// Verify d_BAR_n_m. Each digit of each range is independent, so they are verified in parallel.
+			final int k = sharedMemory.k;
+			final int failedDigit = verifier.verify(numOfUserRanges * k, new ParallelVerifier.Check() {
+
+				@Override
+				public boolean verify(int index) {
+					final int i = index / k;
+					final int j = index % k;
+
 					final List<byte[]> d_BAR_n_mVerifyList = new ArrayList<>();
 					d_BAR_n_mVerifyList.addAll(Arrays.asList(M_2_U.toBytes(), A_n_m[i][j].toBytes(),
 							A_dash_n_m[i][j].toBytes(), V_n_m[i][j].toBytes(), V_dash_n_m[i][j].toBytes()));
 
-					Element d_BAR_n_mVerifyCheck1a = sharedMemory.pairing.pairing(sharedMemory.h, sharedMemory.h)
-							.pow(t_BAR_n_m[i][j]).getImmutable();
-					Element d_BAR_n_mVerifyCheck1b = sharedMemory.pairing.pairing(A_n_m[i][j], sharedMemory.h)
+					Element d_BAR_n_mVerifyCheck1a = sharedMemory.powFixed(sharedMemory.e_h_h, t_BAR_n_m[i][j])
+							.getImmutable();
+					Element d_BAR_n_mVerifyCheck1b = sharedMemory.getPairingCache().pairingFixedSecond(A_n_m[i][j],
+							sharedMemory.h)
 							.pow(wd_BAR_n_m[i][j].negate().mod(sharedMemory.p)).getImmutable();
 					Element d_BAR_n_mVerifyCheck1c = V_n_m[i][j].pow(d_BAR_n_mNum[i][j]);
 					Element d_BAR_n_mVerifyCheck1 = d_BAR_n_mVerifyCheck1a.mul(d_BAR_n_mVerifyCheck1b)
@@ -672,24 +696,26 @@ public class PPETSABCIssuingStates {
 
 					d_BAR_n_mVerifyList.add(d_BAR_n_mVerifyCheck1.toBytes());
 
-					Element d_BAR_n_mVerifyCheck2a = sharedMemory.pairing.pairing(sharedMemory.h, sharedMemory.h)
-							.pow(t_BAR_dash_n_m[i][j]).getImmutable();
-					Element d_BAR_n_mVerifyCheck2b = sharedMemory.pairing.pairing(A_dash_n_m[i][j], sharedMemory.h)
+					Element d_BAR_n_mVerifyCheck2a = sharedMemory.powFixed(sharedMemory.e_h_h, t_BAR_dash_n_m[i][j])
+							.getImmutable();
+					Element d_BAR_n_mVerifyCheck2b = sharedMemory.getPairingCache().pairingFixedSecond(A_dash_n_m[i][j],
+							sharedMemory.h)
 							.pow(wd_BAR_dash_n_m[i][j].negate().mod(sharedMemory.p)).getImmutable();
 					Element d_BAR_n_mVerifyCheck2c = V_dash_n_m[i][j].pow(d_BAR_n_mNum[i][j]);
 					Element d_BAR_n_mVerifyCheck2 = d_BAR_n_mVerifyCheck2a.mul(d_BAR_n_mVerifyCheck2b)
 							.mul(d_BAR_n_mVerifyCheck2c).getImmutable();
 					d_BAR_n_mVerifyList.add(d_BAR_n_mVerifyCheck2.toBytes());
 
-					final ListData d_BAR_n_mVerifyData = new ListData(d_BAR_n_mVerifyList);
-					final byte[] d_BAR_n_mVerify = crypto.getHash(d_BAR_n_mVerifyData.toBytes());
+					final byte[] d_BAR_n_mVerify = new TranscriptHasher().addAll(d_BAR_n_mVerifyList).digest();
 
-					if (!Arrays.equals(d_BAR_n_m[i][j], d_BAR_n_mVerify)) {
-						LOG.error("failed to verify PI_2_U: d_BAR_n_m: " + i + ", " + j);
-						if (!sharedMemory.skipVerification) {
-							return false;
-						}
-					}
+					return Arrays.equals(d_BAR_n_m[i][j], d_BAR_n_mVerify);
+				}
+			});
+
+			if (failedDigit >= 0) {
+				LOG.error("failed to verify PI_2_U: d_BAR_n_m: " + (failedDigit / k) + ", " + (failedDigit % k));
+				if (!sharedMemory.skipVerification) {
+					return false;
 				}
 			}
 			//end of part 3 of range verification
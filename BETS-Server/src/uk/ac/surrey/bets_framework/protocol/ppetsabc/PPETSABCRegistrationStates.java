@@ -8,6 +8,7 @@ package uk.ac.surrey.bets_framework.protocol.ppetsabc;
 import it.unisa.dia.gas.jpbc.Element;
 import it.unisa.dia.gas.plaf.jpbc.field.curve.CurveElement;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
@@ -96,9 +97,8 @@ public class PPETSABCRegistrationStates {
       
       
       // Verify PI_1_S via c.
-      final Element check = sharedMemory.rho.mul(s).add(Y_S.mul(cNum));
-      final ListData cVerifyData = new ListData(Arrays.asList(M_1_S.toBytes(), Y_S.toBytes(), check.toBytes()));
-      final byte[] cVerify = crypto.getHash(cVerifyData.toBytes());
+      final Element check = sharedMemory.mulFixed(sharedMemory.rho, s).add(Y_S.mul(cNum));
+      final byte[] cVerify = new TranscriptHasher().add(M_1_S).add(Y_S).add(check).digest();
       if (!Arrays.equals(c, cVerify)) {
         LOG.error("failed to verify PI_1_S");
         if (!sharedMemory.skipVerification) {
@@ -148,7 +148,9 @@ public class PPETSABCRegistrationStates {
       final BigInteger vpsHashNum = new BigInteger(1, vpsHash).mod(sharedMemory.p);
       LOG.debug("vpsHashNum: "+vpsHashNum);
      
-      final CurveElement<?, ?> delta_S = (CurveElement<?, ?>) sharedMemory.g_n[0].add(sharedMemory.g_n[1].mul(vpsHashNum)).add(Y_S).add(sharedMemory.g_frak.mul(r_s))
+      final CurveElement<?, ?> delta_S = (CurveElement<?, ?>) sharedMemory.g_n[0]
+      		.add(sharedMemory.mulFixed(sharedMemory.g_n[1], vpsHashNum)).add(Y_S)
+      		.add(sharedMemory.mulFixed(sharedMemory.g_frak, r_s))
           .mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
       // Store the seller credentials for later use when we are the
@@ -275,9 +277,8 @@ public class PPETSABCRegistrationStates {
 
 		// Verify PI_1_U via c_1 and c_2.
 		LOG.debug("Verifying PI_1_U c1:...");
-		final Element check1 = sharedMemory.xi.mul(s_1).add(Y_U.mul(c_1Num));
-		final ListData c_1VerifyData = new ListData(Arrays.asList(M_1_U.toBytes(), Y_U.toBytes(), check1.toBytes()));
-		final byte[] c_1Verify = crypto.getHash(c_1VerifyData.toBytes());
+		final Element check1 = sharedMemory.mulFixed(sharedMemory.xi, s_1).add(Y_U.mul(c_1Num));
+		final byte[] c_1Verify = new TranscriptHasher().add(M_1_U).add(Y_U).add(check1).digest();
 
 		if (!Arrays.equals(c_1, c_1Verify)) {
 			LOG.error("failed to verify PI_1_U: c_1");
@@ -287,9 +288,8 @@ public class PPETSABCRegistrationStates {
 		LOG.debug("SUCCESS: Verified PI_1_U c1:...");
 
 		LOG.debug("Verifying PI_1_U c2:...");
-		final Element check2 = sharedMemory.g_frak.mul(s_2).add(R.mul(c_2Num));
-		final ListData c_2VerifyData = new ListData(Arrays.asList(M_1_U.toBytes(), R.toBytes(), check2.toBytes()));
-		final byte[] c_2Verify = crypto.getHash(c_2VerifyData.toBytes());
+		final Element check2 = sharedMemory.mulFixed(sharedMemory.g_frak, s_2).add(R.mul(c_2Num));
+		final byte[] c_2Verify = new TranscriptHasher().add(M_1_U).add(R).add(check2).digest();
 
 		if (!Arrays.equals(c_2, c_2Verify)) {
 			LOG.error("failed to verify PI_1_U: c_2");
@@ -312,7 +312,7 @@ public class PPETSABCRegistrationStates {
 
 		Element sum1 = sharedMemory.pairing.getG1().newZeroElement();
 		for (int i = 0; i < numOfUserRanges; i++) {
-			final Element value = sharedMemory.g_hat_n[i].mul(A_U_range[i]).getImmutable();
+			final Element value = sharedMemory.mulFixed(sharedMemory.g_hat_n[i], A_U_range[i]).getImmutable();
 			sum1 = sum1.add(value);
 		}
 		sum1 = sum1.getImmutable();
@@ -322,13 +322,14 @@ public class PPETSABCRegistrationStates {
 		for (int i = 0; i < numOfUserSets; i++) {
 			final byte[] hash = crypto.getHash(A_U_set[i].getBytes());
 			final BigInteger hashNum = new BigInteger(1, hash).mod(sharedMemory.p);
-			final Element value = sharedMemory.eta_n[i].mul(hashNum).getImmutable();
+			final Element value = sharedMemory.mulFixed(sharedMemory.eta_n[i], hashNum).getImmutable();
 			sum2 = sum2.add(value);
 		}
 		sum2 = sum2.getImmutable();
 
-		Element delta_U = sharedMemory.g_n[0].add(sharedMemory.g_n[1].mul(vpuHashNum)).add(Y_U).add(R)
-				.add(sharedMemory.g_frak.mul(r_dash).add(sum1).add(sum2)).getImmutable();
+		Element delta_U = sharedMemory.g_n[0].add(sharedMemory.mulFixed(sharedMemory.g_n[1], vpuHashNum)).add(Y_U)
+				.add(R)
+				.add(sharedMemory.mulFixed(sharedMemory.g_frak, r_dash).add(sum1).add(sum2)).getImmutable();
 		delta_U = delta_U.mul(gcd.x.mod(sharedMemory.p)).getImmutable();
 
 		// Store ID_U, A_U, Y_U and delta_U.
@@ -5,11 +5,22 @@
  */
 package uk.ac.surrey.bets_framework.protocol.ppetsabc;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import org.bouncycastle.util.encoders.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -19,6 +30,8 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 
 import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.ElementPowPreProcessing;
+import it.unisa.dia.gas.jpbc.Field;
 import it.unisa.dia.gas.jpbc.Pairing;
 import it.unisa.dia.gas.jpbc.PairingParameters;
 import it.unisa.dia.gas.jpbc.PairingParametersGenerator;
@@ -37,7 +50,13 @@ import it.unisa.dia.gas.plaf.jpbc.pairing.parameters.PropertiesParameters;
 import uk.ac.surrey.bets_framework.Crypto;
 import uk.ac.surrey.bets_framework.Crypto.BigIntEuclidean;
 import uk.ac.surrey.bets_framework.GsonUtils;
+import uk.ac.surrey.bets_framework.protocol.DoubleSpendStore;
+import uk.ac.surrey.bets_framework.protocol.ElementPowPreProcessingCache;
 import uk.ac.surrey.bets_framework.protocol.NFCSharedMemory;
+import uk.ac.surrey.bets_framework.protocol.PairingBackend;
+import uk.ac.surrey.bets_framework.protocol.PairingPreProcessingCache;
+import uk.ac.surrey.bets_framework.protocol.ParallelVerifier;
+import uk.ac.surrey.bets_framework.protocol.ParameterStore;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.CentralAuthorityData;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.SellerData;
 import uk.ac.surrey.bets_framework.protocol.ppetsabc.data.UserData;
@@ -70,6 +89,12 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	 */
 	public static final byte[] PAIRING_RANDOM_SEED = PPETSABCSharedMemory.class.getSimpleName().getBytes();
 
+	/** Suffix of the files used to cache eta_n_n. */
+	private static final String ETA_CACHE_SUFFIX = ".eta";
+
+	/** The name of the parameter store section holding the public parameters. */
+	private static final String PARAMETER_SECTION = "PPETSABC";
+
 	/** Name used for timing the critical part of the protocol. */
 	public static final String TIMING_NAME = "Validation Timing";
 
@@ -110,6 +135,42 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 
 	public transient Element gt = null;
 
+	/** Precomputed pairing e(eta, eta_n[i]). */
+	public GTFiniteElement[] e_eta_eta_n = null;
+
+	/** Precomputed pairing e(eta_n[i], g). */
+	public GTFiniteElement[] e_eta_n_g = null;
+
+	/** Precomputed pairing e(g_frak, g). */
+	public GTFiniteElement e_g_frak_g = null;
+
+	/** Precomputed pairing e(g_hat_n[i], g). */
+	public GTFiniteElement[] e_g_hat_n_g = null;
+
+	/** Precomputed pairing e(g_n[i], g). */
+	public GTFiniteElement[] e_g_n_g = null;
+
+	/** Precomputed pairing e(g_n[i], rho). */
+	public GTFiniteElement[] e_g_n_rho = null;
+
+	/** Precomputed pairing e(h, h). */
+	public GTFiniteElement e_h_h = null;
+
+	/** Precomputed pairing e(rho, g). */
+	public GTFiniteElement e_rho_g = null;
+
+	/** Precomputed pairing e(theta, g). */
+	public GTFiniteElement e_theta_g = null;
+
+	/** Precomputed pairing e(theta, g_bar). */
+	public GTFiniteElement e_theta_g_bar = null;
+
+	/** Precomputed pairing e(theta, rho). */
+	public GTFiniteElement e_theta_rho = null;
+
+	/** Precomputed pairing e(xi, g). */
+	public GTFiniteElement e_xi_g = null;
+
 	/** Random element h as a generator of the group G. */
 	public CurveElement<?, ?> h = null;
 
@@ -140,6 +201,21 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	 */
 	public transient Pairing pairing = null;
 
+	/**
+	 * Cached pre-processing for pairings with a fixed argument: transient as it is
+	 * rebuilt from the pairing.
+	 */
+	private transient PairingPreProcessingCache pairingCache = null;
+
+	/**
+	 * Cached fixed-base multiplication tables for the public generators:
+	 * transient as they are rebuilt from the generators.
+	 */
+	private transient ElementPowPreProcessingCache mulCache = null;
+
+	/** The saved parameters currently in use, or null if they were generated. */
+	private transient ParameterStore.Section parameters = null;
+
 	/** The bilinear group pairing parameters. */
 	public PropertiesParameters pairingParameters = null;
 
@@ -181,8 +257,11 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	/** Random element rho as a generator of the group G. */
 	public CurveElement<?, ?> rho = null;
 
-	/** Fixed set of set policies: we use arbitrary strings. */
-	public transient final String[][] setPolices = new String[][] { { 
+	/**
+	 * Default set of set policies: we use arbitrary strings. These can be replaced
+	 * using {@link #setSetPolicies(SetPolicies)}.
+	 */
+	public transient String[][] setPolices = new String[][] { { 
 		"00", "01", "02", "03", "04", "05", "06", "07",	"08", "09"//, 
 //		"10", "11", "12", "13", "14", "15", "16", "17", "18", "19", 
 //		"20", "21", "22", "23", "24", "25",	"26", "27", "28", "29", 
@@ -203,7 +282,22 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	/**
 	 * The labels for these set policies
 	 */
-	public final String[] setPolicyNames = { "S1", "S2", "S3", "S4" };
+	public String[] setPolicyNames = { "S1", "S2", "S3", "S4" };
+
+	/** The set policies, indexed by member. */
+	private transient SetPolicies setPolicies = new SetPolicies(this.setPolicyNames, this.setPolices);
+
+	/**
+	 * The serials of every ticket seen by the validator, used to detect double
+	 * spending. Held in memory unless a log file is set as a parameter.
+	 */
+	public transient DoubleSpendStore doubleSpendStore = new DoubleSpendStore();
+
+	/**
+	 * Directory in which eta_n_n is cached between runs, keyed by the central
+	 * authority's key, or null for no caching - optionally set as a parameter.
+	 */
+	public transient String etaCacheDirectory = null;
 
 	/** Random element theta as a generator of the group G. */
 	public CurveElement<?, ?> theta = null;
@@ -223,6 +317,20 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		LOG.debug("Set the pairing type to :" + type.name());
 	}
 
+	/**
+	 * Replaces the set policies, e.g. with those loaded from a file. This must be
+	 * done before the shared memory is cleared.
+	 *
+	 * @param setPolicies
+	 *            The new set policies.
+	 */
+	public void setSetPolicies(SetPolicies setPolicies) {
+		this.setPolicies = setPolicies;
+		this.setPolices = setPolicies.getMembers();
+		this.setPolicyNames = setPolicies.getNames();
+		LOG.debug("Set " + this.setPolices.length + " set policies");
+	}
+
 	/**
 	 * Deserialises the shared memory from a JSON string.
 	 *
@@ -249,6 +357,9 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		gsonBuilder.registerTypeAdapter(CurveElement.class, new GsonUtils.CurveElementSerializer());
 		gsonBuilder.registerTypeAdapter(CurveElement.class,
 				new GsonUtils.CurveElementDeserializer((CurveField<?>) pairing.getG1()));
+		gsonBuilder.registerTypeAdapter(GTFiniteElement.class, new GsonUtils.GTFiniteElementSerializer());
+		gsonBuilder.registerTypeAdapter(GTFiniteElement.class,
+				new GsonUtils.GTFiniteElementDeserializer((GTFiniteField<?>) pairing.getGT()));
 		gson = gsonBuilder.create();
 
 		// Deserialize and set the pairing.
@@ -276,16 +387,22 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		// Reset the shared parameters. Other parameters are kept as they are required
 		// across protocol runs.
 		this.actor = Actor.CENTRAL_AUTHORITY;
-		this.setBilinearGroup();
 
 		// On the server, we only act as the central authority, seller and validator.
-		this.actorData.put(Actor.CENTRAL_AUTHORITY, new CentralAuthorityData(this.p, this.N2()));
 		this.actorData.put(Actor.SELLER, new SellerData());
 		this.actorData.put(Actor.VALIDATOR, new ValidatorData());
 
-		// Now complete the setup of the public parameters, which need the
-		// bilinear group and private central authority data.
-		this.setPublicParameters();
+		// Reload the bilinear group, central authority keys and public parameters if
+		// they have been saved, otherwise generate them.
+		if (!this.loadParameters()) {
+			this.setBilinearGroup();
+			this.actorData.put(Actor.CENTRAL_AUTHORITY, new CentralAuthorityData(this.p, this.N2()));
+
+			// Now complete the setup of the public parameters, which need the
+			// bilinear group and private central authority data.
+			this.setPublicParameters();
+			this.saveParameters();
+		}
 	}
 
 	/**
@@ -325,6 +442,56 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		this.setPublicParameters();
 	}
 
+	/**
+	 * @return The pairing pre-processing cache for the current pairing, creating
+	 *         it if needed.
+	 */
+	public PairingPreProcessingCache getPairingCache() {
+		if ((this.pairingCache == null) || (this.pairingCache.getPairing() != this.pairing)) {
+			this.setPairingCache();
+		}
+
+		return this.pairingCache;
+	}
+
+	/**
+	 * Multiplies an element by a scalar, using the fixed-base multiplication
+	 * tables if the element is one of the public generators.
+	 *
+	 * @param fixed
+	 *            The element to multiply.
+	 * @param scalar
+	 *            The scalar to multiply by.
+	 * @return The result of the multiplication.
+	 */
+	public Element mulFixed(Element fixed, BigInteger scalar) {
+		if (this.mulCache == null) {
+			this.setMulCache();
+		}
+
+		return this.mulCache.mul(fixed, scalar);
+	}
+
+	/**
+	 * Raises a GT element to a power, using the fixed-base tables if the element
+	 * is one of the precomputed pairings which are raised to a power for every
+	 * range digit or set member.
+	 *
+	 * @param fixed
+	 *            The GT element.
+	 * @param exponent
+	 *            The exponent.
+	 * @return The result of the exponentiation.
+	 */
+	public Element powFixed(Element fixed, BigInteger exponent) {
+		if (this.mulCache == null) {
+			this.setMulCache();
+		}
+
+		// The tables use additive notation, so "multiplication" in GT is exponentiation.
+		return this.mulCache.mul(fixed, exponent);
+	}
+
 	/**
 	 * Convenience method to create a curve element from a byte array.
 	 *
@@ -428,10 +595,202 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	}
 
 	/**
-	 * Sets the bilinear group, which must be done before the central authority can
-	 * be initialised.
+	 * Finds the position of a member within a set policy, ignoring case.
+	 *
+	 * @param i
+	 *            The index of the set policy.
+	 * @param member
+	 *            The member to find.
+	 * @return The index of the member within the set policy, or -1 if it is not
+	 *         a member.
 	 */
-	private void setBilinearGroup() {
+	public int setMemberIndex(int i, String member) {
+		return this.setPolicies.indexOf(i, member);
+	}
+
+	/**
+	 * @return The configuration which the saved parameters must have been
+	 *         generated for, including a hash of the policies.
+	 */
+	private String getParameterConfiguration() {
+		final String policies = Arrays.deepToString(this.rangePolicies) + Arrays.toString(this.setPolicyNames)
+				+ Arrays.deepToString(this.setPolices);
+		final byte[] hash = Crypto.getInstance().getHash(policies.getBytes(StandardCharsets.UTF_8));
+
+		return this.pairingType + ";rBits=" + this.rBits + ";qBits=" + this.qBits + ";policies="
+				+ Hex.toHexString(hash);
+	}
+
+	/**
+	 * Loads the bilinear group, central authority keys and public parameters from
+	 * the parameter store, if they have been saved for the current pairing type,
+	 * sizes and policies. The derived parameters depend upon the central
+	 * authority's private keys, so these are saved with them. Parameters which
+	 * have already been loaded are kept as they are.
+	 *
+	 * @return True if the parameters were loaded.
+	 */
+	private boolean loadParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+		final ParameterStore.Section section = (store == null) ? null
+				: store.getSection(PARAMETER_SECTION, this.getParameterConfiguration());
+
+		if (section == null) {
+			return false;
+		}
+
+		try {
+			if (section != this.parameters) {
+				this.setRangeParameters();
+				this.pairingParameters = section.getPairingParameters("pairingParameters");
+				this.pairing = this.createPairing(new Crypto.PRNGSecureRandom(PAIRING_RANDOM_SEED));
+				this.p = section.getBigInteger("p");
+
+				final Field<?> G1 = this.pairing.getG1();
+				this.g = (CurveElement<?, ?>) section.getElement("g", G1);
+				this.g_n = toCurveElements(section.getElements("g_n", G1));
+				this.g_hat_n = toCurveElements(section.getElements("g_hat_n", G1));
+				this.g_frak = (CurveElement<?, ?>) section.getElement("g_frak", G1);
+				this.eta = (CurveElement<?, ?>) section.getElement("eta", G1);
+				this.xi = (CurveElement<?, ?>) section.getElement("xi", G1);
+				this.rho = (CurveElement<?, ?>) section.getElement("rho", G1);
+				this.theta = (CurveElement<?, ?>) section.getElement("theta", G1);
+				this.eta_n = toCurveElements(section.getElements("eta_n", G1));
+				this.g_bar = (CurveElement<?, ?>) section.getElement("g_bar", G1);
+				this.h = (CurveElement<?, ?>) section.getElement("h", G1);
+				this.h_bar = (CurveElement<?, ?>) section.getElement("h_bar", G1);
+				this.h_n = toCurveElements(section.getElements("h_n", G1));
+				this.h_bar_n = toCurveElements(section.getElements("h_bar_n", G1));
+				this.eta_bar_n = toCurveElements(section.getElements("eta_bar_n", G1));
+
+				this.biggestSetSize = this.biggestSetSize();
+				this.eta_n_n = new CurveElement<?, ?>[this.N2()][];
+				for (int i = 0; i < this.eta_n_n.length; i++) {
+					this.eta_n_n[i] = toCurveElements(section.getElements("eta_n_n." + i, G1));
+				}
+
+				this.gt = this.pairing.getGT().newElementFromBytes("RandomElement".getBytes()).getImmutable();
+
+				final Field<?> GT = this.pairing.getGT();
+				this.e_g_n_g = toGTFiniteElements(section.getElements("e_g_n_g", GT));
+				this.e_g_n_rho = toGTFiniteElements(section.getElements("e_g_n_rho", GT));
+				this.e_g_hat_n_g = toGTFiniteElements(section.getElements("e_g_hat_n_g", GT));
+				this.e_eta_n_g = toGTFiniteElements(section.getElements("e_eta_n_g", GT));
+				this.e_eta_eta_n = toGTFiniteElements(section.getElements("e_eta_eta_n", GT));
+				this.e_g_frak_g = (GTFiniteElement) section.getElement("e_g_frak_g", GT);
+				this.e_h_h = (GTFiniteElement) section.getElement("e_h_h", GT);
+				this.e_rho_g = (GTFiniteElement) section.getElement("e_rho_g", GT);
+				this.e_theta_g = (GTFiniteElement) section.getElement("e_theta_g", GT);
+				this.e_theta_g_bar = (GTFiniteElement) section.getElement("e_theta_g_bar", GT);
+				this.e_theta_rho = (GTFiniteElement) section.getElement("e_theta_rho", GT);
+				this.e_xi_g = (GTFiniteElement) section.getElement("e_xi_g", GT);
+
+				this.setPairingCache();
+				this.setMulCache();
+			}
+
+			// The central authority must use the keys the derived parameters were
+			// calculated from.
+			final CentralAuthorityData caData = new CentralAuthorityData(this.p, this.N2());
+			caData.x = section.getBigInteger("x");
+			caData.y = section.getBigInteger("y");
+			caData.mu_n = section.getBigIntegers("mu_n");
+			this.actorData.put(Actor.CENTRAL_AUTHORITY, caData);
+		} catch (final RuntimeException e) {
+			LOG.warn("could not load saved parameters", e);
+			return false;
+		}
+
+		if (section != this.parameters) {
+			this.parameters = section;
+			LOG.debug("loaded bilinear group for " + this.pairingType);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Saves the bilinear group, central authority keys and public parameters to
+	 * the parameter store, if there is one.
+	 */
+	private void saveParameters() {
+		final ParameterStore store = ParameterStore.getInstance();
+
+		if (store != null) {
+			final CentralAuthorityData caData = (CentralAuthorityData) this.getData(Actor.CENTRAL_AUTHORITY);
+			final ParameterStore.Section section = new ParameterStore.Section(PARAMETER_SECTION,
+					this.getParameterConfiguration());
+			section.put("pairingParameters", this.pairingParameters).put("p", this.p);
+			section.put("x", caData.x).put("y", caData.y).put("mu_n", caData.mu_n);
+			section.put("g", this.g).put("g_n", this.g_n).put("g_hat_n", this.g_hat_n).put("g_frak", this.g_frak);
+			section.put("eta", this.eta).put("xi", this.xi).put("rho", this.rho).put("theta", this.theta);
+			section.put("eta_n", this.eta_n).put("g_bar", this.g_bar).put("h", this.h).put("h_bar", this.h_bar);
+			section.put("h_n", this.h_n).put("h_bar_n", this.h_bar_n).put("eta_bar_n", this.eta_bar_n);
+			for (int i = 0; i < this.eta_n_n.length; i++) {
+				section.put("eta_n_n." + i, this.eta_n_n[i]);
+			}
+
+			section.put("e_g_n_g", this.e_g_n_g).put("e_g_n_rho", this.e_g_n_rho).put("e_g_hat_n_g", this.e_g_hat_n_g);
+			section.put("e_eta_n_g", this.e_eta_n_g).put("e_eta_eta_n", this.e_eta_eta_n);
+			section.put("e_g_frak_g", this.e_g_frak_g).put("e_h_h", this.e_h_h).put("e_rho_g", this.e_rho_g);
+			section.put("e_theta_g", this.e_theta_g).put("e_theta_g_bar", this.e_theta_g_bar)
+					.put("e_theta_rho", this.e_theta_rho).put("e_xi_g", this.e_xi_g);
+			store.putSection(section);
+			this.parameters = section;
+		}
+	}
+
+	/**
+	 * Converts loaded elements into curve elements.
+	 *
+	 * @param elements
+	 *            The elements.
+	 * @return The curve elements.
+	 */
+	private static CurveElement<?, ?>[] toCurveElements(Element[] elements) {
+		final CurveElement<?, ?>[] curveElements = new CurveElement<?, ?>[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			curveElements[i] = (CurveElement<?, ?>) elements[i];
+		}
+
+		return curveElements;
+	}
+
+	/**
+	 * Converts loaded elements into GT elements.
+	 *
+	 * @param elements
+	 *            The elements.
+	 * @return The GT elements.
+	 */
+	private static GTFiniteElement[] toGTFiniteElements(Element[] elements) {
+		final GTFiniteElement[] gtElements = new GTFiniteElement[elements.length];
+		for (int i = 0; i < elements.length; i++) {
+			gtElements[i] = (GTFiniteElement) elements[i];
+		}
+
+		return gtElements;
+	}
+
+	/**
+	 * Creates the pairing for the pairing parameters using the selected backend.
+	 * The public parameters are serialised to the client as jPBC curve elements,
+	 * so the native backend is never selected.
+	 *
+	 * @param prng
+	 *            The source of randomness for the pairing.
+	 * @return The pairing.
+	 */
+	private Pairing createPairing(SecureRandom prng) {
+		return PairingBackend.getPairing(
+				PairingBackend.select(PPETSABC.class.getSimpleName(), this.pairingParameters, prng, false),
+				this.pairingParameters, prng);
+	}
+
+	/**
+	 * Sets q and k from the range policies.
+	 */
+	private void setRangeParameters() {
 		// Calculate q and k. We assume a value of q = 2 and that p is large,
 		// and calculate k.
 		this.q = 2;
@@ -444,6 +803,15 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		}
 		LOG.debug("The longest interval is longestRangeInterval=" + longestRangeInterval
 				+ " which is contained in [0, q^k), where q=" + this.q + " and k=" + this.k);
+	}
+
+	/**
+	 * Sets the bilinear group, which must be done before the central authority can
+	 * be initialised.
+	 */
+	private void setBilinearGroup() {
+		this.setRangeParameters();
+
 		// Build an elliptic curve generator that will give us our p (the order r of the
 		// generator), and subsequently our bilinear group
 		// pairing.
@@ -455,7 +823,7 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 			generator = new TypeA1CurveGenerator(prng, this.rBits, this.qBits);// use rBits to represent the number of
 																				// primes
 			this.pairingParameters = (PropertiesParameters) generator.generate();
-			this.pairing = PairingFactory.getPairing(this.pairingParameters, prng);
+			this.pairing = this.createPairing(prng);
 			LOG.debug("pairingParameters (n): " + pairingParameters.getBigInteger("n"));
 			LOG.debug("pairingParameters (n) prime: " + pairingParameters.getBigInteger("n").isProbablePrime(10));
 			LOG.debug("pairingParameters (p): " + pairingParameters.getBigInteger("p"));
@@ -465,7 +833,7 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		case TYPE_E:
 			generator = new TypeECurveGenerator(prng, this.rBits, this.qBits);
 			this.pairingParameters = (PropertiesParameters) generator.generate();
-			this.pairing = PairingFactory.getPairing(this.pairingParameters, prng);
+			this.pairing = this.createPairing(prng);
 			LOG.debug("pairingParameters (q): " + pairingParameters.getBigInteger("q"));
 			LOG.debug("pairingParameters (q) prime: " + pairingParameters.getBigInteger("q").isProbablePrime(10));
 			LOG.debug("pairingParameters (r): " + pairingParameters.getBigInteger("r"));
@@ -475,7 +843,7 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		case TYPE_A:
 			generator = new TypeACurveGenerator(prng, this.rBits, this.qBits, true);
 			this.pairingParameters = (PropertiesParameters) generator.generate();
-			this.pairing = PairingFactory.getPairing(this.pairingParameters, prng);
+			this.pairing = this.createPairing(prng);
 
 			LOG.debug("pairingParameters (q): " + pairingParameters.getBigInteger("q"));
 			LOG.debug("pairingParameters (q) prime: " + pairingParameters.getBigInteger("q").isProbablePrime(10));
@@ -540,7 +908,7 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		BigInteger powerQ = BigInteger.ONE; // q^0
 		final BigInteger bigIntQ = BigInteger.valueOf(this.q);
 		for (int i = 0; i < this.h_bar_n.length; i++) {
-			this.h_bar_n[i] = this.h.mul(powerQ);
+			this.h_bar_n[i] = (CurveElement<?, ?>) this.h.mul(powerQ).getImmutable();
 			powerQ = powerQ.multiply(bigIntQ);
 		}
 
@@ -551,30 +919,246 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 		}
 
 		// Finally we calculate eta_i_j=eta^(1/(mu_i+H(I_i_j)))
-
-		final Crypto crypto = Crypto.getInstance();
 		this.biggestSetSize = this.biggestSetSize();
 		LOG.debug("The biggest set size is: " + this.biggestSetSize);
-		this.eta_n_n = new CurveElement<?, ?>[this.N2()][biggestSetSize];
+		this.setEtaNN(caData);
+
+		this.gt = this.pairing.getGT().newElementFromBytes("RandomElement".getBytes()).getImmutable();
+
+		this.setPairingCache();
+		this.setPairingConstants();
+
+		// Pre-compute the fixed-base multiplication tables for the generators.
+		this.setMulCache();
+	}
 
+	/**
+	 * Calculates eta_i_j=eta^(1/(mu_i+H(I_i_j))) for each member of each set
+	 * policy, padding each set up to the biggest set size with dummy entries. Sets
+	 * which have been cached for the same central authority key are loaded from
+	 * the cache, and the remaining entries are computed in parallel using a
+	 * fixed-base table for eta.
+	 *
+	 * @param caData
+	 *            The central authority data.
+	 */
+	private void setEtaNN(final CentralAuthorityData caData) {
+		final Crypto crypto = Crypto.getInstance();
+		final int size = this.biggestSetSize;
+		this.eta_n_n = new CurveElement<?, ?>[this.N2()][size];
+
+		// Load whichever sets we can from the cache.
+		final Path[] cacheFiles = new Path[this.N2()];
+		final List<Integer> missing = new ArrayList<>();
 		for (int i = 0; i < this.N2(); i++) {
-			// create entries for the proper set members
-			for (int j = 0; j < this.zeta(i); j++) {
-				final BigInteger H_n_m_hash = (new BigInteger(1, crypto.getHash(this.setPolices[i][j].getBytes())))
-						.mod(p);
-				final BigIntEuclidean gcd = BigIntEuclidean.calculate(caData.mu_n[i].add(H_n_m_hash).mod(p), p);
-				this.eta_n_n[i][j] = (CurveElement<?, ?>) this.eta.mul(gcd.x.mod(p)).getImmutable();
+			cacheFiles[i] = this.etaCacheFile(i, caData.mu_n[i]);
+
+			if ((cacheFiles[i] == null) || !this.loadEtaRow(i, cacheFiles[i])) {
+				missing.add(i);
 			}
-			// create dummy entries for the rest
-			for (int j = this.zeta(i); j < biggestSetSize; j++) {
-				final String dummyEntry = "DummyEntry[" + i + "][" + j + "]";
-				final BigInteger H_n_m_hash = (new BigInteger(1, crypto.getHash(dummyEntry.getBytes()))).mod(p);
+		}
+
+		if (missing.isEmpty()) {
+			LOG.debug("loaded eta_n_n from cache");
+			return;
+		}
+
+		// Each entry is independent, so compute them in parallel.
+		final ElementPowPreProcessing etaTable = this.eta.getElementPowPreProcessing();
+		final int failed = ParallelVerifier.getInstance().verify(missing.size() * size, new ParallelVerifier.Check() {
+
+			@Override
+			public boolean verify(int index) {
+				final int i = missing.get(index / size);
+				final int j = index % size;
+
+				// Create entries for the proper set members and dummy entries for the rest.
+				final String member = (j < PPETSABCSharedMemory.this.zeta(i))
+						? PPETSABCSharedMemory.this.setPolices[i][j]
+						: "DummyEntry[" + i + "][" + j + "]";
+				final BigInteger H_n_m_hash = (new BigInteger(1, crypto.getHash(member.getBytes()))).mod(p);
 				final BigIntEuclidean gcd = BigIntEuclidean.calculate(caData.mu_n[i].add(H_n_m_hash).mod(p), p);
-				this.eta_n_n[i][j] = (CurveElement<?, ?>) this.eta.mul(gcd.x.mod(p)).getImmutable();
+				PPETSABCSharedMemory.this.eta_n_n[i][j] = (CurveElement<?, ?>) etaTable.pow(gcd.x.mod(p))
+						.getImmutable();
+
+				return true;
 			}
+		});
 
+		if (failed >= 0) {
+			throw new IllegalStateException("could not calculate eta_n_n");
 		}
-		this.gt = this.pairing.getGT().newElementFromBytes("RandomElement".getBytes()).getImmutable();
+
+		for (final int i : missing) {
+			if (cacheFiles[i] != null) {
+				this.saveEtaRow(i, cacheFiles[i]);
+			}
+		}
+	}
+
+	/**
+	 * Determines the cache file for a set's eta_n_n entries. The file name is a
+	 * hash of everything which the entries depend upon, including the central
+	 * authority's key for the set, so that a stale entry is never used.
+	 *
+	 * @param i
+	 *            The index of the set policy.
+	 * @param mu
+	 *            The central authority's key for the set policy.
+	 * @return The cache file, or null if there is no cache.
+	 */
+	private Path etaCacheFile(int i, BigInteger mu) {
+		if (this.etaCacheDirectory == null) {
+			return null;
+		}
+
+		final StringBuilder key = new StringBuilder();
+		key.append(this.p).append('|').append(Hex.toHexString(this.eta.toBytes())).append('|').append(mu).append('|')
+				.append(i).append('|').append(this.biggestSetSize);
+		for (final String member : this.setPolices[i]) {
+			key.append('|').append(member);
+		}
+
+		final byte[] hash = Crypto.getInstance().getHash(key.toString().getBytes(StandardCharsets.UTF_8));
+		return Paths.get(this.etaCacheDirectory, Hex.toHexString(hash) + ETA_CACHE_SUFFIX);
+	}
+
+	/**
+	 * Loads a set's eta_n_n entries from the cache.
+	 *
+	 * @param i
+	 *            The index of the set policy.
+	 * @param file
+	 *            The cache file.
+	 * @return True if the entries were loaded.
+	 */
+	private boolean loadEtaRow(int i, Path file) {
+		if (!Files.isRegularFile(file)) {
+			return false;
+		}
+
+		try {
+			final byte[] bytes = Files.readAllBytes(file);
+			final int length = this.eta.getLengthInBytes();
+
+			if (bytes.length != (length * this.biggestSetSize)) {
+				LOG.warn("ignoring eta_n_n cache file with wrong length: " + file);
+				return false;
+			}
+
+			for (int j = 0; j < this.biggestSetSize; j++) {
+				this.eta_n_n[i][j] = (CurveElement<?, ?>) this
+						.curveElementFromBytes(Arrays.copyOfRange(bytes, j * length, (j + 1) * length));
+			}
+
+			return true;
+		} catch (final IOException e) {
+			LOG.warn("could not read eta_n_n cache file " + file, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Saves a set's eta_n_n entries to the cache.
+	 *
+	 * @param i
+	 *            The index of the set policy.
+	 * @param file
+	 *            The cache file.
+	 */
+	private void saveEtaRow(int i, Path file) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (final CurveElement<?, ?> element : this.eta_n_n[i]) {
+			final byte[] elementBytes = element.toBytes();
+			bytes.write(elementBytes, 0, elementBytes.length);
+		}
+
+		try {
+			Files.createDirectories(file.getParent());
+
+			// Write to a temporary file first so that a partial file is never read.
+			final Path temporary = Files.createTempFile(file.getParent(), null, ETA_CACHE_SUFFIX);
+			Files.write(temporary, bytes.toByteArray());
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final IOException e) {
+			LOG.warn("could not write eta_n_n cache file " + file, e);
+		}
+	}
+
+	/**
+	 * Builds the fixed-base multiplication tables for the public generators, and
+	 * the exponentiation tables for the pairing constants used in the range and
+	 * set membership proofs.
+	 */
+	private void setMulCache() {
+		this.mulCache = new ElementPowPreProcessingCache();
+		this.mulCache.addAll(this.g, this.g_frak, this.h, this.rho, this.theta, this.xi);
+		this.mulCache.addAll(this.eta_n);
+		this.mulCache.addAll(this.g_hat_n);
+		this.mulCache.addAll(this.g_n);
+		this.mulCache.addAll(this.h_bar_n);
+
+		if (this.e_h_h != null) {
+			this.mulCache.add(this.e_h_h);
+			this.mulCache.addAll(this.e_eta_eta_n);
+		}
+	}
+
+	/**
+	 * Pre-processes the public parameters which are used as fixed pairing
+	 * arguments.
+	 */
+	private void setPairingCache() {
+		this.pairingCache = new PairingPreProcessingCache(this.pairing);
+		this.pairingCache.addAll(this.g, this.g_bar, this.h, this.rho);
+		this.pairingCache.addAll(this.eta_n);
+	}
+
+	/**
+	 * Computes the pairings between fixed public parameters once, so that they do
+	 * not need to be recomputed for every issue and validation. Note that
+	 * GTFiniteElement is used instead of Element for serialization with Gson.
+	 */
+	private void setPairingConstants() {
+		this.e_g_n_g = new GTFiniteElement[this.g_n.length];
+		this.e_g_n_rho = new GTFiniteElement[this.g_n.length];
+		for (int i = 0; i < this.g_n.length; i++) {
+			this.e_g_n_g[i] = this.pairingConstant(this.g_n[i], this.g);
+			this.e_g_n_rho[i] = this.pairingConstant(this.g_n[i], this.rho);
+		}
+
+		this.e_g_hat_n_g = new GTFiniteElement[this.g_hat_n.length];
+		for (int i = 0; i < this.g_hat_n.length; i++) {
+			this.e_g_hat_n_g[i] = this.pairingConstant(this.g_hat_n[i], this.g);
+		}
+
+		this.e_eta_n_g = new GTFiniteElement[this.eta_n.length];
+		this.e_eta_eta_n = new GTFiniteElement[this.eta_n.length];
+		for (int i = 0; i < this.eta_n.length; i++) {
+			this.e_eta_n_g[i] = this.pairingConstant(this.eta_n[i], this.g);
+			this.e_eta_eta_n[i] = this.pairingConstant(this.eta, this.eta_n[i]);
+		}
+
+		this.e_g_frak_g = this.pairingConstant(this.g_frak, this.g);
+		this.e_h_h = this.pairingConstant(this.h, this.h);
+		this.e_rho_g = this.pairingConstant(this.rho, this.g);
+		this.e_theta_g = this.pairingConstant(this.theta, this.g);
+		this.e_theta_g_bar = this.pairingConstant(this.theta, this.g_bar);
+		this.e_theta_rho = this.pairingConstant(this.theta, this.rho);
+		this.e_xi_g = this.pairingConstant(this.xi, this.g);
+	}
+
+	/**
+	 * Computes an immutable pairing between two fixed public parameters.
+	 *
+	 * @param in1
+	 *            The first argument.
+	 * @param in2
+	 *            The second (fixed) argument.
+	 * @return The pairing result.
+	 */
+	private GTFiniteElement pairingConstant(Element in1, Element in2) {
+		return (GTFiniteElement) this.getPairingCache().pairingFixedSecond(in1, in2).getImmutable();
 	}
 
 	/**
@@ -583,6 +1167,7 @@ public class PPETSABCSharedMemory extends NFCSharedMemory {
 	public String toJson() {
 		final GsonBuilder gsonBuilder = new GsonBuilder();
 		gsonBuilder.registerTypeAdapter(CurveElement.class, new GsonUtils.CurveElementSerializer());
+		gsonBuilder.registerTypeAdapter(GTFiniteElement.class, new GsonUtils.GTFiniteElementSerializer());
 		final Gson gson = gsonBuilder.create();
 
 		return gson.toJson(this);
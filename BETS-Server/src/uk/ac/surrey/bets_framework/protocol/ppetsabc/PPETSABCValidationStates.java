@@ -5,6 +5,7 @@
  */
 package uk.ac.surrey.bets_framework.protocol.ppetsabc;
 
+import java.io.IOException;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,6 +16,7 @@ import org.slf4j.LoggerFactory;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
@@ -132,8 +134,16 @@ public class PPETSABCValidationStates {
 
 			// Here we do not (and cannot since it requires the private x_u)
 			// E^r_dash/E_dash^r and Y_U, as we just compare the stored
-			// ticket transcript.
-			return validatorData.D.isEqual(validatorData.D_last) && !validatorData.E.isEqual(validatorData.E_last);
+			// ticket transcripts of every ticket seen so far.
+			try {
+				return sharedMemory.doubleSpendStore.checkAndRecord(validatorData.D.toBytes(),
+						validatorData.E.toBytes());
+			} catch (final IOException e) {
+				LOG.error("could not record ticket for double spend detection", e);
+
+				// Fall back to comparing against the previous ticket.
+				return validatorData.D.isEqual(validatorData.D_last) && !validatorData.E.isEqual(validatorData.E_last);
+			}
 		}
 
 		/**
@@ -227,9 +237,8 @@ public class PPETSABCValidationStates {
 
 			// Verify psi_uNum
 			// Compute psi_u = H(P_U || Price || Service || Ticket Valid_Period)
-			final ListData check_psi_uData = new ListData(
-					Arrays.asList(sharedMemory.stringToBytes(P_U), price, service, sharedMemory.stringToBytes(VP_T)));
-			final byte[] check_psi_u = crypto.getHash(check_psi_uData.toBytes());
+			final byte[] check_psi_u = new TranscriptHasher().add(sharedMemory.stringToBytes(P_U)).add(price)
+					.add(service).add(sharedMemory.stringToBytes(VP_T)).digest();
 			final BigInteger check_psi_uNum = new BigInteger(1, check_psi_u).mod(sharedMemory.p);
 
 			if (!psi_uNum.equals(check_psi_uNum)) {
@@ -247,13 +256,13 @@ public class PPETSABCValidationStates {
 			// R_bar = e(xi,rho)^x_bar_u * e(g_1,rho)^d_bar_u * e(g_2,rho)^s_bar_u *
 			// e(F,rho)^-omega_bar_u * e(theta,rho)^pi_bar_dash *
 			// e(theta,rho)^pi_bar
-			final Element checkR_1 = sharedMemory.pairing.pairing(F, Y_S);
-			final Element checkR_2 = sharedMemory.pairing.pairing(sharedMemory.g_n[0], sharedMemory.rho).getImmutable();
-			final Element checkR_3 = sharedMemory.pairing.pairing(Ps_U, sharedMemory.rho).getImmutable();
-
-			final Element checkR_4 = sharedMemory.pairing.pairing(sharedMemory.g_n[3], sharedMemory.rho).pow(psi_uNum)
+			final Element checkR_1 = sharedMemory.getPairingCache().pairingFixedSecond(F, Y_S);
+			final Element checkR_2 = sharedMemory.e_g_n_rho[0].getImmutable();
+			final Element checkR_3 = sharedMemory.getPairingCache().pairingFixedSecond(Ps_U, sharedMemory.rho)
 					.getImmutable();
 
+			final Element checkR_4 = sharedMemory.e_g_n_rho[3].pow(psi_uNum).getImmutable();
+
 			final Element checkR = checkR_1.div(checkR_2.mul(checkR_3).mul(checkR_4)).getImmutable();
 
 			if (!R.equals(checkR)) {
@@ -272,11 +281,12 @@ public class PPETSABCValidationStates {
 					J_dash.toBytes(), R.toBytes()));
 
 			// Verify D_bar
-			final Element cCheck1 = sharedMemory.g.mul(s_BAR_u).add(D.mul(cNum));
+			final Element cCheck1 = sharedMemory.mulFixed(sharedMemory.g, s_BAR_u).add(D.mul(cNum));
 			cVerifyList.add(cCheck1.toBytes());
 
 			// verify Ps_bar_U
-			final Element cCheck2 = sharedMemory.xi.mul(x_BAR_u).add(sharedMemory.g_n[1].mul(d_BAR_u))
+			final Element cCheck2 = sharedMemory.mulFixed(sharedMemory.xi, x_BAR_u)
+					.add(sharedMemory.mulFixed(sharedMemory.g_n[1], d_BAR_u))
 					.add(Ps_U.mul(cNum));
 			cVerifyList.add(cCheck2.toBytes());
 
@@ -285,31 +295,33 @@ public class PPETSABCValidationStates {
 			final Element elementFromHashID_V = sharedMemory.pairing.getG1()
 					.newElementFromHash(hashID_V, 0, hashID_V.length).getImmutable();
 
-			final Element cCheck3 = sharedMemory.xi.mul(x_BAR_u).add(elementFromHashID_V.mul(s_hat_u)).add(E.mul(cNum));
+			final Element cCheck3 = sharedMemory.mulFixed(sharedMemory.xi, x_BAR_u)
+					.add(crypto.multiScalarMul(new Element[] { elementFromHashID_V, E }, new BigInteger[] { s_hat_u, cNum }));
 			cVerifyList.add(cCheck3.toBytes());
 
 			// Verify J_bar
-			final Element cCheck4 = ((sharedMemory.g.mul(pi_BAR)).add(sharedMemory.theta.mul(lambda_BAR)))
+			final Element cCheck4 = ((sharedMemory.mulFixed(sharedMemory.g, pi_BAR))
+					.add(sharedMemory.mulFixed(sharedMemory.theta, lambda_BAR)))
 					.add(J.mul(cNum));
 			cVerifyList.add(cCheck4.toBytes());
 
 			// Verify J_bar_dash
-			final Element cCheck5 = J.mul(omega_BAR_u).add(J_dash.mul(cNum));
+			final Element cCheck5 = crypto.multiScalarMul(new Element[] { J, J_dash },
+					new BigInteger[] { omega_BAR_u, cNum });
 			cVerifyList.add(cCheck5.toBytes());
 
 			// verify R'
-			final Element cCheck6_1 = sharedMemory.pairing.pairing(sharedMemory.g_n[2], sharedMemory.rho).pow(s_BAR_u);
-			final Element cCheck6_2 = sharedMemory.pairing.pairing(F, sharedMemory.rho)
+			final Element cCheck6_1 = sharedMemory.e_g_n_rho[2].pow(s_BAR_u);
+			final Element cCheck6_2 = sharedMemory.getPairingCache().pairingFixedSecond(F, sharedMemory.rho)
 					.pow(omega_BAR_u.negate().mod(sharedMemory.p));
-			final Element cCheck6_3 = sharedMemory.pairing.pairing(sharedMemory.theta, sharedMemory.rho)
-					.pow(pi_BAR_dash);
-			final Element cCheck6_4 = sharedMemory.pairing.pairing(sharedMemory.theta, Y_S).pow(pi_BAR)
+			final Element cCheck6_3 = sharedMemory.e_theta_rho.pow(pi_BAR_dash);
+			final Element cCheck6_4 = sharedMemory.getPairingCache().pairingFixedSecond(sharedMemory.theta, Y_S)
+					.pow(pi_BAR)
 					.mul(R.pow(cNum));
 			final Element cCheck6 = cCheck6_1.mul(cCheck6_2).mul(cCheck6_3).mul(cCheck6_4);
 			cVerifyList.add(cCheck6.toBytes());
 
-			final ListData cVerifyData = new ListData(cVerifyList);
-			final byte[] cVerify = crypto.getHash(cVerifyData.toBytes());
+			final byte[] cVerify = new TranscriptHasher().addAll(cVerifyList).digest();
 
 			if (!Arrays.equals(c, cVerify)) {
 				LOG.error("failed to verify PI_3_U: c");
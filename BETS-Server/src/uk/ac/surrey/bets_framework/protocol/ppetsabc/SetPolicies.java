@@ -0,0 +1,178 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.ppetsabc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The set policies used by the PPETS-ABC protocol, together with an index from
+ * each member to its position within its set so that membership can be found
+ * without scanning the set.
+ *
+ * Policies can be loaded from a text file containing one set per line in the
+ * form "name: member, member, ...". Blank lines and lines starting with '#' are
+ * ignored. Members are matched ignoring case.
+ *
+ * @author Steve Wesemeyer
+ */
+public class SetPolicies {
+
+	/** Character which starts a comment line in a policy file. */
+	private static final String COMMENT = "#";
+
+	/** Separator between the set name and its members. */
+	private static final char NAME_SEPARATOR = ':';
+
+	/** Separator between set members. */
+	private static final String MEMBER_SEPARATOR = ",";
+
+	/** For each set, the index of each member keyed by its lower case value. */
+	private final List<Map<String, Integer>> index = new ArrayList<>();
+
+	/** The members of each set. */
+	private final String[][] members;
+
+	/** The labels for each set. */
+	private final String[] names;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param names
+	 *            The labels for each set.
+	 * @param members
+	 *            The members of each set.
+	 */
+	public SetPolicies(String[] names, String[][] members) {
+		super();
+
+		if (names.length != members.length) {
+			throw new IllegalArgumentException(
+					"number of set names (" + names.length + ") does not match number of sets (" + members.length + ")");
+		}
+
+		this.names = names;
+		this.members = members;
+
+		for (int i = 0; i < members.length; i++) {
+			final Map<String, Integer> setIndex = new HashMap<>();
+
+			for (int j = 0; j < members[i].length; j++) {
+				if (setIndex.put(key(members[i][j]), j) != null) {
+					throw new IllegalArgumentException("duplicate member in set " + names[i] + ": " + members[i][j]);
+				}
+			}
+
+			this.index.add(setIndex);
+		}
+	}
+
+	/**
+	 * Loads the set policies from a file.
+	 *
+	 * @param fileName
+	 *            The name of the policy file.
+	 * @return The set policies.
+	 * @throws IOException
+	 *             if the file could not be read or is badly formed.
+	 */
+	public static SetPolicies load(String fileName) throws IOException {
+		final List<String> names = new ArrayList<>();
+		final List<String[]> members = new ArrayList<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+
+				if (line.isEmpty() || line.startsWith(COMMENT)) {
+					continue;
+				}
+
+				final int separator = line.indexOf(NAME_SEPARATOR);
+				if (separator <= 0) {
+					throw new IOException(fileName + ":" + lineNumber + ": expected \"name: member, member, ...\"");
+				}
+
+				final List<String> set = new ArrayList<>();
+				for (final String member : line.substring(separator + 1).split(MEMBER_SEPARATOR)) {
+					if (!member.trim().isEmpty()) {
+						set.add(member.trim());
+					}
+				}
+
+				if (set.isEmpty()) {
+					throw new IOException(fileName + ":" + lineNumber + ": set has no members");
+				}
+
+				names.add(line.substring(0, separator).trim());
+				members.add(set.toArray(new String[set.size()]));
+			}
+		}
+
+		if (members.isEmpty()) {
+			throw new IOException(fileName + ": no set policies defined");
+		}
+
+		try {
+			return new SetPolicies(names.toArray(new String[names.size()]),
+					members.toArray(new String[members.size()][]));
+		} catch (final IllegalArgumentException e) {
+			throw new IOException(fileName + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @param member
+	 *            A set member.
+	 * @return The key used to index the member.
+	 */
+	private static String key(String member) {
+		return member.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @return The members of each set.
+	 */
+	public String[][] getMembers() {
+		return this.members;
+	}
+
+	/**
+	 * @return The labels for each set.
+	 */
+	public String[] getNames() {
+		return this.names;
+	}
+
+	/**
+	 * Finds the position of a member within a set, ignoring case.
+	 *
+	 * @param set
+	 *            The index of the set.
+	 * @param member
+	 *            The member to find.
+	 * @return The index of the member within the set, or -1 if it is not a
+	 *         member.
+	 */
+	public int indexOf(int set, String member) {
+		final Integer memberIndex = this.index.get(set).get(key(member));
+
+		return (memberIndex == null) ? -1 : memberIndex;
+	}
+}
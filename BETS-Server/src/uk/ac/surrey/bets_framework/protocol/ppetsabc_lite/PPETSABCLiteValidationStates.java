@@ -7,6 +7,7 @@ package uk.ac.surrey.bets_framework.protocol.ppetsabc_lite;
 
 import it.unisa.dia.gas.jpbc.Element;
 import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.TranscriptHasher;
 import uk.ac.surrey.bets_framework.nfc.NFC;
 import uk.ac.surrey.bets_framework.protocol.NFCReaderCommand;
 import uk.ac.surrey.bets_framework.protocol.data.ListData;
@@ -165,10 +166,8 @@ public class PPETSABCLiteValidationStates {
 		//Verify psi_uNum
 		
 		// Compute check_psi_u = H(P_U || Price || Service || Ticket Valid_Period)
-		final ListData check_psi_uData = new ListData(
-				Arrays.asList(sharedMemory.stringToBytes(P_U), price,
-						service, sharedMemory.stringToBytes(VP_T)));
-		final byte[] check_psi_u = crypto.getHash(check_psi_uData.toBytes());
+		final byte[] check_psi_u = new TranscriptHasher().add(sharedMemory.stringToBytes(P_U)).add(price).add(service)
+				.add(sharedMemory.stringToBytes(VP_T)).digest();
 		final BigInteger check_psi_uNum = new BigInteger(1, check_psi_u).mod(sharedMemory.p);
 		
 		if (!psi_uNum.equals(check_psi_uNum)) {
@@ -181,11 +180,12 @@ public class PPETSABCLiteValidationStates {
 		
 		//Verify e(T_U,Y_S rho^omega_u)=?e(g_0, rho) e(PS_U, rho) e(g_2,rho)^s_u e(g_3,rho)^psi_u
 		
-		final Element LHS=sharedMemory.pairing.pairing(T_U, Y_S.add(sharedMemory.rho.mul(omega_u))).getImmutable();
-		final Element RHS1=sharedMemory.pairing.pairing(sharedMemory.g_n[0],sharedMemory.rho).getImmutable();
-		final Element RHS2=sharedMemory.pairing.pairing(PS_U,sharedMemory.rho).getImmutable();
-		final Element RHS3=sharedMemory.pairing.pairing(sharedMemory.g_n[2],sharedMemory.rho).pow(s_u).getImmutable();
-		final Element RHS4=sharedMemory.pairing.pairing(sharedMemory.g_n[3],sharedMemory.rho).pow(psi_uNum).getImmutable();
+		final Element LHS=sharedMemory.pairing.pairing(T_U, Y_S.add(sharedMemory.mulFixed(sharedMemory.rho, omega_u)))
+				.getImmutable();
+		final Element RHS1=sharedMemory.e_g_n_rho[0].getImmutable();
+		final Element RHS2=sharedMemory.getPairingCache().pairingFixedSecond(PS_U,sharedMemory.rho).getImmutable();
+		final Element RHS3=sharedMemory.e_g_n_rho[2].pow(s_u).getImmutable();
+		final Element RHS4=sharedMemory.e_g_n_rho[3].pow(psi_uNum).getImmutable();
 		final Element RHS=RHS1.mul(RHS2).mul(RHS3).mul(RHS4).getImmutable();
 
 		if (!LHS.equals(RHS)) {
@@ -201,12 +201,12 @@ public class PPETSABCLiteValidationStates {
 		final List<byte[]> cVerifyList = new ArrayList<>();
 		cVerifyList.addAll(Arrays.asList(M_3_U.toBytes(), Y.toBytes()));
 
-		final Element cCheck = sharedMemory.xi.mul(pi_BAR).add(sharedMemory.g_n[1].mul(lambda_BAR)).add(Y.mul(cNum))
+		final Element cCheck = sharedMemory.mulFixed(sharedMemory.xi, pi_BAR)
+				.add(sharedMemory.mulFixed(sharedMemory.g_n[1], lambda_BAR)).add(Y.mul(cNum))
 				.getImmutable();
 		cVerifyList.add(cCheck.toBytes());
 
-		final ListData cVerifyData = new ListData(cVerifyList);
-		final byte[] cVerify = crypto.getHash(cVerifyData.toBytes());
+		final byte[] cVerify = new TranscriptHasher().addAll(cVerifyList).digest();
 
 		if (!Arrays.equals(c, cVerify)) {
 			LOG.error("failed to verify PI_3_U: c");
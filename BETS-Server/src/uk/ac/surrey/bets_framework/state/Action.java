@@ -6,6 +6,7 @@
 package uk.ac.surrey.bets_framework.state;
 
 import uk.ac.surrey.bets_framework.Utils;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 
 /**
  * State machine action which determines what happens next, where the action command to be executed is abstracted as a generic type.
@@ -33,6 +34,9 @@ public class Action<T> {
   /** The required command response data length, if any. */
   private int             commandResponseLength = 0;
 
+  /** Stream which command data is sent from, or a response is received into, as it becomes available. May be null. */
+  private ListDataStream  commandStream         = null;
+
   /** What should the next state be? Use {@link #NO_STATE_CHANGE} to stay in the same state. */
   private int             nextState             = NO_STATE_CHANGE;
 
@@ -93,6 +97,22 @@ public class Action<T> {
     this.commandResponseLength = commandResponseLength;
   }
 
+  /**
+   * Constructor for a command which streams its data. A put sends the stream's items as they are added, while a get returns the
+   * stream straight away in a {@link Message} and receives the response into it in the background.
+   *
+   * @param status The status of the state machine.
+   * @param nextState What should the next state be? Use {@link #NO_STATE_CHANGE} to stay in the same state.
+   * @param command Which command should be run?
+   * @param commandResponseLength The required command response data length, if any.
+   * @param commandStream The stream to send from or receive into.
+   */
+  public Action(Status status, int nextState, T command, int commandResponseLength, ListDataStream commandStream) {
+    this(status, nextState, command, null, commandResponseLength);
+
+    this.commandStream = commandStream;
+  }
+
   public static int getNoStateChange() {
     return NO_STATE_CHANGE;
   }
@@ -118,6 +138,13 @@ public class Action<T> {
     return this.commandResponseLength;
   }
 
+  /**
+   * @return Stream which command data is sent from, or a response is received into, as it becomes available. May be null.
+   */
+  public ListDataStream getCommandStream() {
+    return this.commandStream;
+  }
+
   /**
    * @return What should the next state be? Use {@link #NO_STATE_CHANGE} to stay in the same state.
    */
@@ -137,6 +164,7 @@ public class Action<T> {
    */
   @Override
   public String toString() {
-    return this.command + " (" + Utils.toHex(this.commandData) + ", " + this.commandResponseLength + ") -> " + this.nextState;
+    final String data = (this.commandStream == null) ? Utils.toHex(this.commandData) : "stream";
+    return this.command + " (" + data + ", " + this.commandResponseLength + ") -> " + this.nextState;
   }
 }
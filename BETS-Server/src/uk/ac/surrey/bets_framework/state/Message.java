@@ -6,6 +6,7 @@
 package uk.ac.surrey.bets_framework.state;
 
 import uk.ac.surrey.bets_framework.Utils;
+import uk.ac.surrey.bets_framework.protocol.data.ListDataStream;
 
 /**
  * State machine message.
@@ -22,13 +23,16 @@ public class Message {
   }
 
   /** Any associated data for {@link Type#DATA} messages. */
-  private byte[] data        = null;
+  private byte[]         data        = null;
 
   /** Any associated failure code for {@link Type#FAILURE} messages. */
-  private int    failureCode = 0;
+  private int            failureCode = 0;
+
+  /** Any stream which {@link Type#DATA} is still being received into, in place of the data. */
+  private ListDataStream stream      = null;
 
   /** The message type. */
-  private Type   type        = null;
+  private Type           type        = null;
 
   /**
    * Default constructor for a {@link Type#SUCCESS} message.
@@ -55,6 +59,17 @@ public class Message {
     this(Type.FAILURE, failureCode, null);
   }
 
+  /**
+   * Constructor for a {@link Type#DATA} message whose data is still being received into a stream.
+   *
+   * @param stream The stream.
+   */
+  public Message(ListDataStream stream) {
+    this(Type.DATA, 0, null);
+
+    this.stream = stream;
+  }
+
   /**
    * Constructor for an arbitrary message which does not have a failure code or data.
    *
@@ -93,6 +108,13 @@ public class Message {
     return this.failureCode;
   }
 
+  /**
+   * @return Any stream which {@link Type#DATA} is still being received into, in place of the data.
+   */
+  public ListDataStream getStream() {
+    return this.stream;
+  }
+
   /**
    * @return The message type.
    */
@@ -105,6 +127,7 @@ public class Message {
    */
   @Override
   public String toString() {
-    return this.type + " (" + Utils.toHex(this.data) + ", " + this.failureCode + ")";
+    final String data = (this.stream == null) ? Utils.toHex(this.data) : "stream";
+    return this.type + " (" + data + ", " + this.failureCode + ")";
   }
 }
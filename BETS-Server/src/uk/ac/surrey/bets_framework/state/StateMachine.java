@@ -14,6 +14,9 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.CryptoContext;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
 import uk.ac.surrey.bets_framework.state.Action.Status;
 import uk.ac.surrey.bets_framework.state.Message.Type;
 
@@ -34,6 +37,12 @@ public abstract class StateMachine<T> {
   /** Suffix to timing block name used for timing commands. */
   private static final String       TIMING_COMMAND = "-Command";
 
+  /** Suffix for the data size a command would have had without point compression. */
+  private static final String       TIMING_UNCOMPRESSED = "-Uncompressed";
+
+  /** The cryptographic context for the session run by the state machine. */
+  private CryptoContext             cryptoContext  = new CryptoContext();
+
   /** The current state. */
   private int                       currentState   = 0;
 
@@ -43,6 +52,12 @@ public abstract class StateMachine<T> {
   /** The list of states in the state machine. */
   private final List<State<T>>      states         = new ArrayList<>();
 
+  /** The action timing for each state, once used, so that states can be timed without building the timing name. */
+  private final Timing[]            actionTimings;
+
+  /** The command timing for each state, once used. */
+  private final Timing[]            commandTimings;
+
   /** The recorded timings for this state machine. */
   private final Map<String, Timing> timings        = new HashMap<>();
 
@@ -55,6 +70,8 @@ public abstract class StateMachine<T> {
     super();
 
     this.states.addAll(states);
+    this.actionTimings = new Timing[states.size()];
+    this.commandTimings = new Timing[states.size()];
 
     // Set the state machine for each of the states.
     for (final State<T> state : this.states) {
@@ -62,6 +79,13 @@ public abstract class StateMachine<T> {
     }
   }
 
+  /**
+   * @return The cryptographic context for the session run by the state machine.
+   */
+  public CryptoContext getCryptoContext() {
+    return this.cryptoContext;
+  }
+
   /**
    * @return The (unmodifiable) list of parameters.
    */
@@ -104,6 +128,25 @@ public abstract class StateMachine<T> {
    * @return True if everything went successfully.
    */
   public boolean run(Message message) {
+    // Bind the session's cryptographic context to this thread while the state machine runs.
+    final Crypto crypto = Crypto.getInstance();
+    final CryptoContext previousContext = crypto.setContext(this.cryptoContext);
+
+    try {
+      return this.runStates(message);
+    }
+    finally {
+      crypto.setContext(previousContext);
+    }
+  }
+
+  /**
+   * Runs the states of the state machine until an end message.
+   *
+   * @param message The message to start with.
+   * @return True if everything went successfully.
+   */
+  private boolean runStates(Message message) {
     boolean result = false;
 
     // Run the state machine until we get an end message.
@@ -114,12 +157,21 @@ public abstract class StateMachine<T> {
 
     while (!finished) {
       if ((this.currentState >= 0) && (this.currentState < this.states.size())) {
-        final State<T> state = this.states.get(this.currentState);
+        final int stateIndex = this.currentState;
+        final State<T> state = this.states.get(stateIndex);
         LOG.debug("processing {} in state {}", message, state);
 
-        this.startTiming(state.getClass().getSimpleName() + TIMING_ACTION,message.getData());
+        final Timing actionTiming = this.getStateTiming(this.actionTimings, stateIndex, TIMING_ACTION);
+
+        actionTiming.start();
+        actionTiming.addData(message.getData());
         final Action<T> action = state.getAction(message);
-        this.stopTiming(state.getClass().getSimpleName() + TIMING_ACTION);
+        actionTiming.stop();
+
+        // A streamed message's data is counted once the state has processed as much of it as it needs.
+        if (message.getStream() != null) {
+          actionTiming.addDataSize(message.getStream().getLength());
+        }
 
         // Move to the next state, if required.
         if (action.getNextState() != Action.NO_STATE_CHANGE) {
@@ -131,15 +183,26 @@ public abstract class StateMachine<T> {
         if (action.getCommand() != null) {
           LOG.debug("executing action {}", action);
 
-          this.startTiming(state.getClass().getSimpleName() + TIMING_COMMAND,action.getCommandData());
+          final Timing commandTiming = this.getStateTiming(this.commandTimings, stateIndex, TIMING_COMMAND);
+          commandTiming.start();
+          commandTiming.addData(action.getCommandData());
           message = this.performAction(action);
-          this.stopTiming(state.getClass().getSimpleName() + TIMING_COMMAND);
+          commandTiming.stop();
+
+          // Streamed command data is counted once it has been sent. A streamed response is counted by the next state instead.
+          if ((action.getCommandStream() != null) && (message.getStream() != action.getCommandStream())) {
+            commandTiming.addDataSize(action.getCommandStream().getLength());
+          }
         }
         else {
           // No action, so construct a dummy success message.
           message = new Message();
         }
 
+        // Record how much command data there would have been without point compression so that it can be compared with the
+        // command data size. This is only known once any streamed command has been produced and sent.
+        this.countUncompressed(state, action);
+
         // Add in any end message.
         if (action.getStatus().equals(Status.END_SUCCESS)) {
           finished = true;
@@ -161,6 +224,15 @@ public abstract class StateMachine<T> {
     return result;
   }
 
+  /**
+   * Sets the cryptographic context, allowing a number of state machines to take part in the same session.
+   *
+   * @param cryptoContext The cryptographic context to use.
+   */
+  public void setCryptoContext(CryptoContext cryptoContext) {
+    this.cryptoContext = cryptoContext;
+  }
+
   /**
    * Sets the state machine parameters, clearing out any existing parameters.
    *
@@ -179,12 +251,12 @@ public abstract class StateMachine<T> {
   public abstract void setSharedMemory(SharedMemory sharedMemory);
 
   /**
-   * Starts timing against the specified name. Call this with a relevant name to time any block of execution.
+   * Finds the timing for the specified name, creating one if needed.
    *
    * @param name The name of the timing block.
+   * @return The timing.
    */
-  protected void startTiming(String name) {
-    // Find any existing timing for the name, creating one if needed.
+  private Timing getTiming(String name) {
     Timing timing = this.timings.get(name);
 
     if (timing == null) {
@@ -192,8 +264,72 @@ public abstract class StateMachine<T> {
       this.timings.put(name, timing);
     }
 
+    return timing;
+  }
+
+  /**
+   * Finds the action or command timing for a state, creating it when the state is first timed. Afterwards the timing is found
+   * without building its name, so that timing a state does not allocate.
+   *
+   * @param stateTimings The action or command timings for each state.
+   * @param index The index of the state.
+   * @param suffix The suffix added to the state name to name the timing.
+   * @return The timing.
+   */
+  private Timing getStateTiming(Timing[] stateTimings, int index, String suffix) {
+    if (stateTimings[index] == null) {
+      stateTimings[index] = this.getTiming(this.states.get(index).getClass().getSimpleName() + suffix);
+    }
+
+    return stateTimings[index];
+  }
+
+  /**
+   * Accumulates a number of bytes against the specified name without timing any block, so that the timing only counts data.
+   *
+   * @param name The name of the timing block.
+   * @param dataSize The number of bytes to add.
+   */
+  protected void addTimingData(String name, long dataSize) {
+    this.getTiming(name).addDataSize(dataSize);
+  }
+
+  /**
+   * Counts the command data that a state would have sent without point compression, if it compressed any points.
+   *
+   * @param state The state which created the action.
+   * @param action The action, which has been performed.
+   */
+  private void countUncompressed(State<T> state, Action<T> action) {
+    long pointBytesSaved = this.cryptoContext.takePointBytesSaved();
+
+    if (pointBytesSaved > 0L) {
+      long commandLength = 0L;
+
+      if (action.getCommandData() != null) {
+        commandLength = action.getCommandData().length;
+      }
+      else if ((action.getCommand() != null) && (action.getCommandStream() != null)) {
+        commandLength = action.getCommandStream().getLength();
+      }
+
+      // JSON sends each item in Base64, so every byte saved would have taken 4/3 of a byte.
+      if (this.cryptoContext.getEncoding() == Encoding.JSON) {
+        pointBytesSaved = ((pointBytesSaved * 4L) + 2L) / 3L;
+      }
+
+      this.addTimingData(state.getClass().getSimpleName() + TIMING_UNCOMPRESSED, commandLength + pointBytesSaved);
+    }
+  }
+
+  /**
+   * Starts timing against the specified name. Call this with a relevant name to time any block of execution.
+   *
+   * @param name The name of the timing block.
+   */
+  protected void startTiming(String name) {
     // Start timing.
-    timing.start();
+    this.getTiming(name).start();
   }
 
   /**
@@ -203,13 +339,7 @@ public abstract class StateMachine<T> {
    * @param data The data to be processed
    */
   protected void startTiming(String name, byte[] data) {
-    // Find any existing timing for the name, creating one if needed.
-    Timing timing = this.timings.get(name);
-
-    if (timing == null) {
-      timing = new Timing(name);
-      this.timings.put(name, timing);
-    }
+    final Timing timing = this.getTiming(name);
 
     // Start timing.
     timing.start();
@@ -6,29 +6,39 @@
 package uk.ac.surrey.bets_framework.state;
 
 /**
- * Encapsulates a named timing block and the number of times it has been recorded.
+ * Encapsulates a named timing block and the number of times it has been recorded. Blocks are timed in nanoseconds and each one
+ * is recorded in a histogram so that percentiles can be reported. Starting and stopping a block does not allocate.
  *
  * @author Matthew Casey
  */
 public class Timing {
 
+  /** Nanoseconds per millisecond. */
+  private static final long                NANOS_PER_MILLI = 1000000L;
+
   /** The total number of times that a block of time has been recorded. */
-  private long   count        = 0L;
+  private long                             count           = 0L;
 
   /** The creation time of the timer. This will help with ordering them in the CSV file */
-  private long   creationTime = 0L;
+  private long                             creationTime    = 0L;
 
   /** The number of bytes processed */
-  private long   dataSize     = 0L;
+  private long                             dataSize        = 0L;
+
+  /** The duration of each block, or null for timings received from a client, which only have totals. */
+  private final transient TimingHistogram histogram;
 
   /** The name of the block. */
-  private String name         = null;
+  private String                           name            = null;
+
+  /** The total time that this block has recorded in nanoseconds, or 0 for timings received from a client in binary. */
+  private long                             nanoTime        = 0L;
 
-  /** The last start time of a block. */
-  private long   start        = 0L;
+  /** The last start time of a block in nanoseconds. */
+  private long                             start           = 0L;
 
-  /** The total time that this block has recorded. */
-  private long   time         = 0L;
+  /** The total time that this block has recorded in milliseconds. */
+  private long                             time            = 0L;
 
   /**
    * Constructs a timing block with the associated name.
@@ -40,11 +50,32 @@ public class Timing {
 
     this.name = name;
     this.creationTime = System.currentTimeMillis();
+    this.histogram = new TimingHistogram();
 
     // Just in case, make sure we have a valid start point.
     this.start();
   }
 
+  /**
+   * Constructs a timing block from previously recorded values, such as those received from the client.
+   *
+   * @param name The name of the timing block.
+   * @param time The total time that this block has recorded.
+   * @param count The total number of times that a block of time has been recorded.
+   * @param dataSize The number of bytes processed.
+   * @param creationTime The creation time of the timer.
+   */
+  public Timing(String name, long time, long count, long dataSize, long creationTime) {
+    super();
+
+    this.name = name;
+    this.time = time;
+    this.count = count;
+    this.dataSize = dataSize;
+    this.creationTime = creationTime;
+    this.histogram = null;
+  }
+
   public void addData(byte[] data) {
     if ((data != null) && (data.length > 0)) {
       this.dataSize = this.dataSize + data.length;
@@ -52,6 +83,15 @@ public class Timing {
 
   }
 
+  /**
+   * Adds to the number of bytes processed.
+   *
+   * @param dataSize The number of bytes to add.
+   */
+  public void addDataSize(long dataSize) {
+    this.dataSize += dataSize;
+  }
+
   /**
    * @return The total number of times that a block of time has been recorded.
    */
@@ -75,6 +115,13 @@ public class Timing {
     return this.dataSize;
   }
 
+  /**
+   * @return The longest block recorded in nanoseconds, or -1 if individual blocks were not recorded.
+   */
+  public long getMax() {
+    return (this.histogram == null) ? -1L : this.histogram.getMax();
+  }
+
   /**
    * @return The name of the block.
    */
@@ -83,7 +130,25 @@ public class Timing {
   }
 
   /**
-   * @return The total time that this block has recorded.
+   * @return The total time that this block has recorded in nanoseconds.
+   */
+  public long getNanoTime() {
+    // Timings received from a client in binary only have a total in milliseconds.
+    return (this.nanoTime > 0L) ? this.nanoTime : this.time * NANOS_PER_MILLI;
+  }
+
+  /**
+   * Gets the duration of a block at a percentile.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   * @return The duration at the percentile in nanoseconds, or -1 if individual blocks were not recorded.
+   */
+  public long getPercentile(double percentile) {
+    return (this.histogram == null) ? -1L : this.histogram.getPercentile(percentile);
+  }
+
+  /**
+   * @return The total time that this block has recorded in milliseconds.
    */
   public long getTime() {
     return this.time;
@@ -93,17 +158,22 @@ public class Timing {
    * Starts timing.
    */
   public void start() {
-    this.start = System.currentTimeMillis();
+    this.start = System.nanoTime();
   }
 
   /**
    * Stops timing and accumulates the total time and count.
    */
   public void stop() {
-    final long stop = System.currentTimeMillis();
+    final long elapsed = System.nanoTime() - this.start;
 
-    this.time += stop - this.start;
+    this.nanoTime += elapsed;
+    this.time = this.nanoTime / NANOS_PER_MILLI;
     this.count++;
+
+    if (this.histogram != null) {
+      this.histogram.record(elapsed);
+    }
   }
 
   /**
@@ -112,6 +182,10 @@ public class Timing {
   @Override
   public String toString() {
     String toString = this.name + ": " + this.time + "ms x " + this.count;
+    if (this.histogram != null) {
+      toString = toString + " p50 " + (this.getPercentile(50.0) / 1000L) + "us p99 " + (this.getPercentile(99.0) / 1000L)
+          + "us max " + (this.getMax() / 1000L) + "us";
+    }
     if (this.dataSize > 0) {
       toString = toString + " data bytes processed: " + this.dataSize;
     }
@@ -0,0 +1,124 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.state;
+
+/**
+ * A fixed size histogram of durations in nanoseconds in the style of an HDR histogram: values below 64ns have their own
+ * bucket, and above that each power of two is split into 32 linear buckets so that any recorded value is known to within
+ * about 3%. All of the buckets are allocated up front so that recording a value never allocates.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TimingHistogram {
+
+  /** The number of bits used for the linear buckets within each power of two. */
+  private static final int SUB_BUCKET_BITS  = 5;
+
+  /** The number of linear buckets within each power of two. */
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /** The largest value which can be told apart from larger ones, about 73 minutes. Larger values are clamped to it. */
+  private static final long MAX_VALUE       = (1L << 42) - 1L;
+
+  /** The number of buckets needed to cover values up to the maximum. */
+  private static final int BUCKET_COUNT     = index(MAX_VALUE) + 1;
+
+  /** The number of values recorded in each bucket. */
+  private final long[]     counts           = new long[BUCKET_COUNT];
+
+  /** The largest value recorded. */
+  private long             max              = 0L;
+
+  /** The total number of values recorded. */
+  private long             total            = 0L;
+
+  /**
+   * Finds the bucket for a value.
+   *
+   * @param value The value, which must be between 0 and the maximum value.
+   * @return The index of the bucket.
+   */
+  private static int index(long value) {
+    if (value < (2 * SUB_BUCKET_COUNT)) {
+      return (int) value;
+    }
+
+    // Shift the value into [SUB_BUCKET_COUNT, 2 * SUB_BUCKET_COUNT) to pick the bucket within its power of two.
+    final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+
+    return (shift * SUB_BUCKET_COUNT) + (int) (value >>> shift);
+  }
+
+  /**
+   * Finds the largest value which falls into a bucket.
+   *
+   * @param index The index of the bucket.
+   * @return The largest value in the bucket.
+   */
+  private static long highestValue(int index) {
+    if (index < (2 * SUB_BUCKET_COUNT)) {
+      return index;
+    }
+
+    final int shift = (index / SUB_BUCKET_COUNT) - 1;
+    final long lowest = (long) ((index % SUB_BUCKET_COUNT) + SUB_BUCKET_COUNT) << shift;
+
+    return lowest + (1L << shift) - 1L;
+  }
+
+  /**
+   * @return The largest value recorded.
+   */
+  public long getMax() {
+    return this.max;
+  }
+
+  /**
+   * Gets the value at a percentile, which is the largest value in the bucket holding it, limited to the largest value
+   * recorded.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   * @return The value at the percentile, or 0 if nothing has been recorded.
+   */
+  public long getPercentile(double percentile) {
+    if (this.total == 0L) {
+      return 0L;
+    }
+
+    final long target = Math.max(1L, (long) Math.ceil((percentile / 100.0) * this.total));
+    long count = 0L;
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      count += this.counts[i];
+
+      if (count >= target) {
+        return Math.min(highestValue(i), this.max);
+      }
+    }
+
+    return this.max;
+  }
+
+  /**
+   * @return The total number of values recorded.
+   */
+  public long getTotal() {
+    return this.total;
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value The value to record. Negative values are recorded as 0.
+   */
+  public void record(long value) {
+    final long clamped = Math.max(0L, Math.min(value, MAX_VALUE));
+
+    this.counts[index(clamped)]++;
+    this.total++;
+    this.max = Math.max(this.max, clamped);
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework;
+
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Field;
+import it.unisa.dia.gas.plaf.jpbc.pairing.PairingFactory;
+import it.unisa.dia.gas.plaf.jpbc.pairing.a.TypeACurveGenerator;
+
+/**
+ * Checks that multi-scalar multiplication gives the same result as summing each base multiplied by its scalar,
+ * including for scalars at and beyond the edges of the group order.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestMultiScalarMul {
+
+	/** The group to multiply in. */
+	private static Field<?> group;
+
+	/** The group order p. */
+	private static BigInteger p;
+
+	@BeforeClass
+	public static void setUpClass() {
+		group = PairingFactory.getPairing(new TypeACurveGenerator(160, 512).generate()).getG1();
+		p = group.getOrder();
+	}
+
+	/**
+	 * Computes sum(k_i * P_i) one term at a time, without reducing the scalars, so a negative scalar multiplies the
+	 * negated base.
+	 *
+	 * @param bases
+	 *            The bases P_i.
+	 * @param scalars
+	 *            The scalars k_i.
+	 * @return The sum.
+	 */
+	private static Element naive(Element[] bases, BigInteger[] scalars) {
+		final Element sum = group.newZeroElement();
+
+		for (int i = 0; i < bases.length; i++) {
+			if (scalars[i].signum() < 0) {
+				sum.add(bases[i].negate().mul(scalars[i].negate()));
+			} else {
+				sum.add(bases[i].mul(scalars[i]));
+			}
+		}
+
+		return sum.getImmutable();
+	}
+
+	/**
+	 * Asserts that multi-scalar multiplication matches the naive sum.
+	 *
+	 * @param bases
+	 *            The bases P_i.
+	 * @param scalars
+	 *            The scalars k_i.
+	 */
+	private static void assertMatches(Element[] bases, BigInteger... scalars) {
+		final Element expected = naive(bases, scalars);
+		final Element actual = Crypto.getInstance().multiScalarMul(bases, scalars);
+
+		assertTrue("scalars " + Arrays.toString(scalars), expected.isEqual(actual));
+	}
+
+	/**
+	 * Creates random bases.
+	 *
+	 * @param count
+	 *            The number of bases.
+	 * @return The immutable bases.
+	 */
+	private static Element[] randomBases(int count) {
+		final Element[] bases = new Element[count];
+
+		for (int i = 0; i < count; i++) {
+			bases[i] = group.newRandomElement().getImmutable();
+		}
+
+		return bases;
+	}
+
+	@Test
+	public void testRandom() {
+		final Random random = new Random(42);
+
+		for (int count = 1; count <= 6; count++) {
+			final Element[] bases = randomBases(count);
+			final BigInteger[] scalars = new BigInteger[count];
+
+			for (int i = 0; i < count; i++) {
+				scalars[i] = new BigInteger(p.bitLength(), random).mod(p);
+			}
+
+			assertMatches(bases, scalars);
+		}
+	}
+
+	@Test
+	public void testEdgeScalars() {
+		final Element[] bases = randomBases(3);
+		final BigInteger pMinus1 = p.subtract(BigInteger.ONE);
+
+		assertMatches(bases, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO);
+		assertMatches(bases, BigInteger.ZERO, BigInteger.ONE, BigInteger.ZERO);
+		assertMatches(bases, pMinus1, pMinus1, pMinus1);
+		assertMatches(bases, pMinus1, BigInteger.ZERO, BigInteger.ONE);
+
+		// Scalars of at least the order are reduced, so p acts as 0 and p + 1 as 1.
+		assertMatches(bases, p, p.add(BigInteger.ONE), p.shiftLeft(64).add(BigInteger.valueOf(12345)));
+		assertMatches(bases, p.multiply(p), pMinus1.multiply(pMinus1), BigInteger.ONE.shiftLeft(1024));
+
+		// Negative scalars are reduced to their residues.
+		assertMatches(bases, BigInteger.valueOf(-1), p.negate(), BigInteger.valueOf(-15));
+
+		// Scalars with a single window digit set, at the bottom and top of the order.
+		assertMatches(bases, BigInteger.valueOf(15), BigInteger.ONE.shiftLeft(p.bitLength() - 1), BigInteger.valueOf(16));
+	}
+
+	@Test
+	public void testEdgeBases() {
+		final Element base = group.newRandomElement().getImmutable();
+		final Element zero = group.newZeroElement().getImmutable();
+		final BigInteger k = new BigInteger(p.bitLength(), new Random(7)).mod(p);
+
+		// Terms which cancel leave the running sum at zero part way through.
+		assertMatches(new Element[] { base, base.negate().getImmutable() }, k, k);
+		assertMatches(new Element[] { base, base }, k, p.subtract(k));
+		assertMatches(new Element[] { zero, base }, k, k);
+		assertMatches(new Element[] { zero }, k);
+	}
+}
@@ -0,0 +1,303 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry.Credential;
+import uk.ac.surrey.bets_framework.protocol.CredentialRegistry.Role;
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+
+/**
+ * Checks that the credential registry finds every credential it holds by ID and by public key however many it holds,
+ * and only reopens valid logs.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestCredentialRegistry {
+
+	/** The public key of the authority. */
+	private static final byte[] AUTHORITY = "authority".getBytes(Data.UTF8);
+
+	/**
+	 * The number of credentials registered by the larger tests. This is well beyond the initial size of the log and hash
+	 * tables, so they are grown several times, and enough that many IDs share a hash table slot with another.
+	 */
+	private static final int COUNT = 5000;
+
+	/** Temporary folder for log files. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates the fields of a credential.
+	 *
+	 * @param i
+	 *            The number of the credential.
+	 * @return The fields.
+	 */
+	private static List<byte[]> fields(int i) {
+		return Arrays.asList(BigInteger.valueOf(i).toByteArray(), new byte[0], new byte[i % 300]);
+	}
+
+	/**
+	 * Creates the ID of a holder.
+	 *
+	 * @param i
+	 *            The number of the holder.
+	 * @return The ID.
+	 */
+	private static String id(int i) {
+		return "user-" + i;
+	}
+
+	/**
+	 * Creates the public key of a holder.
+	 *
+	 * @param i
+	 *            The number of the public key.
+	 * @return The public key.
+	 */
+	private static byte[] publicKey(int i) {
+		return ("key-" + i).getBytes(Data.UTF8);
+	}
+
+	/**
+	 * Asserts that a credential is the one registered for a holder.
+	 *
+	 * @param i
+	 *            The number of the holder.
+	 * @param credential
+	 *            The credential.
+	 */
+	private static void assertCredential(int i, Credential credential) {
+		assertNotNull("credential " + i, credential);
+		assertEquals(Role.USER, credential.getRole());
+		assertEquals(id(i), credential.getId());
+
+		final List<byte[]> expected = fields(i);
+		assertEquals(expected.size(), credential.getFields().size());
+		for (int j = 0; j < expected.size(); j++) {
+			assertArrayEquals("credential " + i + " field " + j, expected.get(j), credential.getFields().get(j));
+		}
+	}
+
+	/**
+	 * Checks that every registered credential can be found.
+	 *
+	 * @param registry
+	 *            The registry to use.
+	 */
+	private static void assertAllFound(CredentialRegistry registry) {
+		assertEquals(COUNT, registry.size());
+
+		for (int i = 0; i < COUNT; i++) {
+			assertCredential(i, registry.get(AUTHORITY, Role.USER, id(i)));
+			assertCredential(i, registry.getByPublicKey(AUTHORITY, publicKey(i)));
+		}
+	}
+
+	/**
+	 * Registers credentials and checks that every one of them is then found.
+	 *
+	 * @param registry
+	 *            The registry to use.
+	 * @throws IOException
+	 *             if the registry fails.
+	 */
+	private static void registerAndCheck(CredentialRegistry registry) throws IOException {
+		for (int i = 0; i < COUNT; i++) {
+			registry.put(AUTHORITY, Role.USER, id(i), publicKey(i), fields(i));
+		}
+
+		assertAllFound(registry);
+
+		// Credentials are only found under the authority and role they were registered for.
+		final byte[] other = "other".getBytes(Data.UTF8);
+		for (int i = 0; i < COUNT; i++) {
+			assertNull(registry.get(other, Role.USER, id(i)));
+			assertNull(registry.get(AUTHORITY, Role.VERIFIER, id(i)));
+			assertNull(registry.getByPublicKey(other, publicKey(i)));
+		}
+
+		assertNull(registry.get(AUTHORITY, Role.USER, id(COUNT)));
+		assertNull(registry.getByPublicKey(AUTHORITY, publicKey(COUNT)));
+	}
+
+	/**
+	 * Opens a log file which is expected to be rejected.
+	 *
+	 * @param file
+	 *            The log file.
+	 */
+	private static void assertRejected(Path file) {
+		try (final CredentialRegistry registry = new CredentialRegistry(file)) {
+			fail("opened invalid log holding " + registry.size() + " credentials");
+		} catch (final IOException e) {
+			// Expected.
+		}
+	}
+
+	/**
+	 * Overwrites part of a file.
+	 *
+	 * @param file
+	 *            The file.
+	 * @param position
+	 *            The position to write at.
+	 * @param value
+	 *            The value to write.
+	 * @param isLong
+	 *            True to write a long rather than an int.
+	 * @throws IOException
+	 *             if the file could not be written.
+	 */
+	private static void overwrite(Path file, long position, long value, boolean isLong) throws IOException {
+		try (final RandomAccessFile access = new RandomAccessFile(file.toFile(), "rw")) {
+			access.seek(position);
+
+			if (isLong) {
+				access.writeLong(value);
+			} else {
+				access.writeInt((int) value);
+			}
+		}
+	}
+
+	@Test
+	public void testInMemory() throws IOException {
+		final CredentialRegistry registry = new CredentialRegistry();
+
+		registerAndCheck(registry);
+		assertFalse(registry.isPersistent());
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		try (final CredentialRegistry registry = new CredentialRegistry(
+				this.folder.getRoot().toPath().resolve("credentials.log"))) {
+			registerAndCheck(registry);
+			assertTrue(registry.isPersistent());
+		}
+	}
+
+	@Test
+	public void testReplace() throws IOException {
+		final CredentialRegistry registry = new CredentialRegistry();
+
+		for (int i = 0; i < COUNT; i++) {
+			registry.put(AUTHORITY, Role.USER, id(i), publicKey(i), fields(i));
+		}
+
+		// Each holder registers a new public key, so only the new one finds them.
+		for (int i = 0; i < COUNT; i++) {
+			registry.put(AUTHORITY, Role.USER, id(i), publicKey(COUNT + i), fields(i));
+		}
+
+		assertEquals(COUNT, registry.size());
+
+		for (int i = 0; i < COUNT; i++) {
+			assertCredential(i, registry.get(AUTHORITY, Role.USER, id(i)));
+			assertCredential(i, registry.getByPublicKey(AUTHORITY, publicKey(COUNT + i)));
+			assertNull("old key " + i, registry.getByPublicKey(AUTHORITY, publicKey(i)));
+		}
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("credentials.log");
+
+		try (final CredentialRegistry registry = new CredentialRegistry(file)) {
+			for (int i = 0; i < COUNT; i++) {
+				registry.put(AUTHORITY, Role.USER, id(i), publicKey(i), fields(i));
+			}
+		}
+
+		// A tiny cache makes almost every lookup decode its record from the log.
+		try (final CredentialRegistry registry = new CredentialRegistry(file, 1)) {
+			assertAllFound(registry);
+			registry.put(AUTHORITY, Role.USER, id(0), publicKey(COUNT), fields(0));
+		}
+
+		try (final CredentialRegistry registry = new CredentialRegistry(file, 1)) {
+			assertEquals(COUNT, registry.size());
+			assertCredential(0, registry.getByPublicKey(AUTHORITY, publicKey(COUNT)));
+			assertNull(registry.getByPublicKey(AUTHORITY, publicKey(0)));
+		}
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("credentials.log");
+
+		try (final CredentialRegistry registry = new CredentialRegistry(file)) {
+			registry.put(AUTHORITY, Role.USER, id(0), publicKey(0), fields(0));
+			registry.put(AUTHORITY, Role.USER, id(1), publicKey(1), fields(1));
+		}
+
+		final byte[] valid = Files.readAllBytes(file);
+
+		// Shorter than the header.
+		Files.write(file, Arrays.copyOf(valid, 20));
+		assertRejected(file);
+
+		// Not a log.
+		final byte[] corrupt = valid.clone();
+		corrupt[0] ^= 0x01;
+		Files.write(file, corrupt);
+		assertRejected(file);
+
+		// The end of the last record beyond the end of the file.
+		Files.write(file, valid);
+		overwrite(file, 16, valid.length + 1L, true);
+		assertRejected(file);
+
+		// A record which runs beyond the end of the last record.
+		Files.write(file, valid);
+		overwrite(file, 24, Integer.MAX_VALUE, false);
+		assertRejected(file);
+
+		// A record which is shorter than its fixed fields.
+		Files.write(file, valid);
+		overwrite(file, 24, 4, false);
+		assertRejected(file);
+
+		// More records than the log holds.
+		Files.write(file, valid);
+		overwrite(file, 8, 3L, true);
+		assertRejected(file);
+
+		// Fewer records than the log holds, leaving trailing data.
+		Files.write(file, valid);
+		overwrite(file, 8, 1L, true);
+		assertRejected(file);
+
+		// The log is still readable once it has been restored.
+		Files.write(file, valid);
+		try (final CredentialRegistry registry = new CredentialRegistry(file)) {
+			assertEquals(2, registry.size());
+			assertCredential(1, registry.getByPublicKey(AUTHORITY, publicKey(1)));
+		}
+	}
+}
@@ -0,0 +1,195 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.surrey.bets_framework.protocol.data.Data;
+
+/**
+ * Checks that the double spend store finds every serial it has recorded however many it holds, never reports a serial which
+ * has not been recorded, and only reopens valid logs.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestDoubleSpendStore {
+
+	/**
+	 * The number of serials recorded by the larger tests. This is well beyond the initial capacity of the store, so the log
+	 * and hash table are grown several times, and enough that many serials share a hash table slot with another.
+	 */
+	private static final int COUNT = 20000;
+
+	/** Temporary folder for log files. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a serial.
+	 *
+	 * @param i
+	 *            The number of the serial.
+	 * @return The serial.
+	 */
+	private static byte[] serial(int i) {
+		return ("serial-" + i).getBytes(Data.UTF8);
+	}
+
+	/**
+	 * Creates a transcript.
+	 *
+	 * @param i
+	 *            The number of the transcript.
+	 * @return The transcript.
+	 */
+	private static byte[] transcript(int i) {
+		return ("transcript-" + i).getBytes(Data.UTF8);
+	}
+
+	/**
+	 * Records serials and checks that every one of them is then found.
+	 *
+	 * @param store
+	 *            The store to use.
+	 * @throws IOException
+	 *             if the store fails.
+	 */
+	private static void recordAndCheck(DoubleSpendStore store) throws IOException {
+		for (int i = 0; i < COUNT; i++) {
+			assertFalse("first spend " + i, store.checkAndRecord(serial(i), transcript(i)));
+		}
+
+		assertEquals(COUNT, store.size());
+
+		// Serials which share a slot must each be found, whether they were inserted one at a time or when the table was
+		// rebuilt.
+		for (int i = 0; i < COUNT; i++) {
+			assertFalse("replay " + i, store.checkAndRecord(serial(i), transcript(i)));
+			assertTrue("double spend " + i, store.checkAndRecord(serial(i), transcript(i + 1)));
+		}
+
+		assertEquals(COUNT, store.size());
+	}
+
+	/**
+	 * Opens a log file which is expected to be rejected.
+	 *
+	 * @param file
+	 *            The log file.
+	 */
+	private static void assertRejected(Path file) {
+		try (final DoubleSpendStore store = new DoubleSpendStore(file)) {
+			fail("opened invalid log holding " + store.size() + " serials");
+		} catch (final IOException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void testInMemory() throws IOException {
+		recordAndCheck(new DoubleSpendStore());
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		try (final DoubleSpendStore store = new DoubleSpendStore(this.folder.getRoot().toPath().resolve("serials.log"))) {
+			recordAndCheck(store);
+		}
+	}
+
+	@Test
+	public void testNeverSeen() throws IOException {
+		final DoubleSpendStore store = new DoubleSpendStore();
+
+		for (int i = 0; i < COUNT; i++) {
+			store.checkAndRecord(serial(i), transcript(i));
+		}
+
+		// Some of these pass the Bloom filter even though they have not been recorded, and must still be treated as a first
+		// spend.
+		for (int i = COUNT; i < (5 * COUNT); i++) {
+			assertFalse("first spend " + i, store.checkAndRecord(serial(i), transcript(i + 1)));
+		}
+
+		assertEquals(5 * COUNT, store.size());
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("serials.log");
+
+		try (final DoubleSpendStore store = new DoubleSpendStore(file)) {
+			for (int i = 0; i < COUNT; i++) {
+				store.checkAndRecord(serial(i), transcript(i));
+			}
+		}
+
+		try (final DoubleSpendStore store = new DoubleSpendStore(file)) {
+			assertEquals(COUNT, store.size());
+
+			for (int i = 0; i < COUNT; i++) {
+				assertFalse("replay " + i, store.checkAndRecord(serial(i), transcript(i)));
+				assertTrue("double spend " + i, store.checkAndRecord(serial(i), transcript(i + 1)));
+			}
+
+			assertFalse(store.checkAndRecord(serial(COUNT), transcript(COUNT)));
+		}
+
+		try (final DoubleSpendStore store = new DoubleSpendStore(file)) {
+			assertEquals(COUNT + 1, store.size());
+			assertTrue(store.checkAndRecord(serial(COUNT), transcript(0)));
+		}
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException {
+		final Path file = this.folder.getRoot().toPath().resolve("serials.log");
+
+		try (final DoubleSpendStore store = new DoubleSpendStore(file)) {
+			store.checkAndRecord(serial(0), transcript(0));
+		}
+
+		final byte[] valid = Files.readAllBytes(file);
+
+		// Shorter than the header.
+		Files.write(file, Arrays.copyOf(valid, 10));
+		assertRejected(file);
+
+		// Not a log.
+		final byte[] corrupt = valid.clone();
+		corrupt[0] ^= 0x01;
+		Files.write(file, corrupt);
+		assertRejected(file);
+
+		// A record count running beyond the end of the file.
+		Files.write(file, valid);
+		try (final RandomAccessFile access = new RandomAccessFile(file.toFile(), "rw")) {
+			access.seek(8);
+			access.writeLong(Integer.MAX_VALUE);
+		}
+		assertRejected(file);
+
+		// A negative record count.
+		try (final RandomAccessFile access = new RandomAccessFile(file.toFile(), "rw")) {
+			access.seek(8);
+			access.writeLong(-1L);
+		}
+		assertRejected(file);
+	}
+}
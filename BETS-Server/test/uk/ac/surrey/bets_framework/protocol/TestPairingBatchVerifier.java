@@ -0,0 +1,125 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import it.unisa.dia.gas.jpbc.Element;
+import it.unisa.dia.gas.jpbc.Pairing;
+import it.unisa.dia.gas.plaf.jpbc.pairing.PairingFactory;
+import it.unisa.dia.gas.plaf.jpbc.pairing.a.TypeACurveGenerator;
+import uk.ac.surrey.bets_framework.Crypto;
+
+/**
+ * Checks that the pairing batch verifier accepts a batch of valid signatures, and that a batch holding a bad signature is
+ * rejected and the bad signature identified.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestPairingBatchVerifier {
+
+	/** The number of signatures in each batch. */
+	private static final int COUNT = 8;
+
+	/** The generator g_frak. */
+	private static Element generator;
+
+	/** The group order. */
+	private static BigInteger order;
+
+	/** The pairing to use. */
+	private static Pairing pairing;
+
+	/** The signer's public key Y. */
+	private static Element publicKey;
+
+	/** The signer's secret key x. */
+	private static BigInteger secretKey;
+
+	@BeforeClass
+	public static void setUpClass() {
+		pairing = PairingFactory.getPairing(new TypeACurveGenerator(160, 512).generate());
+		order = pairing.getG1().getOrder();
+		generator = pairing.getG2().newRandomElement().getImmutable();
+		secretKey = Crypto.getInstance().secureRandom(order);
+		publicKey = generator.mul(secretKey).getImmutable();
+	}
+
+	/**
+	 * Creates a batch of valid signatures Z_i = M_i * 1 / (x + z_i), so that e(Z_i, Y + g_frak * z_i) = e(M_i, g_frak).
+	 *
+	 * @param count
+	 *            The number of signatures.
+	 * @param bad
+	 *            The indexes of signatures to spoil.
+	 * @return The batch.
+	 */
+	private static PairingBatchVerifier createBatch(int count, int... bad) {
+		final Crypto crypto = Crypto.getInstance();
+		final PairingBatchVerifier batch = new PairingBatchVerifier(pairing, publicKey, generator);
+
+		for (int i = 0; i < count; i++) {
+			final Element message = pairing.getG1().newRandomElement().getImmutable();
+			final BigInteger exponent = crypto.secureRandom(order);
+			Element signature = message.mul(secretKey.add(exponent).modInverse(order));
+
+			for (final int index : bad) {
+				if (index == i) {
+					signature = signature.twice();
+				}
+			}
+
+			batch.add(signature, exponent, message);
+		}
+
+		return batch;
+	}
+
+	@Test
+	public void testValid() {
+		assertEquals(-1, createBatch(0).verify());
+		assertEquals(-1, createBatch(1).verify());
+
+		final PairingBatchVerifier batch = createBatch(COUNT);
+		assertEquals(COUNT, batch.size());
+		assertEquals(-1, batch.verify());
+
+		for (int i = 0; i < COUNT; i++) {
+			assertTrue("signature " + i, batch.verify(i));
+		}
+	}
+
+	@Test
+	public void testSingleBad() {
+		assertEquals(0, createBatch(1, 0).verify());
+
+		// The batch check fails wherever the bad signature is, and the fallback must find it.
+		for (int bad = 0; bad < COUNT; bad++) {
+			final PairingBatchVerifier batch = createBatch(COUNT, bad);
+			assertEquals(bad, batch.verify());
+
+			for (int i = 0; i < COUNT; i++) {
+				assertEquals("signature " + i, i != bad, batch.verify(i));
+			}
+		}
+	}
+
+	@Test
+	public void testSeveralBad() {
+		assertEquals(2, createBatch(COUNT, 5, 2, 7).verify());
+
+		final PairingBatchVerifier batch = createBatch(COUNT, 0, 1, 2, 3, 4, 5, 6, 7);
+		assertEquals(0, batch.verify());
+		assertFalse(batch.verify(COUNT - 1));
+	}
+}
@@ -0,0 +1,179 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import uk.ac.surrey.bets_framework.protocol.ParameterStore.Section;
+
+/**
+ * Checks that saved parameters are reloaded as they were saved, and that a parameter file which is truncated or corrupt is
+ * ignored rather than used.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestParameterStore {
+
+	/** The configuration the test parameters are generated for. */
+	private static final String CONFIGURATION = "bits=160";
+
+	/** The name of the test section. */
+	private static final String NAME = "Test";
+
+	/** The file holding the parameters. */
+	private Path file;
+
+	/** Temporary folder for parameter files. */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a section holding values of each type which can be saved without a pairing.
+	 *
+	 * @param name
+	 *            The name of the section.
+	 * @return The section.
+	 */
+	private static Section createSection(String name) {
+		final byte[] large = new byte[70000];
+		Arrays.fill(large, (byte) 0x5A);
+
+		return new Section(name, CONFIGURATION).put("p", BigInteger.ONE.shiftLeft(160).subtract(BigInteger.ONE))
+				.put("negative", BigInteger.valueOf(-12345))
+				.put("numbers", new BigInteger[] { BigInteger.ZERO, BigInteger.TEN, BigInteger.valueOf(-1) })
+				.put("empty", new byte[0]).put("large", large);
+	}
+
+	/**
+	 * Asserts that a section holds the values of {@link #createSection(String)}.
+	 *
+	 * @param section
+	 *            The section.
+	 */
+	private static void assertSection(Section section) {
+		final Section expected = createSection(section.getName());
+
+		assertNotNull(section);
+		assertEquals(CONFIGURATION, section.getConfiguration());
+		assertEquals(expected.getBigInteger("p"), section.getBigInteger("p"));
+		assertEquals(expected.getBigInteger("negative"), section.getBigInteger("negative"));
+		assertArrayEquals(expected.getBigIntegers("numbers"), section.getBigIntegers("numbers"));
+		assertArrayEquals(expected.getBytes("empty"), section.getBytes("empty"));
+		assertArrayEquals(expected.getBytes("large"), section.getBytes("large"));
+
+		// Values can be read more than once.
+		assertArrayEquals(expected.getBytes("large"), section.getBytes("large"));
+	}
+
+	/**
+	 * Reloads the parameter file.
+	 *
+	 * @return The parameter store.
+	 */
+	private ParameterStore reload() {
+		ParameterStore.setFile(this.file);
+
+		return ParameterStore.getInstance();
+	}
+
+	@Before
+	public void setUp() {
+		this.file = this.folder.getRoot().toPath().resolve("parameters.bin");
+	}
+
+	@After
+	public void tearDown() {
+		ParameterStore.setFile(null);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		ParameterStore.getInstance().putSection(createSection(NAME));
+		ParameterStore.getInstance().putSection(createSection("Other"));
+
+		final ParameterStore store = this.reload();
+		assertSection(store.getSection(NAME, CONFIGURATION));
+		assertSection(store.getSection("Other", CONFIGURATION));
+
+		// Parameters are only used for the configuration they were generated for.
+		assertNull(store.getSection(NAME, "bits=256"));
+
+		try {
+			store.getSection(NAME, CONFIGURATION).getBytes("missing");
+			fail("missing value read");
+		} catch (final IllegalStateException e) {
+			// Expected.
+		}
+
+		// Replacing one section keeps the other.
+		store.putSection(new Section(NAME, "bits=256").put("p", BigInteger.ONE));
+		assertEquals(BigInteger.ONE, this.reload().getSection(NAME, "bits=256").getBigInteger("p"));
+		assertSection(ParameterStore.getInstance().getSection("Other", CONFIGURATION));
+	}
+
+	@Test
+	public void testInvalidFile() throws IOException, NoSuchAlgorithmException {
+		this.reload().putSection(createSection(NAME));
+		final byte[] valid = Files.readAllBytes(this.file);
+
+		// Shorter than the header and hash.
+		Files.write(this.file, Arrays.copyOf(valid, 39));
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		// Truncated, so the hash does not match.
+		Files.write(this.file, Arrays.copyOf(valid, valid.length - 1));
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		// Corrupted in the middle of a value.
+		final byte[] corrupt = valid.clone();
+		corrupt[valid.length / 2] ^= 0x01;
+		Files.write(this.file, corrupt);
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		// Not a parameter file, even though the hash matches.
+		final byte[] magic = valid.clone();
+		magic[0] ^= 0x01;
+		final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		digest.update(magic, 0, magic.length - 32);
+		System.arraycopy(digest.digest(), 0, magic, magic.length - 32, 32);
+		Files.write(this.file, magic);
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		// A section count beyond the data, even though the hash matches.
+		final byte[] count = valid.clone();
+		count[8] = 0x7F;
+		digest.update(count, 0, count.length - 32);
+		System.arraycopy(digest.digest(), 0, count, count.length - 32, 32);
+		Files.write(this.file, count);
+		assertNull(this.reload().getSection(NAME, CONFIGURATION));
+
+		// An ignored file is replaced once new parameters are saved.
+		ParameterStore.getInstance().putSection(createSection(NAME));
+		assertSection(this.reload().getSection(NAME, CONFIGURATION));
+		assertEquals(ByteBuffer.wrap(valid), ByteBuffer.wrap(Files.readAllBytes(this.file)));
+	}
+}
@@ -742,7 +742,7 @@ public class TestAnonSSO {
 		// ticket, too
 		if (ID_V.equalsIgnoreCase(Actor.CENTRAL_VERIFIER)) {
 			LOG.debug("it's a trace so add the whole ticket, too!");
-			userData.ticketDetails.getTicketDetails(sendDataList);
+			userData.ticketDetails.getTicketDetails(sharedMemory, sendDataList);
 		}
 		final ListData sendData = new ListData(sendDataList);
 		return sendData.toBytes();
@@ -1055,7 +1055,7 @@ public class TestAnonSSO {
 		final List<byte[]> sendDataList = new ArrayList<>();
 		sendDataList.add(C_U.toBytes());
 		sendDataList.add(BigInteger.valueOf(numberOfVerifiers).toByteArray()); // need to keep track of the array size
-		ticketDetails.getTicketDetails(sendDataList);
+		ticketDetails.getTicketDetails(sharedMemory, sendDataList);
 		final ListData sendData = new ListData(sendDataList);
 
 		return sendData.toBytes();
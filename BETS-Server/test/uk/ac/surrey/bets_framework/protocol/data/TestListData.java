@@ -0,0 +1,189 @@
+/**
+ * DICE NFC evaluation.
+ *
+ * (c) University of Surrey and Pervasive Intelligence Ltd 2017.
+ */
+package uk.ac.surrey.bets_framework.protocol.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import uk.ac.surrey.bets_framework.Crypto;
+import uk.ac.surrey.bets_framework.CryptoContext;
+import uk.ac.surrey.bets_framework.TranscriptHasher.Framing;
+import uk.ac.surrey.bets_framework.protocol.control.setup.ClientData;
+import uk.ac.surrey.bets_framework.protocol.data.Data.Encoding;
+
+/**
+ * Checks that list data survives both the binary and the JSON encodings, and that its hash does not depend upon the
+ * encoding used to exchange it.
+ *
+ * @author Steve Wesemeyer
+ */
+public class TestListData {
+
+	/** The list sent in each test, with empty, small and large items. */
+	private final List<byte[]> list = new ArrayList<>();
+
+	@Before
+	public void setUp() throws Exception {
+		final Random random = new Random(42);
+
+		this.list.clear();
+		this.list.add(new byte[0]);
+		this.list.add(new byte[] { 0, (byte) 0xFF, (byte) 0x80, 0x7F });
+
+		// Larger than a single byte varint length and a single APDU.
+		final byte[] large = new byte[70000];
+		random.nextBytes(large);
+		this.list.add(large);
+		this.list.add(new byte[0]);
+	}
+
+	/**
+	 * Asserts that two lists hold the same arrays.
+	 *
+	 * @param expected
+	 *            The expected list.
+	 * @param actual
+	 *            The actual list.
+	 */
+	private void assertListEquals(List<byte[]> expected, List<byte[]> actual) {
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals("item " + i, expected.get(i), actual.get(i));
+		}
+	}
+
+	@Test
+	public void testBinaryRoundTrip() {
+		final byte[] bytes = new ListData(this.list).toBytes(Encoding.BINARY);
+
+		assertEquals(Data.BINARY_MARKER, bytes[0]);
+		assertEquals(Encoding.BINARY, Data.detectEncoding(bytes));
+		this.assertListEquals(this.list, ListData.fromBytes(bytes).getList());
+	}
+
+	@Test
+	public void testEmptyList() {
+		for (final Encoding encoding : Encoding.values()) {
+			final byte[] bytes = new ListData(new ArrayList<byte[]>()).toBytes(encoding);
+
+			assertEquals(encoding, Data.detectEncoding(bytes));
+			assertEquals(0, ListData.fromBytes(bytes).getList().size());
+		}
+	}
+
+	@Test
+	public void testJsonRoundTrip() {
+		final byte[] bytes = new ListData(this.list).toBytes(Encoding.JSON);
+
+		assertEquals('{', bytes[0]);
+		assertEquals(Encoding.JSON, Data.detectEncoding(bytes));
+		this.assertListEquals(this.list, ListData.fromBytes(bytes).getList());
+	}
+
+	@Test
+	public void testCanonicalDigest() throws NoSuchAlgorithmException {
+		final ListData listData = new ListData(this.list);
+		final byte[] expected = MessageDigest.getInstance("SHA-256")
+				.digest(listData.toBytes(Data.CANONICAL_ENCODING));
+		final Crypto crypto = Crypto.getInstance();
+
+		// The hash must be the same whichever encoding the session exchanges data in.
+		for (final Encoding encoding : Encoding.values()) {
+			final CryptoContext previous = crypto.setContext(new CryptoContext(encoding, Framing.LIST_DATA));
+
+			try {
+				assertArrayEquals(encoding.name(), listData.toBytes(encoding), listData.toBytes());
+
+				final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+				listData.digest(digest);
+				assertArrayEquals(encoding.name(), expected, digest.digest());
+			} finally {
+				crypto.setContext(previous);
+			}
+		}
+	}
+
+	@Test
+	public void testStreamedDigest() {
+		final Crypto crypto = Crypto.getInstance();
+		final List<Data> data = Arrays.asList(new ListData(this.list), new ListData(new ArrayList<byte[]>()),
+				new ClientData(new byte[] { 1, 2, 3 }, 255, Framing.LENGTH_PREFIXED, true));
+
+		// The JSON streamed into the digest must be the same as the JSON encoding, both for list data, which writes its own
+		// JSON, and for data which is written from its JSON object.
+		for (final Data item : data) {
+			assertArrayEquals(item.getClass().getSimpleName(), crypto.getHash(item.toBytes(Encoding.JSON), "SHA-256"),
+					crypto.getHash(item, "SHA-256"));
+		}
+	}
+
+	@Test
+	public void testDetectEncoding() {
+		assertEquals(Encoding.JSON, Data.detectEncoding(null));
+		assertEquals(Encoding.JSON, Data.detectEncoding(new byte[0]));
+		assertEquals(Encoding.JSON, Data.detectEncoding("{}".getBytes(Data.UTF8)));
+		assertEquals(Encoding.BINARY, Data.detectEncoding(new byte[] { Data.BINARY_MARKER }));
+	}
+
+	@Test
+	public void testInvalidBinary() {
+		final byte[] bytes = new ListData(this.list).toBytes(Encoding.BINARY);
+
+		// Trailing data.
+		final byte[] trailing = Arrays.copyOf(bytes, bytes.length + 1);
+		assertNull(ListData.fromBytes(trailing));
+
+		// Truncated data, which includes a length running beyond the end.
+		assertNull(ListData.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+		assertNull(ListData.fromBytes(new byte[] { Data.BINARY_MARKER }));
+	}
+
+	@Test
+	public void testVarLong() throws DataException {
+		final long[] values = { 0L, 1L, 0x7FL, 0x80L, 0x3FFFL, 0x4000L, Integer.MAX_VALUE, Long.MAX_VALUE, -1L };
+		final BinaryWriter writer = new BinaryWriter();
+
+		for (final long value : values) {
+			writer.writeVarLong(value);
+		}
+
+		final byte[] bytes = writer.toByteArray();
+		assertEquals(0, bytes[0]);
+
+		final BinaryReader reader = new BinaryReader(bytes, 0);
+
+		for (final long value : values) {
+			assertEquals(value, reader.readVarLong());
+		}
+
+		assertFalse(reader.hasRemaining());
+
+		// A varint with its continuation bit set on every byte never ends.
+		final byte[] endless = new byte[11];
+		Arrays.fill(endless, (byte) 0x80);
+
+		try {
+			new BinaryReader(endless, 0).readVarLong();
+			fail("endless varint decoded");
+		} catch (final DataException e) {
+			// Expected.
+		}
+	}
+}